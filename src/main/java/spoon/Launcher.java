@@ -620,6 +620,7 @@ public class Launcher implements SpoonAPI {
 
 	public JavaOutputProcessor createOutputWriter() {
 		JavaOutputProcessor outputProcessor = new JavaOutputProcessor(createPrettyPrinter());
+		outputProcessor.setPrinterSupplier(this::createPrettyPrinter);
 		outputProcessor.setFactory(this.getFactory());
 		return outputProcessor;
 	}
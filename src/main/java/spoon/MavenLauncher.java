@@ -25,23 +25,60 @@ import org.apache.maven.model.Plugin;
 import org.apache.maven.model.io.xpp3.MavenXpp3Reader;
 import org.codehaus.plexus.util.xml.Xpp3Dom;
 import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
+import spoon.compiler.SpoonFile;
+import spoon.compiler.SpoonFolder;
+import spoon.reflect.CtModel;
+import spoon.support.compiler.VirtualFolder;
+import spoon.support.compiler.jdt.JDTBasedSpoonCompiler;
+import spoon.support.compiler.jdt.MultiModuleModelBuilder;
 
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.zip.CRC32;
 
 /**
  * Create a Spoon launcher from a maven pom file
  */
 public class MavenLauncher extends Launcher {
+	/**
+	 * The name of the module of the input sources which are in no Maven module, when the model is built by module
+	 */
+	private static final String OTHER_INPUT_SOURCES = "<other input sources>";
+
 	private String m2RepositoryPath;
 	private SOURCE_TYPE sourceType;
+	private InheritanceModel projectModel;
+	private boolean buildByModule = false;
+
+	/**
+	 * The resolved dependencies of the libraries, by POM file in the local repository,
+	 * so that the POM of a library is read once even if it is a dependency of several modules or libraries
+	 */
+	private final Map<File, List<File>> libraryDependencies = new HashMap<>();
+
+	/**
+	 * The POM files of the libraries whose dependencies are being resolved, from the first one to the last one
+	 */
+	private final List<File> resolvingLibraries = new ArrayList<>();
+
+	/**
+	 * The POM files of the libraries being resolved whose dependencies depend on a library being resolved before them,
+	 * whose dependencies are incomplete and are resolved again when needed
+	 */
+	private final Set<File> incompleteLibraries = new HashSet<>();
 
 	/**
 	 * The type of source to consider in the model
@@ -65,6 +102,17 @@ public class MavenLauncher extends Launcher {
 	 * @param m2RepositoryPath the path to the m2repository
 	 */
 	public MavenLauncher(String mavenProject, String m2RepositoryPath, SOURCE_TYPE sourceType) {
+		this(mavenProject, m2RepositoryPath, sourceType, null);
+	}
+
+	/**
+	 *
+	 * @param mavenProject the path to the root of the project
+	 * @param m2RepositoryPath the path to the m2repository
+	 * @param classpathCacheFile the file in which the classpath of the project is saved,
+	 * and from which it is loaded instead of being resolved again while the POM files of the project do not change, or null
+	 */
+	public MavenLauncher(String mavenProject, String m2RepositoryPath, SOURCE_TYPE sourceType, File classpathCacheFile) {
 		super();
 		this.m2RepositoryPath = m2RepositoryPath;
 		this.sourceType = sourceType;
@@ -83,6 +131,7 @@ public class MavenLauncher extends Launcher {
 		if (model == null) {
 			throw new SpoonException("Unable to create the model, pom not found?");
 		}
+		this.projectModel = model;
 
 		// app source
 		if (SOURCE_TYPE.APP_SOURCE == sourceType || SOURCE_TYPE.ALL_SOURCE == sourceType) {
@@ -101,16 +150,120 @@ public class MavenLauncher extends Launcher {
 		}
 
 		// dependencies
-		List<File> dependencies = model.getDependencies(false);
+		List<File> dependencies = null;
+		String classpathCacheKey = null;
+		if (classpathCacheFile != null) {
+			classpathCacheKey = getClasspathCacheKey(model);
+			dependencies = loadClasspath(classpathCacheFile, classpathCacheKey);
+		}
+		if (dependencies == null) {
+			dependencies = model.getDependencies(false);
+			if (classpathCacheKey != null) {
+				saveClasspath(classpathCacheFile, classpathCacheKey, dependencies);
+			}
+		}
+		this.getModelBuilder().setSourceClasspath(toClasspath(dependencies));
+
+		// compliance level
+		this.getEnvironment().setComplianceLevel(model.getSourceVersion());
+	}
+
+	private static String getCanonicalPath(File file) {
+		try {
+			return file.getCanonicalPath();
+		} catch (IOException e) {
+			throw new SpoonException(e);
+		}
+	}
+
+	private static String[] toClasspath(List<File> dependencies) {
 		String[] classpath = new String[dependencies.size()];
 		for (int i = 0; i < dependencies.size(); i++) {
 			File file = dependencies.get(i);
 			classpath[i] = file.getAbsolutePath();
 		}
-		this.getModelBuilder().setSourceClasspath(classpath);
+		return classpath;
+	}
 
-		// compliance level
-		this.getEnvironment().setComplianceLevel(model.getSourceVersion());
+	/**
+	 * @return true if the model is built one Maven module after the other, see {@link #setBuildByModule(boolean)}
+	 */
+	public boolean isBuildByModule() {
+		return buildByModule;
+	}
+
+	/**
+	 * Sets whether the model is built one Maven module after the other by {@link #buildModel()}, with a {@link MultiModuleModelBuilder}, instead of all the sources of the project at once.
+	 * Each module is built with the classpath of the project and the models of the modules it depends on, in the order of the dependencies between the modules,
+	 * so that the JDT structures of a module are released once it is built. It requires less memory for projects made of many modules.
+	 * The input resources which are in no module are built last, and the template resources once all the sources are built.
+	 */
+	public void setBuildByModule(boolean buildByModule) {
+		this.buildByModule = buildByModule;
+	}
+
+	@Override
+	public CtModel buildModel() {
+		if (!buildByModule) {
+			return super.buildModel();
+		}
+		if (!(getModelBuilder() instanceof JDTBasedSpoonCompiler)) {
+			throw new SpoonException("The model can only be built by module with a JDTBasedSpoonCompiler");
+		}
+		long tstart = System.currentTimeMillis();
+		JDTBasedSpoonCompiler compiler = (JDTBasedSpoonCompiler) getModelBuilder();
+		MultiModuleModelBuilder builder = new MultiModuleModelBuilder(compiler);
+		// the classpath of the project, as resolved or loaded from the cache by the constructor, or set by the user
+		String[] classpath = compiler.getSourceClasspath();
+		List<InheritanceModel> models = new ArrayList<>();
+		projectModel.addAllModels(models);
+
+		// the input sources are dispatched to the modules declaring their source directories
+		Map<String, SpoonFolder> moduleSources = new LinkedHashMap<>();
+		Map<String, String> moduleBySourceDirectory = new HashMap<>();
+		for (InheritanceModel module : models) {
+			List<File> sourceDirectories = new ArrayList<>();
+			sourceDirectories.addAll(module.getModuleSourceDirectories());
+			sourceDirectories.addAll(module.getModuleTestDirectories());
+			for (File sourceDirectory : sourceDirectories) {
+				moduleBySourceDirectory.put(getCanonicalPath(sourceDirectory) + File.separator, module.getCoordinates());
+			}
+		}
+		SpoonFolder otherSources = new VirtualFolder();
+		for (SpoonFile file : compiler.getSource().getAllJavaFiles()) {
+			String moduleName = null;
+			if (file.isActualFile()) {
+				String path = getCanonicalPath(file.toFile());
+				for (Map.Entry<String, String> entry : moduleBySourceDirectory.entrySet()) {
+					if (path.startsWith(entry.getKey())) {
+						moduleName = entry.getValue();
+						break;
+					}
+				}
+			}
+			if (moduleName == null) {
+				otherSources.addFile(file);
+			} else {
+				moduleSources.computeIfAbsent(moduleName, name -> new VirtualFolder()).addFile(file);
+			}
+		}
+
+		List<String> moduleNames = new ArrayList<>();
+		for (InheritanceModel module : models) {
+			SpoonFolder sources = moduleSources.get(module.getCoordinates());
+			if (sources != null) {
+				builder.addModule(module.getCoordinates(), sources, classpath, module.getDependencyCoordinates());
+				moduleNames.add(module.getCoordinates());
+			}
+		}
+		// the input resources added by the user out of the modules may use all of them
+		if (!otherSources.getAllJavaFiles().isEmpty()) {
+			builder.addModule(OTHER_INPUT_SOURCES, otherSources, classpath, moduleNames);
+		}
+		// the templates are built by the builder once the modules are built
+		builder.build();
+		getEnvironment().debugMessage("model built by module in " + (System.currentTimeMillis() - tstart));
+		return getModelBuilder().getFactory().getModel();
 	}
 
 	/**
@@ -132,7 +285,7 @@ public class MavenLauncher extends Launcher {
 		MavenXpp3Reader pomReader = new MavenXpp3Reader();
 		try (FileReader reader = new FileReader(pomFile)) {
 			Model model = pomReader.read(reader);
-			InheritanceModel inheritanceModel = new InheritanceModel(model, parent, pomFile.getParentFile());
+			InheritanceModel inheritanceModel = new InheritanceModel(model, parent, pomFile);
 			for (String module : model.getModules()) {
 				inheritanceModel.addModule(readPOM(Paths.get(pomFile.getParent(), module).toString(), inheritanceModel));
 			}
@@ -140,16 +293,111 @@ public class MavenLauncher extends Launcher {
 		}
 	}
 
+	/**
+	 * @return the dependencies of the library of `pomFile`, a POM file of the local repository, which are resolved once per launcher
+	 */
+	private List<File> getLibraryDependencies(File pomFile) {
+		List<File> dependencies = libraryDependencies.get(pomFile);
+		if (dependencies != null) {
+			return dependencies;
+		}
+		int index = resolvingLibraries.indexOf(pomFile);
+		if (index >= 0) {
+			// a library depending on itself through its dependencies has no dependencies while they are resolved,
+			// so the dependencies of the libraries resolved meanwhile miss its dependencies and are not kept
+			incompleteLibraries.addAll(resolvingLibraries.subList(index + 1, resolvingLibraries.size()));
+			return Collections.emptyList();
+		}
+		resolvingLibraries.add(pomFile);
+		try {
+			InheritanceModel dependencyModel = readPOM(pomFile.getPath(), null);
+			dependencies = dependencyModel.getDependencies(true);
+		} catch (Exception ignore) {
+			// ignore the dependencies of the dependency
+			dependencies = Collections.emptyList();
+		} finally {
+			resolvingLibraries.remove(resolvingLibraries.size() - 1);
+		}
+		if (!incompleteLibraries.remove(pomFile)) {
+			libraryDependencies.put(pomFile, dependencies);
+		}
+		return dependencies;
+	}
+
+	/**
+	 * @return the key of the classpath of `model` in the classpath cache file,
+	 * which changes with the source type, the local repository and the content of the POM files of the project
+	 */
+	private String getClasspathCacheKey(InheritanceModel model) {
+		CRC32 checksum = new CRC32();
+		try {
+			for (InheritanceModel parent = model.getParent(); parent != null; parent = parent.getParent()) {
+				parent.updateChecksum(checksum, false);
+			}
+			model.updateChecksum(checksum, true);
+		} catch (IOException e) {
+			throw new SpoonException("Unable to read the pom", e);
+		}
+		return sourceType + " " + Long.toHexString(checksum.getValue()) + " " + m2RepositoryPath;
+	}
+
+	/**
+	 * @return the classpath saved in `classpathCacheFile` with `key`, or null if there is none or if one of its jars does not exist anymore
+	 */
+	private List<File> loadClasspath(File classpathCacheFile, String key) {
+		if (!classpathCacheFile.isFile()) {
+			return null;
+		}
+		try {
+			List<String> lines = Files.readAllLines(classpathCacheFile.toPath(), StandardCharsets.UTF_8);
+			if (lines.size() < 2 || !key.equals(lines.get(0))) {
+				return null;
+			}
+			List<File> dependencies = new ArrayList<>();
+			for (String line : lines.subList(2, lines.size())) {
+				File jar = new File(line);
+				if (!jar.exists()) {
+					return null;
+				}
+				dependencies.add(jar);
+			}
+			if (Boolean.parseBoolean(lines.get(1))) {
+				// a dependency was not found when the classpath was resolved
+				getEnvironment().setNoClasspath(true);
+			}
+			return dependencies;
+		} catch (IOException e) {
+			LOGGER.warn("Unable to read the classpath cache file " + classpathCacheFile, e);
+			return null;
+		}
+	}
+
+	private void saveClasspath(File classpathCacheFile, String key, List<File> dependencies) {
+		List<String> lines = new ArrayList<>();
+		lines.add(key);
+		lines.add(String.valueOf(getEnvironment().getNoClasspath()));
+		for (File dependency : dependencies) {
+			lines.add(dependency.getAbsolutePath());
+		}
+		try {
+			Files.write(classpathCacheFile.toPath(), lines, StandardCharsets.UTF_8);
+		} catch (IOException e) {
+			LOGGER.warn("Unable to write the classpath cache file " + classpathCacheFile, e);
+		}
+	}
+
 	class InheritanceModel {
 		private List<InheritanceModel> modules = new ArrayList<>();
 		private Model model;
 		private InheritanceModel parent;
+		private File pomFile;
 		private File directory;
 
-		InheritanceModel(Model model, InheritanceModel parent, File directory) {
+		InheritanceModel(Model model, InheritanceModel parent, File pomFile) {
 			this.model = model;
 			this.parent = parent;
-			this.directory = directory;
+			this.pomFile = pomFile;
+			this.directory = pomFile.getParentFile();
 			// if possible, build the parent model from the relative path
 			if (parent == null && model.getParent() != null) {
 				try {
@@ -169,6 +417,44 @@ public class MavenLauncher extends Launcher {
 			return model;
 		}
 
+		/**
+		 * Adds this model and the models of its modules, recursively, to `output`
+		 */
+		void addAllModels(List<InheritanceModel> output) {
+			output.add(this);
+			for (InheritanceModel module : modules) {
+				module.addAllModels(output);
+			}
+		}
+
+		private String getGroupId() {
+			if (model.getGroupId() == null && model.getParent() != null) {
+				return model.getParent().getGroupId();
+			}
+			return model.getGroupId();
+		}
+
+		/**
+		 * @return the groupId:artifactId of the project
+		 */
+		String getCoordinates() {
+			return getGroupId() + ":" + model.getArtifactId();
+		}
+
+		/**
+		 * @return the groupId:artifactId of the dependencies of the project, including the ones inherited from its parents,
+		 * whose properties are resolved in the project
+		 */
+		List<String> getDependencyCoordinates() {
+			List<String> coordinates = new ArrayList<>();
+			for (InheritanceModel inheritanceModel = this; inheritanceModel != null; inheritanceModel = inheritanceModel.parent) {
+				for (Dependency dependency : inheritanceModel.model.getDependencies()) {
+					coordinates.add(extractVariable(dependency.getGroupId()) + ":" + extractVariable(dependency.getArtifactId()));
+				}
+			}
+			return coordinates;
+		}
+
 		/**
 		 * Get the parent model
 		 * @return the parent model
@@ -177,11 +463,37 @@ public class MavenLauncher extends Launcher {
 			return parent;
 		}
 
+		/**
+		 * Adds the path and the content of the POM file to `checksum`
+		 * @param withModules true to add the POM files of the modules too
+		 */
+		void updateChecksum(CRC32 checksum, boolean withModules) throws IOException {
+			checksum.update(pomFile.getAbsolutePath().getBytes(StandardCharsets.UTF_8));
+			checksum.update(Files.readAllBytes(pomFile.toPath()));
+			if (withModules) {
+				for (InheritanceModel module : modules) {
+					module.updateChecksum(checksum, true);
+				}
+			}
+		}
+
 		/**
 		 * Get the list of source directories of the project
 		 * @return the list of source directories
 		 */
 		public List<File> getSourceDirectories() {
+			List<File> output = getModuleSourceDirectories();
+			for (InheritanceModel module : modules) {
+				output.addAll(module.getSourceDirectories());
+			}
+			return output;
+		}
+
+		/**
+		 * Get the list of source directories of the project, without the ones of its modules
+		 * @return the list of source directories
+		 */
+		List<File> getModuleSourceDirectories() {
 			List<File> output = new ArrayList<>();
 			String sourcePath = null;
 
@@ -200,9 +512,6 @@ public class MavenLauncher extends Launcher {
 			if (generatedSource.exists()) {
 				output.add(generatedSource);
 			}
-			for (InheritanceModel module : modules) {
-				output.addAll(module.getSourceDirectories());
-			}
 			return output;
 		}
 
@@ -211,6 +520,18 @@ public class MavenLauncher extends Launcher {
 		 * @return the list of test directories
 		 */
 		public List<File> getTestDirectories() {
+			List<File> output = getModuleTestDirectories();
+			for (InheritanceModel module : modules) {
+				output.addAll(module.getTestDirectories());
+			}
+			return output;
+		}
+
+		/**
+		 * Get the list of test directories of the project, without the ones of its modules
+		 * @return the list of test directories
+		 */
+		List<File> getModuleTestDirectories() {
 			List<File> output = new ArrayList<>();
 			String sourcePath = null;
 
@@ -229,9 +550,6 @@ public class MavenLauncher extends Launcher {
 			if (generatedSource.exists()) {
 				output.add(generatedSource);
 			}
-			for (InheritanceModel module : modules) {
-				output.addAll(module.getTestDirectories());
-			}
 			return output;
 		}
 
@@ -239,7 +557,7 @@ public class MavenLauncher extends Launcher {
 		 * Extract the variable from a string
 		 */
 		private String extractVariable(String value) {
-			if (value.startsWith("$")) {
+			if (value != null && value.startsWith("$")) {
 				value = getProperty(value.substring(2, value.length() - 1));
 			}
 			return value;
@@ -310,12 +628,7 @@ public class MavenLauncher extends Launcher {
 						getEnvironment().setNoClasspath(true);
 					}
 
-					try {
-						InheritanceModel dependencyModel = readPOM(Paths.get(depPath.toString(), fileName + ".pom").toString(), null);
-						output.addAll(dependencyModel.getDependencies(true));
-					} catch (Exception ignore) {
-						// ignore the dependencies of the dependency
-					}
+					output.addAll(getLibraryDependencies(Paths.get(depPath.toString(), fileName + ".pom").toFile()));
 				} else {
 					// if the a dependency is not found, uses the no classpath mode
 					getEnvironment().setNoClasspath(true);
@@ -339,6 +652,9 @@ public class MavenLauncher extends Launcher {
 					return model.getVersion();
 				}
 			}
+			if ("project.groupId".equals(key)) {
+				return getGroupId();
+			}
 			String value = model.getProperties().getProperty(key);
 			if (value == null) {
 				if (parent == null) {
@@ -35,7 +35,14 @@ public enum OutputType {
 	/**
 	 * Follows the compilation units given by the input.
 	 */
-	COMPILATION_UNITS;
+	COMPILATION_UNITS,
+
+	/**
+	 * Follows the compilation units given by the input, but prints only the ones which contain an element modified
+	 * since the model has been built: the source files of the other ones are copied.
+	 * The modifications are collected by a {@link spoon.experimental.modelobs.ChangeCollector}, which is attached when the model is built.
+	 */
+	MODIFIED_COMPILATION_UNITS;
 
 	@Override
 	public String toString() {
@@ -384,4 +384,60 @@ public interface Environment {
 	 * Get the output type
 	 */
 	OutputType getOutputType();
+
+	/**
+	 * Returns the number of threads used to build the Spoon model from the
+	 * source files. 1 (the default) means that the model is built sequentially.
+	 */
+	int getModelBuildingThreads();
+
+	/**
+	 * Sets the number of threads used to build the Spoon model from the
+	 * source files. The source files are split between the threads, and each thread
+	 * compiles its own files with JDT and builds their model, the results being merged
+	 * into the model at the end of the build.
+	 */
+	void setModelBuildingThreads(int threads);
+
+	/**
+	 * Returns the number of threads used to pretty-print the top-level types to source files
+	 * in the {@link spoon.OutputType#CLASSES} output. 1 (the default) means that the types are printed sequentially.
+	 */
+	int getPrettyPrintingThreads();
+
+	/**
+	 * Sets the number of threads used to pretty-print the top-level types to source files.
+	 * With more than one thread, {@link spoon.support.JavaOutputProcessor} prints the types in parallel,
+	 * each thread with its own pretty-printer, and does not rewrite the files whose content is unchanged.
+	 * The model must not be modified while it is printed. The caches which may be attached to the environment
+	 * (e.g. {@link spoon.support.visitor.TypeHierarchy}) support concurrent queries,
+	 * and the types of a {@link spoon.support.ModelSnapshot} are all loaded before the printing starts.
+	 */
+	void setPrettyPrintingThreads(int threads);
+
+	/**
+	 * Returns true if the shadow types of the source classpath are built from their class files,
+	 * see {@link #setShadowTypesFromClassFiles(boolean)}. false by default.
+	 */
+	boolean isShadowTypesFromClassFiles();
+
+	/**
+	 * If true, the shadow types of the source classpath are built by reading their class files
+	 * (see {@link spoon.support.compiler.jdt.ClassFileShadowBuilder}) instead of loading their classes
+	 * with the input classloader and building them with Java reflection.
+	 */
+	void setShadowTypesFromClassFiles(boolean shadowTypesFromClassFiles);
+
+	/**
+	 * Returns the directory of the persistent cache of the shadow types built with Java reflection,
+	 * see {@link #setShadowCacheDirectory(File)}. null (the default) means that the shadow types are not cached on disk.
+	 */
+	File getShadowCacheDirectory();
+
+	/**
+	 * Sets the directory where the shadow types of the JDK and of the jars, once built with Java reflection,
+	 * are saved (see {@link spoon.support.ShadowModelCache}) so that the next factories load them instead of building them again.
+	 * The directory can be shared by several factories and processes. null disables the cache.
+	 */
+	void setShadowCacheDirectory(File directory);
 }
@@ -39,6 +39,22 @@ public class ClasspathOptions<T extends ClasspathOptions<T>> extends Options<T>
 		return classpath(join(File.pathSeparator, classpaths));
 	}
 
+	public T sourcepath(String sourcepath) {
+		if (sourcepath == null) {
+			return myself;
+		}
+		args.add("-sourcepath");
+		args.add(sourcepath);
+		return myself;
+	}
+
+	public T sourcepath(String... sourcepaths) {
+		if (sourcepaths == null || sourcepaths.length == 0) {
+			return myself;
+		}
+		return sourcepath(join(File.pathSeparator, sourcepaths));
+	}
+
 	public T bootclasspath(String bootclasspath) {
 		if (bootclasspath == null) {
 			return myself;
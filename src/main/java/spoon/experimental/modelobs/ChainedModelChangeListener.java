@@ -0,0 +1,172 @@
+/**
+ * Copyright (C) 2006-2017 INRIA and contributors
+ * Spoon - http://spoon.gforge.inria.fr/
+ *
+ * This software is governed by the CeCILL-C License under French law and
+ * abiding by the rules of distribution of free software. You can use, modify
+ * and/or redistribute the software under the terms of the CeCILL-C license as
+ * circulated by CEA, CNRS and INRIA at http://www.cecill.info.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the CeCILL-C License for more details.
+ *
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-C license and that you accept its terms.
+ */
+package spoon.experimental.modelobs;
+
+import spoon.compiler.Environment;
+import spoon.reflect.declaration.CtElement;
+import spoon.reflect.declaration.ModifierKind;
+import spoon.reflect.path.CtRole;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A {@link FineModelChangeListener} which forwards all the changes to the listener which was set
+ * in the environment before it has been attached by {@link #attachTo(Environment)}.
+ *
+ * The listeners attached one after the other form a chain, which is searched by {@link #getListener(Environment, Class)},
+ * so that the caches of the model (e.g. {@link ReferenceIndex}) are found whatever the order in which they have been attached.
+ * The subclasses call the super method to notify the next listener of the chain.
+ */
+public abstract class ChainedModelChangeListener implements FineModelChangeListener {
+	private FineModelChangeListener nextListener = new EmptyModelChangeListener();
+
+	/**
+	 * @param env to be checked {@link Environment}
+	 * @param listenerClass the class of the searched listener
+	 * @return the first listener of the chain of `env` which is an instance of `listenerClass` or null if there is none
+	 */
+	public static <T extends FineModelChangeListener> T getListener(Environment env, Class<T> listenerClass) {
+		FineModelChangeListener listener = env.getModelChangeListener();
+		while (listener != null) {
+			if (listenerClass.isInstance(listener)) {
+				return listenerClass.cast(listener);
+			}
+			if (!(listener instanceof ChainedModelChangeListener)) {
+				break;
+			}
+			listener = ((ChainedModelChangeListener) listener).nextListener;
+		}
+		return null;
+	}
+
+	/**
+	 * Sets this listener as the model change listener of `env`. The listener which was set before is still notified.
+	 * Nothing is done if this listener is already in the chain of `env`.
+	 */
+	public void attachTo(Environment env) {
+		if (isAttachedTo(env)) {
+			return;
+		}
+		nextListener = env.getModelChangeListener();
+		env.setModelChangeListener(this);
+	}
+
+	/**
+	 * @return true if this listener is in the chain of the model change listener of `env`,
+	 * so that it is notified of the changes of the model
+	 */
+	public boolean isAttachedTo(Environment env) {
+		FineModelChangeListener listener = env.getModelChangeListener();
+		while (listener instanceof ChainedModelChangeListener) {
+			if (listener == this) {
+				return true;
+			}
+			listener = ((ChainedModelChangeListener) listener).nextListener;
+		}
+		return false;
+	}
+
+	/**
+	 * @return the listener which is notified after this one
+	 */
+	public FineModelChangeListener getNextListener() {
+		return nextListener;
+	}
+
+	@Override
+	public void onObjectUpdate(CtElement currentElement, CtRole role, CtElement newValue, CtElement oldValue) {
+		nextListener.onObjectUpdate(currentElement, role, newValue, oldValue);
+	}
+
+	@Override
+	public void onObjectUpdate(CtElement currentElement, CtRole role, Object newValue, Object oldValue) {
+		nextListener.onObjectUpdate(currentElement, role, newValue, oldValue);
+	}
+
+	@Override
+	public void onObjectDelete(CtElement currentElement, CtRole role, CtElement oldValue) {
+		nextListener.onObjectDelete(currentElement, role, oldValue);
+	}
+
+	@Override
+	public void onListAdd(CtElement currentElement, CtRole role, List field, CtElement newValue) {
+		nextListener.onListAdd(currentElement, role, field, newValue);
+	}
+
+	@Override
+	public void onListAdd(CtElement currentElement, CtRole role, List field, int index, CtElement newValue) {
+		nextListener.onListAdd(currentElement, role, field, index, newValue);
+	}
+
+	@Override
+	public void onListDelete(CtElement currentElement, CtRole role, List field, Collection<? extends CtElement> oldValue) {
+		nextListener.onListDelete(currentElement, role, field, oldValue);
+	}
+
+	@Override
+	public void onListDelete(CtElement currentElement, CtRole role, List field, int index, CtElement oldValue) {
+		nextListener.onListDelete(currentElement, role, field, index, oldValue);
+	}
+
+	@Override
+	public void onListDeleteAll(CtElement currentElement, CtRole role, List field, List oldValue) {
+		nextListener.onListDeleteAll(currentElement, role, field, oldValue);
+	}
+
+	@Override
+	public <K, V> void onMapAdd(CtElement currentElement, CtRole role, Map<K, V> field, K key, CtElement newValue) {
+		nextListener.onMapAdd(currentElement, role, field, key, newValue);
+	}
+
+	@Override
+	public <K, V> void onMapDeleteAll(CtElement currentElement, CtRole role, Map<K, V> field, Map<K, V> oldValue) {
+		nextListener.onMapDeleteAll(currentElement, role, field, oldValue);
+	}
+
+	@Override
+	public void onSetAdd(CtElement currentElement, CtRole role, Set field, CtElement newValue) {
+		nextListener.onSetAdd(currentElement, role, field, newValue);
+	}
+
+	@Override
+	public <T extends Enum> void onSetAdd(CtElement currentElement, CtRole role, Set field, T newValue) {
+		nextListener.onSetAdd(currentElement, role, field, newValue);
+	}
+
+	@Override
+	public void onSetDelete(CtElement currentElement, CtRole role, Set field, CtElement oldValue) {
+		nextListener.onSetDelete(currentElement, role, field, oldValue);
+	}
+
+	@Override
+	public void onSetDelete(CtElement currentElement, CtRole role, Set field, Collection<ModifierKind> oldValue) {
+		nextListener.onSetDelete(currentElement, role, field, oldValue);
+	}
+
+	@Override
+	public void onSetDelete(CtElement currentElement, CtRole role, Set field, ModifierKind oldValue) {
+		nextListener.onSetDelete(currentElement, role, field, oldValue);
+	}
+
+	@Override
+	public void onSetDeleteAll(CtElement currentElement, CtRole role, Set field, Set oldValue) {
+		nextListener.onSetDeleteAll(currentElement, role, field, oldValue);
+	}
+}
@@ -45,21 +45,19 @@ public class ChangeCollector {
 	 * @return {@link ChangeCollector} attached to the `env` or null if there is none
 	 */
 	public static ChangeCollector getChangeCollector(Environment env) {
-		FineModelChangeListener mcl = env.getModelChangeListener();
-		if (mcl instanceof ChangeListener) {
-			return ((ChangeListener) mcl).getChangeCollector();
-		}
-		return null;
+		ChangeListener listener = ChainedModelChangeListener.getListener(env, ChangeListener.class);
+		return listener == null ? null : listener.getChangeCollector();
 	}
 
 	/**
 	 * Attaches itself to {@link CtModel} to listen to all changes of it's child elements
 	 * TODO: it would be nicer if we might listen on changes on {@link CtElement}
+	 * The model change listener which was set in the environment is still notified.
 	 * @param env to be attached to {@link Environment}
 	 * @return this to support fluent API
 	 */
 	public ChangeCollector attachTo(Environment env) {
-		env.setModelChangeListener(changeListener);
+		changeListener.attachTo(env);
 		return this;
 	}
 
@@ -77,6 +75,13 @@ public class ChangeCollector {
 		return Collections.unmodifiableSet(changes);
 	}
 
+	/**
+	 * @return the elements whose attributes were directly changed since this {@link ChangeCollector} was attached
+	 */
+	public Set<CtElement> getChangedElements() {
+		return Collections.unmodifiableSet(elementToChangeRole.keySet());
+	}
+
 	/**
 	 * @param currentElement the {@link CtElement} whose changes has to be checked
 	 * @return set of {@link CtRole}s whose attribute was changed on `currentElement`
@@ -140,7 +145,7 @@ public class ChangeCollector {
 		roles.add(role);
 	}
 
-	private class ChangeListener implements FineModelChangeListener {
+	private class ChangeListener extends ChainedModelChangeListener {
 		private ChangeCollector getChangeCollector() {
 			return ChangeCollector.this;
 		}
@@ -148,81 +153,97 @@ public class ChangeCollector {
 		@Override
 		public void onObjectUpdate(CtElement currentElement, CtRole role, CtElement newValue, CtElement oldValue) {
 			onChange(currentElement, role);
+			super.onObjectUpdate(currentElement, role, newValue, oldValue);
 		}
 
 		@Override
 		public void onObjectUpdate(CtElement currentElement, CtRole role, Object newValue, Object oldValue) {
 			onChange(currentElement, role);
+			super.onObjectUpdate(currentElement, role, newValue, oldValue);
 		}
 
 		@Override
 		public void onObjectDelete(CtElement currentElement, CtRole role, CtElement oldValue) {
 			onChange(currentElement, role);
+			super.onObjectDelete(currentElement, role, oldValue);
 		}
 
 		@Override
 		public void onListAdd(CtElement currentElement, CtRole role, List field, CtElement newValue) {
 			onChange(currentElement, role);
+			super.onListAdd(currentElement, role, field, newValue);
 		}
 
 		@Override
 		public void onListAdd(CtElement currentElement, CtRole role, List field, int index, CtElement newValue) {
 			onChange(currentElement, role);
+			super.onListAdd(currentElement, role, field, index, newValue);
 		}
 
 		@Override
 		public void onListDelete(CtElement currentElement, CtRole role, List field, Collection<? extends CtElement> oldValue) {
 			onChange(currentElement, role);
+			super.onListDelete(currentElement, role, field, oldValue);
 		}
 
 		@Override
 		public void onListDelete(CtElement currentElement, CtRole role, List field, int index, CtElement oldValue) {
 			onChange(currentElement, role);
+			super.onListDelete(currentElement, role, field, index, oldValue);
 		}
 
 		@Override
 		public void onListDeleteAll(CtElement currentElement, CtRole role, List field, List oldValue) {
 			onChange(currentElement, role);
+			super.onListDeleteAll(currentElement, role, field, oldValue);
 		}
 
 		@Override
 		public <K, V> void onMapAdd(CtElement currentElement, CtRole role, Map<K, V> field, K key, CtElement newValue) {
 			onChange(currentElement, role);
+			super.onMapAdd(currentElement, role, field, key, newValue);
 		}
 
 		@Override
 		public <K, V> void onMapDeleteAll(CtElement currentElement, CtRole role, Map<K, V> field, Map<K, V> oldValue) {
 			onChange(currentElement, role);
+			super.onMapDeleteAll(currentElement, role, field, oldValue);
 		}
 
 		@Override
 		public void onSetAdd(CtElement currentElement, CtRole role, Set field, CtElement newValue) {
 			onChange(currentElement, role);
+			super.onSetAdd(currentElement, role, field, newValue);
 		}
 
 		@Override
 		public <T extends Enum> void onSetAdd(CtElement currentElement, CtRole role, Set field, T newValue) {
 			onChange(currentElement, role);
+			super.onSetAdd(currentElement, role, field, newValue);
 		}
 
 		@Override
 		public void onSetDelete(CtElement currentElement, CtRole role, Set field, CtElement oldValue) {
 			onChange(currentElement, role);
+			super.onSetDelete(currentElement, role, field, oldValue);
 		}
 
 		@Override
 		public void onSetDelete(CtElement currentElement, CtRole role, Set field, Collection<ModifierKind> oldValue) {
 			onChange(currentElement, role);
+			super.onSetDelete(currentElement, role, field, oldValue);
 		}
 
 		@Override
 		public void onSetDelete(CtElement currentElement, CtRole role, Set field, ModifierKind oldValue) {
 			onChange(currentElement, role);
+			super.onSetDelete(currentElement, role, field, oldValue);
 		}
 
 		@Override
 		public void onSetDeleteAll(CtElement currentElement, CtRole role, Set field, Set oldValue) {
 			onChange(currentElement, role);
+			super.onSetDeleteAll(currentElement, role, field, oldValue);
 		}
 	}
 }
@@ -0,0 +1,468 @@
+/**
+ * Copyright (C) 2006-2017 INRIA and contributors
+ * Spoon - http://spoon.gforge.inria.fr/
+ *
+ * This software is governed by the CeCILL-C License under French law and
+ * abiding by the rules of distribution of free software. You can use, modify
+ * and/or redistribute the software under the terms of the CeCILL-C license as
+ * circulated by CEA, CNRS and INRIA at http://www.cecill.info.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the CeCILL-C License for more details.
+ *
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-C license and that you accept its terms.
+ */
+package spoon.experimental.modelobs;
+
+import spoon.compiler.Environment;
+import spoon.reflect.declaration.CtElement;
+import spoon.reflect.declaration.CtModule;
+import spoon.reflect.declaration.ModifierKind;
+import spoon.reflect.factory.Factory;
+import spoon.reflect.path.CtRole;
+import spoon.reflect.reference.CtExecutableReference;
+import spoon.reflect.reference.CtFieldReference;
+import spoon.reflect.reference.CtReference;
+import spoon.reflect.reference.CtTypeParameterReference;
+import spoon.reflect.reference.CtTypeReference;
+import spoon.reflect.visitor.CtScanner;
+import spoon.reflect.visitor.EarlyTerminatingScanner;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An index of the field, executable and type references of a model, by the element they refer to.
+ * It makes it possible to find the usages of a declaration without scanning the whole model.
+ *
+ * The index is built by {@link #attachTo(Factory)} and then it listens to the changes of the model,
+ * so that it follows the added, removed and modified references.
+ * The added elements are scanned lazily, on the next call of {@link #getReferences(CtReference)}.
+ *
+ * {@link spoon.reflect.visitor.filter.FieldReferenceFunction} and so {@link spoon.reflect.visitor.filter.VariableReferenceFunction}
+ * use the index of the environment when there is one, see {@link #getReferenceIndex(Environment)}.
+ * The lookups are synchronized, so that the index can be used by several threads at the same time,
+ * e.g. by the processors of a {@link spoon.support.ParallelProcessingManager}.
+ */
+public class ReferenceIndex {
+	/**
+	 * The indexed references, by the key of the element they refer to, see {@link #getKey(CtReference)}
+	 */
+	private final Map<String, Set<CtReference>> referencesByKey = new HashMap<>();
+	private final Map<CtReference, String> keysByReference = new IdentityHashMap<>();
+	/**
+	 * The indexed references of the keys which were looked up, in the order of the model,
+	 * until references are added to or removed from these keys
+	 */
+	private final Map<String, List<CtReference>> orderedReferencesByKey = new HashMap<>();
+	/**
+	 * The elements added to the model since the last lookup
+	 */
+	private final List<CtElement> addedElements = new ArrayList<>();
+	/**
+	 * The references whose key may have changed since the last lookup
+	 */
+	private final Set<CtReference> modifiedReferences = newIdentitySet();
+	private final ChangeListener changeListener = new ChangeListener();
+	private CtModule unnamedModule;
+
+	/**
+	 * @param env to be checked {@link Environment}
+	 * @return the {@link ReferenceIndex} attached to the `env` or null if there is none
+	 */
+	public static ReferenceIndex getReferenceIndex(Environment env) {
+		ChangeListener listener = ChainedModelChangeListener.getListener(env, ChangeListener.class);
+		return listener == null ? null : listener.getReferenceIndex();
+	}
+
+	/**
+	 * Indexes the references of the model of `factory` and listens to the changes of that model.
+	 * The model change listener which was set in the environment is still notified.
+	 * @return this to support fluent API
+	 */
+	public synchronized ReferenceIndex attachTo(Factory factory) {
+		unnamedModule = factory.getModel().getUnnamedModule();
+		clear();
+		addedElements.add(unnamedModule);
+		changeListener.attachTo(factory.getEnvironment());
+		return this;
+	}
+
+	/**
+	 * @param reference a field, executable or type reference
+	 * @return all the references of the model which are equal to `reference`,
+	 * in the order of the model, or null if this kind of reference is not indexed (e.g. references to local variables, type parameters)
+	 */
+	@SuppressWarnings("unchecked")
+	public synchronized <T extends CtReference> List<T> getReferences(T reference) {
+		String key = getKey(reference);
+		if (key == null) {
+			return null;
+		}
+		update();
+		Set<CtReference> references = referencesByKey.get(key);
+		if (references == null) {
+			return Collections.emptyList();
+		}
+		List<CtReference> orderedReferences = orderedReferencesByKey.get(key);
+		if (orderedReferences == null) {
+			orderedReferences = sortInModelOrder(references);
+		}
+		List<T> result = new ArrayList<>();
+		List<CtReference> keptReferences = new ArrayList<>(orderedReferences.size());
+		for (CtReference candidate : orderedReferences) {
+			if (!isInModel(candidate)) {
+				// it has been detached without notification, it is indexed again if it is added back
+				remove(candidate);
+				continue;
+			}
+			keptReferences.add(candidate);
+			if (reference.getClass().isInstance(candidate) && reference.equals(candidate)) {
+				result.add((T) candidate);
+			}
+		}
+		if (!keptReferences.isEmpty()) {
+			orderedReferencesByKey.put(key, keptReferences);
+		}
+		return result;
+	}
+
+	/**
+	 * @return `references` in the order in which they are scanned in the model.
+	 * The smallest element which contains all of them is scanned once, without copying its children, until they are all found.
+	 */
+	private List<CtReference> sortInModelOrder(Collection<CtReference> references) {
+		List<CtReference> sorted = new ArrayList<>(references.size());
+		Set<CtReference> remaining = newIdentitySet();
+		remaining.addAll(references);
+		EarlyTerminatingScanner<Void> scanner = new EarlyTerminatingScanner<Void>() {
+			@Override
+			protected void enter(CtElement e) {
+				if (remaining.remove(e)) {
+					sorted.add((CtReference) e);
+					if (remaining.isEmpty()) {
+						terminate();
+					}
+				}
+			}
+		};
+		scanner.setReadOnly(true);
+		scanner.scan(getCommonAncestor(references));
+		// the references which are not found are not in the model any more, they are dropped by the caller
+		sorted.addAll(remaining);
+		return sorted;
+	}
+
+	/**
+	 * @return the deepest element which is `element` or one of its parents, for each element of `elements`,
+	 * or the unnamed module if they are not in the same tree
+	 */
+	private CtElement getCommonAncestor(Collection<? extends CtElement> elements) {
+		Iterator<? extends CtElement> iterator = elements.iterator();
+		// the first element and its parents, by their distance to the first element
+		Map<CtElement, Integer> ancestors = new IdentityHashMap<>();
+		List<CtElement> path = new ArrayList<>();
+		CtElement current = iterator.next();
+		while (true) {
+			ancestors.put(current, path.size());
+			path.add(current);
+			if (current == unnamedModule || !current.isParentInitialized()) {
+				break;
+			}
+			current = current.getParent();
+		}
+		int commonAncestor = 0;
+		while (iterator.hasNext()) {
+			current = iterator.next();
+			Integer ancestor = ancestors.get(current);
+			while (ancestor == null) {
+				if (current == unnamedModule || !current.isParentInitialized()) {
+					return unnamedModule;
+				}
+				current = current.getParent();
+				ancestor = ancestors.get(current);
+			}
+			commonAncestor = Math.max(commonAncestor, ancestor);
+		}
+		return path.get(commonAncestor);
+	}
+
+	/**
+	 * @return the key of the element `reference` refers to, or null if such references are not indexed
+	 */
+	private static String getKey(CtReference reference) {
+		if (reference instanceof CtFieldReference) {
+			CtTypeReference<?> declaringType = ((CtFieldReference<?>) reference).getDeclaringType();
+			return declaringType == null ? null : "field:" + declaringType.getQualifiedName() + "#" + reference.getSimpleName();
+		}
+		if (reference instanceof CtExecutableReference) {
+			CtTypeReference<?> declaringType = ((CtExecutableReference<?>) reference).getDeclaringType();
+			return declaringType == null ? null : "executable:" + declaringType.getQualifiedName() + "#" + reference.getSimpleName();
+		}
+		if (reference instanceof CtTypeReference && !(reference instanceof CtTypeParameterReference)) {
+			return "type:" + ((CtTypeReference<?>) reference).getQualifiedName();
+		}
+		return null;
+	}
+
+	private void clear() {
+		referencesByKey.clear();
+		keysByReference.clear();
+		orderedReferencesByKey.clear();
+		addedElements.clear();
+		modifiedReferences.clear();
+	}
+
+	/**
+	 * Indexes the elements added and the references modified since the last lookup
+	 */
+	private void update() {
+		for (CtReference reference : modifiedReferences) {
+			if (isInModel(reference)) {
+				// a reference whose key did not change is not indexed again
+				add(reference);
+			} else {
+				remove(reference);
+			}
+		}
+		modifiedReferences.clear();
+		if (!addedElements.isEmpty()) {
+			CtScanner scanner = new CtScanner() {
+				@Override
+				protected void enter(CtElement e) {
+					if (e instanceof CtReference) {
+						add((CtReference) e);
+					}
+				}
+			};
+			for (CtElement element : addedElements) {
+				scanner.scan(element);
+			}
+			addedElements.clear();
+		}
+	}
+
+	private void add(CtReference reference) {
+		String key = getKey(reference);
+		if (key == null) {
+			return;
+		}
+		String previousKey = keysByReference.put(reference, key);
+		if (previousKey != null && !previousKey.equals(key)) {
+			removeFromKey(reference, previousKey);
+		}
+		Set<CtReference> references = referencesByKey.get(key);
+		if (references == null) {
+			references = newIdentitySet();
+			referencesByKey.put(key, references);
+		}
+		if (references.add(reference)) {
+			orderedReferencesByKey.remove(key);
+		}
+	}
+
+	private void remove(CtReference reference) {
+		String key = keysByReference.remove(reference);
+		if (key != null) {
+			removeFromKey(reference, key);
+		}
+	}
+
+	private void removeFromKey(CtReference reference, String key) {
+		Set<CtReference> references = referencesByKey.get(key);
+		if (references != null) {
+			references.remove(reference);
+			orderedReferencesByKey.remove(key);
+			if (references.isEmpty()) {
+				referencesByKey.remove(key);
+			}
+		}
+	}
+
+	/**
+	 * @return true if `element` is a descendant of the unnamed module of the model
+	 */
+	private boolean isInModel(CtElement element) {
+		CtElement current = element;
+		while (current != unnamedModule) {
+			if (!current.isParentInitialized()) {
+				return false;
+			}
+			current = current.getParent();
+		}
+		return true;
+	}
+
+	/**
+	 * Only the changes of the model are followed: the elements which are built out of the model are scanned once they are added to it
+	 */
+	private synchronized void onAdd(CtElement currentElement, Object newValue) {
+		if (newValue instanceof CtElement && isInModel(currentElement)) {
+			addedElements.add((CtElement) newValue);
+		}
+	}
+
+	private synchronized void onRemove(CtElement currentElement, Object oldValue) {
+		if (oldValue instanceof CtElement && isInModel(currentElement)) {
+			new CtScanner() {
+				@Override
+				protected void enter(CtElement e) {
+					if (e instanceof CtReference) {
+						remove((CtReference) e);
+						modifiedReferences.remove(e);
+					}
+				}
+			}.scan((CtElement) oldValue);
+		}
+	}
+
+	private void onRemoveAll(CtElement currentElement, Collection<?> oldValues) {
+		for (Object oldValue : oldValues) {
+			onRemove(currentElement, oldValue);
+		}
+	}
+
+	/**
+	 * The key of a reference depends on its children, so `currentElement` and the references it belongs to are indexed again
+	 */
+	private synchronized void onChange(CtElement currentElement) {
+		if (!(currentElement instanceof CtReference) || !isInModel(currentElement)) {
+			return;
+		}
+		CtElement element = currentElement;
+		while (element instanceof CtReference) {
+			modifiedReferences.add((CtReference) element);
+			element = element.getParent();
+		}
+	}
+
+	private static <T> Set<T> newIdentitySet() {
+		return Collections.newSetFromMap(new IdentityHashMap<T, Boolean>());
+	}
+
+	private class ChangeListener extends ChainedModelChangeListener {
+		private ReferenceIndex getReferenceIndex() {
+			return ReferenceIndex.this;
+		}
+
+		@Override
+		public void onObjectUpdate(CtElement currentElement, CtRole role, CtElement newValue, CtElement oldValue) {
+			onChange(currentElement);
+			onRemove(currentElement, oldValue);
+			onAdd(currentElement, newValue);
+			super.onObjectUpdate(currentElement, role, newValue, oldValue);
+		}
+
+		@Override
+		public void onObjectUpdate(CtElement currentElement, CtRole role, Object newValue, Object oldValue) {
+			onChange(currentElement);
+			onRemove(currentElement, oldValue);
+			onAdd(currentElement, newValue);
+			super.onObjectUpdate(currentElement, role, newValue, oldValue);
+		}
+
+		@Override
+		public void onObjectDelete(CtElement currentElement, CtRole role, CtElement oldValue) {
+			onChange(currentElement);
+			onRemove(currentElement, oldValue);
+			super.onObjectDelete(currentElement, role, oldValue);
+		}
+
+		@Override
+		public void onListAdd(CtElement currentElement, CtRole role, List field, CtElement newValue) {
+			onChange(currentElement);
+			onAdd(currentElement, newValue);
+			super.onListAdd(currentElement, role, field, newValue);
+		}
+
+		@Override
+		public void onListAdd(CtElement currentElement, CtRole role, List field, int index, CtElement newValue) {
+			onChange(currentElement);
+			onAdd(currentElement, newValue);
+			super.onListAdd(currentElement, role, field, index, newValue);
+		}
+
+		@Override
+		public void onListDelete(CtElement currentElement, CtRole role, List field, Collection<? extends CtElement> oldValue) {
+			onChange(currentElement);
+			onRemoveAll(currentElement, oldValue);
+			super.onListDelete(currentElement, role, field, oldValue);
+		}
+
+		@Override
+		public void onListDelete(CtElement currentElement, CtRole role, List field, int index, CtElement oldValue) {
+			onChange(currentElement);
+			onRemove(currentElement, oldValue);
+			super.onListDelete(currentElement, role, field, index, oldValue);
+		}
+
+		@Override
+		public void onListDeleteAll(CtElement currentElement, CtRole role, List field, List oldValue) {
+			onChange(currentElement);
+			onRemoveAll(currentElement, oldValue);
+			super.onListDeleteAll(currentElement, role, field, oldValue);
+		}
+
+		@Override
+		public <K, V> void onMapAdd(CtElement currentElement, CtRole role, Map<K, V> field, K key, CtElement newValue) {
+			onChange(currentElement);
+			onAdd(currentElement, newValue);
+			super.onMapAdd(currentElement, role, field, key, newValue);
+		}
+
+		@Override
+		public <K, V> void onMapDeleteAll(CtElement currentElement, CtRole role, Map<K, V> field, Map<K, V> oldValue) {
+			onChange(currentElement);
+			onRemoveAll(currentElement, oldValue.values());
+			super.onMapDeleteAll(currentElement, role, field, oldValue);
+		}
+
+		@Override
+		public void onSetAdd(CtElement currentElement, CtRole role, Set field, CtElement newValue) {
+			onChange(currentElement);
+			onAdd(currentElement, newValue);
+			super.onSetAdd(currentElement, role, field, newValue);
+		}
+
+		@Override
+		public <T extends Enum> void onSetAdd(CtElement currentElement, CtRole role, Set field, T newValue) {
+			onChange(currentElement);
+			super.onSetAdd(currentElement, role, field, newValue);
+		}
+
+		@Override
+		public void onSetDelete(CtElement currentElement, CtRole role, Set field, CtElement oldValue) {
+			onChange(currentElement);
+			onRemove(currentElement, oldValue);
+			super.onSetDelete(currentElement, role, field, oldValue);
+		}
+
+		@Override
+		public void onSetDelete(CtElement currentElement, CtRole role, Set field, Collection<ModifierKind> oldValue) {
+			onChange(currentElement);
+			super.onSetDelete(currentElement, role, field, oldValue);
+		}
+
+		@Override
+		public void onSetDelete(CtElement currentElement, CtRole role, Set field, ModifierKind oldValue) {
+			onChange(currentElement);
+			super.onSetDelete(currentElement, role, field, oldValue);
+		}
+
+		@Override
+		public void onSetDeleteAll(CtElement currentElement, CtRole role, Set field, Set oldValue) {
+			onChange(currentElement);
+			onRemoveAll(currentElement, oldValue);
+			super.onSetDeleteAll(currentElement, role, field, oldValue);
+		}
+	}
+}
@@ -0,0 +1,37 @@
+/**
+ * Copyright (C) 2006-2017 INRIA and contributors
+ * Spoon - http://spoon.gforge.inria.fr/
+ *
+ * This software is governed by the CeCILL-C License under French law and
+ * abiding by the rules of distribution of free software. You can use, modify
+ * and/or redistribute the software under the terms of the CeCILL-C license as
+ * circulated by CEA, CNRS and INRIA at http://www.cecill.info.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the CeCILL-C License for more details.
+ *
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-C license and that you accept its terms.
+ */
+package spoon.processing;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * This annotation shall be used on processors whose {@link Processor#process(spoon.reflect.declaration.CtElement)}
+ * does not modify the model and can be called by several threads at the same time.
+ * Such processors are applied to the top-level types in parallel by {@link spoon.support.ParallelProcessingManager}.
+ * The annotation is not inherited: a sub class of a thread-safe processor has to declare it again.
+ *
+ * Such a processor neither adds, removes nor modifies elements of the model, and it does not put metadata on them.
+ * The caches of Spoon which may be attached to the environment support concurrent queries,
+ * and the types of a model snapshot are loaded before the processing, see {@link spoon.support.ParallelProcessingManager}.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface ThreadSafe {
+}
@@ -116,6 +116,7 @@ import spoon.reflect.reference.CtTypeReference;
 import spoon.reflect.reference.CtUnboundVariableReference;
 import spoon.reflect.reference.CtVariableReference;
 import spoon.reflect.reference.CtWildcardReference;
+import spoon.reflect.visitor.DefaultJavaPrettyPrinter;
 import spoon.reflect.visitor.chain.CtQuery;
 import spoon.support.DefaultCoreFactory;
 import spoon.support.StandardEnvironment;
@@ -130,6 +131,7 @@ import java.util.Map;
 import java.util.Random;
 import java.util.Set;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Implements {@link Factory}
@@ -432,6 +434,35 @@ public class FactoryImpl implements Factory, Serializable {
 		}
 	}
 
+	/**
+	 * The printer of the elements of this factory which is not used, see {@link #acquirePrinter()}.
+	 * It is only referenced by this factory, so that it does not outlive the model, and it is cleared once released.
+	 */
+	private transient AtomicReference<DefaultJavaPrettyPrinter> releasedPrinter = new AtomicReference<>();
+
+	/**
+	 * Returns a printer of the elements of this factory, which is reused by the next call
+	 * once it is given back by {@link #releasePrinter(DefaultJavaPrettyPrinter)}.
+	 * It is used by {@link CtElement#toString()}, so that each call does not create a new printer.
+	 */
+	public DefaultJavaPrettyPrinter acquirePrinter() {
+		DefaultJavaPrettyPrinter printer = releasedPrinter.getAndSet(null);
+		if (printer == null) {
+			// first call, or concurrent or nested call (e.g. a toString() of a log message while printing)
+			return new DefaultJavaPrettyPrinter(getEnvironment());
+		}
+		return printer;
+	}
+
+	/**
+	 * Gives back a printer returned by {@link #acquirePrinter()}, which must not be used anymore by the caller.
+	 * The printer is reset, so that it does not keep the printed code nor references to the printed elements.
+	 */
+	public void releasePrinter(DefaultJavaPrettyPrinter printer) {
+		printer.reset();
+		releasedPrinter.set(printer);
+	}
+
 	/**
 	 * Needed to restore state of transient fields during reading from stream
 	 */
@@ -442,6 +473,7 @@ public class FactoryImpl implements Factory, Serializable {
 				return new Dedup();
 			}
 		};
+		releasedPrinter = new AtomicReference<>();
 		in.defaultReadObject();
 	}
 
@@ -24,7 +24,9 @@ import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.StringTokenizer;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * The {@link CtPackage} sub-factory.
@@ -32,6 +34,17 @@ import java.util.StringTokenizer;
 public class PackageFactory extends SubFactory implements Serializable {
 	private static final long serialVersionUID = 1L;
 
+	/**
+	 * The packages already found by {@link #get(String)}, by qualified name.
+	 * It is cleared when the package hierarchy changes, see {@link #clearPackageIndex()}.
+	 */
+	private final Map<String, CtPackage> packagesByQualifiedName = new ConcurrentHashMap<>();
+
+	/**
+	 * The root package the indexed packages belong to
+	 */
+	private transient CtPackage indexedRootPackage;
+
 	/**
 	 * Creates a new package sub-factory.
 	 *
@@ -135,18 +148,37 @@ public class PackageFactory extends SubFactory implements Serializable {
 		if (qualifiedName.contains(CtType.INNERTTYPE_SEPARATOR)) {
 			throw new RuntimeException("Invalid package name " + qualifiedName);
 		}
+		CtPackage rootPackage = factory.getModel().getRootPackage();
+		if (rootPackage != indexedRootPackage) {
+			packagesByQualifiedName.clear();
+			indexedRootPackage = rootPackage;
+		}
+		CtPackage indexed = packagesByQualifiedName.get(qualifiedName);
+		if (indexed != null) {
+			return indexed;
+		}
 		StringTokenizer token = new StringTokenizer(qualifiedName, CtPackage.PACKAGE_SEPARATOR);
-		CtPackage current = factory.getModel().getRootPackage();
+		CtPackage current = rootPackage;
 		if (token.hasMoreElements()) {
 			current = current.getPackage(token.nextToken());
 			while (token.hasMoreElements() && current != null) {
 				current = current.getPackage(token.nextToken());
 			}
 		}
-
+		if (current != null) {
+			packagesByQualifiedName.put(qualifiedName, current);
+		}
 		return current;
 	}
 
+	/**
+	 * Forgets the packages indexed by {@link #get(String)}.
+	 * It is called by the model when a package is added, removed or renamed.
+	 */
+	public void clearPackageIndex() {
+		packagesByQualifiedName.clear();
+	}
+
 	/**
 	 * Gets the list of all created packages. It includes all the top-level
 	 * packages and their sub-packages.
@@ -16,6 +16,7 @@
  */
 package spoon.reflect.factory;
 
+import spoon.compiler.Environment;
 import spoon.reflect.code.CtNewClass;
 import spoon.reflect.declaration.CtAnnotation;
 import spoon.reflect.declaration.CtClass;
@@ -35,26 +36,31 @@ import spoon.reflect.reference.CtTypeParameterReference;
 import spoon.reflect.reference.CtTypeReference;
 import spoon.reflect.visitor.CtAbstractVisitor;
 import spoon.reflect.visitor.CtScanner;
+import spoon.reflect.visitor.chain.CtFunction;
 import spoon.reflect.visitor.filter.TypeFilter;
 import spoon.support.DefaultCoreFactory;
+import spoon.support.ShadowModelCache;
 import spoon.support.SpoonClassNotFoundException;
 import spoon.support.StandardEnvironment;
+import spoon.support.compiler.jdt.ClassFileProvider;
+import spoon.support.compiler.jdt.ClassFileShadowBuilder;
 import spoon.support.visitor.ClassTypingContext;
 import spoon.support.visitor.GenericTypeAdapter;
 import spoon.support.visitor.MethodTypingContext;
 import spoon.support.visitor.java.JavaReflectionTreeBuilder;
 
+import java.io.File;
 import java.lang.annotation.Annotation;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static spoon.testing.utils.ModelUtils.createFactory;
 
@@ -98,7 +104,38 @@ public class TypeFactory extends SubFactory {
 	public final CtTypeReference<Map> MAP = createReference(Map.class);
 	public final CtTypeReference<Enum> ENUM = createReference(Enum.class);
 
-	private final Map<Class<?>, CtType<?>> shadowCache = new HashMap<>();
+	private final Map<Class<?>, CtType<?>> shadowCache = new ConcurrentHashMap<>();
+
+	/**
+	 * The shadow types built from class files by {@link #getShadowFromClassFile(String)}, by qualified name of top-level type
+	 */
+	private final Map<String, CtType<?>> classFileShadowCache = new ConcurrentHashMap<>();
+
+	/**
+	 * The class files of the source classpath, created on demand by {@link #getShadowFromClassFile(String)}
+	 */
+	private transient ClassFileProvider classFileProvider;
+
+	/**
+	 * The persistent cache of the shadow types built with Java reflection, created on demand by {@link #get(Class)}
+	 */
+	private transient ShadowModelCache shadowModelCache;
+
+	/**
+	 * Loads on demand the top-level types which are not in the model yet, see {@link #setTypeLoader(CtFunction)}
+	 */
+	private transient CtFunction<String, CtType<?>> typeLoader;
+
+	/**
+	 * The top-level and member types already found by {@link #get(String)}, by qualified name.
+	 * It is cleared when a type or a package is removed, moved or renamed, see {@link #clearTypeIndex()}.
+	 */
+	private final Map<String, CtType<?>> typesByQualifiedName = new ConcurrentHashMap<>();
+
+	/**
+	 * The root package the indexed types belong to
+	 */
+	private transient CtPackage indexedRootPackage;
 
 	/**
 	 * Returns a reference on the null type (type of null).
@@ -419,6 +456,42 @@ public class TypeFactory extends SubFactory {
 	 */
 	@SuppressWarnings("unchecked")
 	public <T> CtType<T> get(final String qualifiedName) {
+		CtPackage rootPackage = factory.getModel().getRootPackage();
+		if (rootPackage != indexedRootPackage) {
+			typesByQualifiedName.clear();
+			indexedRootPackage = rootPackage;
+		}
+		CtType<?> indexed = typesByQualifiedName.get(qualifiedName);
+		// the parent of a type can also be set directly, which is detected by its qualified name
+		if (indexed != null && qualifiedName.equals(indexed.getQualifiedName())) {
+			return (CtType<T>) indexed;
+		}
+		CtType<T> type = lookup(qualifiedName);
+		if (type != null && isIndexed(type)) {
+			typesByQualifiedName.put(qualifiedName, type);
+		}
+		return type;
+	}
+
+	/**
+	 * @return true if `type` is a top-level or a member type, whose removal is notified by its package or declaring type.
+	 * The local and anonymous types are not indexed, as they are removed with the statements containing them.
+	 */
+	private static boolean isIndexed(CtType<?> type) {
+		CtElement parent = type.isParentInitialized() ? type.getParent() : null;
+		return parent instanceof CtPackage || parent instanceof CtType;
+	}
+
+	/**
+	 * Forgets the types indexed by {@link #get(String)}.
+	 * It is called by the model when a type or a package is removed, moved or renamed.
+	 */
+	public void clearTypeIndex() {
+		typesByQualifiedName.clear();
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T> CtType<T> lookup(final String qualifiedName) {
 		int packageIndex = qualifiedName.lastIndexOf(CtPackage.PACKAGE_SEPARATOR);
 		CtPackage pack;
 		if (packageIndex > 0) {
@@ -434,6 +507,13 @@ public class TypeFactory extends SubFactory {
 			}
 		}
 
+		if (typeLoader != null) {
+			CtType<T> type = (CtType<T>) typeLoader.apply(qualifiedName);
+			if (type != null) {
+				return type;
+			}
+		}
+
 		int inertTypeIndex = qualifiedName.lastIndexOf(CtType.INNERTTYPE_SEPARATOR);
 		if (inertTypeIndex > 0) {
 			String s = qualifiedName.substring(0, inertTypeIndex);
@@ -477,6 +557,25 @@ public class TypeFactory extends SubFactory {
 		return null;
 	}
 
+	/**
+	 * Sets the loader of the top-level types which are not in the model yet.
+	 * It is called by {@link #get(String)} when the model does not contain the type,
+	 * so that a model can be loaded lazily, see {@link spoon.support.ModelSnapshot}.
+	 *
+	 * @param typeLoader returns the top-level type of the given qualified name after having added it to the model,
+	 * or null if it cannot load such a type. null to remove the current loader.
+	 */
+	public void setTypeLoader(CtFunction<String, CtType<?>> typeLoader) {
+		this.typeLoader = typeLoader;
+	}
+
+	/**
+	 * @return the loader of the top-level types which are not in the model yet, or null
+	 */
+	public CtFunction<String, CtType<?>> getTypeLoader() {
+		return typeLoader;
+	}
+
 	/**
 	 * Gets the list of all top-level created types.
 	 */
@@ -511,6 +610,7 @@ public class TypeFactory extends SubFactory {
 	 * Gets a type from its runtime Java class. If the class isn't in the spoon path,
 	 * the class will be build from the Java reflection and will be marked as
 	 * shadow (see {@link spoon.reflect.declaration.CtShadowable}).
+	 * If {@link Environment#getShadowCacheDirectory()} is set, the shadow class is loaded from this cache when it has already been built.
 	 *
 	 * @param <T>
 	 * 		actual type of the class
@@ -524,11 +624,17 @@ public class TypeFactory extends SubFactory {
 		if (aType == null) {
 			final CtType<T> shadowClass = (CtType<T>) this.shadowCache.get(cl);
 			if (shadowClass == null) {
-				CtType<T> newShadowClass;
-				try {
-					newShadowClass = new JavaReflectionTreeBuilder(createFactory()).scan((Class<T>) cl);
-				} catch (Throwable e) {
-					throw new SpoonClassNotFoundException("cannot create shadow class: " + cl.getName(), e);
+				ShadowModelCache cache = getShadowModelCache();
+				CtType<T> newShadowClass = cache == null ? null : cache.<T>load(cl, createFactory());
+				if (newShadowClass == null) {
+					try {
+						newShadowClass = new JavaReflectionTreeBuilder(createFactory()).scan((Class<T>) cl);
+					} catch (Throwable e) {
+						throw new SpoonClassNotFoundException("cannot create shadow class: " + cl.getName(), e);
+					}
+					if (cache != null) {
+						cache.save(cl, newShadowClass);
+					}
 				}
 				newShadowClass.setFactory(factory);
 				newShadowClass.accept(new CtScanner() {
@@ -539,8 +645,9 @@ public class TypeFactory extends SubFactory {
 						}
 					}
 				});
-				this.shadowCache.put(cl, newShadowClass);
-				return newShadowClass;
+				// another thread may have built the same shadow class in the meantime
+				CtType<T> cachedShadowClass = (CtType<T>) this.shadowCache.putIfAbsent(cl, newShadowClass);
+				return cachedShadowClass == null ? newShadowClass : cachedShadowClass;
 			} else {
 				return shadowClass;
 			}
@@ -548,6 +655,76 @@ public class TypeFactory extends SubFactory {
 		return aType;
 	}
 
+	/**
+	 * Gets a shadow type built from the class files of the source classpath (see {@link Environment#getSourceClasspath()}),
+	 * without loading any class. The class files are read by a {@link ClassFileProvider}, which shares them between the factories.
+	 *
+	 * @param qualifiedName the qualified name of a type, e.g. java.util.Map$Entry
+	 * @return the shadow type, or null if the source classpath does not contain it
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> CtType<T> getShadowFromClassFile(String qualifiedName) {
+		int nestedTypeIndex = qualifiedName.indexOf(CtType.INNERTTYPE_SEPARATOR);
+		String topLevelName = nestedTypeIndex < 0 ? qualifiedName : qualifiedName.substring(0, nestedTypeIndex);
+		CtType<?> type = classFileShadowCache.get(topLevelName);
+		if (type == null) {
+			CtType<?> newShadowType = new ClassFileShadowBuilder(createFactory(), getClassFileProvider()).build(topLevelName);
+			if (newShadowType == null) {
+				return null;
+			}
+			newShadowType.accept(new CtScanner() {
+				@Override
+				public void scan(CtElement element) {
+					if (element != null) {
+						element.setFactory(factory);
+					}
+				}
+			});
+			newShadowType.setFactory(factory);
+			// another thread may have built the same shadow type in the meantime
+			type = classFileShadowCache.putIfAbsent(topLevelName, newShadowType);
+			if (type == null) {
+				type = newShadowType;
+			}
+		}
+		if (nestedTypeIndex >= 0) {
+			for (String simpleName : qualifiedName.substring(nestedTypeIndex + 1).split("\\" + CtType.INNERTTYPE_SEPARATOR)) {
+				type = type.getNestedType(simpleName);
+				if (type == null) {
+					return null;
+				}
+			}
+		}
+		return (CtType<T>) type;
+	}
+
+	/**
+	 * @return the persistent cache of the shadow types of {@link Environment#getShadowCacheDirectory()} or null if there is none
+	 */
+	private ShadowModelCache getShadowModelCache() {
+		File directory = factory.getEnvironment().getShadowCacheDirectory();
+		if (directory == null) {
+			return null;
+		}
+		ShadowModelCache cache = shadowModelCache;
+		if (cache == null || !cache.getDirectory().equals(directory.toPath())) {
+			cache = new ShadowModelCache(directory.toPath());
+			shadowModelCache = cache;
+		}
+		return cache;
+	}
+
+	private ClassFileProvider getClassFileProvider() {
+		ClassFileProvider provider = classFileProvider;
+		String[] sourceClasspath = factory.getEnvironment().getSourceClasspath();
+		List<String> classpath = sourceClasspath == null ? Collections.<String>emptyList() : Arrays.asList(sourceClasspath);
+		if (provider == null || !provider.getClasspath().equals(classpath)) {
+			provider = new ClassFileProvider(sourceClasspath);
+			classFileProvider = provider;
+		}
+		return provider;
+	}
+
 	/**
 	 * Gets the declaring type name for a given Java qualified name.
 	 */
@@ -20,7 +20,9 @@ package spoon.reflect.visitor;
 import java.lang.annotation.Annotation;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.ConcurrentModificationException;
 import java.util.Map;
+import spoon.SpoonException;
 import spoon.reflect.code.CtAnnotationFieldAccess;
 import spoon.reflect.code.CtArrayRead;
 import spoon.reflect.code.CtArrayWrite;
@@ -116,6 +118,11 @@ import spoon.reflect.reference.CtWildcardReference;
  * Is used by the processing and filtering engine.
  */
 public abstract class CtScanner implements CtVisitor {
+	/**
+	 * true if the collections of children are scanned without defensive copy, see {@link #setReadOnly(boolean)}
+	 */
+	private boolean readOnly = false;
+
 	/**
 	 * Default constructor.
 	 */
@@ -123,6 +130,24 @@ public abstract class CtScanner implements CtVisitor {
 		super();
 	}
 
+	/**
+	 * @return true if this scanner iterates the collections of children without copying them
+	 */
+	public boolean isReadOnly() {
+		return readOnly;
+	}
+
+	/**
+	 * By default, each collection of children is copied before being scanned,
+	 * so that the scanned model can be modified while scanning.
+	 * A read-only scanner iterates the collections of children directly, which is faster and allocates nothing,
+	 * but it fails with a {@link SpoonException} as soon as a collection of children is modified while it is scanned.
+	 * @param readOnly true if the scanned model is not modified while scanning
+	 */
+	public void setReadOnly(boolean readOnly) {
+		this.readOnly = readOnly;
+	}
+
 	/**
 	 * This method is upcalled by the scanner when entering a scanned element.
 	 * To be overridden to implement specific scanners.
@@ -142,6 +167,18 @@ public abstract class CtScanner implements CtVisitor {
 	 */
 	public void scan(CtRole role, Collection<? extends CtElement> elements) {
 		if (elements != null) {
+			if (readOnly) {
+				int size = elements.size();
+				try {
+					for (CtElement e : elements) {
+						scan(role, e);
+					}
+				} catch (ConcurrentModificationException e) {
+					throw modifiedWhileScanning(role, e);
+				}
+				checkNotModified(role, elements, size);
+				return;
+			}
 			// we use defensive copy so as to be able to change the class while scanning
 			// otherwise one gets a ConcurrentModificationException
 			for (CtElement e : new ArrayList<>(elements)) {
@@ -149,6 +186,21 @@ public abstract class CtScanner implements CtVisitor {
 			}
 		}
 	}
+
+	/**
+	 * Fails if a collection of children scanned in read-only mode has been modified:
+	 * the iterators of some collections do not detect all the modifications.
+	 * @param size the size of `elements` before it was scanned
+	 */
+	static void checkNotModified(CtRole role, Collection<?> elements, int size) {
+		if (elements.size() != size) {
+			throw modifiedWhileScanning(role, null);
+		}
+	}
+
+	static SpoonException modifiedWhileScanning(CtRole role, ConcurrentModificationException cause) {
+		return new SpoonException("The children of role " + role + " have been modified while being scanned by a read-only scanner", cause);
+	}
 	/**
 	 * Generically scans a Map of meta-model elements.
 	 */
@@ -329,9 +329,10 @@ public class DefaultJavaPrettyPrinter implements CtVisitor, PrettyPrinter {
 
 	/**
 	 * The generic scan method for an element.
+	 * Nothing is printed once the printed code is truncated, see {@link #printElement(CtElement, int)}.
 	 */
 	public DefaultJavaPrettyPrinter scan(CtElement e) {
-		if (e != null) {
+		if (e != null && !getPrinterHelper().isTruncated()) {
 			enter(e);
 			context.elementStack.push(e);
 			if (env.isPreserveLineNumbers()) {
@@ -1899,13 +1900,40 @@ public class DefaultJavaPrettyPrinter implements CtVisitor, PrettyPrinter {
 		return this.getResult();
 	}
 
+	/**
+	 * Prints `element` alone, as {@link CtElement#toString()}, and discards the previously printed code.
+	 * If `maxLength` is not {@link Integer#MAX_VALUE}, the printing stops once `maxLength` characters are printed,
+	 * so that printing a short representation of a big element is cheap.
+	 * The imports are computed as for the whole element, so the printed code is a prefix of the whole printed element.
+	 * @param maxLength the maximum number of printed characters, see {@link PrinterHelper#setMaxLength(int)}
+	 * @return the printed code, followed by "..." if it has been truncated
+	 */
+	public String printElement(CtElement element, int maxLength) {
+		reset();
+		getPrinterHelper().setMaxLength(maxLength);
+		// we do not want to compute imports of a CtImport as it may change the print of a reference
+		if (!(element instanceof CtImport)) {
+			computeImports(element);
+		}
+		scan(element);
+		if (getPrinterHelper().isTruncated()) {
+			return getResult() + "...";
+		}
+		return getResult();
+	}
+
 	@Override
 	public String getResult() {
 		return printer.getPrinterHelper().toString();
 	}
 
-	private void reset() {
+	/**
+	 * Discards the printed code and the state of the printing, e.g. the computed imports,
+	 * so that this printer does not keep any reference to the printed elements.
+	 */
+	public void reset() {
 		printer.reset();
+		getPrinterHelper().setMaxLength(Integer.MAX_VALUE);
 		context = new PrintingContext();
 		if (env.isAutoImports()) {
 			this.importsContext = new ImportScannerImpl();
@@ -1958,6 +1986,22 @@ public class DefaultJavaPrettyPrinter implements CtVisitor, PrettyPrinter {
 		this.writeFooter(types);
 	}
 
+	/**
+	 * Calculates the source file of a list of types as {@link #calculate(CompilationUnit, List)},
+	 * but writes it to `output` while it is printed instead of keeping it in memory (see {@link PrinterHelper#setOutput(Appendable)}).
+	 * The line number mapping is computed as usual and {@link #getResult()} is empty.
+	 */
+	public void calculate(CompilationUnit sourceCompilationUnit, List<CtType<?>> types, Appendable output) {
+		PrinterHelper printerHelper = getPrinterHelper();
+		printerHelper.setOutput(output);
+		try {
+			calculate(sourceCompilationUnit, types);
+			printerHelper.flush();
+		} finally {
+			printerHelper.setOutput(null);
+		}
+	}
+
 	@Override
 	public Map<Integer, Integer> getLineNumberMapping() {
 		return getPrinterHelper().getLineNumberMapping();
@@ -23,6 +23,7 @@ import spoon.reflect.visitor.chain.ScanningMode;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.ConcurrentModificationException;
 import java.util.Map;
 
 /**
@@ -84,6 +85,21 @@ public class EarlyTerminatingScanner<T> extends CtScanner {
 		if (isTerminated() || elements == null) {
 			return;
 		}
+		if (isReadOnly()) {
+			int size = elements.size();
+			try {
+				for (CtElement e : elements) {
+					scan(role, e);
+					if (isTerminated()) {
+						return;
+					}
+				}
+			} catch (ConcurrentModificationException e) {
+				throw modifiedWhileScanning(role, e);
+			}
+			checkNotModified(role, elements, size);
+			return;
+		}
 		// we use defensive copy so as to be able to change the class while scanning
 		// otherwise one gets a ConcurrentModificationException
 		for (CtElement e : new ArrayList<>(elements)) {
@@ -51,6 +51,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -76,6 +77,16 @@ public class ImportScannerImpl extends CtScanner implements ImportScanner {
 	private Map<String, Boolean> namesPresentInJavaLang = new HashMap<>();
 	private Set<String> fieldAndMethodsNames = new HashSet<String>();
 	private Set<CtTypeReference> exploredReferences = new HashSet<>(); // list of explored references
+	/**
+	 * The names of the variables accessible in a block, by the first block which contains the tested reference.
+	 * It is computed once per block and per call of {@link #computeImports(CtElement)}.
+	 */
+	private Map<CtElement, Set<String>> localVariablesByBlock = new IdentityHashMap<>();
+
+	public ImportScannerImpl() {
+		// the imports are computed without modifying the model
+		setReadOnly(true);
+	}
 
 	@Override
 	public <T> void visitCtFieldRead(CtFieldRead<T> fieldRead) {
@@ -202,6 +213,7 @@ public class ImportScannerImpl extends CtScanner implements ImportScanner {
 
 	@Override
 	public void computeImports(CtElement element) {
+		localVariablesByBlock.clear();
 		//look for top declaring type of that simpleType
 		if (element instanceof CtType) {
 			CtType simpleType = (CtType) element;
@@ -532,48 +544,57 @@ public class ImportScannerImpl extends CtScanner implements ImportScanner {
 	}
 
 	protected Set<String> lookForLocalVariables(CtElement parent) {
-		Set<String> result = new HashSet<>();
-
 		// try to get the block container
 		// if the first container is the class, then we are not in a block and we can quit now.
 		while (parent != null && !(parent instanceof CtBlock)) {
 			if (parent instanceof CtClass) {
-				return result;
+				return new HashSet<>();
 			}
 			parent = parent.getParent();
 		}
 
-		if (parent != null) {
-			CtBlock block = (CtBlock) parent;
-			boolean innerClass = false;
+		if (parent == null) {
+			return new HashSet<>();
+		}
+		// the variables only depend on the block, which contains many references
+		Set<String> result = localVariablesByBlock.get(parent);
+		if (result == null) {
+			result = Collections.unmodifiableSet(lookForLocalVariables((CtBlock) parent));
+			localVariablesByBlock.put(parent, result);
+		}
+		return result;
+	}
 
-			// now we have the first container block, we want to check if we're not in an inner class
-			while (parent != null && !(parent instanceof CtClass)) {
-				parent = parent.getParent();
-			}
+	private Set<String> lookForLocalVariables(CtBlock<?> firstBlock) {
+		CtBlock<?> block = firstBlock;
+		CtElement parent = firstBlock;
 
-			if (parent != null) {
-				// uhoh it's not a package as a parent, we must in an inner block:
-				// let's find the last block BEFORE the class call: some collision could occur because of variables defined in that block
-				if (!(parent.getParent() instanceof CtPackage)) {
-					while (parent != null && !(parent instanceof CtBlock)) {
-						parent = parent.getParent();
-					}
+		// now we have the first container block, we want to check if we're not in an inner class
+		while (parent != null && !(parent instanceof CtClass)) {
+			parent = parent.getParent();
+		}
 
-					if (parent != null) {
-						block = (CtBlock) parent;
-					}
+		if (parent != null) {
+			// uhoh it's not a package as a parent, we must in an inner block:
+			// let's find the last block BEFORE the class call: some collision could occur because of variables defined in that block
+			if (!(parent.getParent() instanceof CtPackage)) {
+				while (parent != null && !(parent instanceof CtBlock)) {
+					parent = parent.getParent();
 				}
-			}
 
-			AccessibleVariablesFinder avf = new AccessibleVariablesFinder(block);
-			List<CtVariable> variables = avf.find();
-
-			for (CtVariable variable : variables) {
-				result.add(variable.getSimpleName());
+				if (parent != null) {
+					block = (CtBlock<?>) parent;
+				}
 			}
 		}
 
+		Set<String> result = new HashSet<>();
+		AccessibleVariablesFinder avf = new AccessibleVariablesFinder(block);
+		List<CtVariable> variables = avf.find();
+
+		for (CtVariable variable : variables) {
+			result.add(variable.getSimpleName());
+		}
 		return result;
 	}
 
@@ -16,12 +16,14 @@
  */
 package spoon.reflect.visitor;
 
+import spoon.SpoonException;
 import spoon.compiler.Environment;
 import spoon.reflect.cu.CompilationUnit;
 import spoon.reflect.cu.SourcePosition;
 import spoon.reflect.declaration.CtElement;
 import spoon.support.reflect.cu.position.PartialSourcePositionImpl;
 
+import java.io.IOException;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
@@ -42,9 +44,46 @@ public class PrinterHelper {
 	private Environment env;
 
 	/**
-	 * The string buffer in which the code is generated.
+	 * The buffer in which the code is generated.
+	 * If there is an {@link #output}, it only contains the code which has not been written to the output yet.
 	 */
-	private final StringBuffer sbf = new StringBuffer();
+	private final StringBuilder sbf = new StringBuilder();
+
+	/**
+	 * The size of the buffer from which the code is written to the {@link #output}
+	 */
+	private static final int OUTPUT_BUFFER_SIZE = 8192;
+
+	/**
+	 * The maximum capacity of the buffer kept by {@link #reset()}, so that a reused printer does not keep the buffer of a big printed code
+	 */
+	private static final int MAX_KEPT_BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * The output to which the code is written while it is generated, see {@link #setOutput(Appendable)}.
+	 * If null, the whole code is kept in the buffer.
+	 */
+	private Appendable output;
+
+	/**
+	 * The number of characters written to the {@link #output}
+	 */
+	private int outputLength = 0;
+
+	/**
+	 * The maximum number of printed characters, see {@link #setMaxLength(int)}
+	 */
+	private int maxLength = Integer.MAX_VALUE;
+
+	/**
+	 * The index of the first printed character which is not a whitespace, or -1 if there is none yet
+	 */
+	private int codeStart = -1;
+
+	/**
+	 * true if some characters were not printed because of the {@link #maxLength}
+	 */
+	private boolean truncated = false;
 
 	/**
 	 * Number of tabs when we print the source code.
@@ -88,14 +127,112 @@ public class PrinterHelper {
 	 */
 	public void reset() {
 		sbf.setLength(0);
+		if (sbf.capacity() > MAX_KEPT_BUFFER_SIZE) {
+			sbf.trimToSize();
+		}
 		nbTabs = 0;
 		line = 1;
 		column = 1;
 		shouldWriteTabs = true;
+		outputLength = 0;
+		codeStart = -1;
+		truncated = false;
 		//create new map, because clients keeps reference to it
 		lineNumberMapping = new HashMap<>();
 	}
 
+	/**
+	 * Sets the maximum number of printed characters: the next characters are ignored and {@link #isTruncated()} returns true.
+	 * The whitespaces printed before the code, e.g. the newlines added to preserve the line numbers, are not counted.
+	 * It is used to print short representations of elements, see {@link DefaultJavaPrettyPrinter#printElement(spoon.reflect.declaration.CtElement, int)}.
+	 * @param maxLength the maximum number of characters, {@link Integer#MAX_VALUE} by default
+	 */
+	public PrinterHelper setMaxLength(int maxLength) {
+		this.maxLength = maxLength;
+		return this;
+	}
+
+	/**
+	 * @return the maximum number of printed characters, see {@link #setMaxLength(int)}
+	 */
+	public int getMaxLength() {
+		return maxLength;
+	}
+
+	/**
+	 * @return true if the printed code has been truncated to the maximum number of characters, see {@link #setMaxLength(int)}
+	 */
+	public boolean isTruncated() {
+		return truncated;
+	}
+
+	/**
+	 * Writes the code to `output` while it is generated, instead of keeping it in memory until {@link #toString()}.
+	 * Only the end of the code which can still be removed by {@link #removeLine()}, the trailing whitespaces, and at most a few kilobytes are buffered:
+	 * {@link #flush()} has to be called once the code is generated to write the rest of it.
+	 * The line number mapping is computed as usual.
+	 * @param output the output of the code or null to keep the whole code in memory
+	 */
+	public PrinterHelper setOutput(Appendable output) {
+		this.output = output;
+		return this;
+	}
+
+	/**
+	 * @return the output of the code, see {@link #setOutput(Appendable)}, or null if the code is kept in memory
+	 */
+	public Appendable getOutput() {
+		return output;
+	}
+
+	/**
+	 * Writes all the buffered code to the output, if there is one (see {@link #setOutput(Appendable)}).
+	 * Once flushed, the printed lines can no more be removed by {@link #removeLine()}.
+	 */
+	public PrinterHelper flush() {
+		writeToOutput(sbf.length());
+		return this;
+	}
+
+	/**
+	 * Writes the buffered code to the output when the buffer is full,
+	 * but the trailing whitespaces and the last character before them, which can still be changed by {@link #removeLine()}
+	 */
+	private void writeBufferToOutput() {
+		int end = sbf.length() - 1;
+		while (end > 0 && isWhite(sbf.charAt(end))) {
+			end--;
+		}
+		writeToOutput(end);
+	}
+
+	private void writeToOutput(int end) {
+		if (output == null || end <= 0) {
+			return;
+		}
+		try {
+			output.append(sbf, 0, end);
+		} catch (IOException e) {
+			throw new SpoonException("Cannot write the printed code", e);
+		}
+		sbf.delete(0, end);
+		outputLength += end;
+	}
+
+	/**
+	 * Removes the characters after the {@link #maxLength}
+	 */
+	private void checkMaxLength() {
+		if (codeStart < 0) {
+			return;
+		}
+		int overflow = outputLength + sbf.length() - codeStart - maxLength;
+		if (overflow > 0) {
+			sbf.setLength(Math.max(0, sbf.length() - overflow));
+			truncated = true;
+		}
+	}
+
 	/**
 	 * Outputs a string.
 	 */
@@ -113,8 +250,12 @@ public class PrinterHelper {
 	 * Outputs a char.
 	 */
 	public PrinterHelper write(char c) {
+		if (truncated) {
+			return this;
+		}
 		if (c == '\r') {
 			sbf.append(c);
+			checkMaxLength();
 			line++;
 			// reset the column index
 			column = 1;
@@ -124,6 +265,7 @@ public class PrinterHelper {
 		}
 		if (c == '\n') {
 			sbf.append(c);
+			checkMaxLength();
 			if (lastCharWasCR) {
 				//increment line only once in sequence of \r\n.
 				//last was \r, so nothing to do
@@ -139,9 +281,16 @@ public class PrinterHelper {
 			return this;
 		}
 		autoWriteTabs();
+		if (codeStart < 0 && !isWhite(c)) {
+			codeStart = outputLength + sbf.length();
+		}
 		sbf.append(c);
+		checkMaxLength();
 		column += 1;
 		lastCharWasCR = false;
+		if (output != null && sbf.length() >= OUTPUT_BUFFER_SIZE) {
+			writeBufferToOutput();
+		}
 		return this;
 	}
 
@@ -287,6 +436,9 @@ public class PrinterHelper {
 		return Collections.unmodifiableMap(lineNumberMapping);
 	}
 
+	/**
+	 * @return the generated code, or only the code which has not been written yet if there is an output (see {@link #setOutput(Appendable)})
+	 */
 	@Override
 	public String toString() {
 		return sbf.toString();
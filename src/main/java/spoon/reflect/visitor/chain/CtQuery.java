@@ -34,6 +34,10 @@ import java.util.List;
  *
  * <p>Evaluation: A CtQuery is lazily evaluated once {@link CtQuery#list()} or {@link CtQuery#forEach(CtConsumer)} are called.</p>
  *
+ * <p>Modification: The consumer of {@link CtQuery#forEach(CtConsumer)} may modify the model while the query is evaluated.
+ * {@link CtQuery#list()} and {@link CtQuery#first()} only collect the results, so the children are scanned without defensive copies
+ * and the steps of the query must not modify the scanned model.</p>
+ *
  */
 public interface CtQuery extends CtQueryable {
 
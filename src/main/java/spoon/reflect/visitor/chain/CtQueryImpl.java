@@ -30,6 +30,7 @@ import spoon.reflect.declaration.CtElement;
 import spoon.reflect.declaration.CtType;
 import spoon.reflect.visitor.Filter;
 import spoon.reflect.visitor.filter.CtScannerFunction;
+import spoon.support.reflect.declaration.CtElementImpl;
 import spoon.support.util.RtHelper;
 
 /**
@@ -50,6 +51,12 @@ public class CtQueryImpl implements CtQuery {
 
 	private boolean terminated = false;
 
+	/**
+	 * The scanners of the children added by {@link #filterChildren(Filter)},
+	 * which scan without defensive copies while the query only collects its results, see {@link #collect(Runnable)}
+	 */
+	private final List<CtScannerFunction> childrenScanners = new ArrayList<>(1);
+
 	public CtQueryImpl(Object... input) {
 		setInput(input);
 	}
@@ -115,14 +122,14 @@ public class CtQueryImpl implements CtQuery {
 	@Override
 	public <R> List<R> list(final Class<R> itemClass) {
 		final List<R> list = new ArrayList<>();
-		forEach(new CtConsumer<R>() {
+		collect(() -> forEach(new CtConsumer<R>() {
 			@Override
 			public void accept(R out) {
 				if (out != null && itemClass.isAssignableFrom(out.getClass())) {
 					list.add(out);
 				}
 			}
-		});
+		}));
 		return list;
 	}
 	@SuppressWarnings("unchecked")
@@ -144,13 +151,48 @@ public class CtQueryImpl implements CtQuery {
 				}
 			}
 		});
+		collect(() -> {
+			for (Object input : inputs) {
+				firstStep.accept(input);
+				if (isTerminated()) {
+					break;
+				}
+			}
+		});
+		return (R) result[0];
+	}
+
+	/**
+	 * Runs an evaluation of this query which only collects its results, so the model is not modified by the query:
+	 * the children are scanned without defensive copies, unless types may be loaded into the model while it is scanned,
+	 * see {@link spoon.reflect.factory.TypeFactory#setTypeLoader(CtFunction)}
+	 */
+	private void collect(Runnable evaluation) {
+		if (childrenScanners.isEmpty() || mayLoadTypes()) {
+			evaluation.run();
+			return;
+		}
+		setChildrenScannersReadOnly(true);
+		try {
+			evaluation.run();
+		} finally {
+			setChildrenScannersReadOnly(false);
+		}
+	}
+
+	private boolean mayLoadTypes() {
 		for (Object input : inputs) {
-			firstStep.accept(input);
-			if (isTerminated()) {
-				break;
+			if (input instanceof CtElement && ((CtElement) input).getFactory().Type().getTypeLoader() != null) {
+				return true;
 			}
 		}
-		return (R) result[0];
+		return false;
+	}
+
+	private void setChildrenScannersReadOnly(boolean readOnly) {
+		for (CtScannerFunction scanner : childrenScanners) {
+			scanner.readOnly(readOnly);
+		}
 	}
 
 	private boolean logging = false;
@@ -170,7 +212,9 @@ public class CtQueryImpl implements CtQuery {
 
 	@Override
 	public <R extends CtElement> CtQueryImpl filterChildren(Filter<R> filter) {
-		map(new CtScannerFunction());
+		CtScannerFunction scanner = new CtScannerFunction();
+		childrenScanners.add(scanner);
+		map(scanner);
 		if (filter != null) {
 			select(filter);
 		}
@@ -270,6 +314,11 @@ public class CtQueryImpl implements CtQuery {
 		return -1;
 	}
 
+	/**
+	 * The maximum number of printed characters of a logged element
+	 */
+	private static final int MAX_LOGGED_ELEMENT_LENGTH = 1000;
+
 	private boolean isLogging() {
 		return logging;
 	}
@@ -290,7 +339,12 @@ public class CtQueryImpl implements CtQuery {
 				sb.append(parameters[i].getClass().getSimpleName());
 				sb.append(": ");
 			}
-			sb.append(parameters[i]);
+			if (parameters[i] instanceof CtElementImpl) {
+				// the elements can be big, e.g. the whole model
+				sb.append(((CtElementImpl) parameters[i]).toString(MAX_LOGGED_ELEMENT_LENGTH));
+			} else {
+				sb.append(parameters[i]);
+			}
 		}
 		return sb.toString();
 	}
@@ -50,6 +50,16 @@ public class CtScannerFunction implements CtConsumableFunction<CtElement>, CtQue
 		return this;
 	}
 
+	/**
+	 * @param readOnly if true then the children are scanned without defensive copy, so the model must not be modified by the query.
+	 * By default it is false. See {@link spoon.reflect.visitor.CtScanner#setReadOnly(boolean)}
+	 * @return this to support fluent API
+	 */
+	public CtScannerFunction readOnly(boolean readOnly) {
+		scanner.setReadOnly(readOnly);
+		return this;
+	}
+
 	/**
 	 * @param listener the implementation of {@link CtScannerListener}, which will listen for enter/exit of nodes during scanning of AST
 	 * @return this to support fluent API
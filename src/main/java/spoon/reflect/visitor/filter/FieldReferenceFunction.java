@@ -17,12 +17,15 @@
 package spoon.reflect.visitor.filter;
 
 import spoon.SpoonException;
+import spoon.experimental.modelobs.ReferenceIndex;
 import spoon.reflect.declaration.CtElement;
 import spoon.reflect.declaration.CtField;
 import spoon.reflect.reference.CtFieldReference;
 import spoon.reflect.visitor.chain.CtConsumableFunction;
 import spoon.reflect.visitor.chain.CtConsumer;
 
+import java.util.List;
+
 /**
  * This Query expects a {@link CtField} as input
  * and returns all {@link CtFieldReference}s, which refers this input.
@@ -35,6 +38,8 @@ import spoon.reflect.visitor.chain.CtConsumer;
  *   .forEach((CtFieldReference ref)->...process references...);
  * }
  * </pre>
+ * The references are looked up in the {@link ReferenceIndex} of the environment when there is one,
+ * else the scope is scanned. In both cases, the references are returned in the order of the model.
  */
 public class FieldReferenceFunction implements CtConsumableFunction<CtElement> {
 	private final CtField<?> field;
@@ -61,6 +66,17 @@ public class FieldReferenceFunction implements CtConsumableFunction<CtElement> {
 		} else {
 			scope = fieldOrScope;
 		}
+		ReferenceIndex index = ReferenceIndex.getReferenceIndex(field.getFactory().getEnvironment());
+		List<CtFieldReference<?>> references = index == null ? null : index.<CtFieldReference<?>>getReferences(field.getReference());
+		if (references != null) {
+			boolean wholeModel = scope == field.getFactory().getModel().getUnnamedModule();
+			for (CtFieldReference<?> reference : references) {
+				if (wholeModel || reference == scope || reference.hasParent(scope)) {
+					outputConsumer.accept(reference);
+				}
+			}
+			return;
+		}
 		scope
 			.filterChildren(new DirectReferenceFilter<CtFieldReference<?>>(field.getReference()))
 			.forEach(outputConsumer);
@@ -0,0 +1,196 @@
+/**
+ * Copyright (C) 2006-2017 INRIA and contributors
+ * Spoon - http://spoon.gforge.inria.fr/
+ *
+ * This software is governed by the CeCILL-C License under French law and
+ * abiding by the rules of distribution of free software. You can use, modify
+ * and/or redistribute the software under the terms of the CeCILL-C license as
+ * circulated by CEA, CNRS and INRIA at http://www.cecill.info.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the CeCILL-C License for more details.
+ *
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-C license and that you accept its terms.
+ */
+package spoon.support;
+
+import spoon.reflect.declaration.CtElement;
+import spoon.reflect.declaration.CtModifiable;
+import spoon.reflect.declaration.CtModule;
+import spoon.reflect.declaration.CtPackage;
+import spoon.reflect.declaration.CtType;
+import spoon.reflect.meta.RoleHandler;
+import spoon.reflect.meta.impl.RoleHandlerHelper;
+import spoon.reflect.path.CtRole;
+import spoon.support.reflect.CtExtendedModifier;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The constants of the format written by {@link BinaryModelStreamer}
+ * and the description of the model elements, computed from the metamodel, which is shared by the writer and the reader.
+ */
+final class BinaryModelFormat {
+	static final int MAGIC = 0x53504f4e;
+	static final int SNAPSHOT_MAGIC = 0x53504f53;
+	static final int SHADOW_MAGIC = 0x53504f48;
+	static final int VERSION = 1;
+
+	static final int BUFFER_SIZE = 1 << 16;
+
+	/**
+	 * The values of the pooled constants: a null value, a value which is written for the first time
+	 * or else the index of the value in the pool plus {@link #POOL_INDEX}
+	 */
+	static final int POOL_NULL = 0;
+	static final int POOL_NEW = 1;
+	static final int POOL_INDEX = 2;
+
+	/**
+	 * The tags of the values of the properties
+	 */
+	static final int TAG_NULL = 0;
+	static final int TAG_TRUE = 1;
+	static final int TAG_FALSE = 2;
+	static final int TAG_STRING = 3;
+	static final int TAG_INT = 4;
+	static final int TAG_LONG = 5;
+	static final int TAG_FLOAT = 6;
+	static final int TAG_DOUBLE = 7;
+	static final int TAG_CHAR = 8;
+	static final int TAG_BYTE = 9;
+	static final int TAG_SHORT = 10;
+	static final int TAG_ENUM = 11;
+	static final int TAG_SET = 12;
+	static final int TAG_LIST = 13;
+	static final int TAG_NO_POSITION = 14;
+	static final int TAG_PARTIAL_POSITION = 15;
+	static final int TAG_POSITION = 16;
+	static final int TAG_DECLARATION_POSITION = 17;
+	static final int TAG_BODY_HOLDER_POSITION = 18;
+	static final int TAG_EXTENDED_MODIFIER = 19;
+	static final int TAG_SERIALIZED = 20;
+
+	static final CtRole[] ROLES = CtRole.values();
+
+	private static final Map<Class<?>, ElementKind> ELEMENT_KINDS = new ConcurrentHashMap<>();
+
+	private BinaryModelFormat() {
+	}
+
+	/**
+	 * @return the description of the elements of class `elementClass`
+	 */
+	static ElementKind getElementKind(Class<?> elementClass) {
+		ElementKind kind = ELEMENT_KINDS.get(elementClass);
+		if (kind == null) {
+			kind = new ElementKind(elementClass);
+			ELEMENT_KINDS.put(elementClass, kind);
+		}
+		return kind;
+	}
+
+	/**
+	 * @return true if the element is referred to by the table of compilation units
+	 */
+	static boolean isDeclaration(CtElement element) {
+		return element instanceof CtType || element instanceof CtPackage || element instanceof CtModule;
+	}
+
+	/**
+	 * The attributes of a class of elements which are written: the children, identified by their role,
+	 * and the properties, whose values are not elements.
+	 */
+	static final class ElementKind {
+		/**
+		 * the settable {@link RoleHandler}s of the class, by {@link CtRole#ordinal()}
+		 */
+		private final RoleHandler[] handlers = new RoleHandler[ROLES.length];
+		private final List<Property> properties = new ArrayList<>();
+
+		private ElementKind(Class<?> elementClass) {
+			for (CtRole role : ROLES) {
+				RoleHandler handler = RoleHandlerHelper.getOptionalRoleHandler(elementClass.asSubclass(CtElement.class), role);
+				if (handler != null && isSettable(handler)) {
+					handlers[role.ordinal()] = handler;
+				}
+			}
+			for (RoleHandler handler : handlers) {
+				if (handler == null || CtElement.class.isAssignableFrom(handler.getValueClass())) {
+					continue;
+				}
+				if (handler.getRole() == CtRole.MODIFIER && CtModifiable.class.isAssignableFrom(elementClass)) {
+					// the modifiers are saved with their implicitness and position
+					properties.add(new ExtendedModifiersProperty());
+				} else {
+					properties.add(new RoleHandlerProperty(handler));
+				}
+			}
+		}
+
+		/**
+		 * @return false for the handlers of {@link spoon.reflect.declaration.CtTypeInformation}, which is not an element:
+		 * their values are computed from the element, e.g. the modifiers of a type reference, and cannot be set
+		 */
+		private static boolean isSettable(RoleHandler handler) {
+			return CtElement.class.isAssignableFrom(handler.getTargetType());
+		}
+
+		/**
+		 * @return the handler of the children of `role` or null if such children are not saved
+		 */
+		RoleHandler getHandler(CtRole role) {
+			return handlers[role.ordinal()];
+		}
+
+		List<Property> getProperties() {
+			return properties;
+		}
+	}
+
+	/**
+	 * An attribute of an element whose value is not an element
+	 */
+	interface Property {
+		Object getValue(CtElement element);
+
+		void setValue(CtElement element, Object value);
+	}
+
+	private static final class RoleHandlerProperty implements Property {
+		private final RoleHandler handler;
+
+		RoleHandlerProperty(RoleHandler handler) {
+			this.handler = handler;
+		}
+
+		@Override
+		public Object getValue(CtElement element) {
+			return handler.getValue(element);
+		}
+
+		@Override
+		public void setValue(CtElement element, Object value) {
+			handler.setValue(element, value);
+		}
+	}
+
+	private static final class ExtendedModifiersProperty implements Property {
+		@Override
+		public Object getValue(CtElement element) {
+			return ((CtModifiable) element).getExtendedModifiers();
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public void setValue(CtElement element, Object value) {
+			((CtModifiable) element).setExtendedModifiers((Set<CtExtendedModifier>) value);
+		}
+	}
+}
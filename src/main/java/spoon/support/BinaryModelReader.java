@@ -0,0 +1,493 @@
+/**
+ * Copyright (C) 2006-2017 INRIA and contributors
+ * Spoon - http://spoon.gforge.inria.fr/
+ *
+ * This software is governed by the CeCILL-C License under French law and
+ * abiding by the rules of distribution of free software. You can use, modify
+ * and/or redistribute the software under the terms of the CeCILL-C license as
+ * circulated by CEA, CNRS and INRIA at http://www.cecill.info.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the CeCILL-C License for more details.
+ *
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-C license and that you accept its terms.
+ */
+package spoon.support;
+
+import spoon.SpoonException;
+import spoon.compiler.Environment;
+import spoon.reflect.cu.CompilationUnit;
+import spoon.reflect.cu.SourcePosition;
+import spoon.reflect.declaration.CtElement;
+import spoon.reflect.declaration.CtImport;
+import spoon.reflect.declaration.CtModule;
+import spoon.reflect.declaration.CtPackage;
+import spoon.reflect.declaration.CtType;
+import spoon.reflect.declaration.ModifierKind;
+import spoon.reflect.factory.CoreFactory;
+import spoon.reflect.factory.Factory;
+import spoon.reflect.factory.ModuleFactory;
+import spoon.reflect.meta.RoleHandler;
+import spoon.reflect.path.CtRole;
+import spoon.support.BinaryModelFormat.ElementKind;
+import spoon.support.BinaryModelFormat.Property;
+import spoon.support.reflect.CtExtendedModifier;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.lang.reflect.Constructor;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static spoon.support.BinaryModelFormat.MAGIC;
+import static spoon.support.BinaryModelFormat.POOL_INDEX;
+import static spoon.support.BinaryModelFormat.POOL_NEW;
+import static spoon.support.BinaryModelFormat.POOL_NULL;
+import static spoon.support.BinaryModelFormat.ROLES;
+import static spoon.support.BinaryModelFormat.TAG_BODY_HOLDER_POSITION;
+import static spoon.support.BinaryModelFormat.TAG_BYTE;
+import static spoon.support.BinaryModelFormat.TAG_CHAR;
+import static spoon.support.BinaryModelFormat.TAG_DECLARATION_POSITION;
+import static spoon.support.BinaryModelFormat.TAG_DOUBLE;
+import static spoon.support.BinaryModelFormat.TAG_ENUM;
+import static spoon.support.BinaryModelFormat.TAG_EXTENDED_MODIFIER;
+import static spoon.support.BinaryModelFormat.TAG_FALSE;
+import static spoon.support.BinaryModelFormat.TAG_FLOAT;
+import static spoon.support.BinaryModelFormat.TAG_INT;
+import static spoon.support.BinaryModelFormat.TAG_LIST;
+import static spoon.support.BinaryModelFormat.TAG_LONG;
+import static spoon.support.BinaryModelFormat.TAG_NO_POSITION;
+import static spoon.support.BinaryModelFormat.TAG_NULL;
+import static spoon.support.BinaryModelFormat.TAG_PARTIAL_POSITION;
+import static spoon.support.BinaryModelFormat.TAG_POSITION;
+import static spoon.support.BinaryModelFormat.TAG_SERIALIZED;
+import static spoon.support.BinaryModelFormat.TAG_SET;
+import static spoon.support.BinaryModelFormat.TAG_SHORT;
+import static spoon.support.BinaryModelFormat.TAG_STRING;
+import static spoon.support.BinaryModelFormat.TAG_TRUE;
+import static spoon.support.BinaryModelFormat.VERSION;
+import static spoon.support.BinaryModelFormat.getElementKind;
+import static spoon.support.BinaryModelFormat.isDeclaration;
+
+/**
+ * Reads a model written by {@link BinaryModelWriter} into a factory.
+ *
+ * Each element is created with the factory set, its properties and children are then set through the
+ * {@link RoleHandler}s of the metamodel, so that the parents of the children are set by the regular setters.
+ */
+class BinaryModelReader {
+	private final Factory factory;
+	private final DataInputStream in;
+
+	private final List<String> strings = new ArrayList<>();
+	private final List<Class<?>> classes = new ArrayList<>();
+	private final List<int[]> lineSeparators = new ArrayList<>();
+	private final List<CompilationUnit> compilationUnits = new ArrayList<>();
+	private final List<CtElement> declarations = new ArrayList<>();
+	private final Map<Class<?>, Constructor<?>> constructors = new HashMap<>();
+
+	BinaryModelReader(Factory factory, DataInputStream in) {
+		this.factory = factory;
+		this.in = in;
+	}
+
+	/**
+	 * Reads the model into the factory
+	 * @param configureEnvironment true if the environment of the factory must be configured as the one of the saved model
+	 */
+	void read(boolean configureEnvironment) throws IOException {
+		readHeader(MAGIC, configureEnvironment);
+		CtModule unnamedModule = factory.getModel().getUnnamedModule();
+		int moduleCount = readVarInt();
+		for (int i = 0; i < moduleCount; i++) {
+			CtElement module = readElement();
+			if (module != unnamedModule) {
+				module.setParent(unnamedModule);
+			}
+		}
+		readCompilationUnits();
+	}
+
+	/**
+	 * Reads the header written by {@link BinaryModelWriter#writeHeader(int, Environment)}
+	 * @param configureEnvironment true if the environment of the factory must be configured as the one of the saved model
+	 */
+	void readHeader(int magic, boolean configureEnvironment) throws IOException {
+		if (in.readInt() != magic) {
+			throw new IOException("The stream does not contain a Spoon model");
+		}
+		int version = in.readInt();
+		if (version != VERSION) {
+			throw new IOException("Unsupported version of the model format: " + version);
+		}
+		int complianceLevel = readVarInt();
+		boolean autoImports = in.readBoolean();
+		boolean commentsEnabled = in.readBoolean();
+		boolean noClasspath = in.readBoolean();
+		if (configureEnvironment) {
+			Environment environment = factory.getEnvironment();
+			environment.setComplianceLevel(complianceLevel);
+			environment.setAutoImports(autoImports);
+			environment.setCommentEnabled(commentsEnabled);
+			environment.setNoClasspath(noClasspath);
+		}
+	}
+
+	private void readCompilationUnits() throws IOException {
+		while (in.readBoolean()) {
+			CompilationUnit cu = readCompilationUnit();
+			String key = readString();
+			CtElement declaredPackage = readDeclaration();
+			if (declaredPackage != null) {
+				cu.setDeclaredPackage((CtPackage) declaredPackage);
+			}
+			CtElement declaredModule = readDeclaration();
+			if (declaredModule != null) {
+				cu.setDeclaredModule((CtModule) declaredModule);
+			}
+			int typeCount = readVarInt();
+			List<CtType<?>> types = new ArrayList<>(typeCount);
+			for (int i = 0; i < typeCount; i++) {
+				CtElement type = readDeclaration();
+				if (type != null) {
+					types.add((CtType<?>) type);
+				}
+			}
+			cu.setDeclaredTypes(types);
+			int importCount = readVarInt();
+			if (importCount > 0) {
+				List<CtImport> imports = new ArrayList<>(importCount);
+				for (int i = 0; i < importCount; i++) {
+					imports.add((CtImport) readElement());
+				}
+				cu.setImports(imports);
+			}
+			if (key != null) {
+				factory.CompilationUnit().getMap().put(key, cu);
+			}
+		}
+	}
+
+	private CtElement readDeclaration() throws IOException {
+		int index = readVarInt();
+		return index == 0 ? null : declarations.get(index - 1);
+	}
+
+	/**
+	 * Reads an element and all its children
+	 */
+	CtElement readElement() throws IOException {
+		Class<?> elementClass = readClass();
+		CtElement element = createElement(elementClass);
+		if (isDeclaration(element)) {
+			declarations.add(element);
+		}
+		ElementKind kind = getElementKind(elementClass);
+		for (Property property : kind.getProperties()) {
+			property.setValue(element, readValue());
+		}
+		int metadataCount = readVarInt();
+		for (int i = 0; i < metadataCount; i++) {
+			element.putMetadata(readString(), readValue());
+		}
+
+		Map<CtRole, Object> children = null;
+		int roleIndex;
+		while ((roleIndex = readVarInt()) != 0) {
+			CtRole role = ROLES[roleIndex - 1];
+			RoleHandler handler = kind.getHandler(role);
+			if (handler == null) {
+				throw new IOException("The element of class " + elementClass.getName() + " does not have CtRole." + role.name());
+			}
+			if (children == null) {
+				children = new LinkedHashMap<>();
+			}
+			addChild(children, handler, element);
+		}
+		if (children != null) {
+			// the setters of the children set their parent
+			for (Map.Entry<CtRole, Object> entry : children.entrySet()) {
+				kind.getHandler(entry.getKey()).setValue(element, entry.getValue());
+			}
+		}
+		return element;
+	}
+
+	@SuppressWarnings("unchecked")
+	private void addChild(Map<CtRole, Object> children, RoleHandler handler, CtElement parent) throws IOException {
+		CtRole role = handler.getRole();
+		switch (handler.getContainerKind()) {
+		case SINGLE:
+			children.put(role, readElement());
+			break;
+		case LIST:
+			((List<CtElement>) children.computeIfAbsent(role, r -> new ArrayList<>())).add(readElement());
+			break;
+		case SET:
+			((Set<CtElement>) children.computeIfAbsent(role, r -> new ElementSet())).add(readElement());
+			break;
+		case MAP:
+			String key = readString();
+			((Map<String, CtElement>) children.computeIfAbsent(role, r -> new LinkedHashMap<>())).put(key, readElement());
+			break;
+		default:
+			throw new SpoonException("Unexpected container kind " + handler.getContainerKind() + " of " + role + " in " + parent.getClass());
+		}
+	}
+
+	private CtElement createElement(Class<?> elementClass) throws IOException {
+		if (elementClass == ModuleFactory.CtUnnamedModule.class) {
+			return factory.getModel().getUnnamedModule();
+		}
+		if (CtModule.class.isAssignableFrom(elementClass)) {
+			// the modules are registered in the unnamed module at creation
+			return factory.Core().createModule();
+		}
+		Constructor<?> constructor = constructors.get(elementClass);
+		try {
+			if (constructor == null) {
+				constructor = elementClass.getDeclaredConstructor();
+				constructor.setAccessible(true);
+				constructors.put(elementClass, constructor);
+			}
+			CtElement element = (CtElement) constructor.newInstance();
+			element.setFactory(factory);
+			return element;
+		} catch (ReflectiveOperationException e) {
+			throw new IOException("Cannot create an element of class " + elementClass.getName(), e);
+		}
+	}
+
+	private Object readValue() throws IOException {
+		int tag = in.readUnsignedByte();
+		switch (tag) {
+		case TAG_NULL:
+			return null;
+		case TAG_TRUE:
+			return Boolean.TRUE;
+		case TAG_FALSE:
+			return Boolean.FALSE;
+		case TAG_STRING:
+			return readString();
+		case TAG_INT:
+			return in.readInt();
+		case TAG_LONG:
+			return in.readLong();
+		case TAG_FLOAT:
+			return in.readFloat();
+		case TAG_DOUBLE:
+			return in.readDouble();
+		case TAG_CHAR:
+			return in.readChar();
+		case TAG_BYTE:
+			return in.readByte();
+		case TAG_SHORT:
+			return in.readShort();
+		case TAG_ENUM:
+			return readEnum();
+		case TAG_SET: {
+			int size = readVarInt();
+			Set<Object> values = new HashSet<>();
+			for (int i = 0; i < size; i++) {
+				values.add(readValue());
+			}
+			return values;
+		}
+		case TAG_LIST: {
+			int size = readVarInt();
+			List<Object> values = new ArrayList<>(size);
+			for (int i = 0; i < size; i++) {
+				values.add(readValue());
+			}
+			return values;
+		}
+		case TAG_EXTENDED_MODIFIER: {
+			CtExtendedModifier modifier = new CtExtendedModifier(ModifierKind.valueOf(readString()), in.readBoolean());
+			modifier.setPosition((SourcePosition) readValue());
+			return modifier;
+		}
+		case TAG_SERIALIZED:
+			return readSerialized();
+		default:
+			return readPosition(tag);
+		}
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private Object readEnum() throws IOException {
+		Class enumClass = readClass();
+		return Enum.valueOf(enumClass, readString());
+	}
+
+	private Object readSerialized() throws IOException {
+		byte[] bytes = new byte[readVarInt()];
+		in.readFully(bytes);
+		try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+			return ois.readObject();
+		} catch (ClassNotFoundException e) {
+			throw new IOException(e.getMessage(), e);
+		}
+	}
+
+	private SourcePosition readPosition(int tag) throws IOException {
+		CoreFactory core = factory.Core();
+		switch (tag) {
+		case TAG_NO_POSITION:
+			return SourcePosition.NOPOSITION;
+		case TAG_PARTIAL_POSITION:
+			return core.createPartialSourcePosition(readCompilationUnit());
+		case TAG_POSITION: {
+			CompilationUnit cu = readCompilationUnit();
+			int[] lines = readLineSeparators();
+			int start = readVarInt();
+			return core.createSourcePosition(cu, start, readVarInt() - 1, lines);
+		}
+		case TAG_DECLARATION_POSITION:
+		case TAG_BODY_HOLDER_POSITION: {
+			CompilationUnit cu = readCompilationUnit();
+			int[] lines = readLineSeparators();
+			int nameStart = readVarInt();
+			int nameEnd = readVarInt() - 1;
+			int modifierStart = readVarInt();
+			int modifierEnd = readVarInt() - 1;
+			int start = readVarInt();
+			int end = readVarInt() - 1;
+			if (tag == TAG_DECLARATION_POSITION) {
+				return core.createDeclarationSourcePosition(cu, nameStart, nameEnd, modifierStart, modifierEnd, start, end, lines);
+			}
+			int bodyStart = readVarInt();
+			int bodyEnd = readVarInt() - 1;
+			return core.createBodyHolderSourcePosition(cu, nameStart, nameEnd, modifierStart, modifierEnd, start, end, bodyStart, bodyEnd, lines);
+		}
+		default:
+			throw new IOException("Unexpected value tag " + tag);
+		}
+	}
+
+	private int[] readLineSeparators() throws IOException {
+		int index = readVarInt();
+		if (index == POOL_NULL) {
+			return null;
+		}
+		if (index != POOL_NEW) {
+			return lineSeparators.get(index - POOL_INDEX);
+		}
+		int[] lines = new int[readVarInt()];
+		int previous = 0;
+		for (int i = 0; i < lines.length; i++) {
+			previous += readVarInt();
+			lines[i] = previous;
+		}
+		lineSeparators.add(lines);
+		return lines;
+	}
+
+	CompilationUnit readCompilationUnit() throws IOException {
+		int index = readVarInt();
+		if (index == POOL_NULL) {
+			return null;
+		}
+		if (index != POOL_NEW) {
+			return compilationUnits.get(index - POOL_INDEX);
+		}
+		CompilationUnit cu = createCompilationUnit(readString());
+		compilationUnits.add(cu);
+		return cu;
+	}
+
+	/**
+	 * @return the compilation unit of the file `path`, which may be null
+	 */
+	CompilationUnit createCompilationUnit(String path) {
+		CompilationUnit cu = factory.Core().createCompilationUnit();
+		if (path != null) {
+			cu.setFile(new File(path));
+		}
+		return cu;
+	}
+
+	private Class<?> readClass() throws IOException {
+		int index = readVarInt();
+		if (index == POOL_NULL) {
+			return null;
+		}
+		if (index != POOL_NEW) {
+			return classes.get(index - POOL_INDEX);
+		}
+		String name = readString();
+		try {
+			Class<?> clazz = Class.forName(name);
+			classes.add(clazz);
+			return clazz;
+		} catch (ClassNotFoundException e) {
+			throw new IOException("Unknown class of the model " + name, e);
+		}
+	}
+
+	String readString() throws IOException {
+		int index = readVarInt();
+		if (index == POOL_NULL) {
+			return null;
+		}
+		if (index != POOL_NEW) {
+			return strings.get(index - POOL_INDEX);
+		}
+		byte[] bytes = new byte[readVarInt()];
+		in.readFully(bytes);
+		String value = new String(bytes, StandardCharsets.UTF_8);
+		strings.add(value);
+		return value;
+	}
+
+	boolean readBoolean() throws IOException {
+		return in.readBoolean();
+	}
+
+	int readVarInt() throws IOException {
+		int value = 0;
+		int shift = 0;
+		int b;
+		do {
+			b = in.readUnsignedByte();
+			value |= (b & 0x7F) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+		return value;
+	}
+
+	/**
+	 * The children of a role whose container is a set, in the order of the stream.
+	 * It does not call the costly {@link CtElement#hashCode()} of the children.
+	 */
+	private static final class ElementSet extends AbstractSet<CtElement> {
+		private final List<CtElement> elements = new ArrayList<>();
+
+		@Override
+		public boolean add(CtElement element) {
+			return elements.add(element);
+		}
+
+		@Override
+		public Iterator<CtElement> iterator() {
+			return elements.iterator();
+		}
+
+		@Override
+		public int size() {
+			return elements.size();
+		}
+	}
+}
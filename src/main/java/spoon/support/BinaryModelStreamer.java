@@ -0,0 +1,213 @@
+/**
+ * Copyright (C) 2006-2017 INRIA and contributors
+ * Spoon - http://spoon.gforge.inria.fr/
+ *
+ * This software is governed by the CeCILL-C License under French law and
+ * abiding by the rules of distribution of free software. You can use, modify
+ * and/or redistribute the software under the terms of the CeCILL-C license as
+ * circulated by CEA, CNRS and INRIA at http://www.cecill.info.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the CeCILL-C License for more details.
+ *
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-C license and that you accept its terms.
+ */
+package spoon.support;
+
+import spoon.reflect.ModelStreamer;
+import spoon.reflect.cu.CompilationUnit;
+import spoon.reflect.declaration.CtElement;
+import spoon.reflect.declaration.CtImport;
+import spoon.reflect.declaration.CtPackage;
+import spoon.reflect.declaration.CtType;
+import spoon.reflect.factory.Factory;
+import spoon.reflect.factory.FactoryImpl;
+import spoon.reflect.path.CtRole;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class provides a compact binary implementation of the model streamer.
+ *
+ * Unlike {@link SerializationModelStreamer}, it does not serialize the object graph of the factory:
+ * the model is walked through the metamodel ({@link spoon.reflect.meta.RoleHandler}s and {@link spoon.reflect.path.CtRole}s)
+ * and each element is written as its class, the values of its properties and its children.
+ * Strings, classes, compilation units and line separator positions are written only once, in a constant pool.
+ * When loading, each element is created with its factory and attached to its parent while the stream is read,
+ * so that there is no additional pass over the loaded model.
+ *
+ * The stream starts with a version number, the streams of another version are rejected.
+ *
+ * The model can also be saved as a snapshot, see {@link #saveSnapshot(Factory, Path)}, whose types are loaded on demand.
+ */
+public class BinaryModelStreamer implements ModelStreamer {
+
+	/**
+	 * Default constructor.
+	 */
+	public BinaryModelStreamer() {
+	}
+
+	/**
+	 * Saves the model of `f` to `out`, which is flushed but not closed.
+	 */
+	@Override
+	public void save(Factory f, OutputStream out) throws IOException {
+		DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(out, BinaryModelFormat.BUFFER_SIZE));
+		new BinaryModelWriter(dos).write(f);
+		dos.flush();
+	}
+
+	/**
+	 * Saves the model of `f` to `file`, which is created or overwritten.
+	 */
+	public void save(Factory f, Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			save(f, Channels.newOutputStream(channel));
+		}
+	}
+
+	/**
+	 * Loads a model into a new factory, whose environment is configured as the one of the saved model.
+	 */
+	@Override
+	public Factory load(InputStream in) throws IOException {
+		Factory f = new FactoryImpl(new DefaultCoreFactory(), new StandardEnvironment());
+		read(in, f, true);
+		return f;
+	}
+
+	/**
+	 * Loads a model from `file` into a new factory.
+	 */
+	public Factory load(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			return load(Channels.newInputStream(channel));
+		}
+	}
+
+	/**
+	 * Loads a model into the empty model of factory `f`, whose environment is kept.
+	 */
+	public void load(InputStream in, Factory f) throws IOException {
+		read(in, f, false);
+	}
+
+	private void read(InputStream in, Factory f, boolean configureEnvironment) throws IOException {
+		DataInputStream dis = new DataInputStream(new BufferedInputStream(in, BinaryModelFormat.BUFFER_SIZE));
+		new BinaryModelReader(f, dis).read(configureEnvironment);
+	}
+
+	/**
+	 * Saves the packages and the types of the model of `f` to `file` as a snapshot,
+	 * whose types are loaded on demand by {@link #openSnapshot(Path, Factory)}.
+	 * Each top-level type is saved in a block of its own, which is indexed by the qualified name of the type.
+	 * The size of a snapshot is limited to 2GB.
+	 */
+	public void saveSnapshot(Factory f, Path file) throws IOException {
+		Map<CompilationUnit, String> keys = new IdentityHashMap<>();
+		for (Map.Entry<String, CompilationUnit> entry : f.CompilationUnit().getMap().entrySet()) {
+			keys.put(entry.getValue(), entry.getKey());
+		}
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+				DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), BinaryModelFormat.BUFFER_SIZE))) {
+			new BinaryModelWriter(out).writeHeader(BinaryModelFormat.SNAPSHOT_MAGIC, f.getEnvironment());
+
+			List<Integer> packageOffsets = new ArrayList<>();
+			for (CtPackage pack : f.Package().getAll()) {
+				packageOffsets.add(getSnapshotOffset(out));
+				// the types are in their own block and the packages are created when the snapshot is opened
+				BinaryModelWriter writer = new BinaryModelWriter(out);
+				writer.skipRole(CtRole.SUB_PACKAGE);
+				writer.skipRole(CtRole.CONTAINED_TYPE);
+				writer.writeElement(pack);
+				writer.writeString(pack.getQualifiedName());
+				writeSnapshotCompilationUnits(writer, out, pack, keys);
+			}
+
+			List<CtType<?>> types = f.Type().getAll();
+			int[] typeOffsets = new int[types.size()];
+			for (int i = 0; i < types.size(); i++) {
+				typeOffsets[i] = getSnapshotOffset(out);
+				BinaryModelWriter writer = new BinaryModelWriter(out);
+				writer.writeElement(types.get(i));
+				writeSnapshotCompilationUnits(writer, out, types.get(i), keys);
+			}
+
+			int indexOffset = getSnapshotOffset(out);
+			out.writeInt(packageOffsets.size());
+			for (int packageOffset : packageOffsets) {
+				out.writeInt(packageOffset);
+			}
+			out.writeInt(types.size());
+			for (int i = 0; i < types.size(); i++) {
+				CtType<?> type = types.get(i);
+				out.writeUTF(type.getQualifiedName());
+				out.writeUTF(type.getPackage() == null ? "" : type.getPackage().getQualifiedName());
+				out.writeInt(typeOffsets[i]);
+			}
+			out.writeInt(indexOffset);
+			getSnapshotOffset(out);
+		}
+	}
+
+	/**
+	 * @return the offset of the next block of a snapshot, which is checked before it is written in the index:
+	 * {@link DataOutputStream#size()} stops at {@link Integer#MAX_VALUE} and a snapshot is memory-mapped in a single buffer
+	 */
+	private static int getSnapshotOffset(DataOutputStream out) throws IOException {
+		int offset = out.size();
+		if (offset == Integer.MAX_VALUE) {
+			throw new IOException("The model is too large to be saved as a snapshot");
+		}
+		return offset;
+	}
+
+	/**
+	 * Writes the compilation units which are referred to by the block of `root`:
+	 * their key, their declared package, whether they declare `root` and their imports if `root` is their main declaration.
+	 */
+	private void writeSnapshotCompilationUnits(BinaryModelWriter writer, DataOutputStream out, CtElement root, Map<CompilationUnit, String> keys) throws IOException {
+		for (CompilationUnit cu : new ArrayList<>(writer.getCompilationUnits())) {
+			out.writeBoolean(true);
+			writer.writeCompilationUnit(cu);
+			writer.writeString(keys.get(cu));
+			writer.writeString(cu.getDeclaredPackage() == null ? null : cu.getDeclaredPackage().getQualifiedName());
+			List<CtType<?>> declaredTypes = cu.getDeclaredTypes();
+			out.writeBoolean(declaredTypes.stream().anyMatch(type -> type == root));
+			CtElement mainDeclaration = declaredTypes.isEmpty() ? cu.getDeclaredPackage() : declaredTypes.get(0);
+			Collection<CtImport> imports = mainDeclaration == root ? cu.getImports() : Collections.<CtImport>emptyList();
+			writer.writeVarInt(imports.size());
+			for (CtImport ctImport : imports) {
+				writer.writeElement(ctImport);
+			}
+		}
+		out.writeBoolean(false);
+	}
+
+	/**
+	 * Opens a snapshot saved by {@link #saveSnapshot(Factory, Path)}: the packages of the snapshot are created in the model of `f`
+	 * and its types are loaded when `f` is asked for them.
+	 */
+	public ModelSnapshot openSnapshot(Path file, Factory f) throws IOException {
+		return new ModelSnapshot(file, f);
+	}
+}
@@ -0,0 +1,464 @@
+/**
+ * Copyright (C) 2006-2017 INRIA and contributors
+ * Spoon - http://spoon.gforge.inria.fr/
+ *
+ * This software is governed by the CeCILL-C License under French law and
+ * abiding by the rules of distribution of free software. You can use, modify
+ * and/or redistribute the software under the terms of the CeCILL-C license as
+ * circulated by CEA, CNRS and INRIA at http://www.cecill.info.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the CeCILL-C License for more details.
+ *
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-C license and that you accept its terms.
+ */
+package spoon.support;
+
+import spoon.SpoonException;
+import spoon.compiler.Environment;
+import spoon.reflect.cu.CompilationUnit;
+import spoon.reflect.cu.SourcePosition;
+import spoon.reflect.cu.position.BodyHolderSourcePosition;
+import spoon.reflect.cu.position.DeclarationSourcePosition;
+import spoon.reflect.declaration.CtElement;
+import spoon.reflect.declaration.CtImport;
+import spoon.reflect.declaration.CtModule;
+import spoon.reflect.declaration.CtType;
+import spoon.reflect.factory.Factory;
+import spoon.reflect.meta.ContainerKind;
+import spoon.reflect.meta.RoleHandler;
+import spoon.reflect.path.CtRole;
+import spoon.reflect.visitor.CtScanner;
+import spoon.support.BinaryModelFormat.ElementKind;
+import spoon.support.BinaryModelFormat.Property;
+import spoon.support.reflect.CtExtendedModifier;
+import spoon.support.reflect.cu.position.SourcePositionImpl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static spoon.support.BinaryModelFormat.MAGIC;
+import static spoon.support.BinaryModelFormat.POOL_INDEX;
+import static spoon.support.BinaryModelFormat.POOL_NEW;
+import static spoon.support.BinaryModelFormat.POOL_NULL;
+import static spoon.support.BinaryModelFormat.TAG_BODY_HOLDER_POSITION;
+import static spoon.support.BinaryModelFormat.TAG_BYTE;
+import static spoon.support.BinaryModelFormat.TAG_CHAR;
+import static spoon.support.BinaryModelFormat.TAG_DECLARATION_POSITION;
+import static spoon.support.BinaryModelFormat.TAG_DOUBLE;
+import static spoon.support.BinaryModelFormat.TAG_ENUM;
+import static spoon.support.BinaryModelFormat.TAG_EXTENDED_MODIFIER;
+import static spoon.support.BinaryModelFormat.TAG_FALSE;
+import static spoon.support.BinaryModelFormat.TAG_FLOAT;
+import static spoon.support.BinaryModelFormat.TAG_INT;
+import static spoon.support.BinaryModelFormat.TAG_LIST;
+import static spoon.support.BinaryModelFormat.TAG_LONG;
+import static spoon.support.BinaryModelFormat.TAG_NO_POSITION;
+import static spoon.support.BinaryModelFormat.TAG_NULL;
+import static spoon.support.BinaryModelFormat.TAG_PARTIAL_POSITION;
+import static spoon.support.BinaryModelFormat.TAG_POSITION;
+import static spoon.support.BinaryModelFormat.TAG_SERIALIZED;
+import static spoon.support.BinaryModelFormat.TAG_SET;
+import static spoon.support.BinaryModelFormat.TAG_SHORT;
+import static spoon.support.BinaryModelFormat.TAG_STRING;
+import static spoon.support.BinaryModelFormat.TAG_TRUE;
+import static spoon.support.BinaryModelFormat.VERSION;
+import static spoon.support.BinaryModelFormat.getElementKind;
+import static spoon.support.BinaryModelFormat.isDeclaration;
+
+/**
+ * Writes a model in the format of {@link BinaryModelStreamer}.
+ *
+ * The elements are written while they are scanned: {@link #enter(CtElement)} writes the class and the properties of the element,
+ * each child is written after its role and {@link #exit(CtElement)} writes the end of the element.
+ */
+class BinaryModelWriter extends CtScanner {
+	private final DataOutputStream out;
+
+	private final Map<String, Integer> strings = new HashMap<>();
+	private final Map<Class<?>, Integer> classes = new HashMap<>();
+	private final Map<int[], Integer> lineSeparators = new IdentityHashMap<>();
+	private final Map<CompilationUnit, Integer> compilationUnitIndexes = new IdentityHashMap<>();
+	private final List<CompilationUnit> compilationUnits = new ArrayList<>();
+	private final Map<CtElement, Integer> declarations = new IdentityHashMap<>();
+
+	private final Set<CtRole> skippedRoles = EnumSet.noneOf(CtRole.class);
+	private final Deque<Frame> frames = new ArrayDeque<>();
+	private String currentKey;
+
+	BinaryModelWriter(DataOutputStream out) {
+		this.out = out;
+	}
+
+	/**
+	 * Writes the header, the modules and the compilation units of the model of `factory`
+	 */
+	void write(Factory factory) throws IOException {
+		writeHeader(MAGIC, factory.getEnvironment());
+		Collection<CtModule> modules = factory.Module().getAllModules();
+		writeVarInt(modules.size());
+		try {
+			for (CtModule module : modules) {
+				// the unnamed module visits all the other modules in its accept method
+				visitCtModule(module);
+			}
+			writeCompilationUnits(factory);
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	/**
+	 * Writes `magic`, the version of the format and the settings of `environment` which are needed to use the model
+	 */
+	void writeHeader(int magic, Environment environment) throws IOException {
+		out.writeInt(magic);
+		out.writeInt(VERSION);
+		writeVarInt(environment.getComplianceLevel());
+		out.writeBoolean(environment.isAutoImports());
+		out.writeBoolean(environment.isCommentsEnabled());
+		out.writeBoolean(environment.getNoClasspath());
+	}
+
+	/**
+	 * Writes `element` and all its children, but the ones of the skipped roles
+	 */
+	void writeElement(CtElement element) throws IOException {
+		try {
+			scan(element);
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	/**
+	 * The children of `role` will not be written
+	 */
+	void skipRole(CtRole role) {
+		skippedRoles.add(role);
+	}
+
+	/**
+	 * @return the compilation units which have been written, in the order of their index
+	 */
+	List<CompilationUnit> getCompilationUnits() {
+		return compilationUnits;
+	}
+
+	private void writeCompilationUnits(Factory factory) throws IOException {
+		Map<CompilationUnit, String> keys = new IdentityHashMap<>();
+		for (Map.Entry<String, CompilationUnit> entry : factory.CompilationUnit().getMap().entrySet()) {
+			keys.put(entry.getValue(), entry.getKey());
+		}
+		List<CompilationUnit> units = new ArrayList<>(compilationUnits);
+		units.addAll(keys.keySet());
+		Set<CompilationUnit> writtenUnits = Collections.newSetFromMap(new IdentityHashMap<>());
+		for (int i = 0; i < units.size(); i++) {
+			CompilationUnit cu = units.get(i);
+			if (writtenUnits.add(cu)) {
+				out.writeBoolean(true);
+				writeCompilationUnit(cu);
+				writeString(keys.get(cu));
+				writeDeclaration(cu.getDeclaredPackage());
+				writeDeclaration(cu.getDeclaredModule());
+				List<CtType<?>> types = cu.getDeclaredTypes();
+				writeVarInt(types.size());
+				for (CtType<?> type : types) {
+					writeDeclaration(type);
+				}
+				Collection<CtImport> imports = cu.getImports();
+				writeVarInt(imports.size());
+				for (CtImport ctImport : imports) {
+					scan(ctImport);
+				}
+			}
+			if (i == units.size() - 1) {
+				// the imports may refer to compilation units which were not known yet
+				for (CompilationUnit other : compilationUnits) {
+					if (!writtenUnits.contains(other)) {
+						units.add(other);
+					}
+				}
+			}
+		}
+		out.writeBoolean(false);
+	}
+
+	private void writeDeclaration(CtElement declaration) throws IOException {
+		Integer index = declaration == null ? null : declarations.get(declaration);
+		writeVarInt(index == null ? 0 : index + 1);
+	}
+
+	@Override
+	protected void enter(CtElement e) {
+		try {
+			ElementKind kind = getElementKind(e.getClass());
+			writeClass(e.getClass());
+			if (isDeclaration(e)) {
+				declarations.put(e, declarations.size());
+			}
+			for (Property property : kind.getProperties()) {
+				writeValue(property.getValue(e));
+			}
+			Set<String> metadataKeys = e.getMetadataKeys();
+			writeVarInt(metadataKeys.size());
+			for (String key : metadataKeys) {
+				writeString(key);
+				writeValue(e.getMetadata(key));
+			}
+			frames.push(new Frame(e, kind));
+		} catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+	}
+
+	@Override
+	protected void exit(CtElement e) {
+		frames.pop();
+		try {
+			writeVarInt(0);
+		} catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+	}
+
+	@Override
+	public void scan(CtRole role, Map<String, ? extends CtElement> elements) {
+		if (elements != null) {
+			for (Map.Entry<String, ? extends CtElement> entry : elements.entrySet()) {
+				currentKey = entry.getKey();
+				scan(role, entry.getValue());
+			}
+			currentKey = null;
+		}
+	}
+
+	@Override
+	public void scan(CtRole role, CtElement element) {
+		if (element == null) {
+			return;
+		}
+		Frame parent = frames.peek();
+		if (parent == null) {
+			scan(element);
+			return;
+		}
+		// derived children are owned by another element
+		if (skippedRoles.contains(role)
+				|| (element.isParentInitialized() && element.getParent() != parent.element)
+				|| !parent.addChild(element)) {
+			return;
+		}
+		RoleHandler handler = parent.kind.getHandler(role);
+		if (handler == null) {
+			throw new SpoonException("The children of CtRole." + role.name() + " of " + parent.element.getClass().getSimpleName() + " cannot be written, the role cannot be set");
+		}
+		try {
+			writeVarInt(role.ordinal() + 1);
+			if (handler.getContainerKind() == ContainerKind.MAP) {
+				writeString(currentKey);
+			}
+		} catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+		scan(element);
+	}
+
+	private void writeValue(Object value) throws IOException {
+		if (value == null) {
+			out.writeByte(TAG_NULL);
+		} else if (value instanceof Boolean) {
+			out.writeByte((Boolean) value ? TAG_TRUE : TAG_FALSE);
+		} else if (value instanceof String) {
+			out.writeByte(TAG_STRING);
+			writeString((String) value);
+		} else if (value instanceof Integer) {
+			out.writeByte(TAG_INT);
+			out.writeInt((Integer) value);
+		} else if (value instanceof Long) {
+			out.writeByte(TAG_LONG);
+			out.writeLong((Long) value);
+		} else if (value instanceof Float) {
+			out.writeByte(TAG_FLOAT);
+			out.writeFloat((Float) value);
+		} else if (value instanceof Double) {
+			out.writeByte(TAG_DOUBLE);
+			out.writeDouble((Double) value);
+		} else if (value instanceof Character) {
+			out.writeByte(TAG_CHAR);
+			out.writeChar((Character) value);
+		} else if (value instanceof Byte) {
+			out.writeByte(TAG_BYTE);
+			out.writeByte((Byte) value);
+		} else if (value instanceof Short) {
+			out.writeByte(TAG_SHORT);
+			out.writeShort((Short) value);
+		} else if (value instanceof Enum) {
+			out.writeByte(TAG_ENUM);
+			writeClass(((Enum<?>) value).getDeclaringClass());
+			writeString(((Enum<?>) value).name());
+		} else if (value instanceof Set || value instanceof List) {
+			Collection<?> values = (Collection<?>) value;
+			out.writeByte(value instanceof Set ? TAG_SET : TAG_LIST);
+			writeVarInt(values.size());
+			for (Object item : values) {
+				writeValue(item);
+			}
+		} else if (value instanceof SourcePosition) {
+			writePosition((SourcePosition) value);
+		} else if (value instanceof CtExtendedModifier) {
+			CtExtendedModifier modifier = (CtExtendedModifier) value;
+			out.writeByte(TAG_EXTENDED_MODIFIER);
+			writeString(modifier.getKind().name());
+			out.writeBoolean(modifier.isImplicit());
+			writePosition(modifier.getPosition());
+		} else {
+			// the values of literals and metadata which are not supported by the format
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+				oos.writeObject(value);
+			}
+			out.writeByte(TAG_SERIALIZED);
+			writeVarInt(bytes.size());
+			bytes.writeTo(out);
+		}
+	}
+
+	private void writePosition(SourcePosition position) throws IOException {
+		CompilationUnit cu = position.getCompilationUnit();
+		if (!position.isValidPosition()) {
+			if (cu == null) {
+				out.writeByte(TAG_NO_POSITION);
+			} else {
+				out.writeByte(TAG_PARTIAL_POSITION);
+				writeCompilationUnit(cu);
+			}
+			return;
+		}
+		int[] lines = position instanceof SourcePositionImpl ? ((SourcePositionImpl) position).getLineSeparatorPositions() : null;
+		if (position instanceof BodyHolderSourcePosition) {
+			out.writeByte(TAG_BODY_HOLDER_POSITION);
+		} else if (position instanceof DeclarationSourcePosition) {
+			out.writeByte(TAG_DECLARATION_POSITION);
+		} else {
+			out.writeByte(TAG_POSITION);
+		}
+		writeCompilationUnit(cu);
+		writeLineSeparators(lines);
+		if (position instanceof DeclarationSourcePosition) {
+			DeclarationSourcePosition declarationPosition = (DeclarationSourcePosition) position;
+			writeVarInt(declarationPosition.getNameStart());
+			writeVarInt(declarationPosition.getNameEnd() + 1);
+			writeVarInt(declarationPosition.getModifierSourceStart());
+			writeVarInt(declarationPosition.getModifierSourceEnd() + 1);
+		}
+		writeVarInt(position.getSourceStart());
+		writeVarInt(position.getSourceEnd() + 1);
+		if (position instanceof BodyHolderSourcePosition) {
+			BodyHolderSourcePosition bodyPosition = (BodyHolderSourcePosition) position;
+			writeVarInt(bodyPosition.getBodyStart());
+			writeVarInt(bodyPosition.getBodyEnd() + 1);
+		}
+	}
+
+	private void writeLineSeparators(int[] lines) throws IOException {
+		if (writePoolReference(lineSeparators, lines)) {
+			writeVarInt(lines.length);
+			int previous = 0;
+			for (int line : lines) {
+				// the positions are ascending, so that their differences are small
+				writeVarInt(line - previous);
+				previous = line;
+			}
+		}
+	}
+
+	void writeCompilationUnit(CompilationUnit cu) throws IOException {
+		if (writePoolReference(compilationUnitIndexes, cu)) {
+			compilationUnits.add(cu);
+			writeString(cu.getFile() == null ? null : cu.getFile().getPath());
+		}
+	}
+
+	private void writeClass(Class<?> clazz) throws IOException {
+		if (writePoolReference(classes, clazz)) {
+			writeString(clazz.getName());
+		}
+	}
+
+	void writeString(String value) throws IOException {
+		if (writePoolReference(strings, value)) {
+			byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+			writeVarInt(bytes.length);
+			out.write(bytes);
+		}
+	}
+
+	/**
+	 * Writes the reference to `value` in `pool`.
+	 * @return true if the value is not in the pool yet: it is added to the pool and the caller must write it
+	 */
+	private <T> boolean writePoolReference(Map<T, Integer> pool, T value) throws IOException {
+		if (value == null) {
+			writeVarInt(POOL_NULL);
+			return false;
+		}
+		Integer index = pool.get(value);
+		if (index != null) {
+			writeVarInt(index + POOL_INDEX);
+			return false;
+		}
+		pool.put(value, pool.size());
+		writeVarInt(POOL_NEW);
+		return true;
+	}
+
+	void writeVarInt(int value) throws IOException {
+		while ((value & ~0x7F) != 0) {
+			out.writeByte((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte(value);
+	}
+
+	/**
+	 * An element being written
+	 */
+	private static final class Frame {
+		final CtElement element;
+		final ElementKind kind;
+		/**
+		 * the children which have already been written, CtScanner may visit some of them with several roles
+		 */
+		Set<CtElement> children;
+
+		Frame(CtElement element, ElementKind kind) {
+			this.element = element;
+			this.kind = kind;
+		}
+
+		boolean addChild(CtElement child) {
+			if (children == null) {
+				children = Collections.newSetFromMap(new IdentityHashMap<>());
+			}
+			return children.add(child);
+		}
+	}
+}
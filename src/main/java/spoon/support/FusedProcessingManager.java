@@ -0,0 +1,104 @@
+/**
+ * Copyright (C) 2006-2017 INRIA and contributors
+ * Spoon - http://spoon.gforge.inria.fr/
+ *
+ * This software is governed by the CeCILL-C License under French law and
+ * abiding by the rules of distribution of free software. You can use, modify
+ * and/or redistribute the software under the terms of the CeCILL-C license as
+ * circulated by CEA, CNRS and INRIA at http://www.cecill.info.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the CeCILL-C License for more details.
+ *
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-C license and that you accept its terms.
+ */
+package spoon.support;
+
+import spoon.processing.ProcessInterruption;
+import spoon.processing.Processor;
+import spoon.reflect.declaration.CtElement;
+import spoon.reflect.factory.Factory;
+import spoon.support.visitor.FusedProcessingVisitor;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * This processing manager applies all the processors in a single traversal of the given root elements.
+ * for el : elements
+ *   for p : processors
+ *     p.process(el)
+ *
+ * Contrary to {@link QueueProcessingManager}, a processor sees the elements as modified by the
+ * processors which come before it on the same element only, not by the complete run of these processors.
+ * It is thus meant to be used with processors which are independent from each other,
+ * such as analyses or checkers.
+ */
+public class FusedProcessingManager extends QueueProcessingManager {
+
+	private FusedProcessingVisitor fusedVisitor;
+
+	/**
+	 * Creates a new processing manager that applies its processors in a single traversal
+	 * of the model of the given factory.
+	 *
+	 * @param factory
+	 * 		the factory on which the processing applies (contains the
+	 * 		meta-model)
+	 */
+	public FusedProcessingManager(Factory factory) {
+		super(factory);
+	}
+
+	@Override
+	public Processor<?> getCurrentProcessor() {
+		if (fusedVisitor != null && fusedVisitor.getCurrentProcessor() != null) {
+			return fusedVisitor.getCurrentProcessor();
+		}
+		return current;
+	}
+
+	protected FusedProcessingVisitor getFusedVisitor() {
+		if (fusedVisitor == null) {
+			fusedVisitor = new FusedProcessingVisitor(getFactory());
+		}
+		return fusedVisitor;
+	}
+
+	@Override
+	public void process(Collection<? extends CtElement> elements) {
+		// copy so that one can reuse the processing manager
+		// among different processing steps
+		List<Processor<?>> processors = new ArrayList<>(getProcessors());
+		List<Processor<?>> started = new ArrayList<>(processors.size());
+		List<Processor<?>> toApply = new ArrayList<>(processors.size());
+		try {
+			for (Processor<?> p : processors) {
+				getFactory().getEnvironment().reportProgressMessage(p.getClass().getName());
+				current = p;
+				started.add(p);
+				try {
+					p.init(); // load the properties
+					p.process();
+					toApply.add(p);
+				} catch (ProcessInterruption ignore) {
+				}
+			}
+			current = null;
+			if (!toApply.isEmpty()) {
+				getFusedVisitor().setProcessors(toApply);
+				for (CtElement e : new ArrayList<>(elements)) {
+					getFusedVisitor().scan(e);
+				}
+			}
+		} finally {
+			current = null;
+			for (Processor<?> p : started) {
+				p.processingDone();
+			}
+		}
+	}
+}
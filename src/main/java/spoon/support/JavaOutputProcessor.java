@@ -27,26 +27,52 @@ import spoon.reflect.declaration.CtModule;
 import spoon.reflect.declaration.CtNamedElement;
 import spoon.reflect.declaration.CtPackage;
 import spoon.reflect.declaration.CtType;
+import spoon.reflect.visitor.DefaultJavaPrettyPrinter;
 import spoon.reflect.visitor.PrettyPrinter;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
 import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.Charset;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
 
 /**
  * A processor that generates compilable Java source files from the meta-model.
+ *
+ * If {@link Environment#getPrettyPrintingThreads()} is more than 1 and a printer supplier is set (see {@link #setPrinterSupplier(Supplier)}),
+ * the top-level types are printed in parallel, until {@link #processingDone()}, and the files whose content is unchanged are not written again.
  */
 public class JavaOutputProcessor extends AbstractProcessor<CtNamedElement> implements FileGenerator<CtNamedElement> {
 	PrettyPrinter printer;
 
 	List<File> printedFiles = new ArrayList<>();
 
+	/**
+	 * Creates the pretty-printers of the printing threads, see {@link Environment#setPrettyPrintingThreads(int)}
+	 */
+	private Supplier<PrettyPrinter> printerSupplier;
+
+	/**
+	 * The printing threads and their pretty-printers, while the processor prints the types in parallel
+	 */
+	private ExecutorService executor;
+	private ThreadLocal<PrettyPrinter> threadPrinters;
+	private final List<Future<?>> printingTasks = new ArrayList<>();
+
 	/**
 	 * @param printer  the PrettyPrinter to use for written the files
 	 */
@@ -84,6 +110,14 @@ public class JavaOutputProcessor extends AbstractProcessor<CtNamedElement> imple
 		return printer;
 	}
 
+	/**
+	 * Sets the supplier of the pretty-printers of the printing threads.
+	 * The types are printed in parallel only if there is such a supplier and {@link Environment#getPrettyPrintingThreads()} is more than 1.
+	 */
+	public void setPrinterSupplier(Supplier<PrettyPrinter> printerSupplier) {
+		this.printerSupplier = printerSupplier;
+	}
+
 	public List<File> getCreatedFiles() {
 		return printedFiles;
 	}
@@ -108,9 +142,51 @@ public class JavaOutputProcessor extends AbstractProcessor<CtNamedElement> imple
 				throw new SpoonException("Error creating output directory");
 			}
 		}
+
+		int threads = getEnvironment().getPrettyPrintingThreads();
+		if (threads > 1 && printerSupplier != null && executor == null) {
+			// the types of a model snapshot are loaded now, because loading a type in a printing thread would modify the model
+			ModelSnapshot.loadAll(getFactory());
+			executor = Executors.newFixedThreadPool(threads);
+			threadPrinters = ThreadLocal.withInitial(printerSupplier);
+		}
+	}
+
+	/**
+	 * Waits for the types which are printed in parallel
+	 */
+	@Override
+	public void processingDone() {
+		if (executor == null) {
+			return;
+		}
+		try {
+			for (Future<?> task : printingTasks) {
+				waitFor(task);
+			}
+		} finally {
+			printingTasks.clear();
+			executor.shutdownNow();
+			executor = null;
+			threadPrinters = null;
+		}
+	}
+
+	private void waitFor(Future<?> task) {
+		try {
+			task.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SpoonException("Pretty-printing has been interrupted", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new SpoonException(e.getCause());
+		}
 	}
 
-	Map<String, Map<Integer, Integer>> lineNumberMappings = new HashMap<>();
+	Map<String, Map<Integer, Integer>> lineNumberMappings = Collections.synchronizedMap(new HashMap<String, Map<Integer, Integer>>());
 
 	/**
 	 * Creates the Java file associated to the given element. Splits top-level
@@ -127,13 +203,17 @@ public class JavaOutputProcessor extends AbstractProcessor<CtNamedElement> imple
 		}
 
 		CompilationUnit cu = this.getFactory().CompilationUnit().getOrCreate(element);
+		if (executor != null) {
+			File file = typePath.toFile();
+			if (!printedFiles.contains(file)) {
+				printedFiles.add(file);
+			}
+			printingTasks.add(executor.submit(() -> printJavaFile(threadPrinters.get(), cu, element, typePath)));
+			return;
+		}
 		List<CtType<?>> toBePrinted = new ArrayList<>();
 		toBePrinted.add(element);
 
-		printer.calculate(cu, toBePrinted);
-
-		PrintStream stream = null;
-
 		// print type
 		try {
 			File file = typePath.toFile();
@@ -141,22 +221,44 @@ public class JavaOutputProcessor extends AbstractProcessor<CtNamedElement> imple
 			if (!printedFiles.contains(file)) {
 				printedFiles.add(file);
 			}
-			stream = new PrintStream(file);
-			stream.print(printer.getResult());
+			try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), Charset.defaultCharset())) {
+				print(printer, cu, toBePrinted, writer);
+			}
 			for (CtType<?> t : toBePrinted) {
 				lineNumberMappings.put(t.getQualifiedName(), printer.getLineNumberMapping());
 			}
-			stream.close();
 		} catch (IOException e) {
 			Launcher.LOGGER.error(e.getMessage(), e);
-		} finally {
-			if (stream != null) {
-				stream.close();
-			}
 		}
 
 	}
 
+	/**
+	 * Prints `types` to `writer`: a {@link DefaultJavaPrettyPrinter} writes the code while it is printed, without keeping it in memory
+	 */
+	private static void print(PrettyPrinter printer, CompilationUnit cu, List<CtType<?>> types, Writer writer) throws IOException {
+		if (printer instanceof DefaultJavaPrettyPrinter) {
+			((DefaultJavaPrettyPrinter) printer).calculate(cu, types, writer);
+		} else {
+			printer.calculate(cu, types);
+			writer.write(printer.getResult());
+		}
+	}
+
+	/**
+	 * Prints `element` with `threadPrinter` to `file` in a printing thread
+	 */
+	private void printJavaFile(PrettyPrinter threadPrinter, CompilationUnit cu, CtType<?> element, Path file) {
+		List<CtType<?>> toBePrinted = new ArrayList<>();
+		toBePrinted.add(element);
+		try (Writer writer = new OutputStreamWriter(new UpdatingFileOutputStream(file), Charset.defaultCharset())) {
+			print(threadPrinter, cu, toBePrinted, writer);
+		} catch (IOException e) {
+			Launcher.LOGGER.error(e.getMessage(), e);
+		}
+		lineNumberMappings.put(element.getQualifiedName(), threadPrinter.getLineNumberMapping());
+	}
+
 	@Override
 	public boolean isToBeProcessed(CtNamedElement candidate) {
 		return candidate instanceof CtType<?> || candidate instanceof CtModule || candidate instanceof CtPackage && (candidate.getComments().size() > 0 || candidate.getAnnotations().size() > 0);
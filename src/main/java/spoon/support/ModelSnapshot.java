@@ -0,0 +1,272 @@
+/**
+ * Copyright (C) 2006-2017 INRIA and contributors
+ * Spoon - http://spoon.gforge.inria.fr/
+ *
+ * This software is governed by the CeCILL-C License under French law and
+ * abiding by the rules of distribution of free software. You can use, modify
+ * and/or redistribute the software under the terms of the CeCILL-C license as
+ * circulated by CEA, CNRS and INRIA at http://www.cecill.info.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the CeCILL-C License for more details.
+ *
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-C license and that you accept its terms.
+ */
+package spoon.support;
+
+import spoon.SpoonException;
+import spoon.reflect.code.CtComment;
+import spoon.reflect.cu.CompilationUnit;
+import spoon.reflect.declaration.CtAnnotation;
+import spoon.reflect.declaration.CtElement;
+import spoon.reflect.declaration.CtImport;
+import spoon.reflect.declaration.CtPackage;
+import spoon.reflect.declaration.CtType;
+import spoon.reflect.factory.Factory;
+import spoon.reflect.visitor.chain.CtFunction;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.annotation.Annotation;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static spoon.support.BinaryModelFormat.SNAPSHOT_MAGIC;
+
+/**
+ * A model snapshot saved by {@link BinaryModelStreamer#saveSnapshot(Factory, Path)}, whose types are loaded on demand.
+ *
+ * The snapshot file is memory-mapped and only its index, from the qualified names of the top-level types to their offset
+ * in the file, and its packages are read when it is opened. A top-level type, with all its members and their bodies,
+ * is loaded into the model of the factory the first time the factory is asked for it:
+ * {@link spoon.reflect.factory.TypeFactory#get(String)} and so {@link spoon.reflect.reference.CtTypeReference#getTypeDeclaration()}
+ * load the type of the snapshot if the model does not contain it.
+ * The queries on the model only see the types which have been loaded, see {@link #loadAll()}.
+ *
+ * This class is not thread-safe. {@link ParallelProcessingManager} and {@link JavaOutputProcessor} load all the types
+ * of the snapshot before reading the model with several threads.
+ */
+public class ModelSnapshot {
+	private final Factory factory;
+	private final ByteBuffer buffer;
+	private final Map<String, Integer> typeOffsets = new LinkedHashMap<>();
+	private final Set<String> typeNames;
+	private final Map<String, String> typePackages = new HashMap<>();
+	/**
+	 * the compilation units of the loaded types, by path
+	 */
+	private final Map<String, CompilationUnit> compilationUnits = new HashMap<>();
+	private final TypeLoader typeLoader = new TypeLoader();
+
+	ModelSnapshot(Path file, Factory factory) throws IOException {
+		this.factory = factory;
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			// the mapping stays valid after the channel is closed
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		createReader(0).readHeader(SNAPSHOT_MAGIC, false);
+
+		DataInputStream index = createInput(buffer.getInt(buffer.limit() - Integer.BYTES));
+		int packageCount = index.readInt();
+		int[] packageOffsets = new int[packageCount];
+		for (int i = 0; i < packageCount; i++) {
+			packageOffsets[i] = index.readInt();
+		}
+		int typeCount = index.readInt();
+		for (int i = 0; i < typeCount; i++) {
+			String qualifiedName = index.readUTF();
+			typePackages.put(qualifiedName, index.readUTF());
+			typeOffsets.put(qualifiedName, index.readInt());
+		}
+		typeNames = Collections.unmodifiableSet(new LinkedHashSet<>(typeOffsets.keySet()));
+
+		// the packages are small and must exist so that the types can be looked up
+		for (int packageOffset : packageOffsets) {
+			loadPackage(packageOffset);
+		}
+		factory.Type().setTypeLoader(typeLoader);
+	}
+
+	/**
+	 * @return the qualified names of the top-level types of the snapshot
+	 */
+	public Set<String> getTypeNames() {
+		return typeNames;
+	}
+
+	/**
+	 * @return true if the top-level type `qualifiedName` of the snapshot has been loaded into the model
+	 */
+	public boolean isLoaded(String qualifiedName) {
+		return typeNames.contains(qualifiedName) && !typeOffsets.containsKey(qualifiedName);
+	}
+
+	/**
+	 * Loads all the types of the snapshot which have not been loaded yet.
+	 * Then the types are not loaded on demand anymore, so the lookups do not modify the model.
+	 */
+	public void loadAll() {
+		for (String qualifiedName : new ArrayList<>(typeOffsets.keySet())) {
+			loadType(qualifiedName);
+		}
+		if (factory.Type().getTypeLoader() == typeLoader) {
+			factory.Type().setTypeLoader(null);
+		}
+	}
+
+	/**
+	 * Loads all the types of the snapshot whose types are loaded on demand into the model of `factory`, if there is one.
+	 * It is called before the model is read by several threads, because loading a type modifies the model.
+	 */
+	static void loadAll(Factory factory) {
+		CtFunction<String, CtType<?>> loader = factory.Type().getTypeLoader();
+		if (loader instanceof TypeLoader) {
+			((TypeLoader) loader).getModelSnapshot().loadAll();
+		}
+	}
+
+	/**
+	 * Loads the top-level type `qualifiedName` into the model, if it is in the snapshot and has not been loaded yet.
+	 * @return the loaded type or null
+	 */
+	private CtType<?> loadType(String qualifiedName) {
+		// the type is loaded only once, even if it is removed from the model afterwards
+		Integer offset = typeOffsets.remove(qualifiedName);
+		if (offset == null) {
+			return null;
+		}
+		try {
+			BinaryModelReader reader = createReader(offset);
+			CtType<?> type = (CtType<?>) reader.readElement();
+			CtPackage pack = factory.Package().getOrCreate(typePackages.get(qualifiedName));
+			pack.addType(type);
+			readCompilationUnits(reader, type);
+			return type;
+		} catch (IOException e) {
+			throw new SpoonException("Cannot load the type " + qualifiedName + " of the model snapshot", e);
+		}
+	}
+
+	private void loadPackage(int offset) throws IOException {
+		BinaryModelReader reader = createReader(offset);
+		CtPackage loaded = (CtPackage) reader.readElement();
+		String qualifiedName = reader.readString();
+		CtPackage pack = factory.Package().getOrCreate(qualifiedName);
+		if (!loaded.getAnnotations().isEmpty()) {
+			pack.setAnnotations(new ArrayList<CtAnnotation<? extends Annotation>>(loaded.getAnnotations()));
+		}
+		if (!loaded.getComments().isEmpty()) {
+			pack.setComments(new ArrayList<CtComment>(loaded.getComments()));
+		}
+		if (loaded.getPosition().isValidPosition()) {
+			pack.setPosition(loaded.getPosition());
+		}
+		readCompilationUnits(reader, pack);
+	}
+
+	/**
+	 * Reads the compilation units of the block of `root` written by {@link BinaryModelStreamer#saveSnapshot(Factory, Path)}
+	 */
+	private void readCompilationUnits(BinaryModelReader reader, CtElement root) throws IOException {
+		while (reader.readBoolean()) {
+			CompilationUnit cu = reader.readCompilationUnit();
+			String key = reader.readString();
+			String packageName = reader.readString();
+			boolean declaresRoot = reader.readBoolean();
+			int importCount = reader.readVarInt();
+			if (importCount > 0) {
+				List<CtImport> imports = new ArrayList<>(importCount);
+				for (int i = 0; i < importCount; i++) {
+					imports.add((CtImport) reader.readElement());
+				}
+				cu.setImports(imports);
+			}
+			if (key != null) {
+				factory.CompilationUnit().getMap().put(key, cu);
+			}
+			if (packageName != null) {
+				cu.setDeclaredPackage(factory.Package().getOrCreate(packageName));
+			}
+			if (declaresRoot && root instanceof CtType) {
+				cu.addDeclaredType((CtType<?>) root);
+			}
+		}
+	}
+
+	private BinaryModelReader createReader(int offset) {
+		return new BinaryModelReader(factory, createInput(offset)) {
+			@Override
+			CompilationUnit createCompilationUnit(String path) {
+				// the types of the same file are in different blocks
+				if (path == null) {
+					return super.createCompilationUnit(null);
+				}
+				return compilationUnits.computeIfAbsent(path, super::createCompilationUnit);
+			}
+		};
+	}
+
+	private DataInputStream createInput(int offset) {
+		ByteBuffer block = buffer.duplicate();
+		block.position(offset);
+		return new DataInputStream(new ByteBufferInputStream(block));
+	}
+
+	/**
+	 * Loads the types of this snapshot on demand, see {@link spoon.reflect.factory.TypeFactory#setTypeLoader(CtFunction)}
+	 */
+	private class TypeLoader implements CtFunction<String, CtType<?>> {
+		ModelSnapshot getModelSnapshot() {
+			return ModelSnapshot.this;
+		}
+
+		@Override
+		public CtType<?> apply(String qualifiedName) {
+			return loadType(qualifiedName);
+		}
+	}
+
+	/**
+	 * Reads a {@link ByteBuffer} without copying it
+	 */
+	private static final class ByteBufferInputStream extends InputStream {
+		private final ByteBuffer buffer;
+
+		ByteBufferInputStream(ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		@Override
+		public int read() {
+			return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+		}
+
+		@Override
+		public int read(byte[] bytes, int offset, int length) {
+			if (!buffer.hasRemaining()) {
+				return -1;
+			}
+			int count = Math.min(length, buffer.remaining());
+			buffer.get(bytes, offset, count);
+			return count;
+		}
+
+		@Override
+		public int available() {
+			return buffer.remaining();
+		}
+	}
+}
@@ -0,0 +1,159 @@
+/**
+ * Copyright (C) 2006-2017 INRIA and contributors
+ * Spoon - http://spoon.gforge.inria.fr/
+ *
+ * This software is governed by the CeCILL-C License under French law and
+ * abiding by the rules of distribution of free software. You can use, modify
+ * and/or redistribute the software under the terms of the CeCILL-C license as
+ * circulated by CEA, CNRS and INRIA at http://www.cecill.info.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the CeCILL-C License for more details.
+ *
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-C license and that you accept its terms.
+ */
+package spoon.support;
+
+import spoon.SpoonException;
+import spoon.processing.ProcessInterruption;
+import spoon.processing.Processor;
+import spoon.processing.ThreadSafe;
+import spoon.reflect.declaration.CtElement;
+import spoon.reflect.declaration.CtPackage;
+import spoon.reflect.declaration.CtType;
+import spoon.reflect.factory.Factory;
+import spoon.support.visitor.ProcessingVisitor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * This processing manager applies the processors one by one, like {@link QueueProcessingManager},
+ * but the processors annotated by {@link ThreadSafe} are applied to the top-level types in parallel.
+ *
+ * The packages and modules are processed first in the calling thread,
+ * then each top-level type is processed by a thread of a {@link ForkJoinPool}.
+ * The reports of the processor are printed in the order of the types, as if the types were processed sequentially.
+ * The other processors are applied sequentially.
+ *
+ * The caches of the model which may be attached to the environment, {@link spoon.support.visitor.TypeHierarchy},
+ * {@link spoon.experimental.modelobs.ReferenceIndex} and {@link spoon.support.visitor.StructuralHashCache},
+ * can be queried by several threads. The types of a {@link ModelSnapshot} are all loaded before the types are processed in parallel.
+ */
+public class ParallelProcessingManager extends QueueProcessingManager {
+	private final int threads;
+
+	/**
+	 * Creates a processing manager which uses as many threads as there are available processors
+	 */
+	public ParallelProcessingManager(Factory factory) {
+		this(factory, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * @param threads the number of threads used to apply the thread-safe processors
+	 */
+	public ParallelProcessingManager(Factory factory, int threads) {
+		super(factory);
+		if (threads < 1) {
+			throw new SpoonException("The number of threads must be positive, but is " + threads);
+		}
+		this.threads = threads;
+	}
+
+	/**
+	 * @return true if `p` can be applied to several types in parallel
+	 */
+	protected boolean isThreadSafe(Processor<?> p) {
+		return p.getClass().isAnnotationPresent(ThreadSafe.class);
+	}
+
+	@Override
+	protected void process(Processor<?> p, List<CtElement> elements) {
+		if (threads == 1 || !isThreadSafe(p)) {
+			super.process(p, elements);
+			return;
+		}
+		// the packages and modules are processed in this thread, the top-level types are collected
+		final List<CtType<?>> types = new ArrayList<>();
+		ProcessingVisitor visitor = new ProcessingVisitor(getFactory()) {
+			@Override
+			public void scan(CtElement e) {
+				if (e instanceof CtType && e.isParentInitialized() && e.getParent() instanceof CtPackage) {
+					types.add((CtType<?>) e);
+					return;
+				}
+				super.scan(e);
+			}
+		};
+		visitor.setProcessor(p);
+		for (CtElement e : elements) {
+			visitor.scan(e);
+		}
+		// the types of a model snapshot are loaded now, because loading a type in a processing thread would modify the model
+		ModelSnapshot.loadAll(getFactory());
+		processTypes(p, types);
+	}
+
+	private void processTypes(final Processor<?> p, List<CtType<?>> types) {
+		final AtomicBoolean interrupted = new AtomicBoolean();
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		try {
+			List<Future<List<Runnable>>> results = new ArrayList<>(types.size());
+			for (final CtType<?> type : types) {
+				results.add(pool.submit(new Callable<List<Runnable>>() {
+					@Override
+					public List<Runnable> call() {
+						if (interrupted.get()) {
+							return Collections.emptyList();
+						}
+						List<Runnable> reports;
+						StandardEnvironment.startBufferingReports();
+						try {
+							ProcessingVisitor visitor = new ProcessingVisitor(getFactory());
+							visitor.setProcessor(p);
+							visitor.scan(type);
+						} catch (ProcessInterruption e) {
+							// the types which are not processed yet are skipped
+							interrupted.set(true);
+						} finally {
+							reports = StandardEnvironment.stopBufferingReports();
+						}
+						return reports;
+					}
+				}));
+			}
+			RuntimeException failure = null;
+			for (Future<List<Runnable>> result : results) {
+				try {
+					for (Runnable report : result.get()) {
+						report.run();
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new SpoonException("Processing has been interrupted", e);
+				} catch (ExecutionException e) {
+					if (failure == null) {
+						failure = e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : new SpoonException(e.getCause());
+					}
+				}
+			}
+			if (failure != null) {
+				throw failure;
+			}
+			if (interrupted.get()) {
+				throw new ProcessInterruption();
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+}
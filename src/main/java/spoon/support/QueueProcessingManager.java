@@ -114,10 +114,7 @@ public class QueueProcessingManager implements ProcessingManager {
 				current = p;
 				p.init(); // load the properties
 				p.process();
-				for (CtElement e : new ArrayList<>(elements)) {
-					getVisitor().setProcessor(p);
-					getVisitor().scan(e);
-				}
+				process(p, new ArrayList<>(elements));
 			} catch (ProcessInterruption ignore) {
 			} finally {
 				p.processingDone();
@@ -125,6 +122,17 @@ public class QueueProcessingManager implements ProcessingManager {
 		}
 	}
 
+	/**
+	 * Applies the processor `p` to the elements and their children
+	 */
+	protected void process(Processor<?> p, List<CtElement> elements) {
+		// once per processor, so that what the visitor computed for it is kept for all the elements
+		getVisitor().setProcessor(p);
+		for (CtElement e : elements) {
+			getVisitor().scan(e);
+		}
+	}
+
 	public void process(CtElement element) {
 		List<CtElement> l = new ArrayList<>();
 		l.add(element);
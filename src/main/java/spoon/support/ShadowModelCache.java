@@ -0,0 +1,218 @@
+/**
+ * Copyright (C) 2006-2017 INRIA and contributors
+ * Spoon - http://spoon.gforge.inria.fr/
+ *
+ * This software is governed by the CeCILL-C License under French law and
+ * abiding by the rules of distribution of free software. You can use, modify
+ * and/or redistribute the software under the terms of the CeCILL-C license as
+ * circulated by CEA, CNRS and INRIA at http://www.cecill.info.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the CeCILL-C License for more details.
+ *
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-C license and that you accept its terms.
+ */
+package spoon.support;
+
+import spoon.Launcher;
+import spoon.reflect.declaration.CtPackage;
+import spoon.reflect.declaration.CtType;
+import spoon.reflect.factory.Factory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.CodeSource;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+
+import static spoon.support.BinaryModelFormat.BUFFER_SIZE;
+import static spoon.support.BinaryModelFormat.SHADOW_MAGIC;
+import static spoon.support.BinaryModelFormat.VERSION;
+
+/**
+ * A persistent cache of the shadow types built with Java reflection, see {@link spoon.compiler.Environment#setShadowCacheDirectory(java.io.File)}.
+ *
+ * Each top-level shadow type is saved in a file of its own, in the format of {@link BinaryModelStreamer},
+ * in a sub-directory per origin of the classes: the running JDK, or a jar identified by its path and by the CRC-32 checksum of its content.
+ * So the types of a jar which has been modified are built again, and never loaded from the files of its previous version.
+ * The checksum of a jar is computed once per JVM for a given size and modification time of the jar.
+ * The classes loaded from a directory are not cached, because their class files can change at any time.
+ *
+ * A file is written to a temporary file and then moved, so that the cache directory can be shared by concurrent processes.
+ * A file which cannot be read is ignored: its type is built with Java reflection and saved again.
+ */
+public class ShadowModelCache {
+	private static final String EXTENSION = ".shadow";
+
+	/**
+	 * the checksums of the jars, by path, modification time and size
+	 */
+	private static final Map<String, String> CHECKSUMS = new ConcurrentHashMap<>();
+
+	private final Path directory;
+
+	/**
+	 * @param directory the root directory of the cache, which is created when the first type is saved
+	 */
+	public ShadowModelCache(Path directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * @return the root directory of the cache
+	 */
+	public Path getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * Loads the cached shadow type of `type`, with its declaring types, into the model of `factory`.
+	 * @return the shadow type or null if it is not in the cache
+	 */
+	public <T> CtType<T> load(Class<?> type, Factory factory) {
+		Path file = getFile(type);
+		if (file == null || !Files.isRegularFile(file)) {
+			return null;
+		}
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE))) {
+			BinaryModelReader reader = new BinaryModelReader(factory, in);
+			reader.readHeader(SHADOW_MAGIC, false);
+			CtType<?> topLevelType = (CtType<?>) reader.readElement();
+			String packageName = reader.readString();
+			CtPackage pack = packageName == null ? factory.Package().getRootPackage() : factory.Package().getOrCreate(packageName);
+			pack.addType(topLevelType);
+		} catch (IOException | RuntimeException e) {
+			Launcher.LOGGER.warn("Cannot load the cached shadow type " + type.getName() + " from " + file, e);
+			return null;
+		}
+		return factory.Type().get(type.getName());
+	}
+
+	/**
+	 * Saves `shadowType`, the shadow type of `type` built with Java reflection, with its declaring types.
+	 * Nothing is saved if the origin of `type` is not cached.
+	 */
+	public void save(Class<?> type, CtType<?> shadowType) {
+		Path file = getFile(type);
+		if (file == null) {
+			return;
+		}
+		CtType<?> topLevelType = shadowType.getTopLevelType();
+		try {
+			Files.createDirectories(file.getParent());
+			Path temporaryFile = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+			try {
+				try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryFile), BUFFER_SIZE))) {
+					BinaryModelWriter writer = new BinaryModelWriter(out);
+					writer.writeHeader(SHADOW_MAGIC, shadowType.getFactory().getEnvironment());
+					writer.writeElement(topLevelType);
+					CtPackage pack = topLevelType.getPackage();
+					writer.writeString(pack == null || pack.isUnnamedPackage() ? null : pack.getQualifiedName());
+				}
+				// another process may have saved the same type in the meantime, the files are equivalent
+				Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} finally {
+				Files.deleteIfExists(temporaryFile);
+			}
+		} catch (IOException | RuntimeException e) {
+			Launcher.LOGGER.warn("Cannot save the shadow type " + type.getName() + " to " + file, e);
+		}
+	}
+
+	/**
+	 * @return the file of the top-level type of `type` or null if `type` is not cached
+	 */
+	private Path getFile(Class<?> type) {
+		if (type.isPrimitive() || type.isArray()) {
+			return null;
+		}
+		Class<?> topLevelClass = type;
+		while (topLevelClass.getEnclosingClass() != null) {
+			if (topLevelClass.isAnonymousClass() || topLevelClass.isLocalClass()) {
+				return null;
+			}
+			topLevelClass = topLevelClass.getEnclosingClass();
+		}
+		String origin = getOrigin(topLevelClass);
+		if (origin == null) {
+			return null;
+		}
+		return directory.resolve("v" + VERSION).resolve(origin).resolve(topLevelClass.getName() + EXTENSION);
+	}
+
+	/**
+	 * @return the name of the sub-directory of the origin of `topLevelClass` or null if the classes of this origin are not cached
+	 */
+	private static String getOrigin(Class<?> topLevelClass) {
+		URL location;
+		try {
+			CodeSource codeSource = topLevelClass.getProtectionDomain().getCodeSource();
+			location = codeSource == null ? null : codeSource.getLocation();
+		} catch (SecurityException e) {
+			return null;
+		}
+		if (location == null ? topLevelClass.getClassLoader() == null : "jrt".equals(location.getProtocol())) {
+			// the classes of the JDK change with the JDK only
+			return sanitize("jdk-" + System.getProperty("java.vendor") + "-" + System.getProperty("java.runtime.version"))
+					+ "-" + Integer.toHexString(System.getProperty("java.home").hashCode());
+		}
+		if (location == null || !"file".equals(location.getProtocol())) {
+			return null;
+		}
+		Path jar;
+		try {
+			jar = Paths.get(location.toURI()).toAbsolutePath();
+		} catch (URISyntaxException | IllegalArgumentException e) {
+			return null;
+		}
+		if (!Files.isRegularFile(jar)) {
+			return null;
+		}
+		String checksum = getChecksum(jar);
+		if (checksum == null) {
+			return null;
+		}
+		return sanitize(jar.getFileName().toString()) + "-" + Integer.toHexString(jar.toString().hashCode()) + "-" + checksum;
+	}
+
+	private static String getChecksum(Path jar) {
+		try {
+			BasicFileAttributes attributes = Files.readAttributes(jar, BasicFileAttributes.class);
+			String key = jar + "@" + attributes.lastModifiedTime().toMillis() + ":" + attributes.size();
+			String checksum = CHECKSUMS.get(key);
+			if (checksum == null) {
+				CRC32 crc = new CRC32();
+				byte[] buffer = new byte[BUFFER_SIZE];
+				try (InputStream in = Files.newInputStream(jar)) {
+					int count;
+					while ((count = in.read(buffer)) > 0) {
+						crc.update(buffer, 0, count);
+					}
+				}
+				checksum = Long.toHexString(crc.getValue());
+				CHECKSUMS.put(key, checksum);
+			}
+			return checksum;
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	private static String sanitize(String name) {
+		return name.replaceAll("[^A-Za-z0-9._-]", "_");
+	}
+}
@@ -48,6 +48,7 @@ import java.net.URLClassLoader;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
@@ -62,6 +63,11 @@ public class StandardEnvironment implements Serializable, Environment {
 
 	public static final int DEFAULT_CODE_COMPLIANCE_LEVEL = 8;
 
+	/**
+	 * The reports of the current thread, which are kept instead of being printed, see {@link #startBufferingReports()}
+	 */
+	private static final ThreadLocal<List<Runnable>> BUFFERED_REPORTS = new ThreadLocal<>();
+
 	private FileGenerator<? extends CtElement> defaultFileGenerator;
 
 	private int errorCount = 0;
@@ -102,6 +108,14 @@ public class StandardEnvironment implements Serializable, Environment {
 
 	private Boolean noclasspath = null;
 
+	private int modelBuildingThreads = 1;
+
+	private int prettyPrintingThreads = 1;
+
+	private boolean shadowTypesFromClassFiles = false;
+
+	private File shadowCacheDirectory;
+
 	/**
 	 * Creates a new environment with a <code>null</code> default file
 	 * generator.
@@ -196,10 +210,8 @@ public class StandardEnvironment implements Serializable, Environment {
 	private void prefix(StringBuffer buffer, Level level) {
 		if (level == Level.ERROR) {
 			buffer.append("error: ");
-			errorCount++;
 		} else if (level == Level.WARN) {
 			buffer.append("warning: ");
-			warningCount++;
 		}
 	}
 
@@ -249,7 +261,22 @@ public class StandardEnvironment implements Serializable, Environment {
 		print(buffer.toString(), level);
 	}
 
-	private void print(String message, Level level) {
+	private void print(final String message, final Level level) {
+		List<Runnable> bufferedReports = BUFFERED_REPORTS.get();
+		if (bufferedReports != null) {
+			bufferedReports.add(new Runnable() {
+				@Override
+				public void run() {
+					print(message, level);
+				}
+			});
+			return;
+		}
+		if (level == Level.ERROR) {
+			errorCount++;
+		} else if (level == Level.WARN) {
+			warningCount++;
+		}
 		if (level.equals(Level.ERROR)) {
 			logger.error(message);
 		} else if (level.equals(Level.WARN)) {
@@ -261,6 +288,24 @@ public class StandardEnvironment implements Serializable, Environment {
 		}
 	}
 
+	/**
+	 * From now on, the reports of the current thread are kept instead of being printed,
+	 * so that the reports of processors running in parallel can be printed in a deterministic order.
+	 */
+	static void startBufferingReports() {
+		BUFFERED_REPORTS.set(new ArrayList<Runnable>());
+	}
+
+	/**
+	 * Stops keeping the reports of the current thread
+	 * @return the kept reports, which print themselves when they are run
+	 */
+	static List<Runnable> stopBufferingReports() {
+		List<Runnable> bufferedReports = BUFFERED_REPORTS.get();
+		BUFFERED_REPORTS.remove();
+		return bufferedReports == null ? Collections.<Runnable>emptyList() : bufferedReports;
+	}
+
 	/**
 	 * This method should be called to report the end of the processing.
 	 */
@@ -570,4 +615,50 @@ public class StandardEnvironment implements Serializable, Environment {
 	public OutputType getOutputType() {
 		return this.outputType;
 	}
+
+	@Override
+	public int getModelBuildingThreads() {
+		return modelBuildingThreads;
+	}
+
+	@Override
+	public void setModelBuildingThreads(int threads) {
+		if (threads < 1) {
+			throw new SpoonException("The number of model building threads must be at least 1, but was " + threads);
+		}
+		this.modelBuildingThreads = threads;
+	}
+
+	@Override
+	public int getPrettyPrintingThreads() {
+		return prettyPrintingThreads;
+	}
+
+	@Override
+	public void setPrettyPrintingThreads(int threads) {
+		if (threads < 1) {
+			throw new SpoonException("The number of pretty-printing threads must be at least 1, but was " + threads);
+		}
+		this.prettyPrintingThreads = threads;
+	}
+
+	@Override
+	public boolean isShadowTypesFromClassFiles() {
+		return shadowTypesFromClassFiles;
+	}
+
+	@Override
+	public void setShadowTypesFromClassFiles(boolean shadowTypesFromClassFiles) {
+		this.shadowTypesFromClassFiles = shadowTypesFromClassFiles;
+	}
+
+	@Override
+	public File getShadowCacheDirectory() {
+		return shadowCacheDirectory;
+	}
+
+	@Override
+	public void setShadowCacheDirectory(File directory) {
+		this.shadowCacheDirectory = directory;
+	}
 }
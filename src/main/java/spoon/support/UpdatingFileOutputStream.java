@@ -0,0 +1,138 @@
+/**
+ * Copyright (C) 2006-2017 INRIA and contributors
+ * Spoon - http://spoon.gforge.inria.fr/
+ *
+ * This software is governed by the CeCILL-C License under French law and
+ * abiding by the rules of distribution of free software. You can use, modify
+ * and/or redistribute the software under the terms of the CeCILL-C license as
+ * circulated by CEA, CNRS and INRIA at http://www.cecill.info.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the CeCILL-C License for more details.
+ *
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-C license and that you accept its terms.
+ */
+package spoon.support;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * An output stream which updates a file with the written bytes.
+ *
+ * The written bytes are compared with the content of the file, which is only written from the first different byte on
+ * and truncated when the stream is closed if it is longer than the written bytes.
+ * So a file whose content does not change is not modified at all and keeps its modification time.
+ * The file is created if it does not exist.
+ */
+class UpdatingFileOutputStream extends OutputStream {
+	private static final int BUFFER_SIZE = 8192;
+
+	private final FileChannel channel;
+	/**
+	 * the bytes of the file which are compared with the written bytes, and then the bytes to be written to the file
+	 */
+	private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+	/**
+	 * the number of bytes written to the stream
+	 */
+	private long size;
+	/**
+	 * true once the written bytes differ from the content of the file
+	 */
+	private boolean changed;
+	private boolean closed;
+
+	UpdatingFileOutputStream(Path file) throws IOException {
+		channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		// the buffer of the file content is empty
+		buffer.flip();
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		write(new byte[] {(byte) b}, 0, 1);
+	}
+
+	@Override
+	public void write(byte[] bytes, int offset, int length) throws IOException {
+		int end = offset + length;
+		while (!changed && offset < end) {
+			if (!buffer.hasRemaining()) {
+				buffer.clear();
+				int count = channel.read(buffer, size);
+				buffer.flip();
+				if (count <= 0) {
+					// the file is shorter
+					startWriting();
+					break;
+				}
+			}
+			if (buffer.get(buffer.position()) != bytes[offset]) {
+				startWriting();
+				break;
+			}
+			buffer.position(buffer.position() + 1);
+			offset++;
+			size++;
+		}
+		while (offset < end) {
+			int count = Math.min(end - offset, buffer.remaining());
+			buffer.put(bytes, offset, count);
+			offset += count;
+			size += count;
+			if (!buffer.hasRemaining()) {
+				writeBuffer();
+			}
+		}
+	}
+
+	/**
+	 * The next bytes are written to the file, from the first different byte on
+	 */
+	private void startWriting() throws IOException {
+		changed = true;
+		channel.position(size);
+		buffer.clear();
+	}
+
+	private void writeBuffer() throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+
+	/**
+	 * @return true if the content of the file has been changed
+	 */
+	boolean isChanged() {
+		return changed;
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		try {
+			if (changed) {
+				writeBuffer();
+			}
+			if (channel.size() > size) {
+				changed = true;
+				channel.truncate(size);
+			}
+		} finally {
+			channel.close();
+		}
+	}
+}
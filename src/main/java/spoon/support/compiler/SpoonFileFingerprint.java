@@ -0,0 +1,107 @@
+/**
+ * Copyright (C) 2006-2017 INRIA and contributors
+ * Spoon - http://spoon.gforge.inria.fr/
+ *
+ * This software is governed by the CeCILL-C License under French law and
+ * abiding by the rules of distribution of free software. You can use, modify
+ * and/or redistribute the software under the terms of the CeCILL-C license as
+ * circulated by CEA, CNRS and INRIA at http://www.cecill.info.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the CeCILL-C License for more details.
+ *
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-C license and that you accept its terms.
+ */
+package spoon.support.compiler;
+
+import spoon.SpoonException;
+import spoon.compiler.SpoonFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/**
+ * The fingerprint of the content of a {@link SpoonFile}: its last modification time and the hash of its content.
+ *
+ * The hash of an actual file is computed only once its modification time changed,
+ * so that taking the fingerprint of unmodified files costs a file system lookup only.
+ * The hash of a virtual file is always computed.
+ */
+public class SpoonFileFingerprint implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private final long lastModified;
+
+	/**
+	 * the hash of the content, null if it has not been computed yet
+	 */
+	private final byte[] hash;
+
+	private SpoonFileFingerprint(long lastModified, byte[] hash) {
+		this.lastModified = lastModified;
+		this.hash = hash;
+	}
+
+	/**
+	 * @return the fingerprint of the current content of `file`
+	 */
+	public static SpoonFileFingerprint of(SpoonFile file) {
+		long lastModified = getLastModified(file);
+		return new SpoonFileFingerprint(lastModified, lastModified == 0 ? computeHash(file) : null);
+	}
+
+	/**
+	 * @return this fingerprint if `file` has not been modified since it was taken,
+	 * else the fingerprint of the current content of `file`
+	 */
+	public SpoonFileFingerprint refresh(SpoonFile file) {
+		long lastModified = getLastModified(file);
+		if (lastModified != 0 && lastModified == this.lastModified) {
+			return this;
+		}
+		return new SpoonFileFingerprint(lastModified, computeHash(file));
+	}
+
+	/**
+	 * @return true if `other` is known to be the fingerprint of the same content.
+	 * Fingerprints whose hash has not been computed are considered to be different,
+	 * unless they are the same instance.
+	 */
+	public boolean isSameContent(SpoonFileFingerprint other) {
+		if (this == other) {
+			return true;
+		}
+		return other != null && hash != null && other.hash != null && Arrays.equals(hash, other.hash);
+	}
+
+	public long getLastModified() {
+		return lastModified;
+	}
+
+	private static long getLastModified(SpoonFile file) {
+		if (file.isActualFile() && file.toFile() != null) {
+			return file.toFile().lastModified();
+		}
+		return 0;
+	}
+
+	private static byte[] computeHash(SpoonFile file) {
+		try (InputStream is = file.getContent()) {
+			MessageDigest digest = MessageDigest.getInstance("SHA-1");
+			byte[] buffer = new byte[8192];
+			int read;
+			while ((read = is.read(buffer)) != -1) {
+				digest.update(buffer, 0, read);
+			}
+			return digest.digest();
+		} catch (IOException | NoSuchAlgorithmException e) {
+			throw new SpoonException("Cannot compute the fingerprint of " + file.getPath(), e);
+		}
+	}
+}
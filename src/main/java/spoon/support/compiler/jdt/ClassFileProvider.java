@@ -0,0 +1,252 @@
+/**
+ * Copyright (C) 2006-2017 INRIA and contributors
+ * Spoon - http://spoon.gforge.inria.fr/
+ *
+ * This software is governed by the CeCILL-C License under French law and
+ * abiding by the rules of distribution of free software. You can use, modify
+ * and/or redistribute the software under the terms of the CeCILL-C license as
+ * circulated by CEA, CNRS and INRIA at http://www.cecill.info.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the CeCILL-C License for more details.
+ *
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-C license and that you accept its terms.
+ */
+package spoon.support.compiler.jdt;
+
+import org.eclipse.jdt.internal.compiler.classfmt.ClassFileReader;
+import org.eclipse.jdt.internal.compiler.classfmt.ClassFormatException;
+import spoon.SpoonException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Finds and reads the class files of a classpath made of directories and jar files, without loading any class.
+ *
+ * The class files are read with JDT's {@link ClassFileReader} and kept in a cache shared by all the providers,
+ * so that the factories built on the same classpath do not read them again.
+ * The cache is bounded: the least recently used class files are evicted first.
+ * The cached class files are bound to the last modification time of their jar file, or of their own file in a directory,
+ * so a modified class file is read again.
+ * A few jar files are kept open to read their class files, and a jar file is closed once it has been modified.
+ */
+public class ClassFileProvider {
+	/**
+	 * The maximal number of class files kept in the shared cache
+	 */
+	private static final int MAX_CACHED_CLASS_FILES = 10000;
+
+	/**
+	 * The maximal number of jar files whose index is kept in the shared cache
+	 */
+	private static final int MAX_CACHED_JAR_INDEXES = 500;
+
+	/**
+	 * The maximal number of jar files kept open to read their class files
+	 */
+	private static final int MAX_OPEN_JAR_FILES = 16;
+
+	private static final Map<String, ClassFileReader> CLASS_FILES = new LinkedHashMap<String, ClassFileReader>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, ClassFileReader> eldest) {
+			return size() > MAX_CACHED_CLASS_FILES;
+		}
+	};
+
+	/**
+	 * The names of the class files of the jar files, so that looking for a class in a jar file does not open it
+	 */
+	private static final Map<String, Set<String>> JAR_INDEXES = new LinkedHashMap<String, Set<String>>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Set<String>> eldest) {
+			return size() > MAX_CACHED_JAR_INDEXES;
+		}
+	};
+
+	/**
+	 * The open jar files, by path
+	 */
+	private static final Map<String, OpenJarFile> OPEN_JAR_FILES = new LinkedHashMap<String, OpenJarFile>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, OpenJarFile> eldest) {
+			if (size() > MAX_OPEN_JAR_FILES) {
+				close(eldest.getValue().zipFile);
+				return true;
+			}
+			return false;
+		}
+	};
+
+	private final List<String> classpath = new ArrayList<>();
+	private final List<File> classpathEntries = new ArrayList<>();
+
+	/**
+	 * @param classpath the directories and jar files to search, in order
+	 */
+	public ClassFileProvider(String[] classpath) {
+		if (classpath != null) {
+			for (String entry : classpath) {
+				this.classpath.add(entry);
+				this.classpathEntries.add(new File(entry));
+			}
+		}
+	}
+
+	/**
+	 * @return the paths of the directories and jar files searched by this provider
+	 */
+	public List<String> getClasspath() {
+		return Collections.unmodifiableList(classpath);
+	}
+
+	/**
+	 * @param binaryName the name of a class in the internal form of the class files, e.g. java/util/Map$Entry
+	 * @return the class file of the first entry of the classpath which contains the class, or null
+	 */
+	public ClassFileReader getClassFile(String binaryName) {
+		String fileName = binaryName + ".class";
+		for (File entry : classpathEntries) {
+			// the class files of a directory are modified without modifying the directory
+			File modifiedFile = entry.isDirectory() ? new File(entry, fileName) : entry;
+			String key = entry.getPath() + '@' + modifiedFile.lastModified() + '!' + fileName;
+			ClassFileReader classFile;
+			synchronized (CLASS_FILES) {
+				classFile = CLASS_FILES.get(key);
+			}
+			if (classFile == null) {
+				classFile = read(entry, fileName);
+				if (classFile == null) {
+					continue;
+				}
+				synchronized (CLASS_FILES) {
+					CLASS_FILES.put(key, classFile);
+				}
+			}
+			return classFile;
+		}
+		return null;
+	}
+
+	/**
+	 * @return the class file `fileName` of the classpath entry `entry`, or null if the entry does not contain it
+	 */
+	private static ClassFileReader read(File entry, String fileName) {
+		try {
+			if (entry.isDirectory()) {
+				File file = new File(entry, fileName);
+				if (!file.isFile()) {
+					return null;
+				}
+				return new ClassFileReader(Files.readAllBytes(file.toPath()), file.getPath().toCharArray());
+			}
+			if (!entry.isFile() || !getJarIndex(entry).contains(fileName)) {
+				return null;
+			}
+			byte[] content = readJarEntry(entry, fileName);
+			return content == null ? null : new ClassFileReader(content, (entry.getPath() + '|' + fileName).toCharArray());
+		} catch (IOException | ClassFormatException e) {
+			throw new SpoonException("Cannot read the class file " + fileName + " of " + entry.getPath(), e);
+		}
+	}
+
+	private static Set<String> getJarIndex(File jar) throws IOException {
+		String key = jar.getPath() + '@' + jar.lastModified();
+		synchronized (JAR_INDEXES) {
+			Set<String> index = JAR_INDEXES.get(key);
+			if (index == null) {
+				index = new HashSet<>();
+				// the jar file is not closed by another thread while it is read
+				synchronized (OPEN_JAR_FILES) {
+					Enumeration<? extends ZipEntry> entries = getJarFile(jar).entries();
+					while (entries.hasMoreElements()) {
+						String name = entries.nextElement().getName();
+						if (name.endsWith(".class")) {
+							index.add(name);
+						}
+					}
+				}
+				JAR_INDEXES.put(key, index);
+			}
+			return index;
+		}
+	}
+
+	private static byte[] readJarEntry(File jar, String fileName) throws IOException {
+		// the jar file is not closed by another thread while it is read
+		synchronized (OPEN_JAR_FILES) {
+			ZipFile zipFile = getJarFile(jar);
+			ZipEntry zipEntry = zipFile.getEntry(fileName);
+			if (zipEntry == null) {
+				return null;
+			}
+			try (InputStream is = zipFile.getInputStream(zipEntry)) {
+				ByteArrayOutputStream content = new ByteArrayOutputStream(zipEntry.getSize() > 0 ? (int) zipEntry.getSize() : 8192);
+				byte[] buffer = new byte[8192];
+				int read;
+				while ((read = is.read(buffer)) != -1) {
+					content.write(buffer, 0, read);
+				}
+				return content.toByteArray();
+			}
+		}
+	}
+
+	private static ZipFile getJarFile(File jar) throws IOException {
+		synchronized (OPEN_JAR_FILES) {
+			long lastModified = jar.lastModified();
+			OpenJarFile openJarFile = OPEN_JAR_FILES.get(jar.getPath());
+			if (openJarFile == null || openJarFile.lastModified != lastModified) {
+				if (openJarFile != null) {
+					// the jar file has been modified since it was opened
+					close(openJarFile.zipFile);
+				}
+				openJarFile = new OpenJarFile(new ZipFile(jar), lastModified);
+				OPEN_JAR_FILES.put(jar.getPath(), openJarFile);
+			}
+			return openJarFile.zipFile;
+		}
+	}
+
+	private static void close(ZipFile zipFile) {
+		try {
+			zipFile.close();
+		} catch (IOException e) {
+			// the jar file is not used anymore
+		}
+	}
+
+	/**
+	 * A jar file opened at a given modification time
+	 */
+	private static final class OpenJarFile {
+		private final ZipFile zipFile;
+		private final long lastModified;
+
+		OpenJarFile(ZipFile zipFile, long lastModified) {
+			this.zipFile = zipFile;
+			this.lastModified = lastModified;
+		}
+	}
+}
@@ -0,0 +1,442 @@
+/**
+ * Copyright (C) 2006-2017 INRIA and contributors
+ * Spoon - http://spoon.gforge.inria.fr/
+ *
+ * This software is governed by the CeCILL-C License under French law and
+ * abiding by the rules of distribution of free software. You can use, modify
+ * and/or redistribute the software under the terms of the CeCILL-C license as
+ * circulated by CEA, CNRS and INRIA at http://www.cecill.info.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the CeCILL-C License for more details.
+ *
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-C license and that you accept its terms.
+ */
+package spoon.support.compiler.jdt;
+
+import org.eclipse.jdt.internal.compiler.classfmt.ClassFileConstants;
+import org.eclipse.jdt.internal.compiler.classfmt.ClassFileReader;
+import org.eclipse.jdt.internal.compiler.env.IBinaryField;
+import org.eclipse.jdt.internal.compiler.env.IBinaryMethod;
+import org.eclipse.jdt.internal.compiler.env.IBinaryNestedType;
+import spoon.SpoonException;
+import spoon.reflect.declaration.CtAnnotationType;
+import spoon.reflect.declaration.CtClass;
+import spoon.reflect.declaration.CtConstructor;
+import spoon.reflect.declaration.CtEnum;
+import spoon.reflect.declaration.CtEnumValue;
+import spoon.reflect.declaration.CtExecutable;
+import spoon.reflect.declaration.CtField;
+import spoon.reflect.declaration.CtFormalTypeDeclarer;
+import spoon.reflect.declaration.CtInterface;
+import spoon.reflect.declaration.CtMethod;
+import spoon.reflect.declaration.CtModifiable;
+import spoon.reflect.declaration.CtPackage;
+import spoon.reflect.declaration.CtParameter;
+import spoon.reflect.declaration.CtShadowable;
+import spoon.reflect.declaration.CtType;
+import spoon.reflect.declaration.CtTypeParameter;
+import spoon.reflect.factory.Factory;
+import spoon.reflect.reference.CtTypeReference;
+import spoon.reflect.reference.CtWildcardReference;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Builds shadow types (see {@link spoon.reflect.declaration.CtShadowable}) from the class files of a {@link ClassFileProvider},
+ * so that no class is loaded nor initialized.
+ *
+ * Like {@link spoon.support.visitor.java.JavaReflectionTreeBuilder}, the built model contains only the declarations:
+ * the types, their formal type parameters and super types, the fields, the methods and the constructors,
+ * with the generic types given by the signatures of the class files.
+ * The annotations and the values of the constants are not built.
+ * The synthetic and bridge members are ignored.
+ */
+public class ClassFileShadowBuilder {
+	private static final String JAVA_LANG_OBJECT = "java/lang/Object";
+	private static final int TYPE_MODIFIERS = ClassFileConstants.AccPublic | ClassFileConstants.AccProtected | ClassFileConstants.AccPrivate
+			| ClassFileConstants.AccStatic | ClassFileConstants.AccFinal | ClassFileConstants.AccAbstract | ClassFileConstants.AccStrictfp;
+
+	private final Factory factory;
+	private final ClassFileProvider provider;
+
+	/**
+	 * @param factory the factory of the built types
+	 * @param provider the class files
+	 */
+	public ClassFileShadowBuilder(Factory factory, ClassFileProvider provider) {
+		this.factory = factory;
+		this.provider = provider;
+	}
+
+	/**
+	 * Builds a top-level type and its nested types, and adds it to its package in the model of the factory.
+	 * @param qualifiedName the qualified name of a top-level type, e.g. java.util.Map
+	 * @return the built type, or null if the classpath of the provider does not contain a top-level type of this name
+	 */
+	public CtType<?> build(String qualifiedName) {
+		ClassFileReader classFile = provider.getClassFile(qualifiedName.replace('.', '/'));
+		if (classFile == null || classFile.getEnclosingTypeName() != null) {
+			return null;
+		}
+		int lastDot = qualifiedName.lastIndexOf('.');
+		CtPackage ctPackage = lastDot < 0 ? factory.Package().getRootPackage() : factory.Package().getOrCreate(qualifiedName.substring(0, lastDot));
+		CtType<?> type = buildType(classFile);
+		ctPackage.addType(type);
+		return type;
+	}
+
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private CtType<?> buildType(ClassFileReader classFile) {
+		int flags = classFile.getModifiers();
+		CtType type;
+		if ((flags & ClassFileConstants.AccAnnotation) != 0) {
+			type = factory.Core().createAnnotationType();
+		} else if ((flags & ClassFileConstants.AccInterface) != 0) {
+			type = factory.Core().createInterface();
+		} else if ((flags & ClassFileConstants.AccEnum) != 0) {
+			type = factory.Core().createEnum();
+		} else {
+			type = factory.Core().createClass();
+		}
+		type.setSimpleName(new String(classFile.getSourceName()));
+		type.setShadow(true);
+		type.setExtendedModifiers(JDTTreeBuilderQuery.getModifiers(flags & TYPE_MODIFIERS, false, false));
+
+		char[] genericSignature = classFile.getGenericSignature();
+		if (genericSignature != null) {
+			SignatureParser parser = new SignatureParser(genericSignature);
+			parser.parseFormalTypeParameters(type);
+			setSuperclass(type, parser.parseType());
+			while (parser.hasMore()) {
+				addSuperInterface(type, parser.parseType());
+			}
+		} else {
+			char[] superclassName = classFile.getSuperclassName();
+			if (superclassName != null) {
+				setSuperclass(type, createReference(superclassName));
+			}
+			char[][] interfaceNames = classFile.getInterfaceNames();
+			if (interfaceNames != null) {
+				for (char[] interfaceName : interfaceNames) {
+					addSuperInterface(type, createReference(interfaceName));
+				}
+			}
+		}
+
+		IBinaryNestedType[] memberTypes = classFile.getMemberTypes();
+		if (memberTypes != null) {
+			for (IBinaryNestedType memberType : memberTypes) {
+				if (!Arrays.equals(classFile.getName(), memberType.getEnclosingTypeName())) {
+					continue;
+				}
+				ClassFileReader memberClassFile = provider.getClassFile(new String(memberType.getName()));
+				if (memberClassFile != null) {
+					type.addNestedType(buildType(memberClassFile));
+				}
+			}
+		}
+
+		IBinaryField[] fields = classFile.getFields();
+		if (fields != null) {
+			for (IBinaryField field : fields) {
+				if ((field.getModifiers() & ClassFileConstants.AccSynthetic) == 0) {
+					addField(type, field);
+				}
+			}
+		}
+
+		IBinaryMethod[] methods = classFile.getMethods();
+		if (methods != null) {
+			for (IBinaryMethod method : methods) {
+				if (!method.isClinit() && (method.getModifiers() & (ClassFileConstants.AccSynthetic | ClassFileConstants.AccBridge)) == 0) {
+					addExecutable(type, classFile, method);
+				}
+			}
+		}
+		return type;
+	}
+
+	private void setSuperclass(CtType<?> type, CtTypeReference<?> superclass) {
+		// like in the models built from the sources, the implicit super classes are not set
+		if (type instanceof CtClass && !(type instanceof CtEnum) && !"java.lang.Object".equals(superclass.getQualifiedName())) {
+			type.setSuperclass(superclass);
+		}
+	}
+
+	private void addSuperInterface(CtType<?> type, CtTypeReference<?> superInterface) {
+		if (!(type instanceof CtAnnotationType)) {
+			type.addSuperInterface(superInterface);
+		}
+	}
+
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private void addField(CtType<?> type, IBinaryField field) {
+		char[] signature = field.getGenericSignature() != null ? field.getGenericSignature() : field.getTypeName();
+		CtTypeReference fieldType = new SignatureParser(signature).parseType();
+		if ((field.getModifiers() & ClassFileConstants.AccEnum) != 0 && type instanceof CtEnum) {
+			CtEnumValue enumValue = factory.Core().createEnumValue();
+			enumValue.setSimpleName(new String(field.getName()));
+			enumValue.setType(fieldType);
+			((CtEnum) type).addEnumValue(enumValue);
+			return;
+		}
+		CtField ctField = factory.Core().createField();
+		ctField.setSimpleName(new String(field.getName()));
+		ctField.setShadow(true);
+		ctField.setExtendedModifiers(JDTTreeBuilderQuery.getModifiers(field.getModifiers(), false, false));
+		ctField.setType(fieldType);
+		type.addField(ctField);
+	}
+
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private void addExecutable(CtType<?> type, ClassFileReader classFile, IBinaryMethod method) {
+		int flags = method.getModifiers();
+		CtExecutable executable;
+		if (method.isConstructor()) {
+			if (!(type instanceof CtClass)) {
+				return;
+			}
+			CtConstructor constructor = factory.Core().createConstructor();
+			constructor.setBody(factory.Core().createBlock());
+			((CtClass) type).addConstructor(constructor);
+			executable = constructor;
+		} else {
+			CtMethod ctMethod = type instanceof CtAnnotationType ? factory.Core().createAnnotationMethod() : factory.Core().createMethod();
+			ctMethod.setSimpleName(new String(method.getSelector()));
+			if ((flags & (ClassFileConstants.AccAbstract | ClassFileConstants.AccNative)) == 0) {
+				ctMethod.setBody(factory.Core().createBlock());
+				ctMethod.setDefaultMethod(type instanceof CtInterface && (flags & ClassFileConstants.AccStatic) == 0);
+			}
+			type.addMethod(ctMethod);
+			executable = ctMethod;
+		}
+		((CtShadowable) executable).setShadow(true);
+		((CtModifiable) executable).setExtendedModifiers(JDTTreeBuilderQuery.getModifiers(flags, false, true));
+
+		SignatureParser parser;
+		int syntheticParameters = 0;
+		if (method.getGenericSignature() != null) {
+			parser = new SignatureParser(method.getGenericSignature());
+			parser.parseFormalTypeParameters((CtFormalTypeDeclarer) executable);
+		} else {
+			parser = new SignatureParser(method.getMethodDescriptor());
+			if (method.isConstructor()) {
+				// the descriptors of the constructors contain the implicit parameters of the enums and of the inner classes
+				if (type instanceof CtEnum) {
+					syntheticParameters = 2;
+				} else if (classFile.getEnclosingTypeName() != null && (classFile.getModifiers() & ClassFileConstants.AccStatic) == 0) {
+					syntheticParameters = 1;
+				}
+			}
+		}
+		List<CtTypeReference<?>> parameterTypes = parser.parseParameterTypes();
+		parameterTypes = parameterTypes.subList(Math.min(syntheticParameters, parameterTypes.size()), parameterTypes.size());
+		char[][] argumentNames = method.getArgumentNames();
+		for (int i = 0; i < parameterTypes.size(); i++) {
+			CtParameter parameter = factory.Core().createParameter();
+			parameter.setSimpleName(argumentNames != null && argumentNames.length == parameterTypes.size() ? new String(argumentNames[i]) : "arg" + i);
+			parameter.setType(parameterTypes.get(i));
+			parameter.setShadow(true);
+			parameter.setVarArgs(i == parameterTypes.size() - 1 && (flags & ClassFileConstants.AccVarargs) != 0);
+			executable.addParameter(parameter);
+		}
+		CtTypeReference<?> returnType = parser.parseType();
+		if (!method.isConstructor()) {
+			executable.setType(returnType);
+		}
+
+		List<CtTypeReference<?>> thrownTypes = new ArrayList<>();
+		while (parser.hasMore()) {
+			thrownTypes.add(parser.parseThrownType());
+		}
+		if (thrownTypes.isEmpty() && method.getExceptionTypeNames() != null) {
+			for (char[] exceptionTypeName : method.getExceptionTypeNames()) {
+				thrownTypes.add(createReference(exceptionTypeName));
+			}
+		}
+		for (CtTypeReference thrownType : thrownTypes) {
+			executable.addThrownType(thrownType);
+		}
+	}
+
+	/**
+	 * @param binaryName the name of a class in the internal form of the class files, e.g. java/util/Map$Entry
+	 */
+	private CtTypeReference<?> createReference(char[] binaryName) {
+		return factory.Type().createReference(new String(binaryName).replace('/', '.'));
+	}
+
+	/**
+	 * Parses the signatures and the descriptors of the class files, see chapter 4.7.9.1 of the Java Virtual Machine specification.
+	 */
+	private class SignatureParser {
+		private final char[] signature;
+		private int pos = 0;
+
+		SignatureParser(char[] signature) {
+			this.signature = signature;
+		}
+
+		boolean hasMore() {
+			return pos < signature.length;
+		}
+
+		/**
+		 * Parses the formal type parameters at the current position, if any, and adds them to `declarer`
+		 */
+		void parseFormalTypeParameters(CtFormalTypeDeclarer declarer) {
+			if (signature[pos] != '<') {
+				return;
+			}
+			pos++;
+			while (signature[pos] != '>') {
+				CtTypeParameter typeParameter = factory.Core().createTypeParameter();
+				typeParameter.setSimpleName(parseIdentifier(':'));
+				List<CtTypeReference<?>> bounds = new ArrayList<>();
+				while (signature[pos] == ':') {
+					pos++;
+					// the class bound may be empty if there are interface bounds
+					if (signature[pos] != ':') {
+						CtTypeReference<?> bound = parseType();
+						if (!"java.lang.Object".equals(bound.getQualifiedName())) {
+							bounds.add(bound);
+						}
+					}
+				}
+				if (bounds.size() == 1) {
+					typeParameter.setSuperclass(bounds.get(0));
+				} else if (bounds.size() > 1) {
+					typeParameter.setSuperclass(factory.Type().createIntersectionTypeReferenceWithBounds(bounds));
+				}
+				declarer.addFormalCtTypeParameter(typeParameter);
+			}
+			pos++;
+		}
+
+		/**
+		 * Parses the parameter types of a method signature or descriptor, until the return type
+		 */
+		List<CtTypeReference<?>> parseParameterTypes() {
+			List<CtTypeReference<?>> types = new ArrayList<>();
+			// (
+			pos++;
+			while (signature[pos] != ')') {
+				types.add(parseType());
+			}
+			pos++;
+			return types;
+		}
+
+		/**
+		 * Parses a thrown type of a method signature, prefixed by ^
+		 */
+		CtTypeReference<?> parseThrownType() {
+			pos++;
+			return parseType();
+		}
+
+		/**
+		 * Parses the type at the current position
+		 */
+		CtTypeReference<?> parseType() {
+			char c = signature[pos++];
+			switch (c) {
+			case 'B':
+				return factory.Type().createReference("byte");
+			case 'C':
+				return factory.Type().createReference("char");
+			case 'D':
+				return factory.Type().createReference("double");
+			case 'F':
+				return factory.Type().createReference("float");
+			case 'I':
+				return factory.Type().createReference("int");
+			case 'J':
+				return factory.Type().createReference("long");
+			case 'S':
+				return factory.Type().createReference("short");
+			case 'Z':
+				return factory.Type().createReference("boolean");
+			case 'V':
+				return factory.Type().createReference("void");
+			case '[':
+				return factory.Type().createArrayReference(parseType());
+			case 'T':
+				return factory.Type().createTypeParameterReference(parseIdentifier(';'));
+			case 'L':
+				return parseClassType();
+			default:
+				throw new SpoonException("Unexpected character " + c + " in signature " + new String(signature));
+			}
+		}
+
+		/**
+		 * Parses a class type signature, after its L
+		 */
+		private CtTypeReference<?> parseClassType() {
+			int start = pos;
+			while (signature[pos] != '<' && signature[pos] != '.' && signature[pos] != ';') {
+				pos++;
+			}
+			String qualifiedName = new String(signature, start, pos - start).replace('/', '.');
+			CtTypeReference<?> reference = factory.Type().createReference(qualifiedName);
+			parseTypeArguments(reference);
+			while (signature[pos] == '.') {
+				// a type nested in a parameterized type
+				pos++;
+				start = pos;
+				while (signature[pos] != '<' && signature[pos] != '.' && signature[pos] != ';') {
+					pos++;
+				}
+				qualifiedName = qualifiedName + CtType.INNERTTYPE_SEPARATOR + new String(signature, start, pos - start);
+				CtTypeReference<?> nestedReference = factory.Type().createReference(qualifiedName);
+				nestedReference.setDeclaringType(reference);
+				parseTypeArguments(nestedReference);
+				reference = nestedReference;
+			}
+			// ;
+			pos++;
+			return reference;
+		}
+
+		private void parseTypeArguments(CtTypeReference<?> reference) {
+			if (signature[pos] != '<') {
+				return;
+			}
+			pos++;
+			while (signature[pos] != '>') {
+				char c = signature[pos];
+				if (c == '*') {
+					pos++;
+					reference.addActualTypeArgument(factory.Core().createWildcardReference());
+				} else if (c == '+' || c == '-') {
+					pos++;
+					CtWildcardReference wildcard = factory.Core().createWildcardReference();
+					wildcard.setUpper(c == '+');
+					wildcard.setBoundingType(parseType());
+					reference.addActualTypeArgument(wildcard);
+				} else {
+					reference.addActualTypeArgument(parseType());
+				}
+			}
+			pos++;
+		}
+
+		private String parseIdentifier(char end) {
+			int start = pos;
+			while (signature[pos] != end) {
+				pos++;
+			}
+			String identifier = new String(signature, start, pos - start);
+			if (end == ';') {
+				pos++;
+			}
+			return identifier;
+		}
+	}
+}
@@ -0,0 +1,98 @@
+/**
+ * Copyright (C) 2006-2017 INRIA and contributors
+ * Spoon - http://spoon.gforge.inria.fr/
+ *
+ * This software is governed by the CeCILL-C License under French law and
+ * abiding by the rules of distribution of free software. You can use, modify
+ * and/or redistribute the software under the terms of the CeCILL-C license as
+ * circulated by CEA, CNRS and INRIA at http://www.cecill.info.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the CeCILL-C License for more details.
+ *
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-C license and that you accept its terms.
+ */
+package spoon.support.compiler.jdt;
+
+import spoon.compiler.SpoonFile;
+import spoon.reflect.declaration.CtType;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The result of {@link JDTBasedSpoonCompiler#rebuild()}: the source files which have been built again
+ * and the top-level types which have been added to, rebuilt in or removed from the model.
+ */
+public class IncrementalBuildResult {
+	private final List<SpoonFile> builtFiles = new ArrayList<>();
+	private final List<CtType<?>> addedTypes = new ArrayList<>();
+	private final List<CtType<?>> changedTypes = new ArrayList<>();
+	private final List<CtType<?>> removedTypes = new ArrayList<>();
+	private final boolean success;
+
+	IncrementalBuildResult(boolean success) {
+		this.success = success;
+	}
+
+	/**
+	 * @return the source files which have been parsed again: the modified and added files and the files which depend on them
+	 */
+	public List<SpoonFile> getBuiltFiles() {
+		return Collections.unmodifiableList(builtFiles);
+	}
+
+	/**
+	 * @return the top-level types of the model whose qualified name did not exist before the rebuild
+	 */
+	public List<CtType<?>> getAddedTypes() {
+		return Collections.unmodifiableList(addedTypes);
+	}
+
+	/**
+	 * @return the top-level types of the model which replace a type of the same qualified name
+	 */
+	public List<CtType<?>> getChangedTypes() {
+		return Collections.unmodifiableList(changedTypes);
+	}
+
+	/**
+	 * @return the former instances of the top-level types which do not exist in the model anymore
+	 */
+	public List<CtType<?>> getRemovedTypes() {
+		return Collections.unmodifiableList(removedTypes);
+	}
+
+	/**
+	 * @return true if the rebuild has been done without errors
+	 */
+	public boolean isSuccess() {
+		return success;
+	}
+
+	/**
+	 * @return true if no file had to be built again
+	 */
+	public boolean isUpToDate() {
+		return builtFiles.isEmpty() && removedTypes.isEmpty();
+	}
+
+	void addBuiltFile(SpoonFile file) {
+		builtFiles.add(file);
+	}
+
+	void addAddedType(CtType<?> type) {
+		addedTypes.add(type);
+	}
+
+	void addChangedType(CtType<?> type) {
+		changedTypes.add(type);
+	}
+
+	void addRemovedType(CtType<?> type) {
+		removedTypes.add(type);
+	}
+}
@@ -38,19 +38,24 @@ import spoon.compiler.builder.ComplianceOptions;
 import spoon.compiler.builder.JDTBuilder;
 import spoon.compiler.builder.JDTBuilderImpl;
 import spoon.compiler.builder.SourceOptions;
+import spoon.experimental.modelobs.ChangeCollector;
 import spoon.processing.ProcessingManager;
 import spoon.processing.Processor;
+import spoon.reflect.cu.CompilationUnit;
 import spoon.reflect.declaration.CtElement;
 import spoon.reflect.declaration.CtPackage;
 import spoon.reflect.declaration.CtType;
 import spoon.reflect.factory.Factory;
+import spoon.reflect.reference.CtTypeReference;
 import spoon.reflect.visitor.AstParentConsistencyChecker;
 import spoon.reflect.visitor.DefaultJavaPrettyPrinter;
 import spoon.reflect.visitor.Filter;
 import spoon.reflect.visitor.PrettyPrinter;
 import spoon.reflect.visitor.Query;
+import spoon.reflect.visitor.filter.TypeFilter;
 import spoon.support.QueueProcessingManager;
 import spoon.support.comparator.FixedOrderBasedOnFileNameCompilationUnitComparator;
+import spoon.support.compiler.SpoonFileFingerprint;
 import spoon.support.compiler.VirtualFolder;
 
 import java.io.ByteArrayInputStream;
@@ -58,12 +63,19 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -84,6 +96,10 @@ public class JDTBasedSpoonCompiler implements spoon.SpoonModelBuilder {
 	//The classpath used to build templates
 	protected String[] templateClasspath = new String[0];
 	protected List<CompilationUnitFilter> compilationUnitFilters = new ArrayList<>();
+	//fingerprints of the source files the model has been built from, used to rebuild only the outdated files
+	protected final Map<String, SpoonFileFingerprint> fingerprints = new HashMap<>();
+	//folders added as input sources, listed again on rebuild to find the added files
+	protected final List<SpoonFolder> sourceFolders = new ArrayList<>();
 	private boolean sortList;
 
 	/**
@@ -137,9 +153,63 @@ public class JDTBasedSpoonCompiler implements spoon.SpoonModelBuilder {
 		templateSuccess = buildTemplates(builder);
 		factory.getEnvironment().debugMessage("built in " + (System.currentTimeMillis() - t) + " ms");
 		checkModel();
+		collectModelChanges();
 		return srcSuccess && templateSuccess;
 	}
 
+	/**
+	 * Called once the model is built: if only the modified compilation units are printed,
+	 * attaches a {@link ChangeCollector} to the environment to collect the modifications of the model.
+	 */
+	protected void collectModelChanges() {
+		Environment environment = factory.getEnvironment();
+		if (environment.getOutputType() == OutputType.MODIFIED_COMPILATION_UNITS && ChangeCollector.getChangeCollector(environment) == null) {
+			// the modifications of the built model are collected to know which compilation units must be printed
+			new ChangeCollector().attachTo(environment);
+		}
+	}
+
+	/**
+	 * Rebuilds the model of the source files which have been modified, added or removed since the model has been built,
+	 * and of the source files which refer directly to the types they declare.
+	 * The stale types are removed from the model before the outdated files are built again.
+	 * The references of the other types are not modified: they are resolved by name, so they refer to the rebuilt types.
+	 *
+	 * @return the files which have been built again and the types which have been added, changed or removed
+	 */
+	public IncrementalBuildResult rebuild() {
+		if (!build) {
+			throw new SpoonException("Model not built yet");
+		}
+		javaCompliance = factory.getEnvironment().getComplianceLevel();
+		refreshSources();
+
+		long t = System.currentTimeMillis();
+		IncrementalBuildResult result = buildOutdatedUnitsAndModel(null, sources, getSourceClasspath(), "");
+		reportProblems(factory.getEnvironment());
+		factory.getEnvironment().debugMessage("rebuilt " + result.getBuiltFiles().size() + " files in " + (System.currentTimeMillis() - t) + " ms");
+		checkModel();
+		return result;
+	}
+
+	/**
+	 * Forgets the deleted source files and lists the source folders again to find the added ones
+	 */
+	private void refreshSources() {
+		VirtualFolder refreshedSources = new VirtualFolder();
+		for (SpoonFile file : sources.getAllJavaFiles()) {
+			if (!file.isActualFile() || file.toFile() == null || file.toFile().exists()) {
+				refreshedSources.addFile(file);
+			}
+		}
+		for (SpoonFolder folder : sourceFolders) {
+			if (folder.toFile() == null || folder.toFile().isDirectory()) {
+				refreshedSources.addFolder(folder);
+			}
+		}
+		sources = refreshedSources;
+	}
+
 	private void checkModel() {
 		if (!factory.getEnvironment().checksAreSkipped()) {
 			factory.getModel().getUnnamedModule().accept(new AstParentConsistencyChecker());
@@ -210,6 +280,9 @@ public class JDTBasedSpoonCompiler implements spoon.SpoonModelBuilder {
 		case COMPILATION_UNITS:
 			generateProcessedSourceFilesUsingCUs();
 			break;
+		case MODIFIED_COMPILATION_UNITS:
+			generateModifiedSourceFiles();
+			break;
 		case NO_OUTPUT:
 		}
 	}
@@ -220,7 +293,9 @@ public class JDTBasedSpoonCompiler implements spoon.SpoonModelBuilder {
 			if (SpoonResourceHelper.isFile(source)) {
 				this.sources.addFile(SpoonResourceHelper.createFile(source));
 			} else {
-				this.sources.addFolder(SpoonResourceHelper.createFolder(source));
+				SpoonFolder folder = SpoonResourceHelper.createFolder(source);
+				this.sources.addFolder(folder);
+				this.sourceFolders.add(folder);
 			}
 		} catch (Exception e) {
 			throw new SpoonException(e);
@@ -233,6 +308,7 @@ public class JDTBasedSpoonCompiler implements spoon.SpoonModelBuilder {
 			this.sources.addFile((SpoonFile) source);
 		} else {
 			this.sources.addFolder((SpoonFolder) source);
+			this.sourceFolders.add((SpoonFolder) source);
 		}
 	}
 
@@ -336,7 +412,13 @@ public class JDTBasedSpoonCompiler implements spoon.SpoonModelBuilder {
 	}
 
 	protected boolean buildSources(JDTBuilder jdtBuilder) {
-		return buildUnitsAndModel(jdtBuilder, sources, getSourceClasspath(), "");
+		boolean success = buildUnitsAndModel(jdtBuilder, sources, getSourceClasspath(), "");
+		// only the modification times are read here, the content of a file is hashed once it has been modified
+		fingerprints.clear();
+		for (SpoonFile file : sources.getAllJavaFiles()) {
+			fingerprints.put(getUnitPath(file), SpoonFileFingerprint.of(file));
+		}
+		return success;
 	}
 
 	protected JDTBatchCompiler createBatchCompiler() {
@@ -384,6 +466,12 @@ public class JDTBasedSpoonCompiler implements spoon.SpoonModelBuilder {
 	 * @return true if the model has been built without errors
 	 */
 	protected boolean buildUnitsAndModel(JDTBuilder jdtBuilder, SpoonFolder sourcesFolder, String[] classpath, String debugMessagePrefix) {
+		if (isBuiltInParallel(jdtBuilder)) {
+			List<SpoonFile> sourceFiles = sourcesFolder.getAllJavaFiles();
+			if (ParallelModelBuilder.canBuild(sourceFiles)) {
+				return new ParallelModelBuilder(this, getFactory().getEnvironment().getModelBuildingThreads()).build(sourceFiles, classpath, debugMessagePrefix);
+			}
+		}
 		CompilationUnitDeclaration[] units = buildUnits(jdtBuilder, sourcesFolder, classpath, debugMessagePrefix);
 
 		// here we build the model in the template factory
@@ -392,6 +480,187 @@ public class JDTBasedSpoonCompiler implements spoon.SpoonModelBuilder {
 		return probs.size() == 0;
 	}
 
+	/**
+	 * Removes the stale types of the outdated and deleted source files from the model and builds the outdated source files again.
+	 * @param jdtBuilder The instance of JDTBuilder to prepare the right JDT arguments
+	 * @param sourcesFolder The source folder
+	 * @param classpath The complete classpath
+	 * @param debugMessagePrefix Useful to help debugging
+	 * @return the files which have been built again and the types which have been added, changed or removed
+	 */
+	private IncrementalBuildResult buildOutdatedUnitsAndModel(JDTBuilder jdtBuilder, SpoonFolder sourcesFolder, String[] classpath, String debugMessagePrefix) {
+		probs.clear();
+		List<SpoonFile> files = sourcesFolder.getAllJavaFiles();
+		Map<String, SpoonFileFingerprint> newFingerprints = new HashMap<>();
+		List<SpoonFile> outdatedFiles = getOutdatedFiles(files, newFingerprints);
+
+		// the deleted files and the outdated ones
+		Set<String> stalePaths = new HashSet<>(fingerprints.keySet());
+		stalePaths.removeAll(newFingerprints.keySet());
+		for (SpoonFile file : outdatedFiles) {
+			stalePaths.add(getUnitPath(file));
+		}
+		Map<String, CtType<?>> staleTypes = new HashMap<>();
+		for (String path : stalePaths) {
+			removeCompilationUnit(path, staleTypes);
+		}
+
+		List<SpoonFile> upToDateFiles = new ArrayList<>();
+		for (SpoonFile file : files) {
+			if (!stalePaths.contains(getUnitPath(file))) {
+				upToDateFiles.add(file);
+			}
+		}
+		buildModel(buildUnits(jdtBuilder, outdatedFiles, upToDateFiles, classpath, debugMessagePrefix));
+		fingerprints.clear();
+		fingerprints.putAll(newFingerprints);
+
+		IncrementalBuildResult result = new IncrementalBuildResult(probs.isEmpty());
+		for (SpoonFile file : outdatedFiles) {
+			result.addBuiltFile(file);
+			CompilationUnit cu = factory.CompilationUnit().getMap().get(getUnitPath(file));
+			if (cu == null) {
+				continue;
+			}
+			for (CtType<?> type : cu.getDeclaredTypes()) {
+				if (staleTypes.remove(type.getQualifiedName()) != null) {
+					result.addChangedType(type);
+				} else {
+					result.addAddedType(type);
+				}
+			}
+		}
+		for (CtType<?> type : staleTypes.values()) {
+			result.addRemovedType(type);
+		}
+		return result;
+	}
+
+	/**
+	 * Computes the source files which have to be built again.
+	 * @param files the current source files
+	 * @param newFingerprints receives the current fingerprint of each source file
+	 * @return the files modified or added since the last build, followed by the files which refer to a type declared by a modified, added or deleted file
+	 */
+	private List<SpoonFile> getOutdatedFiles(List<SpoonFile> files, Map<String, SpoonFileFingerprint> newFingerprints) {
+		List<SpoonFile> outdatedFiles = new ArrayList<>();
+		Map<String, SpoonFile> upToDateFiles = new LinkedHashMap<>();
+		// the qualified names of the types declared by the modified, added and deleted files
+		Set<String> staleTypeNames = new HashSet<>();
+		// the simple names of the added types, which the unresolved references of the other files may use
+		Set<String> addedSimpleNames = new HashSet<>();
+		for (SpoonFile file : files) {
+			String path = getUnitPath(file);
+			SpoonFileFingerprint previous = fingerprints.get(path);
+			SpoonFileFingerprint current = previous == null ? SpoonFileFingerprint.of(file) : previous.refresh(file);
+			newFingerprints.put(path, current);
+			if (previous != null && previous.isSameContent(current)) {
+				upToDateFiles.put(path, file);
+			} else {
+				outdatedFiles.add(file);
+				if (previous == null) {
+					addAddedTypeNames(file, staleTypeNames, addedSimpleNames);
+				}
+			}
+		}
+
+		// the types declared by the modified and deleted files before they changed, including the nested ones
+		for (String path : fingerprints.keySet()) {
+			CompilationUnit cu = factory.CompilationUnit().getMap().get(path);
+			if (cu != null && !upToDateFiles.containsKey(path)) {
+				addDeclaredTypeNames(cu, staleTypeNames);
+			}
+		}
+
+		// a signature change of a type appears as a direct reference to this type in each file it affects,
+		// and the other files resolve their references by name, so only the files referring directly to these types are outdated
+		if (!staleTypeNames.isEmpty()) {
+			for (Map.Entry<String, SpoonFile> entry : upToDateFiles.entrySet()) {
+				CompilationUnit cu = factory.CompilationUnit().getMap().get(entry.getKey());
+				if (cu != null && refersTo(cu, staleTypeNames, addedSimpleNames)) {
+					outdatedFiles.add(entry.getValue());
+				}
+			}
+		}
+		return outdatedFiles;
+	}
+
+	/**
+	 * Adds the qualified names of the top-level types declared by an added file to `typeNames`, and their simple names to `simpleNames`
+	 */
+	private void addAddedTypeNames(SpoonFile file, Set<String> typeNames, Set<String> simpleNames) {
+		List<String> addedTypeNames = SourceFileScanner.getDeclaredTypeNames(file, getEnvironment().getEncoding());
+		if (addedTypeNames == null) {
+			// the file cannot be scanned: the only hint about the type it declares is its name
+			addedTypeNames = Collections.singletonList(file.getName().substring(0, file.getName().length() - DefaultJavaPrettyPrinter.JAVA_FILE_EXTENSION.length()));
+		}
+		for (String typeName : addedTypeNames) {
+			typeNames.add(typeName);
+			simpleNames.add(typeName.substring(typeName.lastIndexOf('.') + 1));
+		}
+	}
+
+	/**
+	 * Adds the qualified names of the types declared by `cu`, including the nested ones, to `typeNames`
+	 */
+	private static void addDeclaredTypeNames(CompilationUnit cu, Set<String> typeNames) {
+		for (CtType<?> type : cu.getDeclaredTypes()) {
+			for (CtType<?> declaredType : type.getElements(new TypeFilter<>(CtType.class))) {
+				typeNames.add(declaredType.getQualifiedName());
+			}
+		}
+	}
+
+	/**
+	 * @return true if one of the types declared by `cu` refers to a type of one of the qualified names,
+	 * or has an unresolved reference, without package, to one of the simple names
+	 */
+	private static boolean refersTo(CompilationUnit cu, final Set<String> qualifiedNames, final Set<String> simpleNames) {
+		for (CtType<?> type : cu.getDeclaredTypes()) {
+			CtTypeReference<?> reference = type.filterChildren(new TypeFilter<CtTypeReference<?>>(CtTypeReference.class) {
+				@Override
+				public boolean matches(CtTypeReference<?> reference) {
+					return super.matches(reference)
+							&& (qualifiedNames.contains(reference.getQualifiedName())
+							|| (reference.getPackage() == null && reference.getDeclaringType() == null && simpleNames.contains(reference.getSimpleName())));
+				}
+			}).first();
+			if (reference != null) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Removes the compilation unit of `path` and the types it declares from the model
+	 * @param removedTypes receives the removed types, by qualified name
+	 */
+	private void removeCompilationUnit(String path, Map<String, CtType<?>> removedTypes) {
+		CompilationUnit cu = factory.CompilationUnit().removeFromCache(path);
+		if (cu == null) {
+			return;
+		}
+		for (CtType<?> type : cu.getDeclaredTypes()) {
+			removedTypes.put(type.getQualifiedName(), type);
+			if (type.getPackage() != null) {
+				type.getPackage().removeType(type);
+			}
+		}
+		if (cu.getUnitType() == CompilationUnit.UNIT_TYPE.PACKAGE_DECLARATION) {
+			// the annotations and comments of the package come from its package-info.java file, which is built again
+			cu.getDeclaredPackage().setAnnotations(new ArrayList<>());
+			cu.getDeclaredPackage().setComments(new ArrayList<>());
+		}
+	}
+
+	/**
+	 * @return the path of the compilation unit built from `file`
+	 */
+	protected static String getUnitPath(SpoonFile file) {
+		return file.isActualFile() ? file.getPath() : file.getName();
+	}
+
 	private static final CompilationUnitDeclaration[] EMPTY_RESULT = new CompilationUnitDeclaration[0];
 
 	/**
@@ -445,6 +714,111 @@ public class JDTBasedSpoonCompiler implements spoon.SpoonModelBuilder {
 		return units;
 	}
 
+	/**
+	 * Build the CompilationUnits of the outdated source files.
+	 * The up-to-date source files are given to JDT through its source path, so that JDT only reads them if they
+	 * declare a type used by an outdated file. Their units are not returned.
+	 * @param jdtBuilder The instance of JDTBuilder to prepare the right JDT arguments, its arguments are used as is
+	 * @param outdatedFiles The source files to build
+	 * @param upToDateFiles The other source files of the model
+	 * @param classpath The complete classpath
+	 * @param debugMessagePrefix Useful to help debugging
+	 * @return the compilationUnitDeclarations of the outdated files
+	 */
+	protected CompilationUnitDeclaration[] buildUnits(JDTBuilder jdtBuilder, List<SpoonFile> outdatedFiles, List<SpoonFile> upToDateFiles, String[] classpath, String debugMessagePrefix) {
+		if (outdatedFiles.isEmpty()) {
+			return EMPTY_RESULT;
+		}
+		List<SpoonFile> compiledFiles = new ArrayList<>(outdatedFiles);
+		Set<String> sourcepath = new LinkedHashSet<>();
+		for (SpoonFile file : upToDateFiles) {
+			String sourceRoot = getSourceRoot(file);
+			if (sourceRoot == null) {
+				// JDT cannot find it by itself
+				compiledFiles.add(file);
+			} else {
+				sourcepath.add(sourceRoot);
+			}
+		}
+		return buildUnits(jdtBuilder, compiledFiles, outdatedFiles, sourcepath.toArray(new String[0]), classpath, debugMessagePrefix);
+	}
+
+	/**
+	 * Build the CompilationUnits of some source files, which can use the types declared in the source files of a source path.
+	 * JDT only reads the files of the source path which declare a type used by the compiled files. Their units are not returned.
+	 * @param jdtBuilder The instance of JDTBuilder to prepare the right JDT arguments, its arguments are used as is
+	 * @param compiledFiles The source files given to JDT
+	 * @param builtFiles The source files among the compiled files whose units are returned
+	 * @param sourcepath The source folders in which JDT looks for the other types
+	 * @param classpath The complete classpath
+	 * @param debugMessagePrefix Useful to help debugging
+	 * @return the compilationUnitDeclarations of the built files
+	 */
+	protected CompilationUnitDeclaration[] buildUnits(JDTBuilder jdtBuilder, List<SpoonFile> compiledFiles, List<SpoonFile> builtFiles, String[] sourcepath, String[] classpath, String debugMessagePrefix) {
+		if (builtFiles.isEmpty()) {
+			return EMPTY_RESULT;
+		}
+		JDTBatchCompiler batchCompiler = createBatchCompiler(new FileCompilerConfig(compiledFiles));
+
+		String[] args;
+		if (jdtBuilder == null) {
+			args = new JDTBuilderImpl() //
+					.classpathOptions(new ClasspathOptions().encoding(this.getEnvironment().getEncoding().displayName()).classpath(classpath).sourcepath(sourcepath)) //
+					.complianceOptions(new ComplianceOptions().compliance(javaCompliance)) //
+					.advancedOptions(new AdvancedOptions().preserveUnusedVars().continueExecution().enableJavadoc()) //
+					.sources(new SourceOptions().sources(compiledFiles)) // no sources, handled by the JDTBatchCompiler
+					.build();
+		} else {
+			args = jdtBuilder.build();
+		}
+
+		getFactory().getEnvironment().debugMessage(debugMessagePrefix + "build args: " + Arrays.toString(args));
+		batchCompiler.configure(args);
+
+		Set<String> builtPaths = new HashSet<>();
+		for (SpoonFile file : builtFiles) {
+			builtPaths.add(getUnitPath(file));
+		}
+		List<CompilationUnitDeclaration> units = new ArrayList<>();
+		for (CompilationUnitDeclaration unit : batchCompiler.getUnits()) {
+			if (builtPaths.contains(new String(unit.getFileName()))) {
+				units.add(unit);
+			}
+		}
+		return units.toArray(EMPTY_RESULT);
+	}
+
+	/**
+	 * @return the source folder of an up-to-date file, computed from the package declared in its compilation unit, or null if it is unknown
+	 */
+	private String getSourceRoot(SpoonFile file) {
+		CompilationUnit cu = factory.CompilationUnit().getMap().get(getUnitPath(file));
+		if (cu == null || cu.getDeclaredPackage() == null) {
+			return null;
+		}
+		return getSourceRoot(file, cu.getDeclaredPackage().getQualifiedName());
+	}
+
+	/**
+	 * @return the source folder of a file declaring a type of the package `packageName`, or null if the file is not in the folder of this package
+	 */
+	static String getSourceRoot(SpoonFile file, String packageName) {
+		if (!file.isActualFile() || file.getFileSystemParent() == null) {
+			return null;
+		}
+		File root = file.getFileSystemParent();
+		if (!packageName.isEmpty()) {
+			String[] segments = packageName.split("\\.");
+			for (int i = segments.length - 1; i >= 0; i--) {
+				if (root == null || !segments[i].equals(root.getName())) {
+					return null;
+				}
+				root = root.getParentFile();
+			}
+		}
+		return root == null ? null : root.getPath();
+	}
+
 	protected List<CompilationUnitDeclaration> sortCompilationUnits(CompilationUnitDeclaration[] units) {
 		List<CompilationUnitDeclaration> unitList = new ArrayList<>(Arrays.asList(units));
 		if (this.sortList) {
@@ -458,27 +832,20 @@ public class JDTBasedSpoonCompiler implements spoon.SpoonModelBuilder {
 
 	protected void buildModel(CompilationUnitDeclaration[] units) {
 		JDTTreeBuilder builder = new JDTTreeBuilder(factory);
-		List<CompilationUnitDeclaration> unitList = this.sortCompilationUnits(units);
-
-		unitLoop:
-		for (CompilationUnitDeclaration unit : unitList) {
-			if (unit.isModuleInfo() || !unit.isEmpty()) {
-				final String unitPath = new String(unit.getFileName());
-				for (final CompilationUnitFilter cuf : compilationUnitFilters) {
-					if (cuf.exclude(unitPath)) {
-						// do not traverse this unit
-						continue unitLoop;
-					}
-				}
-				unit.traverse(builder, unit.scope);
-
-				if (getFactory().getEnvironment().isCommentsEnabled()) {
-					new JDTCommentBuilder(unit, factory).build();
-				}
+		for (CompilationUnitDeclaration unit : this.sortCompilationUnits(units)) {
+			if (isUnitToBeBuilt(unit)) {
+				buildUnit(builder, unit);
 			}
 		}
 
 		// we need first to go through the whole model before getting the right reference for imports
+		buildImports(Arrays.asList(units));
+	}
+
+	/**
+	 * Builds the imports of the units, once the model of all the units is built
+	 */
+	protected void buildImports(List<CompilationUnitDeclaration> units) {
 		if (getFactory().getEnvironment().isAutoImports()) {
 			for (CompilationUnitDeclaration unit : units) {
 				new JDTImportBuilder(unit, factory).build();
@@ -486,6 +853,42 @@ public class JDTBasedSpoonCompiler implements spoon.SpoonModelBuilder {
 		}
 	}
 
+	/**
+	 * @return true if the model of the sources is built by several compilers in parallel, see {@link Environment#setModelBuildingThreads(int)}.
+	 * It is not if the JDT arguments are given by `jdtBuilder` or if the JDT name environment is set, because they cannot be split between the compilers.
+	 */
+	protected boolean isBuiltInParallel(JDTBuilder jdtBuilder) {
+		return getFactory().getEnvironment().getModelBuildingThreads() > 1 && jdtBuilder == null && environment == null;
+	}
+
+	/**
+	 * @return false if the unit is empty or excluded by one of the {@link CompilationUnitFilter}s
+	 */
+	protected boolean isUnitToBeBuilt(CompilationUnitDeclaration unit) {
+		if (unit.isModuleInfo() || !unit.isEmpty()) {
+			final String unitPath = new String(unit.getFileName());
+			for (final CompilationUnitFilter cuf : compilationUnitFilters) {
+				if (cuf.exclude(unitPath)) {
+					// do not traverse this unit
+					return false;
+				}
+			}
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Builds the model of one unit into the factory of the given builder.
+	 */
+	protected void buildUnit(JDTTreeBuilder builder, CompilationUnitDeclaration unit) {
+		unit.traverse(builder, unit.scope);
+
+		if (builder.getFactory().getEnvironment().isCommentsEnabled()) {
+			new JDTCommentBuilder(unit, builder.getFactory()).build();
+		}
+	}
+
 	protected void generateProcessedSourceFilesUsingTypes(Filter<CtType<?>> typeFilter) {
 		if (factory.getEnvironment().getDefaultFileGenerator() != null) {
 			factory.getEnvironment().debugMessage("Generating source using types...");
@@ -500,6 +903,96 @@ public class JDTBasedSpoonCompiler implements spoon.SpoonModelBuilder {
 	}
 
 	protected void generateProcessedSourceFilesUsingCUs() {
+		generateProcessedSourceFilesUsingCUs(null);
+	}
+
+	/**
+	 * Prints the compilation units which contain a modified element (see {@link #getModifiedCompilationUnits()})
+	 * and copies the source files of the other ones.
+	 * The top-level types which are not declared by a compilation unit of the model, such as the created ones, are printed as with {@link OutputType#CLASSES}.
+	 */
+	protected void generateModifiedSourceFiles() {
+		generateProcessedSourceFilesUsingCUs(getModifiedCompilationUnits());
+
+		List<CtType<?>> newTypes = new ArrayList<>();
+		for (CtType<?> type : factory.Type().getAll()) {
+			if (!isDeclaredByCompilationUnit(type)) {
+				newTypes.add(type);
+			}
+		}
+		if (!newTypes.isEmpty() && factory.getEnvironment().getDefaultFileGenerator() != null) {
+			ProcessingManager processing = new QueueProcessingManager(factory);
+			processing.addProcessor(factory.getEnvironment().getDefaultFileGenerator());
+			processing.process(newTypes);
+		}
+	}
+
+	/**
+	 * @return true if `type` is one of the types declared by its compilation unit.
+	 * A created type has no compilation unit, and a cloned type has the compilation unit of the original type, which does not declare the clone.
+	 */
+	private static boolean isDeclaredByCompilationUnit(CtType<?> type) {
+		CompilationUnit cu = type.getPosition().getCompilationUnit();
+		if (cu == null) {
+			return false;
+		}
+		for (CtType<?> declaredType : cu.getDeclaredTypes()) {
+			if (declaredType == type) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return the compilation units which contain an element modified since the model has been built,
+	 * or null if the modifications are unknown because no {@link ChangeCollector} is attached to the environment
+	 */
+	protected Set<CompilationUnit> getModifiedCompilationUnits() {
+		ChangeCollector changeCollector = ChangeCollector.getChangeCollector(factory.getEnvironment());
+		if (changeCollector == null) {
+			return null;
+		}
+		Set<CompilationUnit> modifiedUnits = Collections.newSetFromMap(new IdentityHashMap<CompilationUnit, Boolean>());
+		for (CtElement element : changeCollector.getChangedElements()) {
+			if (element instanceof CtPackage) {
+				// a compilation unit whose type has been removed from its package has to be printed again
+				CtPackage pack = (CtPackage) element;
+				for (CompilationUnit cu : factory.CompilationUnit().getMap().values()) {
+					if (cu.getDeclaredPackage() == pack && cu.getDeclaredTypes().stream().anyMatch(type -> pack.getType(type.getSimpleName()) != type)) {
+						modifiedUnits.add(cu);
+					}
+				}
+				continue;
+			}
+			CompilationUnit cu = getCompilationUnit(element);
+			if (cu != null) {
+				modifiedUnits.add(cu);
+			}
+		}
+		return modifiedUnits;
+	}
+
+	/**
+	 * @return the compilation unit of the source file which contains `element` or null if there is none
+	 */
+	private static CompilationUnit getCompilationUnit(CtElement element) {
+		while (element != null && !(element instanceof CtPackage)) {
+			CompilationUnit cu = element.getPosition().getCompilationUnit();
+			if (cu != null) {
+				return cu;
+			}
+			// a new element is in the compilation unit of its parent
+			element = element.isParentInitialized() ? element.getParent() : null;
+		}
+		return null;
+	}
+
+	/**
+	 * Prints the compilation units of the model, but the ones which are not in `modifiedUnits`, whose source files are copied.
+	 * @param modifiedUnits the compilation units to print or null to print all of them
+	 */
+	protected void generateProcessedSourceFilesUsingCUs(Set<CompilationUnit> modifiedUnits) {
 
 		File outputDirectory = getSourceOutputDirectory();
 
@@ -554,13 +1047,18 @@ public class JDTBasedSpoonCompiler implements spoon.SpoonModelBuilder {
 			// print type
 			try {
 				File file = new File(packageDir.getAbsolutePath() + File.separatorChar + element.getSimpleName() + DefaultJavaPrettyPrinter.JAVA_FILE_EXTENSION);
-				file.createNewFile();
+				if (modifiedUnits != null && !modifiedUnits.contains(cu) && cu.getFile() != null && cu.getFile().isFile()) {
+					// the source file of an unmodified compilation unit is copied verbatim
+					Files.copy(cu.getFile().toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+				} else {
+					file.createNewFile();
 
-				// the path must be given relatively to to the working directory
-				try (InputStream is = getCompilationUnitInputStream(cu.getFile().getPath());
-					FileOutputStream outFile = new FileOutputStream(file);) {
+					// the path must be given relatively to to the working directory
+					try (InputStream is = getCompilationUnitInputStream(cu.getFile().getPath());
+						FileOutputStream outFile = new FileOutputStream(file);) {
 
-					IOUtils.copy(is, outFile);
+						IOUtils.copy(is, outFile);
+					}
 				}
 
 				if (!printedFiles.contains(file)) {
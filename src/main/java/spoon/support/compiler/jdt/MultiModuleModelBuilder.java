@@ -0,0 +1,437 @@
+/**
+ * Copyright (C) 2006-2017 INRIA and contributors
+ * Spoon - http://spoon.gforge.inria.fr/
+ *
+ * This software is governed by the CeCILL-C License under French law and
+ * abiding by the rules of distribution of free software. You can use, modify
+ * and/or redistribute the software under the terms of the CeCILL-C license as
+ * circulated by CEA, CNRS and INRIA at http://www.cecill.info.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the CeCILL-C License for more details.
+ *
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-C license and that you accept its terms.
+ */
+package spoon.support.compiler.jdt;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.log4j.Level;
+import org.eclipse.jdt.core.compiler.CategorizedProblem;
+import org.eclipse.jdt.core.compiler.IProblem;
+import org.eclipse.jdt.internal.compiler.ast.CompilationUnitDeclaration;
+import spoon.SpoonException;
+import spoon.compiler.Environment;
+import spoon.compiler.SpoonFile;
+import spoon.compiler.SpoonFolder;
+import spoon.compiler.SpoonResourceHelper;
+import spoon.compiler.builder.JDTBuilder;
+import spoon.reflect.code.CtInvocation;
+import spoon.reflect.code.CtStatement;
+import spoon.reflect.declaration.CtAnonymousExecutable;
+import spoon.reflect.declaration.CtClass;
+import spoon.reflect.declaration.CtConstructor;
+import spoon.reflect.declaration.CtEnumValue;
+import spoon.reflect.declaration.CtField;
+import spoon.reflect.declaration.CtMethod;
+import spoon.reflect.declaration.CtType;
+import spoon.reflect.declaration.ModifierKind;
+import spoon.reflect.factory.Factory;
+import spoon.reflect.visitor.DefaultJavaPrettyPrinter;
+import spoon.reflect.visitor.filter.TypeFilter;
+import spoon.support.compiler.VirtualFolder;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Builds the model of a project made of several modules, e.g. the modules of a Maven project, one module after the other.
+ *
+ * Each module is built by its own compiler on a private {@link Factory}, as the workers of {@link ParallelModelBuilder},
+ * and its model is then merged into the model of the project's compiler.
+ * So the JDT structures of a module are released once it is built, instead of the JDT structures of all the modules being kept at once.
+ * The modules are built in the order of their dependencies, and the modules which do not depend on each other
+ * are built in parallel with {@link Environment#getModelBuildingThreads()} threads.
+ *
+ * The sources of the modules a module depends on are not compiled again: once a module is built, stubs of its types are printed from its model
+ * into a temporary directory, with the bodies of their executables replaced by {@code throw null;},
+ * and the stub directories of the modules a module depends on are given to JDT through its source path.
+ * The built references to these types are resolved by name to the types of their modules, as all the modules are merged into the same model.
+ * The compilation errors of the stubs do not fail the build of the modules depending on them, they are reported as warnings naming the module of the stub.
+ * The templates of the compiler are built once all the modules are built.
+ */
+public class MultiModuleModelBuilder {
+	private final JDTBasedSpoonCompiler compiler;
+	private final Factory factory;
+	private final Map<String, Module> modules = new LinkedHashMap<>();
+	private File stubRoot;
+
+	/**
+	 * @param compiler the compiler of the project, into whose model the modules are built
+	 */
+	public MultiModuleModelBuilder(JDTBasedSpoonCompiler compiler) {
+		this.compiler = compiler;
+		this.factory = compiler.getFactory();
+	}
+
+	/**
+	 * Adds a module to build.
+	 * @param name the unique name of the module, e.g. its Maven coordinates
+	 * @param sourceDirectories the source directories of the module
+	 * @param classpath the classpath of the module
+	 * @param dependencies the names of the modules it depends on, the names of the modules which are not added are ignored
+	 */
+	public MultiModuleModelBuilder addModule(String name, List<File> sourceDirectories, String[] classpath, Collection<String> dependencies) {
+		SpoonFolder sources = new VirtualFolder();
+		for (File sourceDirectory : sourceDirectories) {
+			try {
+				sources.addFolder(SpoonResourceHelper.createFolder(sourceDirectory));
+			} catch (FileNotFoundException e) {
+				throw new SpoonException(e);
+			}
+		}
+		return addModule(name, sources, classpath, dependencies);
+	}
+
+	/**
+	 * Adds a module to build.
+	 * @param name the unique name of the module, e.g. its Maven coordinates
+	 * @param sources the sources of the module
+	 * @param classpath the classpath of the module
+	 * @param dependencies the names of the modules it depends on, the names of the modules which are not added are ignored
+	 */
+	public MultiModuleModelBuilder addModule(String name, SpoonFolder sources, String[] classpath, Collection<String> dependencies) {
+		if (modules.containsKey(name)) {
+			throw new SpoonException("The module " + name + " is already added");
+		}
+		modules.put(name, new Module(name, sources, classpath, dependencies));
+		return this;
+	}
+
+	/**
+	 * Builds all the modules, then the templates of the compiler, into the model of the compiler.
+	 * @return true if no module and no template has compilation errors
+	 */
+	public boolean build() {
+		if (compiler.build) {
+			throw new SpoonException("Model already built");
+		}
+		compiler.build = true;
+		compiler.javaCompliance = factory.getEnvironment().getComplianceLevel();
+
+		List<Module> remaining = new ArrayList<>(modules.values());
+		Set<String> built = new HashSet<>();
+		int threads = factory.getEnvironment().getModelBuildingThreads();
+		ExecutorService executor = threads > 1 ? Executors.newFixedThreadPool(threads) : null;
+		boolean success = true;
+		try {
+			stubRoot = Files.createTempDirectory("spoon-stubs").toFile().getCanonicalFile();
+			Set<String> upstreamModules = new HashSet<>();
+			int index = 0;
+			for (Module module : remaining) {
+				upstreamModules.addAll(module.getModuleDependencies());
+				module.stubDirectory = new File(stubRoot, String.valueOf(index++));
+			}
+			for (Module module : remaining) {
+				module.writeStubs = upstreamModules.contains(module.name);
+			}
+			while (!remaining.isEmpty()) {
+				// the modules whose dependencies are built
+				List<Module> ready = new ArrayList<>();
+				for (Module module : remaining) {
+					if (built.containsAll(module.getModuleDependencies())) {
+						ready.add(module);
+					}
+				}
+				if (ready.isEmpty()) {
+					throw new SpoonException("Cyclic dependencies between the modules " + getNames(remaining));
+				}
+				remaining.removeAll(ready);
+
+				List<Future<ModuleCompiler>> workers = new ArrayList<>(ready.size());
+				for (final Module module : ready) {
+					if (executor == null) {
+						ModuleCompiler moduleCompiler = module.build();
+						ParallelModelBuilder.merge(moduleCompiler.getFactory(), factory);
+						success &= moduleCompiler.isSuccess();
+					} else {
+						workers.add(executor.submit(module::build));
+					}
+				}
+				for (Future<ModuleCompiler> worker : workers) {
+					ModuleCompiler moduleCompiler = ParallelModelBuilder.getWorkerResult(worker);
+					ParallelModelBuilder.merge(moduleCompiler.getFactory(), factory);
+					success &= moduleCompiler.isSuccess();
+				}
+				for (Module module : ready) {
+					built.add(module.name);
+				}
+			}
+		} catch (IOException e) {
+			throw new SpoonException("Cannot create the stub directory of the modules", e);
+		} finally {
+			if (executor != null) {
+				executor.shutdownNow();
+			}
+			if (stubRoot != null) {
+				FileUtils.deleteQuietly(stubRoot);
+			}
+		}
+		success &= compiler.buildTemplates(null);
+		compiler.collectModelChanges();
+		return success;
+	}
+
+	/**
+	 * Prints stubs of the types of `moduleFactory` into `directory`: the types with their signatures,
+	 * in which JDT can resolve the references of the modules depending on them, but without their code
+	 */
+	private static void writeStubs(Factory moduleFactory, File directory) {
+		Environment environment = moduleFactory.getEnvironment();
+		// the source path of the modules depending on this one must exist, even if it declares no type
+		directory.mkdirs();
+		for (CtType<?> type : moduleFactory.getModel().getAllTypes()) {
+			CtType<?> stub = createStub(type);
+			File file = new File(directory, type.getQualifiedName().replace('.', File.separatorChar) + DefaultJavaPrettyPrinter.JAVA_FILE_EXTENSION);
+			file.getParentFile().mkdirs();
+			try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), environment.getEncoding())) {
+				new DefaultJavaPrettyPrinter(environment).calculate(null, Collections.<CtType<?>>singletonList(stub), writer);
+			} catch (IOException e) {
+				throw new SpoonException("Cannot write the stub of " + type.getQualifiedName(), e);
+			}
+		}
+	}
+
+	/**
+	 * @return a copy of `type`, whose methods throw null, whose constructors only call their super or this constructor,
+	 * and whose fields are only initialized if they are constants
+	 */
+	private static CtType<?> createStub(CtType<?> type) {
+		CtType<?> stub = type.clone();
+		stub.setParent(type.getParent());
+		Factory factory = type.getFactory();
+		for (CtAnonymousExecutable initializer : stub.getElements(new TypeFilter<>(CtAnonymousExecutable.class))) {
+			initializer.delete();
+		}
+		for (CtField<?> field : stub.getElements(new TypeFilter<>(CtField.class))) {
+			if (field.getDeclaringType() instanceof CtClass && !(field instanceof CtEnumValue) && !isConstant(field)) {
+				field.setDefaultExpression(null);
+				field.removeModifier(ModifierKind.FINAL);
+			}
+		}
+		for (CtMethod<?> method : stub.getElements(new TypeFilter<>(CtMethod.class))) {
+			if (method.getBody() != null) {
+				method.setBody(factory.Code().createCtBlock(factory.Code().createCodeSnippetStatement("throw null")));
+			}
+		}
+		for (CtConstructor<?> constructor : stub.getElements(new TypeFilter<>(CtConstructor.class))) {
+			if (constructor.getBody() == null) {
+				continue;
+			}
+			CtStatement first = constructor.getBody().getStatements().isEmpty() ? null : constructor.getBody().getStatement(0);
+			if (first instanceof CtInvocation && ((CtInvocation<?>) first).getExecutable().isConstructor()) {
+				constructor.setBody(factory.Code().createCtBlock(first.clone()));
+			} else {
+				constructor.setBody(factory.Core().createBlock());
+			}
+		}
+		return stub;
+	}
+
+	/**
+	 * @return true if `field` is a constant, whose value can be used by the compiler in the modules depending on it
+	 */
+	private static boolean isConstant(CtField<?> field) {
+		return field.hasModifier(ModifierKind.FINAL) && field.getDefaultExpression() != null
+				&& (field.getType().isPrimitive() || String.class.getName().equals(field.getType().getQualifiedName()));
+	}
+
+	private static List<String> getNames(List<Module> modules) {
+		List<String> names = new ArrayList<>();
+		for (Module module : modules) {
+			names.add(module.name);
+		}
+		return names;
+	}
+
+	private class Module {
+		private final String name;
+		private final SpoonFolder sources;
+		private final String[] classpath;
+		private final Collection<String> dependencies;
+		private File stubDirectory;
+		private boolean writeStubs;
+
+		Module(String name, SpoonFolder sources, String[] classpath, Collection<String> dependencies) {
+			this.name = name;
+			this.sources = sources;
+			this.classpath = classpath;
+			this.dependencies = new ArrayList<>(dependencies);
+		}
+
+		/**
+		 * @return the names of the added modules this module depends on
+		 */
+		Set<String> getModuleDependencies() {
+			Set<String> moduleDependencies = new LinkedHashSet<>();
+			for (String dependency : dependencies) {
+				if (modules.containsKey(dependency) && !dependency.equals(name)) {
+					moduleDependencies.add(dependency);
+				}
+			}
+			return moduleDependencies;
+		}
+
+		/**
+		 * @return the stub directories of the modules this module depends on, directly or not, with the names of these modules
+		 */
+		Map<String, String> getStubDirectories() {
+			Map<String, String> stubDirectories = new LinkedHashMap<>();
+			Set<String> visited = new HashSet<>();
+			List<Module> toVisit = new ArrayList<>();
+			toVisit.add(this);
+			while (!toVisit.isEmpty()) {
+				Module module = toVisit.remove(toVisit.size() - 1);
+				for (String dependency : module.getModuleDependencies()) {
+					if (visited.add(dependency)) {
+						Module dependencyModule = modules.get(dependency);
+						stubDirectories.put(dependencyModule.stubDirectory.getAbsolutePath(), dependency);
+						toVisit.add(dependencyModule);
+					}
+				}
+			}
+			return stubDirectories;
+		}
+
+		/**
+		 * Builds the model of the module into a new factory, and the stubs of its types if other modules depend on it
+		 */
+		ModuleCompiler build() {
+			ModuleCompiler moduleCompiler = new ModuleCompiler(ParallelModelBuilder.createWorkerFactory(factory), classpath, getStubDirectories());
+			moduleCompiler.compilationUnitFilters.addAll(compiler.compilationUnitFilters);
+			moduleCompiler.addInputSource(sources);
+			moduleCompiler.success = moduleCompiler.build();
+			if (writeStubs) {
+				writeStubs(moduleCompiler.getFactory(), stubDirectory);
+			}
+			return moduleCompiler;
+		}
+	}
+
+	/**
+	 * The compiler of a module, with its own classpath and the source path of the stubs of the modules it depends on
+	 */
+	private static class ModuleCompiler extends JDTBasedSpoonCompiler {
+		private final String[] classpath;
+		private final String[] sourcepath;
+		/**
+		 * the names of the modules this module depends on, by the path of their stub directory
+		 */
+		private final Map<String, String> stubModules = new LinkedHashMap<>();
+		/**
+		 * the errors of the stubs, with the name of the module of each stub
+		 */
+		private final Map<CategorizedProblem, String> stubProblems = new LinkedHashMap<>();
+		private boolean success;
+
+		ModuleCompiler(Factory factory, String[] classpath, Map<String, String> stubDirectories) {
+			super(factory);
+			this.classpath = classpath;
+			this.sourcepath = stubDirectories.keySet().toArray(new String[0]);
+			for (Map.Entry<String, String> stubDirectory : stubDirectories.entrySet()) {
+				stubModules.put(stubDirectory.getKey() + File.separator, stubDirectory.getValue());
+			}
+		}
+
+		@Override
+		public String[] getSourceClasspath() {
+			return classpath;
+		}
+
+		@Override
+		protected CompilationUnitDeclaration[] buildUnits(JDTBuilder jdtBuilder, SpoonFolder sourcesFolder, String[] classpath, String debugMessagePrefix) {
+			List<SpoonFile> sourceFiles = sourcesFolder.getAllJavaFiles();
+			return buildUnits(jdtBuilder, sourceFiles, sourceFiles, sourcepath, classpath, debugMessagePrefix);
+		}
+
+		@Override
+		protected boolean isBuiltInParallel(JDTBuilder jdtBuilder) {
+			// the modules are built in parallel, and the stubs of the modules it depends on are only in the source path of this compiler
+			return false;
+		}
+
+		@Override
+		public void reportProblem(CategorizedProblem pb) {
+			String stubModule = getStubModule(pb);
+			if (stubModule == null) {
+				super.reportProblem(pb);
+			} else if (pb.isError()) {
+				// the problems of the stubs are not the ones of this module, they are reported as warnings
+				stubProblems.put(pb, stubModule);
+			}
+		}
+
+		/**
+		 * @return the name of the module whose stub `problem` is in, or null if it is not in a stub
+		 */
+		private String getStubModule(CategorizedProblem problem) {
+			if (problem == null || problem.getOriginatingFileName() == null) {
+				return null;
+			}
+			String path = new String(problem.getOriginatingFileName());
+			for (Map.Entry<String, String> stubModule : stubModules.entrySet()) {
+				if (path.startsWith(stubModule.getKey())) {
+					return stubModule.getValue();
+				}
+			}
+			return null;
+		}
+
+		@Override
+		public void reportProblems(Environment environment) {
+			// the modules can be built in parallel
+			synchronized (environment) {
+				super.reportProblems(environment);
+				for (Map.Entry<CategorizedProblem, String> stubProblem : stubProblems.entrySet()) {
+					CategorizedProblem problem = stubProblem.getKey();
+					int problemId = problem.getID();
+					if (environment.getNoClasspath() && (problemId == IProblem.UndefinedType || problemId == IProblem.UndefinedName
+							|| problemId == IProblem.ImportNotFound)) {
+						// as in the module itself, the types missing from the classpath are irrelevant
+						continue;
+					}
+					environment.report(null, Level.WARN, "The stub of the module " + stubProblem.getValue() + " does not compile, the references to it may not be resolved: "
+							+ problem.getMessage() + " at " + new String(problem.getOriginatingFileName()) + ":" + problem.getSourceLineNumber());
+				}
+				stubProblems.clear();
+			}
+		}
+
+		@Override
+		protected void collectModelChanges() {
+			// the changes are collected once all the modules are merged into the model of the project
+		}
+
+		boolean isSuccess() {
+			return success;
+		}
+	}
+}
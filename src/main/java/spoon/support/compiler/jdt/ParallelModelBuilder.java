@@ -0,0 +1,333 @@
+/**
+ * Copyright (C) 2006-2017 INRIA and contributors
+ * Spoon - http://spoon.gforge.inria.fr/
+ *
+ * This software is governed by the CeCILL-C License under French law and
+ * abiding by the rules of distribution of free software. You can use, modify
+ * and/or redistribute the software under the terms of the CeCILL-C license as
+ * circulated by CEA, CNRS and INRIA at http://www.cecill.info.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the CeCILL-C License for more details.
+ *
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-C license and that you accept its terms.
+ */
+package spoon.support.compiler.jdt;
+
+import org.apache.commons.io.IOUtils;
+import org.eclipse.jdt.core.compiler.CategorizedProblem;
+import org.eclipse.jdt.core.compiler.CharOperation;
+import org.eclipse.jdt.internal.compiler.ast.CompilationUnitDeclaration;
+import org.eclipse.jdt.internal.compiler.batch.CompilationUnit;
+import org.eclipse.jdt.internal.compiler.env.INameEnvironment;
+import org.eclipse.jdt.internal.compiler.env.NameEnvironmentAnswer;
+import spoon.SpoonException;
+import spoon.compiler.SpoonFile;
+import spoon.reflect.code.CtComment;
+import spoon.reflect.declaration.CtAnnotation;
+import spoon.reflect.declaration.CtElement;
+import spoon.reflect.declaration.CtPackage;
+import spoon.reflect.declaration.CtType;
+import spoon.reflect.factory.CoreFactory;
+import spoon.reflect.factory.Factory;
+import spoon.reflect.factory.FactoryImpl;
+import spoon.reflect.visitor.CtScanner;
+import spoon.reflect.visitor.DefaultJavaPrettyPrinter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.annotation.Annotation;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Builds the Spoon model of source files with several threads.
+ *
+ * The files are split into as many partitions as threads, and each partition is built by a worker:
+ * a compiler with its own JDT compilation, so its own JDT lookup environment, which builds the model of its files into a private {@link Factory}.
+ * The workers share no JDT structure and no model element, so they run fully in parallel.
+ * JDT finds the types of the other partitions through the name environment of the worker, by their qualified name,
+ * the top-level types declared by each file being read beforehand with the JDT scanner:
+ * it reads the file which declares such a type when the partition uses it, but its unit is not built into the model by this worker.
+ * When all partitions are built, the private models are merged one after the other into the model of the compiler's factory,
+ * then the imports of the units are built in the model of the compiler's factory.
+ * These two steps are the only ones which modify the shared model and they run in the calling thread.
+ */
+class ParallelModelBuilder {
+	private final JDTBasedSpoonCompiler compiler;
+	private final Factory factory;
+	private final int threads;
+
+	ParallelModelBuilder(JDTBasedSpoonCompiler compiler, int threads) {
+		this.compiler = compiler;
+		this.factory = compiler.getFactory();
+		this.threads = threads;
+	}
+
+	/**
+	 * @return true if the model of these files can be built in parallel: the module declarations are built in the model of the compiler, which the workers do not share
+	 */
+	static boolean canBuild(List<SpoonFile> files) {
+		if (files.size() < 2) {
+			return false;
+		}
+		for (SpoonFile file : files) {
+			if (file.getName().equals("module-info" + DefaultJavaPrettyPrinter.JAVA_FILE_EXTENSION)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Builds the files and merges their model into the model of the compiler
+	 * @return true if the files have been built without errors
+	 */
+	boolean build(List<SpoonFile> files, final String[] classpath, final String debugMessagePrefix) {
+		// the files declaring the top-level types, by qualified name
+		final Map<String, SpoonFile> inputTypes = new HashMap<>();
+		final Set<String> inputPackages = new HashSet<>();
+		Charset encoding = factory.getEnvironment().getEncoding();
+		for (SpoonFile file : files) {
+			List<String> typeNames = SourceFileScanner.getDeclaredTypeNames(file, encoding);
+			if (typeNames == null) {
+				continue;
+			}
+			for (String typeName : typeNames) {
+				inputTypes.put(typeName, file);
+				for (int i = typeName.indexOf('.'); i >= 0; i = typeName.indexOf('.', i + 1)) {
+					inputPackages.add(typeName.substring(0, i));
+				}
+			}
+		}
+
+		// contiguous partitions, as the files of a package, which often use each other, are listed together
+		int workerCount = Math.min(threads, files.size());
+		ExecutorService executor = Executors.newFixedThreadPool(workerCount);
+		// as the batch compiler of a sequential build, the problems of a previous build are forgotten
+		compiler.probs.clear();
+		try {
+			List<Future<PartitionCompiler>> workers = new ArrayList<>(workerCount);
+			for (int i = 0; i < workerCount; i++) {
+				final List<SpoonFile> partition = files.subList(i * files.size() / workerCount, (i + 1) * files.size() / workerCount);
+				workers.add(executor.submit(() -> buildPartition(partition, inputTypes, inputPackages, classpath, debugMessagePrefix)));
+			}
+			List<CompilationUnitDeclaration> units = new ArrayList<>();
+			for (Future<PartitionCompiler> worker : workers) {
+				PartitionCompiler partitionCompiler = getWorkerResult(worker);
+				merge(partitionCompiler.getFactory(), factory);
+				compiler.probs.addAll(partitionCompiler.getProblems());
+				units.addAll(Arrays.asList(partitionCompiler.units));
+			}
+			compiler.buildImports(units);
+		} finally {
+			executor.shutdownNow();
+		}
+		return compiler.probs.isEmpty();
+	}
+
+	/**
+	 * Builds the model of the files of a partition into a new factory
+	 */
+	private PartitionCompiler buildPartition(List<SpoonFile> partition, Map<String, SpoonFile> inputTypes, Set<String> inputPackages, String[] classpath, String debugMessagePrefix) {
+		PartitionCompiler partitionCompiler = new PartitionCompiler(createWorkerFactory(factory), partition, inputTypes, inputPackages);
+		partitionCompiler.javaCompliance = compiler.javaCompliance;
+		partitionCompiler.compilationUnitFilters.addAll(compiler.compilationUnitFilters);
+		partitionCompiler.units = partitionCompiler.buildUnits(null, partition, partition, new String[0], classpath, debugMessagePrefix);
+		partitionCompiler.buildModel(partitionCompiler.units);
+		return partitionCompiler;
+	}
+
+	/**
+	 * @return a new factory, with the same environment as `factory`, whose model can be built by another thread and then merged into the model of `factory`
+	 */
+	static Factory createWorkerFactory(Factory factory) {
+		CoreFactory coreFactory;
+		try {
+			coreFactory = factory.Core().getClass().getConstructor().newInstance();
+		} catch (ReflectiveOperationException e) {
+			throw new SpoonException("Cannot create the core factory of a model building thread", e);
+		}
+		return new FactoryImpl(coreFactory, factory.getEnvironment());
+	}
+
+	/**
+	 * @return the result of a worker, its exception being thrown again in the calling thread
+	 */
+	static <T> T getWorkerResult(Future<T> worker) {
+		try {
+			return worker.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SpoonException("Model building has been interrupted", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new SpoonException(e.getCause());
+		}
+	}
+
+	/**
+	 * Moves all the packages, types and compilation units of the worker's model into the model of `factory`.
+	 */
+	static void merge(Factory workerFactory, final Factory factory) {
+		CtPackage workerRootPackage = workerFactory.getModel().getRootPackage();
+		new CtScanner() {
+			@Override
+			protected void enter(CtElement e) {
+				e.setFactory(factory);
+			}
+		}.scan(workerRootPackage);
+
+		// the package names must be computed before the packages are moved
+		Map<CompilationUnit, String> declaredPackages = new IdentityHashMap<>();
+		for (CompilationUnit cu : workerFactory.CompilationUnit().getMap().values()) {
+			if (cu.getDeclaredPackage() != null) {
+				declaredPackages.put(cu, cu.getDeclaredPackage().getQualifiedName());
+			}
+		}
+
+		mergePackage(workerRootPackage, factory.getModel().getRootPackage());
+
+		for (Map.Entry<String, CompilationUnit> entry : workerFactory.CompilationUnit().getMap().entrySet()) {
+			CompilationUnit cu = entry.getValue();
+			cu.setFactory(factory);
+			String packageName = declaredPackages.get(cu);
+			if (packageName != null) {
+				cu.setDeclaredPackage(factory.Package().getOrCreate(packageName));
+			}
+			factory.CompilationUnit().getMap().put(entry.getKey(), cu);
+		}
+	}
+
+	private static void mergePackage(CtPackage from, CtPackage to) {
+		for (CtType<?> type : new ArrayList<>(from.getTypes())) {
+			to.addType(type);
+		}
+		for (CtPackage subPackage : new ArrayList<>(from.getPackages())) {
+			CtPackage existing = to.getPackage(subPackage.getSimpleName());
+			if (existing == null) {
+				to.addPackage(subPackage);
+			} else {
+				mergePackage(subPackage, existing);
+			}
+		}
+		// the declaration of a package (package-info.java) is built by only one of the workers
+		if (to.getAnnotations().isEmpty() && !from.getAnnotations().isEmpty()) {
+			to.setAnnotations(new ArrayList<CtAnnotation<? extends Annotation>>(from.getAnnotations()));
+		}
+		if (to.getComments().isEmpty() && !from.getComments().isEmpty()) {
+			to.setComments(new ArrayList<CtComment>(from.getComments()));
+		}
+		if (!to.getPosition().isValidPosition() && from.getPosition().isValidPosition()) {
+			to.setPosition(from.getPosition());
+		}
+	}
+
+	/**
+	 * The compiler of a partition, which finds the types of the other partitions through its JDT name environment
+	 */
+	private static class PartitionCompiler extends JDTBasedSpoonCompiler {
+		private final Set<String> builtPaths = new HashSet<>();
+		private final Map<String, SpoonFile> inputTypes;
+		private final Set<String> inputPackages;
+		private CompilationUnitDeclaration[] units;
+
+		PartitionCompiler(Factory factory, List<SpoonFile> partition, Map<String, SpoonFile> inputTypes, Set<String> inputPackages) {
+			super(factory);
+			for (SpoonFile file : partition) {
+				builtPaths.add(getUnitPath(file));
+			}
+			this.inputTypes = inputTypes;
+			this.inputPackages = inputPackages;
+		}
+
+		@Override
+		protected JDTBatchCompiler createBatchCompiler() {
+			return new JDTBatchCompiler(this) {
+				@Override
+				public CompilationUnitDeclaration[] getUnits() {
+					// the arguments are configured, so the classpath is known
+					PartitionCompiler.this.environment = new InputNameEnvironment(getLibraryAccess());
+					return super.getUnits();
+				}
+			};
+		}
+
+		@Override
+		public void reportProblem(CategorizedProblem pb) {
+			// the problems of the files of the other partitions are reported by their own worker
+			if (pb != null && pb.getOriginatingFileName() != null && !builtPaths.contains(new String(pb.getOriginatingFileName()))) {
+				return;
+			}
+			super.reportProblem(pb);
+		}
+
+		@Override
+		protected void buildImports(List<CompilationUnitDeclaration> units) {
+			// the imports are built once all the partitions are merged into the model of the compiler
+		}
+
+		/**
+		 * Finds the types of the input files by their qualified name, and the other types in the classpath
+		 */
+		private class InputNameEnvironment implements INameEnvironment {
+			private final INameEnvironment libraries;
+
+			InputNameEnvironment(INameEnvironment libraries) {
+				this.libraries = libraries;
+			}
+
+			@Override
+			public NameEnvironmentAnswer findType(char[][] compoundTypeName) {
+				NameEnvironmentAnswer answer = findInputType(CharOperation.toString(compoundTypeName));
+				return answer != null ? answer : libraries.findType(compoundTypeName);
+			}
+
+			@Override
+			public NameEnvironmentAnswer findType(char[] typeName, char[][] packageName) {
+				String qualifiedName = packageName == null || packageName.length == 0 ? new String(typeName) : CharOperation.toString(packageName) + "." + new String(typeName);
+				NameEnvironmentAnswer answer = findInputType(qualifiedName);
+				return answer != null ? answer : libraries.findType(typeName, packageName);
+			}
+
+			private NameEnvironmentAnswer findInputType(String qualifiedName) {
+				SpoonFile file = inputTypes.get(qualifiedName);
+				if (file == null) {
+					return null;
+				}
+				try (InputStream inputStream = file.getContent()) {
+					char[] content = IOUtils.toCharArray(inputStream, getEnvironment().getEncoding());
+					return new NameEnvironmentAnswer(new CompilationUnit(content, getUnitPath(file), null), null);
+				} catch (IOException e) {
+					throw new SpoonException("Cannot read " + file.getPath(), e);
+				}
+			}
+
+			@Override
+			public boolean isPackage(char[][] parentPackageName, char[] packageName) {
+				String qualifiedName = parentPackageName == null || parentPackageName.length == 0 ? new String(packageName) : CharOperation.toString(parentPackageName) + "." + new String(packageName);
+				return inputPackages.contains(qualifiedName) || libraries.isPackage(parentPackageName, packageName);
+			}
+
+			@Override
+			public void cleanup() {
+				libraries.cleanup();
+			}
+		}
+	}
+}
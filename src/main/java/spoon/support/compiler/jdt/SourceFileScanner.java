@@ -0,0 +1,80 @@
+/**
+ * Copyright (C) 2006-2017 INRIA and contributors
+ * Spoon - http://spoon.gforge.inria.fr/
+ *
+ * This software is governed by the CeCILL-C License under French law and
+ * abiding by the rules of distribution of free software. You can use, modify
+ * and/or redistribute the software under the terms of the CeCILL-C license as
+ * circulated by CEA, CNRS and INRIA at http://www.cecill.info.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the CeCILL-C License for more details.
+ *
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-C license and that you accept its terms.
+ */
+package spoon.support.compiler.jdt;
+
+import org.apache.commons.io.IOUtils;
+import org.eclipse.jdt.core.compiler.InvalidInputException;
+import org.eclipse.jdt.internal.compiler.classfmt.ClassFileConstants;
+import org.eclipse.jdt.internal.compiler.parser.Scanner;
+import org.eclipse.jdt.internal.compiler.parser.TerminalTokens;
+import spoon.SpoonException;
+import spoon.compiler.SpoonFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/** Reads the declarations of a source file with the JDT scanner, without parsing it. Package visible to reduce API surface. */
+class SourceFileScanner {
+	private SourceFileScanner() { }
+
+	/**
+	 * @return the qualified names of the top-level types declared by `file`, or null if its tokens cannot be read
+	 */
+	static List<String> getDeclaredTypeNames(SpoonFile file, Charset encoding) {
+		char[] content;
+		try (InputStream inputStream = file.getContent()) {
+			content = IOUtils.toCharArray(inputStream, encoding);
+		} catch (IOException e) {
+			throw new SpoonException("Cannot read " + file.getPath(), e);
+		}
+		Scanner scanner = new Scanner(false, false, false, ClassFileConstants.JDK1_8, null, null, true);
+		scanner.setSource(content);
+		String packagePrefix = "";
+		List<String> typeNames = new ArrayList<>();
+		try {
+			int depth = 0;
+			int previousToken = TerminalTokens.TokenNameEOF;
+			int token;
+			while ((token = scanner.getNextToken()) != TerminalTokens.TokenNameEOF) {
+				if (token == TerminalTokens.TokenNameLBRACE) {
+					depth++;
+				} else if (token == TerminalTokens.TokenNameRBRACE) {
+					depth--;
+				} else if (depth == 0 && token == TerminalTokens.TokenNamepackage) {
+					StringBuilder packageName = new StringBuilder();
+					while ((token = scanner.getNextToken()) != TerminalTokens.TokenNameSEMICOLON && token != TerminalTokens.TokenNameEOF) {
+						packageName.append(scanner.getCurrentTokenSource());
+					}
+					packagePrefix = packageName + ".";
+				} else if (depth == 0 && previousToken != TerminalTokens.TokenNameDOT
+						&& (token == TerminalTokens.TokenNameclass || token == TerminalTokens.TokenNameinterface || token == TerminalTokens.TokenNameenum)) {
+					// not a class literal, e.g. in an annotation of the type
+					if (scanner.getNextToken() == TerminalTokens.TokenNameIdentifier) {
+						typeNames.add(packagePrefix + new String(scanner.getCurrentIdentifierSource()));
+					}
+				}
+				previousToken = token;
+			}
+		} catch (InvalidInputException e) {
+			return null;
+		}
+		return typeNames;
+	}
+}
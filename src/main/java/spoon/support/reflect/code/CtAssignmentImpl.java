@@ -108,6 +108,9 @@ public class CtAssignmentImpl<T, A extends T> extends CtStatementImpl implements
 	@Override
 	public <C extends CtExpression<T>> C setTypeCasts(List<CtTypeReference<?>> casts) {
 		if (casts == null || casts.isEmpty()) {
+			if (!this.typeCasts.isEmpty()) {
+				getFactory().getEnvironment().getModelChangeListener().onListDeleteAll(this, CAST, this.typeCasts, new ArrayList<>(this.typeCasts));
+			}
 			this.typeCasts = CtElementImpl.emptyList();
 			return (C) this;
 		}
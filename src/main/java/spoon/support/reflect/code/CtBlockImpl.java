@@ -163,6 +163,9 @@ public class CtBlockImpl<R> extends CtStatementImpl implements CtBlock<R> {
 	@Override
 	public <T extends CtStatementList> T setStatements(List<CtStatement> statements) {
 		if (statements == null || statements.isEmpty()) {
+			if (!this.statements.isEmpty()) {
+				getFactory().getEnvironment().getModelChangeListener().onListDeleteAll(this, STATEMENT, this.statements, new ArrayList<>(this.statements));
+			}
 			this.statements = CtElementImpl.emptyList();
 			return (T) this;
 		}
@@ -72,6 +72,9 @@ public class CtCaseImpl<E> extends CtStatementImpl implements CtCase<E> {
 	@Override
 	public <T extends CtStatementList> T setStatements(List<CtStatement> statements) {
 		if (statements == null || statements.isEmpty()) {
+			if (!this.statements.isEmpty()) {
+				getFactory().getEnvironment().getModelChangeListener().onListDeleteAll(this, STATEMENT, this.statements, new ArrayList<>(this.statements));
+			}
 			this.statements = CtElementImpl.emptyList();
 			return (T) this;
 		}
@@ -61,6 +61,9 @@ public abstract class CtExpressionImpl<T> extends CtCodeElementImpl implements C
 	@Override
 	public <C extends CtExpression<T>> C setTypeCasts(List<CtTypeReference<?>> casts) {
 		if (casts == null || casts.isEmpty()) {
+			if (!this.typeCasts.isEmpty()) {
+				getFactory().getEnvironment().getModelChangeListener().onListDeleteAll(this, CAST, this.typeCasts, new ArrayList<>(this.typeCasts));
+			}
 			this.typeCasts = CtElementImpl.emptyList();
 			return (C) this;
 		}
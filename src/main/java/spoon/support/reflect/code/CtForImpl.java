@@ -87,6 +87,9 @@ public class CtForImpl extends CtLoopImpl implements CtFor {
 	@Override
 	public <T extends CtFor> T setForInit(List<CtStatement> statements) {
 		if (statements == null || statements.isEmpty()) {
+			if (!this.forInit.isEmpty()) {
+				getFactory().getEnvironment().getModelChangeListener().onListDeleteAll(this, FOR_INIT, this.forInit, new ArrayList<>(this.forInit));
+			}
 			this.forInit = CtElementImpl.emptyList();
 			return (T) this;
 		}
@@ -129,6 +132,9 @@ public class CtForImpl extends CtLoopImpl implements CtFor {
 	@Override
 	public <T extends CtFor> T setForUpdate(List<CtStatement> statements) {
 		if (statements == null || statements.isEmpty()) {
+			if (!this.forUpdate.isEmpty()) {
+				getFactory().getEnvironment().getModelChangeListener().onListDeleteAll(this, FOR_UPDATE, this.forUpdate, new ArrayList<>(this.forUpdate));
+			}
 			this.forUpdate = CtElementImpl.emptyList();
 			return (T) this;
 		}
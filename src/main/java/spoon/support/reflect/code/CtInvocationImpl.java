@@ -124,6 +124,9 @@ public class CtInvocationImpl<T> extends CtTargetedExpressionImpl<T, CtExpressio
 	@Override
 	public <C extends CtAbstractInvocation<T>> C setArguments(List<CtExpression<?>> arguments) {
 		if (arguments == null || arguments.isEmpty()) {
+			if (!this.arguments.isEmpty()) {
+				getFactory().getEnvironment().getModelChangeListener().onListDeleteAll(this, ARGUMENT, this.arguments, new ArrayList<>(this.arguments));
+			}
 			this.arguments = CtElementImpl.emptyList();
 			return (C) this;
 		}
@@ -147,6 +147,9 @@ public class CtLambdaImpl<T> extends CtExpressionImpl<T> implements CtLambda<T>
 	@Override
 	public <C extends CtExecutable<T>> C setParameters(List<CtParameter<?>> params) {
 		if (params == null || params.isEmpty()) {
+			if (!this.parameters.isEmpty()) {
+				getFactory().getEnvironment().getModelChangeListener().onListDeleteAll(this, PARAMETER, this.parameters, new ArrayList<>(this.parameters));
+			}
 			this.parameters = CtElementImpl.emptyList();
 			return (C) this;
 		}
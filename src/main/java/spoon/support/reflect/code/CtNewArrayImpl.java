@@ -57,6 +57,9 @@ public class CtNewArrayImpl<T> extends CtExpressionImpl<T> implements CtNewArray
 	@Override
 	public <C extends CtNewArray<T>> C setDimensionExpressions(List<CtExpression<Integer>> dimensionExpressions) {
 		if (dimensionExpressions == null || dimensionExpressions.isEmpty()) {
+			if (!this.dimensionExpressions.isEmpty()) {
+				getFactory().getEnvironment().getModelChangeListener().onListDeleteAll(this, DIMENSION, this.dimensionExpressions, new ArrayList<>(this.dimensionExpressions));
+			}
 			this.dimensionExpressions = CtElementImpl.emptyList();
 			return (C) this;
 		}
@@ -94,6 +97,9 @@ public class CtNewArrayImpl<T> extends CtExpressionImpl<T> implements CtNewArray
 	@Override
 	public <C extends CtNewArray<T>> C setElements(List<CtExpression<?>> expressions) {
 		if (expressions == null || expressions.isEmpty()) {
+			if (!this.expressions.isEmpty()) {
+				getFactory().getEnvironment().getModelChangeListener().onListDeleteAll(this, EXPRESSION, this.expressions, new ArrayList<>(this.expressions));
+			}
 			this.expressions = CtElementImpl.emptyList();
 			return (C) this;
 		}
@@ -54,6 +54,9 @@ public class CtStatementListImpl<R> extends CtCodeElementImpl implements CtState
 	@Override
 	public <T extends CtStatementList> T setStatements(List<CtStatement> stmts) {
 		if (stmts == null || stmts.isEmpty()) {
+			if (!this.statements.isEmpty()) {
+				getFactory().getEnvironment().getModelChangeListener().onListDeleteAll(this, STATEMENT, this.statements, new ArrayList<>(this.statements));
+			}
 			this.statements = CtElementImpl.emptyList();
 			return (T) this;
 		}
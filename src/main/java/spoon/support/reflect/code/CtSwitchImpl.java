@@ -58,6 +58,9 @@ public class CtSwitchImpl<S> extends CtStatementImpl implements CtSwitch<S> {
 	@Override
 	public <T extends CtSwitch<S>> T setCases(List<CtCase<? super S>> cases) {
 		if (cases == null || cases.isEmpty()) {
+			if (!this.cases.isEmpty()) {
+				getFactory().getEnvironment().getModelChangeListener().onListDeleteAll(this, CASE, this.cases, new ArrayList<>(this.cases));
+			}
 			this.cases = CtElementImpl.emptyList();
 			return (T) this;
 		}
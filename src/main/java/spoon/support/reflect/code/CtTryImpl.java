@@ -61,6 +61,9 @@ public class CtTryImpl extends CtStatementImpl implements CtTry {
 	@Override
 	public <T extends CtTry> T setCatchers(List<CtCatch> catchers) {
 		if (catchers == null || catchers.isEmpty()) {
+			if (!this.catchers.isEmpty()) {
+				getFactory().getEnvironment().getModelChangeListener().onListDeleteAll(this, CATCH, this.catchers, new ArrayList<>(this.catchers));
+			}
 			this.catchers = CtElementImpl.emptyList();
 			return (T) this;
 		}
@@ -48,6 +48,9 @@ public class CtTryWithResourceImpl extends CtTryImpl implements CtTryWithResourc
 	@Override
 	public <T extends CtTryWithResource> T setResources(List<CtLocalVariable<?>> resources) {
 		if (resources == null || resources.isEmpty()) {
+			if (!this.resources.isEmpty()) {
+				getFactory().getEnvironment().getModelChangeListener().onListDeleteAll(this, TRY_RESOURCE, this.resources, new ArrayList<>(this.resources));
+			}
 			this.resources = CtElementImpl.emptyList();
 			return (T) this;
 		}
@@ -193,6 +193,13 @@ public class SourcePositionImpl implements SourcePosition, Serializable {
 		return compilationUnit;
 	}
 
+	/**
+	 * @return the index of the line breaks of the compilation unit, which are shared by all the positions of the same compilation unit
+	 */
+	public int[] getLineSeparatorPositions() {
+		return lineSeparatorPositions;
+	}
+
 	/**
 	 * Helper for debugging purposes. Displays |startIndex; endIndex|sourceCode| of this {@link SourcePosition}
 	 * If this instance is {@link DeclarationSourcePosition} or {@link BodyHolderSourcePosition}
@@ -0,0 +1,54 @@
+/**
+ * Copyright (C) 2006-2017 INRIA and contributors
+ * Spoon - http://spoon.gforge.inria.fr/
+ *
+ * This software is governed by the CeCILL-C License under French law and
+ * abiding by the rules of distribution of free software. You can use, modify
+ * and/or redistribute the software under the terms of the CeCILL-C license as
+ * circulated by CEA, CNRS and INRIA at http://www.cecill.info.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the CeCILL-C License for more details.
+ *
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-C license and that you accept its terms.
+ */
+package spoon.support.reflect.declaration;
+
+/**
+ * A qualified name built from the qualified name of a container (package or declaring type) and a simple name.
+ *
+ * The qualified names of packages, types and type references are kept in such objects, so that they are not concatenated again on each call.
+ * A cached name is valid as long as the container name and the simple name are the same instances as the ones it was built from:
+ * as the container name is itself cached, renaming or moving a package or a type invalidates the names of all the elements it contains,
+ * without the need to notify them.
+ * The instances are immutable, so that they can be shared between threads.
+ */
+public final class CachedQualifiedName {
+	private final String containerName;
+	private final String simpleName;
+	private final String qualifiedName;
+
+	private CachedQualifiedName(String containerName, String separator, String simpleName) {
+		this.containerName = containerName;
+		this.simpleName = simpleName;
+		this.qualifiedName = containerName == null ? simpleName : containerName + separator + simpleName;
+	}
+
+	/**
+	 * @param cached the name cached by the element, or null
+	 * @param containerName the qualified name of the container, or null if the qualified name is the simple name
+	 * @return `cached` if it has been built from `containerName` and `simpleName`, else a new qualified name
+	 */
+	public static CachedQualifiedName get(CachedQualifiedName cached, String containerName, String separator, String simpleName) {
+		if (cached != null && cached.containerName == containerName && cached.simpleName == simpleName) {
+			return cached;
+		}
+		return new CachedQualifiedName(containerName, separator, simpleName);
+	}
+
+	public String getQualifiedName() {
+		return qualifiedName;
+	}
+}
@@ -0,0 +1,153 @@
+/**
+ * Copyright (C) 2006-2017 INRIA and contributors
+ * Spoon - http://spoon.gforge.inria.fr/
+ *
+ * This software is governed by the CeCILL-C License under French law and
+ * abiding by the rules of distribution of free software. You can use, modify
+ * and/or redistribute the software under the terms of the CeCILL-C license as
+ * circulated by CEA, CNRS and INRIA at http://www.cecill.info.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the CeCILL-C License for more details.
+ *
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-C license and that you accept its terms.
+ */
+package spoon.support.reflect.declaration;
+
+import spoon.reflect.declaration.CtConstructor;
+import spoon.reflect.declaration.CtElement;
+import spoon.reflect.declaration.CtExecutable;
+import spoon.reflect.declaration.CtMethod;
+import spoon.reflect.declaration.CtParameter;
+import spoon.reflect.declaration.CtType;
+import spoon.reflect.reference.CtArrayTypeReference;
+import spoon.reflect.reference.CtExecutableReference;
+import spoon.reflect.reference.CtIntersectionTypeReference;
+import spoon.reflect.reference.CtTypeParameterReference;
+import spoon.reflect.reference.CtTypeReference;
+import spoon.support.visitor.SignaturePrinter;
+
+import java.util.List;
+
+/**
+ * The signature of a method, a constructor or an executable reference, as computed by {@link SignaturePrinter}.
+ *
+ * Such a signature only depends on a few names: the simple name of the executable (or the qualified name of
+ * the declaring type of a constructor) and the qualified names of the parameter types.
+ * A cached signature is valid as long as these names are the same instances as the ones it was built from:
+ * as the qualified names of the types and of the type references are themselves cached (see {@link CachedQualifiedName}),
+ * renaming the executable, changing its parameters or renaming their types invalidates the signature,
+ * without the need to notify the executable.
+ * The signatures whose parameter types are type parameters or intersection types are not cached.
+ * The instances are immutable, so that they can be shared between threads.
+ */
+public final class CachedSignature {
+	/**
+	 * the names the signature has been built from, null if the signature cannot be cached
+	 */
+	private final String[] names;
+	private final String signature;
+
+	private CachedSignature(String[] names, String signature) {
+		this.names = names;
+		this.signature = signature;
+	}
+
+	/**
+	 * @param cached the signature cached by the executable, or null
+	 * @param executable a {@link CtMethod}, a {@link CtConstructor} or a {@link CtExecutableReference}
+	 * @return `cached` if it is still the signature of `executable`, else a new signature
+	 */
+	public static CachedSignature get(CachedSignature cached, CtElement executable) {
+		int count = getNameCount(executable);
+		if (cached != null && cached.names != null && cached.names.length == count) {
+			boolean same = true;
+			for (int i = 0; same && i < count; i++) {
+				same = cached.names[i] == getName(executable, i);
+			}
+			if (same) {
+				return cached;
+			}
+		}
+		String[] names = null;
+		if (count >= 0) {
+			names = new String[count];
+			for (int i = 0; i < count; i++) {
+				names[i] = getName(executable, i);
+			}
+		}
+		SignaturePrinter printer = new SignaturePrinter();
+		printer.scan(executable);
+		return new CachedSignature(names, printer.getSignature());
+	}
+
+	public String getSignature() {
+		return signature;
+	}
+
+	/**
+	 * @return the number of names the signature of `executable` depends on, -1 if its signature cannot be cached
+	 */
+	private static int getNameCount(CtElement executable) {
+		if (executable instanceof CtMethod || executable instanceof CtConstructor) {
+			List<CtParameter<?>> parameters = ((CtExecutable<?>) executable).getParameters();
+			for (CtParameter<?> parameter : parameters) {
+				if (!isCacheable(parameter.getType())) {
+					return -1;
+				}
+			}
+			return parameters.size() + 1;
+		}
+		if (executable instanceof CtExecutableReference) {
+			CtExecutableReference<?> reference = (CtExecutableReference<?>) executable;
+			if (reference.isConstructor() && reference.getDeclaringType() == null) {
+				return -1;
+			}
+			for (CtTypeReference<?> parameter : reference.getParameters()) {
+				if (parameter != null && !isCacheable(parameter)) {
+					return -1;
+				}
+			}
+			return reference.getParameters().size() + 1;
+		}
+		return -1;
+	}
+
+	/**
+	 * @return true if {@link SignaturePrinter} prints the qualified name of `type`
+	 */
+	private static boolean isCacheable(CtTypeReference<?> type) {
+		if (type instanceof CtArrayTypeReference) {
+			return isCacheable(((CtArrayTypeReference<?>) type).getComponentType());
+		}
+		return !(type instanceof CtTypeParameterReference) && !(type instanceof CtIntersectionTypeReference);
+	}
+
+	/**
+	 * @return the name of index `index` which the signature of `executable` depends on
+	 */
+	private static String getName(CtElement executable, int index) {
+		if (executable instanceof CtExecutableReference) {
+			CtExecutableReference<?> reference = (CtExecutableReference<?>) executable;
+			if (index == 0) {
+				return reference.isConstructor() ? reference.getDeclaringType().getQualifiedName() : reference.getSimpleName();
+			}
+			CtTypeReference<?> parameter = reference.getParameters().get(index - 1);
+			if (parameter == null || "null".equals(parameter.getSimpleName())) {
+				return CtExecutableReference.UNKNOWN_TYPE;
+			}
+			return parameter.getQualifiedName();
+		}
+		if (index == 0) {
+			if (executable instanceof CtConstructor) {
+				CtType<?> declaringType = ((CtConstructor<?>) executable).getDeclaringType();
+				return declaringType == null ? null : declaringType.getQualifiedName();
+			}
+			return ((CtMethod<?>) executable).getSimpleName();
+		}
+		CtTypeReference<?> type = ((CtExecutable<?>) executable).getParameters().get(index - 1).getType();
+		return type == null ? null : type.getQualifiedName();
+	}
+}
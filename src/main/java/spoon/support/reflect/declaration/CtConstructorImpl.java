@@ -98,6 +98,9 @@ public class CtConstructorImpl<T> extends CtExecutableImpl<T> implements CtConst
 	@Override
 	public <C extends CtFormalTypeDeclarer> C setFormalCtTypeParameters(List<CtTypeParameter> formalTypeParameters) {
 		if (formalTypeParameters == null || formalTypeParameters.isEmpty()) {
+			if (!this.formalCtTypeParameters.isEmpty()) {
+				getFactory().getEnvironment().getModelChangeListener().onListDeleteAll(this, TYPE_PARAMETER, this.formalCtTypeParameters, new ArrayList<>(this.formalCtTypeParameters));
+			}
 			this.formalCtTypeParameters = CtElementImpl.emptyList();
 			return (C) this;
 		}
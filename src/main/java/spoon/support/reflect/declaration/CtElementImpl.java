@@ -39,7 +39,6 @@ import spoon.reflect.path.CtElementPathBuilder;
 import spoon.reflect.path.CtPath;
 import spoon.reflect.path.CtPathException;
 import spoon.reflect.path.CtRole;
-import spoon.reflect.declaration.CtImport;
 import spoon.reflect.reference.CtReference;
 import spoon.reflect.reference.CtTypeReference;
 import spoon.reflect.visitor.CtScanner;
@@ -118,6 +117,12 @@ public abstract class CtElementImpl implements CtElement, Serializable {
 
 	Map<String, Object> metadata;
 
+	/**
+	 * The structural hash of this element cached by {@link spoon.support.visitor.StructuralHashCache}, null if none is cached.
+	 * It is an immutable object, so that it is read and written at once.
+	 */
+	private transient volatile Object structuralHash;
+
 	public CtElementImpl() {
 		super();
 	}
@@ -212,8 +217,26 @@ public abstract class CtElementImpl implements CtElement, Serializable {
 		return pr.getHasCode();
 	}
 
+	/**
+	 * @return the structural hash of this element cached by {@link spoon.support.visitor.StructuralHashCache}, null if none is cached
+	 */
+	public Object getStructuralHash() {
+		return structuralHash;
+	}
+
+	/**
+	 * Caches the structural hash of this element. See {@link spoon.support.visitor.StructuralHashCache}.
+	 * @param structuralHash an immutable object or null to remove the cached hash
+	 */
+	public void setStructuralHash(Object structuralHash) {
+		this.structuralHash = structuralHash;
+	}
+
 	public <E extends CtElement> E setAnnotations(List<CtAnnotation<? extends Annotation>> annotations) {
 		if (annotations == null || annotations.isEmpty()) {
+			if (!this.annotations.isEmpty()) {
+				getFactory().getEnvironment().getModelChangeListener().onListDeleteAll(this, ANNOTATION, this.annotations, new ArrayList<>(this.annotations));
+			}
 			this.annotations = CtElementImpl.emptyList();
 			return (E) this;
 		}
@@ -284,21 +307,40 @@ public abstract class CtElementImpl implements CtElement, Serializable {
 
 	@Override
 	public String toString() {
-		DefaultJavaPrettyPrinter printer = new DefaultJavaPrettyPrinter(getFactory().getEnvironment());
+		return toString(Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Prints this element as {@link #toString()}, but truncated to `maxLength` characters followed by "...".
+	 * The printing stops at `maxLength` characters, so that it is cheap even for big elements, e.g. in log and error messages.
+	 * The printed code is a prefix of {@link #toString()}: the leading whitespaces, which {@link #toString()} removes, are not counted.
+	 * @param maxLength the maximum number of printed characters, or {@link Integer#MAX_VALUE} to print the whole element
+	 */
+	public String toString(int maxLength) {
+		Factory factory = getFactory();
+		DefaultJavaPrettyPrinter printer = factory instanceof FactoryImpl
+				? ((FactoryImpl) factory).acquirePrinter()
+				: new DefaultJavaPrettyPrinter(factory.getEnvironment());
+		String printed;
 		String errorMessage = "";
 		try {
-			// we do not want to compute imports of a CtImport as it may change the print of a reference
-			if (!(this instanceof CtImport)) {
-				printer.computeImports(this);
-			}
-			printer.scan(this);
+			printed = printer.printElement(this, maxLength);
 		} catch (ParentNotInitializedException ignore) {
 			LOGGER.error(ERROR_MESSAGE_TO_STRING, ignore);
 			errorMessage = ERROR_MESSAGE_TO_STRING;
+			printed = printer.getResult();
+		} finally {
+			if (factory instanceof FactoryImpl) {
+				((FactoryImpl) factory).releasePrinter(printer);
+			}
 		}
 		// in line-preservation mode, newlines are added at the beginning to matches the lines
 		// removing them from the toString() representation
-		return printer.toString().replaceFirst("^\\s+", "") + errorMessage;
+		int start = 0;
+		while (start < printed.length() && " \t\n\u000B\f\r".indexOf(printed.charAt(start)) >= 0) {
+			start++;
+		}
+		return errorMessage.isEmpty() ? printed.substring(start) : printed.substring(start) + errorMessage;
 	}
 
 	@SuppressWarnings("unchecked")
@@ -524,6 +566,9 @@ public abstract class CtElementImpl implements CtElement, Serializable {
 	@Override
 	public <E extends CtElement> E setComments(List<CtComment> comments) {
 		if (comments == null || comments.isEmpty()) {
+			if (!this.comments.isEmpty()) {
+				getFactory().getEnvironment().getModelChangeListener().onListDeleteAll(this, COMMENT, this.comments, new ArrayList<>(this.comments));
+			}
 			this.comments = CtElementImpl.emptyList();
 			return (E) this;
 		}
@@ -26,7 +26,6 @@ import spoon.reflect.declaration.CtType;
 import spoon.reflect.reference.CtExecutableReference;
 import spoon.reflect.reference.CtTypeReference;
 import spoon.support.util.QualifiedNameBasedSortedSet;
-import spoon.support.visitor.SignaturePrinter;
 
 import java.util.ArrayList;
 import java.util.HashSet;
@@ -56,6 +55,11 @@ public abstract class CtExecutableImpl<R> extends CtNamedElementImpl implements
 	@MetamodelPropertyField(role = THROWN)
 	Set<CtTypeReference<? extends Throwable>> thrownTypes = emptySet();
 
+	/**
+	 * the signature computed by {@link #getSignature()}, see {@link CachedSignature}
+	 */
+	private transient CachedSignature signature;
+
 	public CtExecutableImpl() {
 		super();
 	}
@@ -98,6 +102,9 @@ public abstract class CtExecutableImpl<R> extends CtNamedElementImpl implements
 	@Override
 	public <T extends CtExecutable<R>> T setParameters(List<CtParameter<?>> parameters) {
 		if (parameters == null || parameters.isEmpty()) {
+			if (!this.parameters.isEmpty()) {
+				getFactory().getEnvironment().getModelChangeListener().onListDeleteAll(this, PARAMETER, this.parameters, new ArrayList<>(this.parameters));
+			}
 			this.parameters = CtElementImpl.emptyList();
 			return (T) this;
 		}
@@ -143,6 +150,9 @@ public abstract class CtExecutableImpl<R> extends CtNamedElementImpl implements
 	@Override
 	public <T extends CtExecutable<R>> T setThrownTypes(Set<CtTypeReference<? extends Throwable>> thrownTypes) {
 		if (thrownTypes == null || thrownTypes.isEmpty()) {
+			if (!this.thrownTypes.isEmpty()) {
+				getFactory().getEnvironment().getModelChangeListener().onSetDeleteAll(this, THROWN, this.thrownTypes, new HashSet<Object>(this.thrownTypes));
+			}
 			this.thrownTypes = CtElementImpl.emptySet();
 			return (T) this;
 		}
@@ -182,9 +192,8 @@ public abstract class CtExecutableImpl<R> extends CtNamedElementImpl implements
 
 	@Override
 	public String getSignature() {
-		final SignaturePrinter pr = new SignaturePrinter();
-		pr.scan(this);
-		return pr.getSignature();
+		signature = CachedSignature.get(signature, this);
+		return signature.getSignature();
 	}
 
 	@Override
@@ -17,7 +17,10 @@
 package spoon.support.reflect.declaration;
 
 import spoon.reflect.annotations.MetamodelPropertyField;
+import spoon.reflect.declaration.CtMethod;
 import spoon.reflect.declaration.CtNamedElement;
+import spoon.reflect.declaration.CtPackage;
+import spoon.reflect.declaration.CtType;
 import spoon.reflect.factory.Factory;
 import spoon.reflect.factory.FactoryImpl;
 import spoon.reflect.path.CtRole;
@@ -47,6 +50,7 @@ public abstract class CtNamedElementImpl extends CtElementImpl implements CtName
 		Factory factory = getFactory();
 		if (factory == null) {
 			this.simpleName = simpleName;
+			updateParentIndex();
 			return (T) this;
 		}
 		if (factory instanceof FactoryImpl) {
@@ -54,9 +58,24 @@ public abstract class CtNamedElementImpl extends CtElementImpl implements CtName
 		}
 		getFactory().getEnvironment().getModelChangeListener().onObjectUpdate(this, NAME, simpleName, this.simpleName);
 		this.simpleName = simpleName;
+		updateParentIndex();
 		return (T) this;
 	}
 
+	/**
+	 * The packages index their types and sub-packages by simple name, the types index their methods by simple name,
+	 * and the factory indexes the top-level and member types by qualified name
+	 */
+	private void updateParentIndex() {
+		if ((this instanceof CtType || this instanceof CtPackage) && isParentInitialized() && getParent() instanceof CtPackageImpl) {
+			((CtPackageImpl) getParent()).onChildRenamed(this);
+		} else if (this instanceof CtType && isParentInitialized() && getParent() instanceof CtType) {
+			getFactory().Type().clearTypeIndex();
+		} else if (this instanceof CtMethod && isParentInitialized() && getParent() instanceof CtTypeImpl) {
+			((CtTypeImpl<?>) getParent()).clearMethodIndex();
+		}
+	}
+
 	@Override
 	public CtNamedElement clone() {
 		return (CtNamedElement) super.clone();
@@ -18,6 +18,7 @@ package spoon.support.reflect.declaration;
 
 import spoon.reflect.annotations.MetamodelPropertyField;
 import spoon.reflect.declaration.CtModule;
+import spoon.reflect.declaration.CtNamedElement;
 import spoon.reflect.declaration.CtPackage;
 import spoon.reflect.declaration.CtShadowable;
 import spoon.reflect.declaration.CtType;
@@ -26,7 +27,9 @@ import spoon.reflect.reference.CtPackageReference;
 import spoon.reflect.visitor.CtVisitor;
 import spoon.support.util.QualifiedNameBasedSortedSet;
 
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
 import static spoon.reflect.path.CtRole.IS_SHADOW;
@@ -47,6 +50,20 @@ public class CtPackageImpl extends CtNamedElementImpl implements CtPackage {
 	@MetamodelPropertyField(role = CONTAINED_TYPE)
 	private Set<CtType<?>> types = orderedTypeSet();
 
+	/**
+	 * The sub-packages and the types by simple name, maintained alongside the ordered sets,
+	 * so that {@link #getPackage(String)} and {@link #getType(String)} do not scan the sets.
+	 * They are computed lazily and dropped when an indexed element is removed or renamed,
+	 * or when their set has been modified directly, see {@link NameIndex#isUpToDate(Set)}.
+	 */
+	private transient volatile NameIndex<CtPackage> packsByName;
+	private transient volatile NameIndex<CtType<?>> typesByName;
+
+	/**
+	 * The qualified name computed by {@link #getQualifiedName()}
+	 */
+	private transient CachedQualifiedName qualifiedName;
+
 	public CtPackageImpl() {
 		super();
 	}
@@ -72,17 +89,25 @@ public class CtPackageImpl extends CtNamedElementImpl implements CtPackage {
 		}
 
 		// it already exists
-		for (CtPackage p1 : packs) {
-			if (p1.getQualifiedName().equals(pack.getQualifiedName())) {
-				addAllTypes(pack, p1);
-				addAllPackages(pack, p1);
-				return (T) this;
-			}
+		CtPackage p1 = getPackage(pack.getSimpleName());
+		if (p1 != null && p1.getQualifiedName().equals(pack.getQualifiedName())) {
+			addAllTypes(pack, p1);
+			addAllPackages(pack, p1);
+			return (T) this;
 		}
 
+		if (pack.isParentInitialized()) {
+			// the package is moved, so the qualified names of its sub-packages and types change
+			getFactory().Package().clearPackageIndex();
+			getFactory().Type().clearTypeIndex();
+		}
 		pack.setParent(this);
 		getFactory().getEnvironment().getModelChangeListener().onSetAdd(this, SUB_PACKAGE, this.packs, pack);
-		this.packs.add(pack);
+		NameIndex<CtPackage> index = packsByName;
+		boolean indexUpToDate = index != null && index.isUpToDate(packs);
+		if (this.packs.add(pack) && indexUpToDate) {
+			index.add(pack);
+		}
 
 		return (T) this;
 	}
@@ -120,6 +145,9 @@ public class CtPackageImpl extends CtNamedElementImpl implements CtPackage {
 			return false;
 		}
 		getFactory().getEnvironment().getModelChangeListener().onSetDelete(this, SUB_PACKAGE, packs, pack);
+		packsByName = null;
+		getFactory().Package().clearPackageIndex();
+		getFactory().Type().clearTypeIndex();
 		return packs.remove(pack);
 	}
 
@@ -143,12 +171,13 @@ public class CtPackageImpl extends CtNamedElementImpl implements CtPackage {
 
 	@Override
 	public CtPackage getPackage(String name) {
-		for (CtPackage p : packs) {
-			if (p.getSimpleName().equals(name)) {
-				return p;
-			}
+		NameIndex<CtPackage> index = packsByName;
+		if (index == null || !index.isUpToDate(packs)) {
+			// the set may have been modified directly
+			index = new NameIndex<>(packs);
+			packsByName = index;
 		}
-		return null;
+		return index.get(name);
 	}
 
 	@Override
@@ -158,22 +187,84 @@ public class CtPackageImpl extends CtNamedElementImpl implements CtPackage {
 
 	@Override
 	public String getQualifiedName() {
-		if (getDeclaringPackage() == null || getDeclaringPackage().isUnnamedPackage()) {
-			return getSimpleName();
-		} else {
-			return getDeclaringPackage().getQualifiedName() + "." + getSimpleName();
-		}
+		CtPackage declaringPackage = getDeclaringPackage();
+		String containerName = declaringPackage == null || declaringPackage.isUnnamedPackage() ? null : declaringPackage.getQualifiedName();
+		CachedQualifiedName name = CachedQualifiedName.get(qualifiedName, containerName, ".", getSimpleName());
+		qualifiedName = name;
+		return name.getQualifiedName();
 	}
 
 	@Override
 	@SuppressWarnings("unchecked")
 	public <T extends CtType<?>> T getType(String simpleName) {
-		for (CtType<?> t : types) {
-			if (t.getSimpleName().equals(simpleName)) {
-				return (T) t;
+		NameIndex<CtType<?>> index = typesByName;
+		if (index == null || !index.isUpToDate(types)) {
+			// the set may have been modified directly
+			index = new NameIndex<>(types);
+			typesByName = index;
+		}
+		return (T) index.get(simpleName);
+	}
+
+	/**
+	 * The elements of a set by simple name, the first one of the ordered set wins if several elements have the same name.
+	 * It knows the addition count and the size of the set it is up to date with.
+	 */
+	private static final class NameIndex<E extends CtNamedElement> {
+		private final Set<E> elements;
+		private final Map<String, E> elementsByName = new HashMap<>();
+		private int additionCount;
+		private int size;
+
+		NameIndex(Set<E> elements) {
+			this.elements = elements;
+			for (E element : elements) {
+				elementsByName.putIfAbsent(element.getSimpleName(), element);
 			}
+			update();
+		}
+
+		/**
+		 * @return true if `elements` is the indexed set and it has not been modified since it was indexed
+		 */
+		boolean isUpToDate(Set<E> elements) {
+			return this.elements == elements && additionCount == getAdditionCount(elements) && size == elements.size();
+		}
+
+		/**
+		 * Indexes `element`, which has just been added to the indexed set
+		 */
+		void add(E element) {
+			elementsByName.putIfAbsent(element.getSimpleName(), element);
+			update();
+		}
+
+		E get(String name) {
+			return elementsByName.get(name);
+		}
+
+		private void update() {
+			additionCount = getAdditionCount(elements);
+			size = elements.size();
+		}
+
+		private static int getAdditionCount(Set<?> elements) {
+			// the other sets are the immutable empty set
+			return elements instanceof QualifiedNameBasedSortedSet ? ((QualifiedNameBasedSortedSet<?>) elements).getAdditionCount() : 0;
 		}
-		return null;
+	}
+
+	/**
+	 * Called when the sub-package or type `child` has been renamed
+	 */
+	void onChildRenamed(CtNamedElement child) {
+		if (child instanceof CtPackage) {
+			packsByName = null;
+			getFactory().Package().clearPackageIndex();
+		} else {
+			typesByName = null;
+		}
+		getFactory().Type().clearTypeIndex();
 	}
 
 	@Override
@@ -183,7 +274,13 @@ public class CtPackageImpl extends CtNamedElementImpl implements CtPackage {
 
 	@Override
 	public <T extends CtPackage> T setPackages(Set<CtPackage> packs) {
+		packsByName = null;
+		getFactory().Package().clearPackageIndex();
+		getFactory().Type().clearTypeIndex();
 		if (packs == null || packs.isEmpty()) {
+			if (!this.packs.isEmpty()) {
+				getFactory().getEnvironment().getModelChangeListener().onSetDeleteAll(this, SUB_PACKAGE, this.packs, new HashSet<>(this.packs));
+			}
 			this.packs = CtElementImpl.emptySet();
 			return (T) this;
 		}
@@ -197,7 +294,12 @@ public class CtPackageImpl extends CtNamedElementImpl implements CtPackage {
 
 	@Override
 	public <T extends CtPackage> T setTypes(Set<CtType<?>> types) {
+		typesByName = null;
+		getFactory().Type().clearTypeIndex();
 		if (types == null || types.isEmpty()) {
+			if (!this.types.isEmpty()) {
+				getFactory().getEnvironment().getModelChangeListener().onSetDeleteAll(this, CONTAINED_TYPE, this.types, new HashSet<>(this.types));
+			}
 			this.types = CtElementImpl.emptySet();
 			return (T) this;
 		}
@@ -222,9 +324,17 @@ public class CtPackageImpl extends CtNamedElementImpl implements CtPackage {
 		if (types == CtElementImpl.<CtType<?>>emptySet()) {
 			this.types = orderedTypeSet();
 		}
+		if (type.isParentInitialized() && type.getParent() != this) {
+			// the type is moved, so its qualified name changes
+			getFactory().Type().clearTypeIndex();
+		}
 		type.setParent(this);
 		getFactory().getEnvironment().getModelChangeListener().onSetAdd(this, CONTAINED_TYPE, this.types, type);
-		types.add(type);
+		NameIndex<CtType<?>> index = typesByName;
+		boolean indexUpToDate = index != null && index.isUpToDate(types);
+		if (types.add(type) && indexUpToDate) {
+			index.add(type);
+		}
 		return (T) this;
 	}
 
@@ -234,6 +344,8 @@ public class CtPackageImpl extends CtNamedElementImpl implements CtPackage {
 			return;
 		}
 		getFactory().getEnvironment().getModelChangeListener().onSetDelete(this, CONTAINED_TYPE, types, type);
+		typesByName = null;
+		getFactory().Type().clearTypeIndex();
 		types.remove(type);
 	}
 
@@ -66,8 +66,10 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import static spoon.reflect.ModelElementContainerDefaultCapacities.TYPE_TYPE_PARAMETERS_CONTAINER_DEFAULT_CAPACITY;
@@ -99,6 +101,16 @@ public abstract class CtTypeImpl<T> extends CtNamedElementImpl implements CtType
 	@MetamodelPropertyField(role = {CtRole.TYPE_MEMBER, CtRole.FIELD, CtRole.CONSTRUCTOR, CtRole.ANNONYMOUS_EXECUTABLE, CtRole.METHOD, CtRole.NESTED_TYPE})
 	List<CtTypeMember> typeMembers = emptyList();
 
+	/**
+	 * The qualified name computed by {@link #getQualifiedName()}
+	 */
+	private transient CachedQualifiedName qualifiedName;
+
+	/**
+	 * The index of the methods, built by {@link #getMethodIndex()} and cleared each time a method is added, removed or renamed
+	 */
+	private transient MethodIndex methodIndex;
+
 	public CtTypeImpl() {
 		super();
 	}
@@ -150,6 +162,10 @@ public abstract class CtTypeImpl<T> extends CtNamedElementImpl implements CtType
 			this.typeMembers = new ArrayList<>();
 		}
 		if (!this.typeMembers.stream().anyMatch(m -> m == member)) {
+			if (member instanceof CtType && member.isParentInitialized() && member.getParent() != this) {
+				// the type is moved, so its qualified name changes
+				getFactory().Type().clearTypeIndex();
+			}
 			member.setParent(this);
 			CtRole role;
 			if (member instanceof CtMethod) {
@@ -164,6 +180,7 @@ public abstract class CtTypeImpl<T> extends CtNamedElementImpl implements CtType
 				role = NESTED_TYPE;
 			}
 			getFactory().getEnvironment().getModelChangeListener().onListAdd(this, role, this.typeMembers, position, member);
+			clearMethodIndex();
 			if (position < typeMembers.size()) {
 				this.typeMembers.add(position, member);
 			} else {
@@ -190,6 +207,7 @@ public abstract class CtTypeImpl<T> extends CtNamedElementImpl implements CtType
 		if (typeMembers.size() == 1) {
 			if (typeMembers.contains(member)) {
 				getFactory().getEnvironment().getModelChangeListener().onListDelete(this, role, this.typeMembers, this.typeMembers.indexOf(member), member);
+				onTypeMemberRemoved(member);
 				typeMembers = emptyList();
 				return true;
 			} else {
@@ -198,11 +216,22 @@ public abstract class CtTypeImpl<T> extends CtNamedElementImpl implements CtType
 		}
 		if (typeMembers.contains(member)) {
 			getFactory().getEnvironment().getModelChangeListener().onListDelete(this, role, this.typeMembers, this.typeMembers.indexOf(member), member);
+			onTypeMemberRemoved(member);
 			return typeMembers.remove(member);
 		}
 		return false;
 	}
 
+	/**
+	 * Called when `member` is removed: the methods of this type, and the types indexed by the factory if it is a nested type, may be stale
+	 */
+	private void onTypeMemberRemoved(CtTypeMember member) {
+		clearMethodIndex();
+		if (member instanceof CtType) {
+			getFactory().Type().clearTypeIndex();
+		}
+	}
+
 	@Override
 	public <C extends CtType<T>> C setTypeMembers(List<CtTypeMember> members) {
 		for (CtTypeMember typeMember : new ArrayList<>(typeMembers)) {
@@ -238,6 +267,9 @@ public abstract class CtTypeImpl<T> extends CtNamedElementImpl implements CtType
 	public <C extends CtType<T>> C setFields(List<CtField<?>> fields) {
 		List<CtField<?>> oldFields = getFields();
 		if (fields == null || fields.isEmpty()) {
+			if (!oldFields.isEmpty()) {
+				getFactory().getEnvironment().getModelChangeListener().onListDelete(this, FIELD, this.typeMembers, new ArrayList<>(oldFields));
+			}
 			this.typeMembers.removeAll(oldFields);
 			return (C) this;
 		}
@@ -718,25 +750,20 @@ public abstract class CtTypeImpl<T> extends CtNamedElementImpl implements CtType
 	@Override
 	@SuppressWarnings("unchecked")
 	public <R> CtMethod<R> getMethod(CtTypeReference<R> returnType, String name, CtTypeReference<?>... parameterTypes) {
-		for (CtTypeMember typeMember : typeMembers) {
-			if (!(typeMember instanceof CtMethod)) {
+		for (CtMethod<?> candidate : getMethodIndex().getMethodsByName(name)) {
+			CtMethod<R> m = (CtMethod<R>) candidate;
+			if (!m.getType().equals(returnType)) {
 				continue;
 			}
-			CtMethod<R> m = (CtMethod<R>) typeMember;
-			if (m.getSimpleName().equals(name)) {
-				if (!m.getType().equals(returnType)) {
-					continue;
-				}
-				boolean cont = m.getParameters().size() == parameterTypes.length;
-				for (int i = 0; cont && (i < m.getParameters().size()) && (i < parameterTypes.length); i++) {
-					if (!m.getParameters().get(i).getType().getQualifiedName().equals(parameterTypes[i].getQualifiedName())) {
-						cont = false;
-					}
-				}
-				if (cont) {
-					return m;
+			boolean cont = m.getParameters().size() == parameterTypes.length;
+			for (int i = 0; cont && (i < m.getParameters().size()) && (i < parameterTypes.length); i++) {
+				if (!m.getParameters().get(i).getType().getQualifiedName().equals(parameterTypes[i].getQualifiedName())) {
+					cont = false;
 				}
 			}
+			if (cont) {
+				return m;
+			}
 		}
 		return null;
 	}
@@ -748,7 +775,7 @@ public abstract class CtTypeImpl<T> extends CtNamedElementImpl implements CtType
 			return null;
 		}
 
-		for (CtMethod<?> candidate : getMethodsByName(name)) {
+		for (CtMethod<?> candidate : getMethodIndex().getMethodsByName(name)) {
 			boolean cont = candidate.getParameters().size() == parameterTypes.length;
 			for (int i = 0; cont && (i < candidate.getParameters().size()) && (i < parameterTypes.length); i++) {
 				final CtTypeReference<?> ctParameterType = candidate.getParameters().get(i).getType();
@@ -822,13 +849,8 @@ public abstract class CtTypeImpl<T> extends CtNamedElementImpl implements CtType
 
 	@Override
 	public Set<CtMethod<?>> getMethods() {
-		Set<CtMethod<?>> methods = new SignatureBasedSortedSet<>();
-		for (CtTypeMember typeMember : typeMembers) {
-			if (typeMember instanceof CtMethod) {
-				methods.add((CtMethod<?>) typeMember);
-			}
-		}
-		return Collections.unmodifiableSet(methods);
+		// a copy of the sorted set, built without comparing the methods again
+		return new SignatureBasedSortedSet<>(getMethodIndex().getMethods());
 	}
 
 	@Override
@@ -850,17 +872,94 @@ public abstract class CtTypeImpl<T> extends CtNamedElementImpl implements CtType
 
 	@Override
 	public List<CtMethod<?>> getMethodsByName(String name) {
-		List<CtMethod<?>> result = new ArrayList<>(1);
-		for (CtTypeMember typeMember : typeMembers) {
-			if (!(typeMember instanceof CtMethod)) {
-				continue;
+		return new ArrayList<>(getMethodIndex().getMethodsByName(name));
+	}
+
+	/**
+	 * @return the index of the methods of this type, built again if a method has been added, removed or renamed since the last call
+	 */
+	private MethodIndex getMethodIndex() {
+		MethodIndex index = methodIndex;
+		if (index == null) {
+			index = new MethodIndex(typeMembers);
+			methodIndex = index;
+		}
+		return index;
+	}
+
+	/**
+	 * Called when a method of this type is added, removed or renamed
+	 */
+	void clearMethodIndex() {
+		methodIndex = null;
+	}
+
+	/**
+	 * The methods of a type, indexed by simple name, and the sorted set of methods copied by {@link #getMethods()}.
+	 * The set is built lazily and built again when the signature of one of the methods changes,
+	 * which is cheap to detect as the methods cache their signature, see {@link SortedMethods#isValid(CtMethod[])}.
+	 */
+	private static final class MethodIndex {
+		private final CtMethod<?>[] methods;
+		private final Map<String, List<CtMethod<?>>> methodsByName = new HashMap<>();
+		private SortedMethods sortedMethods;
+
+		MethodIndex(List<CtTypeMember> typeMembers) {
+			List<CtMethod<?>> allMethods = new ArrayList<>();
+			for (CtTypeMember typeMember : typeMembers) {
+				if (typeMember instanceof CtMethod) {
+					CtMethod<?> m = (CtMethod<?>) typeMember;
+					allMethods.add(m);
+					methodsByName.computeIfAbsent(m.getSimpleName(), k -> new ArrayList<>(1)).add(m);
+				}
 			}
-			CtMethod<?> m = (CtMethod<?>) typeMember;
-			if (name.equals(m.getSimpleName())) {
-				result.add(m);
+			methods = allMethods.toArray(new CtMethod<?>[allMethods.size()]);
+		}
+
+		List<CtMethod<?>> getMethodsByName(String name) {
+			List<CtMethod<?>> result = methodsByName.get(name);
+			return result == null ? Collections.<CtMethod<?>>emptyList() : result;
+		}
+
+		SignatureBasedSortedSet<CtMethod<?>> getMethods() {
+			SortedMethods sorted = sortedMethods;
+			if (sorted == null || !sorted.isValid(methods)) {
+				sorted = new SortedMethods(methods);
+				sortedMethods = sorted;
 			}
+			return sorted.set;
+		}
+	}
+
+	/**
+	 * A {@link SignatureBasedSortedSet} of methods, which is never modified, with the signatures it has been sorted by
+	 */
+	private static final class SortedMethods {
+		private final String[] signatures;
+		private final SignatureBasedSortedSet<CtMethod<?>> set = new SignatureBasedSortedSet<>();
+
+		SortedMethods(CtMethod<?>[] methods) {
+			signatures = new String[methods.length];
+			for (int i = 0; i < methods.length; i++) {
+				signatures[i] = methods[i].getSignature();
+				set.add(methods[i]);
+			}
+		}
+
+		/**
+		 * @return true if the signatures of `methods` are still the ones the set has been sorted by.
+		 * A method returns the same signature instance as long as its cached signature is valid,
+		 * so most signatures are compared by identity and none is computed again unless it has changed.
+		 */
+		boolean isValid(CtMethod<?>[] methods) {
+			for (int i = 0; i < methods.length; i++) {
+				String signature = methods[i].getSignature();
+				if (signature != signatures[i] && !signature.equals(signatures[i])) {
+					return false;
+				}
+			}
+			return true;
 		}
-		return result;
 	}
 
 
@@ -904,17 +1003,24 @@ public abstract class CtTypeImpl<T> extends CtNamedElementImpl implements CtType
 
 	@Override
 	public String getQualifiedName() {
+		String containerName = null;
+		String separator = null;
 		if (isTopLevel()) {
-			if (getPackage() != null && !getPackage().isUnnamedPackage()) {
-				return getPackage().getQualifiedName() + "." + getSimpleName();
-			} else {
-				return getSimpleName();
+			CtPackage pack = getPackage();
+			if (pack != null && !pack.isUnnamedPackage()) {
+				containerName = pack.getQualifiedName();
+				separator = ".";
 			}
-		} else if (getDeclaringType() != null) {
-			return getDeclaringType().getQualifiedName() + INNERTTYPE_SEPARATOR + getSimpleName();
 		} else {
-			return getSimpleName();
+			CtType<?> declaringType = getDeclaringType();
+			if (declaringType != null) {
+				containerName = declaringType.getQualifiedName();
+				separator = INNERTTYPE_SEPARATOR;
+			}
 		}
+		CachedQualifiedName name = CachedQualifiedName.get(qualifiedName, containerName, separator, getSimpleName());
+		qualifiedName = name;
+		return name.getQualifiedName();
 	}
 
 	@Override
@@ -927,6 +1033,7 @@ public abstract class CtTypeImpl<T> extends CtNamedElementImpl implements CtType
 		Set<CtMethod<?>> allMethods = getMethods();
 		getFactory().getEnvironment().getModelChangeListener().onListDelete(this, METHOD, this.typeMembers, new ArrayList(allMethods));
 		typeMembers.removeAll(allMethods);
+		clearMethodIndex();
 		if (methods == null || methods.isEmpty()) {
 			return (C) this;
 		}
@@ -946,6 +1053,9 @@ public abstract class CtTypeImpl<T> extends CtNamedElementImpl implements CtType
 	@Override
 	public <C extends CtType<T>> C setSuperInterfaces(Set<CtTypeReference<?>> interfaces) {
 		if (interfaces == null || interfaces.isEmpty()) {
+			if (!this.interfaces.isEmpty()) {
+				getFactory().getEnvironment().getModelChangeListener().onSetDeleteAll(this, INTERFACE, this.interfaces, new HashSet<>(this.interfaces));
+			}
 			this.interfaces = CtElementImpl.emptySet();
 			return (C) this;
 		}
@@ -962,11 +1072,12 @@ public abstract class CtTypeImpl<T> extends CtNamedElementImpl implements CtType
 
 	@Override
 	public Collection<CtExecutableReference<?>> getDeclaredExecutables() {
-		if (getMethods().isEmpty()) {
+		Set<CtMethod<?>> methods = getMethods();
+		if (methods.isEmpty()) {
 			return Collections.emptyList();
 		}
-		List<CtExecutableReference<?>> l = new ArrayList<>(getMethods().size());
-		for (CtExecutable<?> m : getMethods()) {
+		List<CtExecutableReference<?>> l = new ArrayList<>(methods.size());
+		for (CtExecutable<?> m : methods) {
 			l.add(m.getReference());
 		}
 		return Collections.unmodifiableList(l);
@@ -21,6 +21,7 @@ import spoon.reflect.path.CtRole;
 import spoon.reflect.reference.CtArrayTypeReference;
 import spoon.reflect.reference.CtTypeReference;
 import spoon.reflect.visitor.CtVisitor;
+import spoon.support.reflect.declaration.CachedQualifiedName;
 
 import java.lang.reflect.Array;
 
@@ -77,7 +78,13 @@ CtArrayTypeReferenceImpl<T> extends CtTypeReferenceImpl<T> implements CtArrayTyp
 
 	@Override
 	public String getQualifiedName() {
-		return getComponentType().getQualifiedName() + "[]";
+		String componentName = getComponentType().getQualifiedName();
+		if (componentName == null) {
+			return componentName + "[]";
+		}
+		CachedQualifiedName name = CachedQualifiedName.get(qualifiedName, componentName, "", "[]");
+		qualifiedName = name;
+		return name.getQualifiedName();
 	}
 
 	@SuppressWarnings("unchecked")
@@ -32,10 +32,10 @@ import spoon.reflect.reference.CtExecutableReference;
 import spoon.reflect.reference.CtTypeReference;
 import spoon.reflect.visitor.CtVisitor;
 import spoon.reflect.visitor.filter.NamedElementFilter;
+import spoon.support.reflect.declaration.CachedSignature;
 import spoon.support.reflect.declaration.CtElementImpl;
 import spoon.support.util.RtHelper;
 import spoon.support.visitor.ClassTypingContext;
-import spoon.support.visitor.SignaturePrinter;
 
 import java.lang.reflect.AnnotatedElement;
 import java.lang.reflect.Constructor;
@@ -75,6 +75,11 @@ public class CtExecutableReferenceImpl<T> extends CtReferenceImpl implements CtE
 	@MetamodelPropertyField(role = ARGUMENT_TYPE)
 	List<CtTypeReference<?>> parameters = CtElementImpl.emptyList();
 
+	/**
+	 * the signature computed by {@link #getSignature()}, see {@link CachedSignature}
+	 */
+	private transient CachedSignature signature;
+
 	public CtExecutableReferenceImpl() {
 		super();
 	}
@@ -208,6 +213,9 @@ public class CtExecutableReferenceImpl<T> extends CtReferenceImpl implements CtE
 	@Override
 	public <C extends CtExecutableReference<T>> C setParameters(List<CtTypeReference<?>> parameters) {
 		if (parameters == null || parameters.isEmpty()) {
+			if (!this.parameters.isEmpty()) {
+				getFactory().getEnvironment().getModelChangeListener().onListDeleteAll(this, ARGUMENT_TYPE, this.parameters, new ArrayList<>(this.parameters));
+			}
 			this.parameters = CtElementImpl.emptyList();
 			return (C) this;
 		}
@@ -279,6 +287,9 @@ public class CtExecutableReferenceImpl<T> extends CtReferenceImpl implements CtE
 	@Override
 	public <C extends CtActualTypeContainer> C setActualTypeArguments(List<? extends CtTypeReference<?>> actualTypeArguments) {
 		if (actualTypeArguments == null || actualTypeArguments.isEmpty()) {
+			if (!this.actualTypeArguments.isEmpty()) {
+				getFactory().getEnvironment().getModelChangeListener().onListDeleteAll(this, TYPE_ARGUMENT, this.actualTypeArguments, new ArrayList<>(this.actualTypeArguments));
+			}
 			this.actualTypeArguments = CtElementImpl.emptyList();
 			return (C) this;
 		}
@@ -469,9 +480,8 @@ public class CtExecutableReferenceImpl<T> extends CtReferenceImpl implements CtE
 
 	@Override
 	public String getSignature() {
-		final SignaturePrinter pr = new SignaturePrinter();
-		pr.scan(this);
-		return pr.getSignature();
+		signature = CachedSignature.get(signature, this);
+		return signature.getSignature();
 	}
 
 	@Override
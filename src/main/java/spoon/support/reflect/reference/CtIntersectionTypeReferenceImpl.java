@@ -47,6 +47,9 @@ public class CtIntersectionTypeReferenceImpl<T> extends CtTypeReferenceImpl<T> i
 	@Override
 	public <C extends CtIntersectionTypeReference> C setBounds(List<CtTypeReference<?>> bounds) {
 		if (bounds == null || bounds.isEmpty()) {
+			if (!this.bounds.isEmpty()) {
+				getFactory().getEnvironment().getModelChangeListener().onListDeleteAll(this, BOUND, this.bounds, new ArrayList<>(this.bounds));
+			}
 			this.bounds = CtElementImpl.emptyList();
 			return (C) this;
 		}
@@ -40,10 +40,12 @@ import spoon.reflect.reference.CtTypeParameterReference;
 import spoon.reflect.reference.CtTypeReference;
 import spoon.reflect.visitor.CtVisitor;
 import spoon.support.SpoonClassNotFoundException;
+import spoon.support.reflect.declaration.CachedQualifiedName;
 import spoon.support.reflect.declaration.CtElementImpl;
 import spoon.support.util.QualifiedNameBasedSortedSet;
 import spoon.support.util.RtHelper;
 import spoon.support.visitor.ClassTypingContext;
+import spoon.support.visitor.TypeHierarchy;
 
 import java.lang.reflect.AnnotatedElement;
 import java.lang.reflect.Field;
@@ -74,6 +76,11 @@ public class CtTypeReferenceImpl<T> extends CtReferenceImpl implements CtTypeRef
 	@MetamodelPropertyField(role = CtRole.PACKAGE_REF)
 	private CtPackageReference pack;
 
+	/**
+	 * The qualified name computed by {@link #getQualifiedName()}
+	 */
+	transient CachedQualifiedName qualifiedName;
+
 	public CtTypeReferenceImpl() {
 		super();
 	}
@@ -187,6 +194,12 @@ public class CtTypeReferenceImpl<T> extends CtReferenceImpl implements CtTypeRef
 		if (t != null) {
 			return t;
 		}
+		if (getFactory().getEnvironment().isShadowTypesFromClassFiles()) {
+			t = getFactory().Type().getShadowFromClassFile(getQualifiedName());
+			if (t != null) {
+				return t;
+			}
+		}
 		return getFactory().Type().get(getActualClass());
 	}
 
@@ -202,13 +215,18 @@ public class CtTypeReferenceImpl<T> extends CtReferenceImpl implements CtTypeRef
 
 	@Override
 	public String getQualifiedName() {
+		String containerName = null;
+		String separator = null;
 		if (getDeclaringType() != null) {
-			return getDeclaringType().getQualifiedName() + CtType.INNERTTYPE_SEPARATOR + getSimpleName();
+			containerName = getDeclaringType().getQualifiedName();
+			separator = CtType.INNERTTYPE_SEPARATOR;
 		} else if (getPackage() != null && !getPackage().isUnnamedPackage()) {
-			return getPackage().getSimpleName() + CtPackage.PACKAGE_SEPARATOR + getSimpleName();
-		} else {
-			return getSimpleName();
+			containerName = getPackage().getSimpleName();
+			separator = CtPackage.PACKAGE_SEPARATOR;
 		}
+		CachedQualifiedName name = CachedQualifiedName.get(qualifiedName, containerName, separator, getSimpleName());
+		qualifiedName = name;
+		return name.getQualifiedName();
 	}
 
 	@Override
@@ -235,9 +253,30 @@ public class CtTypeReferenceImpl<T> extends CtReferenceImpl implements CtTypeRef
 			//everything is a sub type of Object
 			return true;
 		}
+		TypeHierarchy hierarchy = TypeHierarchy.getTypeHierarchy(getFactory().getEnvironment());
+		if (hierarchy != null && isHierarchyType(this) && isHierarchyType(type)) {
+			if (hierarchy.isSubtypeOf(this, type) == false) {
+				return false;
+			}
+			if (type.getActualTypeArguments().isEmpty() && type.getDeclaringType() == null) {
+				//the raw type or not a generic type, so the type arguments do not have to be checked
+				return true;
+			}
+		}
 		return new ClassTypingContext(this).isSubtypeOf(type);
 	}
 
+	/**
+	 * @return true if the super types of `type` are the ones of its declaration in the {@link TypeHierarchy}.
+	 * The super types of arrays, type parameters and intersection types depend on their component type or bounds,
+	 * so they are computed by {@link ClassTypingContext}.
+	 */
+	private static boolean isHierarchyType(CtTypeReference<?> type) {
+		return !(type instanceof CtArrayTypeReference)
+				&& !(type instanceof CtTypeParameterReference)
+				&& !(type instanceof CtIntersectionTypeReference);
+	}
+
 	/**
 	 * Detects if this type is an code responsible for implementing of that type.<br>
 	 * In means it detects whether this type can access protected members of that type
@@ -257,6 +296,9 @@ public class CtTypeReferenceImpl<T> extends CtReferenceImpl implements CtTypeRef
 	@Override
 	public <C extends CtActualTypeContainer> C setActualTypeArguments(List<? extends CtTypeReference<?>> actualTypeArguments) {
 		if (actualTypeArguments == null || actualTypeArguments.isEmpty()) {
+			if (!this.actualTypeArguments.isEmpty()) {
+				getFactory().getEnvironment().getModelChangeListener().onListDeleteAll(this, TYPE_ARGUMENT, this.actualTypeArguments, new ArrayList<>(this.actualTypeArguments));
+			}
 			this.actualTypeArguments = CtElementImpl.emptyList();
 			return (C) this;
 		}
@@ -16,17 +16,27 @@
  */
 package spoon.support.util;
 
+import java.util.AbstractSet;
 import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NavigableSet;
+import java.util.SortedSet;
 import java.util.TreeSet;
 
 import spoon.reflect.declaration.CtElement;
 import spoon.support.comparator.QualifiedNameComparator;
 
+/**
+ * A set of elements sorted by qualified name, which counts the elements added to it, see {@link #getAdditionCount()}.
+ */
 public class QualifiedNameBasedSortedSet<E extends CtElement> extends
 		TreeSet<E> {
 
 	private static final long serialVersionUID = 1L;
 
+	private transient int additionCount;
+
 	public QualifiedNameBasedSortedSet(Collection<E> elements) {
 		this();
 		addAll(elements);
@@ -36,4 +46,189 @@ public class QualifiedNameBasedSortedSet<E extends CtElement> extends
 		super(new QualifiedNameComparator());
 	}
 
+	/**
+	 * @return the number of additions to this set and to its views.
+	 * Removals are not counted, so the set has not been modified as long as both this count and its size are unchanged.
+	 */
+	public int getAdditionCount() {
+		return additionCount;
+	}
+
+	@Override
+	public boolean add(E e) {
+		boolean added = super.add(e);
+		if (added) {
+			additionCount++;
+		}
+		return added;
+	}
+
+	@Override
+	public boolean addAll(Collection<? extends E> c) {
+		boolean added = super.addAll(c);
+		if (added) {
+			additionCount++;
+		}
+		return added;
+	}
+
+	@Override
+	public NavigableSet<E> descendingSet() {
+		return new CountingView(super.descendingSet());
+	}
+
+	@Override
+	public NavigableSet<E> subSet(E fromElement, boolean fromInclusive, E toElement, boolean toInclusive) {
+		return new CountingView(super.subSet(fromElement, fromInclusive, toElement, toInclusive));
+	}
+
+	@Override
+	public NavigableSet<E> headSet(E toElement, boolean inclusive) {
+		return new CountingView(super.headSet(toElement, inclusive));
+	}
+
+	@Override
+	public NavigableSet<E> tailSet(E fromElement, boolean inclusive) {
+		return new CountingView(super.tailSet(fromElement, inclusive));
+	}
+
+	@Override
+	public SortedSet<E> subSet(E fromElement, E toElement) {
+		return subSet(fromElement, true, toElement, false);
+	}
+
+	@Override
+	public SortedSet<E> headSet(E toElement) {
+		return headSet(toElement, false);
+	}
+
+	@Override
+	public SortedSet<E> tailSet(E fromElement) {
+		return tailSet(fromElement, true);
+	}
+
+	/**
+	 * A modifiable view of this set, which counts the elements added through it
+	 */
+	private class CountingView extends AbstractSet<E> implements NavigableSet<E> {
+		private final NavigableSet<E> view;
+
+		CountingView(NavigableSet<E> view) {
+			this.view = view;
+		}
+
+		@Override
+		public boolean add(E e) {
+			boolean added = view.add(e);
+			if (added) {
+				additionCount++;
+			}
+			return added;
+		}
+
+		@Override
+		public boolean remove(Object o) {
+			return view.remove(o);
+		}
+
+		@Override
+		public boolean contains(Object o) {
+			return view.contains(o);
+		}
+
+		@Override
+		public int size() {
+			return view.size();
+		}
+
+		@Override
+		public Iterator<E> iterator() {
+			return view.iterator();
+		}
+
+		@Override
+		public Iterator<E> descendingIterator() {
+			return view.descendingIterator();
+		}
+
+		@Override
+		public Comparator<? super E> comparator() {
+			return view.comparator();
+		}
+
+		@Override
+		public E first() {
+			return view.first();
+		}
+
+		@Override
+		public E last() {
+			return view.last();
+		}
+
+		@Override
+		public E lower(E e) {
+			return view.lower(e);
+		}
+
+		@Override
+		public E floor(E e) {
+			return view.floor(e);
+		}
+
+		@Override
+		public E ceiling(E e) {
+			return view.ceiling(e);
+		}
+
+		@Override
+		public E higher(E e) {
+			return view.higher(e);
+		}
+
+		@Override
+		public E pollFirst() {
+			return view.pollFirst();
+		}
+
+		@Override
+		public E pollLast() {
+			return view.pollLast();
+		}
+
+		@Override
+		public NavigableSet<E> descendingSet() {
+			return new CountingView(view.descendingSet());
+		}
+
+		@Override
+		public NavigableSet<E> subSet(E fromElement, boolean fromInclusive, E toElement, boolean toInclusive) {
+			return new CountingView(view.subSet(fromElement, fromInclusive, toElement, toInclusive));
+		}
+
+		@Override
+		public NavigableSet<E> headSet(E toElement, boolean inclusive) {
+			return new CountingView(view.headSet(toElement, inclusive));
+		}
+
+		@Override
+		public NavigableSet<E> tailSet(E fromElement, boolean inclusive) {
+			return new CountingView(view.tailSet(fromElement, inclusive));
+		}
+
+		@Override
+		public SortedSet<E> subSet(E fromElement, E toElement) {
+			return new CountingView(view.subSet(fromElement, true, toElement, false));
+		}
+
+		@Override
+		public SortedSet<E> headSet(E toElement) {
+			return new CountingView(view.headSet(toElement, false));
+		}
+
+		@Override
+		public SortedSet<E> tailSet(E fromElement) {
+			return new CountingView(view.tailSet(fromElement, true));
+		}
+	}
 }
@@ -0,0 +1,169 @@
+/**
+ * Copyright (C) 2006-2017 INRIA and contributors
+ * Spoon - http://spoon.gforge.inria.fr/
+ *
+ * This software is governed by the CeCILL-C License under French law and
+ * abiding by the rules of distribution of free software. You can use, modify
+ * and/or redistribute the software under the terms of the CeCILL-C license as
+ * circulated by CEA, CNRS and INRIA at http://www.cecill.info.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the CeCILL-C License for more details.
+ *
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-C license and that you accept its terms.
+ */
+package spoon.support.visitor;
+
+import spoon.processing.ProcessInterruption;
+import spoon.processing.Processor;
+import spoon.processing.TraversalStrategy;
+import spoon.reflect.declaration.CtElement;
+import spoon.reflect.factory.Factory;
+import spoon.reflect.reference.CtReference;
+import spoon.reflect.visitor.CtScanner;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This visitor applies several processors in a single traversal of the model.
+ *
+ * Each scanned element is given to all the processors whose processed element types match
+ * the class of the element, in the order of the processors. The matching processors of a class
+ * are computed once and kept in a dispatch table, so that the processors which are not
+ * interested in a class of elements are never called for its instances.
+ * As in {@link ProcessingVisitor}, the children of the references are scanned only if
+ * one of the processors may handle them.
+ *
+ * A processor which throws a {@link ProcessInterruption} is not applied anymore,
+ * the other processors go on.
+ */
+public class FusedProcessingVisitor extends CtScanner {
+
+	private static final Processor<?>[] NO_PROCESSORS = new Processor<?>[0];
+
+	Factory factory;
+
+	private final List<Processor<?>> processors = new ArrayList<>();
+
+	private final Map<Class<?>, Processor<?>[]> preOrderProcessors = new HashMap<>();
+
+	private final Map<Class<?>, Processor<?>[]> postOrderProcessors = new HashMap<>();
+
+	/**
+	 * true if the children of the references are scanned, null if not computed yet
+	 */
+	private Boolean scanReferences;
+
+	private Processor<?> current;
+
+	/**
+	 * The constructor.
+	 */
+	public FusedProcessingVisitor(Factory factory) {
+		this.factory = factory;
+	}
+
+	/**
+	 * @return the processors which are applied, the interrupted ones excepted
+	 */
+	public List<Processor<?>> getProcessors() {
+		return processors;
+	}
+
+	/**
+	 * Sets the processors to be applied, in their order of application
+	 */
+	public void setProcessors(Collection<? extends Processor<?>> processors) {
+		this.processors.clear();
+		this.processors.addAll(processors);
+		clearDispatchTable();
+	}
+
+	/**
+	 * @return the processor which is currently processing an element, null if none
+	 */
+	public Processor<?> getCurrentProcessor() {
+		return current;
+	}
+
+	private void clearDispatchTable() {
+		preOrderProcessors.clear();
+		postOrderProcessors.clear();
+		scanReferences = null;
+	}
+
+	/**
+	 * @return the processors to be applied to the elements of class `elementClass` with the traversal strategy `strategy`
+	 */
+	private Processor<?>[] getProcessors(Class<?> elementClass, TraversalStrategy strategy) {
+		Map<Class<?>, Processor<?>[]> table = strategy == TraversalStrategy.PRE_ORDER ? preOrderProcessors : postOrderProcessors;
+		Processor<?>[] result = table.get(elementClass);
+		if (result == null) {
+			List<Processor<?>> matching = new ArrayList<>();
+			for (Processor<?> p : processors) {
+				if (p.getTraversalStrategy() == strategy && ProcessingVisitor.canBeProcessed(p, elementClass)) {
+					matching.add(p);
+				}
+			}
+			result = matching.isEmpty() ? NO_PROCESSORS : matching.toArray(new Processor<?>[matching.size()]);
+			table.put(elementClass, result);
+		}
+		return result;
+	}
+
+	private boolean isScanningReferences() {
+		if (scanReferences == null) {
+			scanReferences = false;
+			for (Processor<?> p : processors) {
+				if (ProcessingVisitor.canProcessReferenceContent(p)) {
+					scanReferences = true;
+					break;
+				}
+			}
+		}
+		return scanReferences;
+	}
+
+	/**
+	 * Applies the processors to the given element and its children. The processors whose
+	 * traversal strategy is {@link TraversalStrategy#PRE_ORDER} are called before the children
+	 * are scanned, the other ones after.
+	 */
+	@Override
+	public void scan(CtElement e) {
+		if (e == null || factory.getEnvironment().isProcessingStopped() || (e instanceof CtReference && !isScanningReferences())) {
+			return;
+		}
+		process(getProcessors(e.getClass(), TraversalStrategy.PRE_ORDER), e);
+		super.scan(e);
+		// the table is read again, because a processor may have been interrupted meanwhile
+		process(getProcessors(e.getClass(), TraversalStrategy.POST_ORDER), e);
+	}
+
+	@SuppressWarnings("unchecked")
+	private void process(Processor<?>[] matchingProcessors, CtElement e) {
+		for (Processor<?> matching : matchingProcessors) {
+			Processor<CtElement> p = (Processor<CtElement>) matching;
+			if (factory.getEnvironment().isProcessingStopped()) {
+				return;
+			}
+			current = p;
+			try {
+				if (p.isToBeProcessed(e)) {
+					p.process(e);
+				}
+			} catch (ProcessInterruption ignore) {
+				processors.remove(p);
+				clearDispatchTable();
+			} finally {
+				current = null;
+			}
+		}
+	}
+}
@@ -18,19 +18,73 @@ package spoon.support.visitor;
 
 import spoon.processing.Processor;
 import spoon.processing.TraversalStrategy;
+import spoon.reflect.code.CtAnnotationFieldAccess;
+import spoon.reflect.code.CtBinaryOperator;
+import spoon.reflect.code.CtConditional;
+import spoon.reflect.code.CtExpression;
+import spoon.reflect.code.CtFieldRead;
+import spoon.reflect.code.CtLiteral;
+import spoon.reflect.code.CtNewArray;
+import spoon.reflect.code.CtTypeAccess;
+import spoon.reflect.code.CtUnaryOperator;
+import spoon.reflect.code.CtVariableRead;
+import spoon.reflect.declaration.CtAnnotation;
 import spoon.reflect.declaration.CtElement;
 import spoon.reflect.factory.Factory;
+import spoon.reflect.meta.RoleHandler;
+import spoon.reflect.meta.impl.RoleHandlerHelper;
+import spoon.reflect.path.CtRole;
+import spoon.reflect.reference.CtReference;
 import spoon.reflect.visitor.CtScanner;
+import spoon.reflect.visitor.CtVisitor;
+
+import java.lang.reflect.Method;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * This visitor implements the code processing engine.
+ *
+ * Whether the processor handles the elements of a given implementation class is computed once
+ * per class. The children of the references are not scanned at all when the processor
+ * cannot handle any kind of element which may be found in them.
  */
 public class ProcessingVisitor extends CtScanner {
 
+	/**
+	 * The kinds of the expressions which may be found in a reference and its children: the values of its type annotations,
+	 * which are constant expressions, class literals, enum constants, annotations or array initializers
+	 */
+	private static final List<Class<? extends CtExpression>> ANNOTATION_VALUE_KINDS = Arrays.<Class<? extends CtExpression>>asList(
+			CtAnnotation.class, CtAnnotationFieldAccess.class, CtBinaryOperator.class, CtConditional.class, CtFieldRead.class,
+			CtLiteral.class, CtNewArray.class, CtTypeAccess.class, CtUnaryOperator.class, CtVariableRead.class);
+
+	/**
+	 * The kinds of elements which may be found in a reference and its children, see {@link #getReferenceContentKinds()}
+	 */
+	private static final Set<Class<?>> REFERENCE_CONTENT_KINDS = getReferenceContentKinds();
+
 	Factory factory;
 
 	Processor<?> processor;
 
+	/**
+	 * for each implementation class, true if the processor handles its instances
+	 */
+	private final Map<Class<?>, Boolean> processedClasses = new HashMap<>();
+
+	/**
+	 * true if the children of the references are scanned, null if not computed yet
+	 */
+	private Boolean scanReferences;
+
 	/**
 	 * The constructor.
 	 */
@@ -38,19 +92,104 @@ public class ProcessingVisitor extends CtScanner {
 		this.factory = factory;
 	}
 
-	private boolean canBeProcessed(CtElement e) {
-		if (!factory.getEnvironment().isProcessingStopped()
-				&& processor.getProcessedElementTypes() != null) {
-			for (Object o : processor.getProcessedElementTypes()) {
-				if (!((Class<?>) o).isAssignableFrom(e.getClass())) {
-					return false;
+	/**
+	 * Computes the kinds of elements which may be found in a reference and its children from the metamodel:
+	 * the kinds of references and, recursively, the kinds of the values of the roles of the found kinds.
+	 * The kinds are the ones visited by {@link CtVisitor}, the roles of a kind are the ones of its {@link RoleHandler}s
+	 * and the only expressions are the ones of {@link #ANNOTATION_VALUE_KINDS}.
+	 */
+	private static Set<Class<?>> getReferenceContentKinds() {
+		List<Class<?>> kinds = new ArrayList<>();
+		for (Method method : CtVisitor.class.getMethods()) {
+			if (method.getName().startsWith("visit") && method.getParameterCount() == 1) {
+				kinds.add(method.getParameterTypes()[0]);
+			}
+		}
+		Set<Class<?>> contentKinds = new LinkedHashSet<>();
+		Deque<Class<?>> toVisit = new ArrayDeque<>();
+		for (Class<?> kind : kinds) {
+			if (CtReference.class.isAssignableFrom(kind)) {
+				toVisit.add(kind);
+			}
+		}
+		while (!toVisit.isEmpty()) {
+			Class<?> kind = toVisit.poll();
+			if (!contentKinds.add(kind)) {
+				continue;
+			}
+			for (CtRole role : CtRole.values()) {
+				RoleHandler handler = RoleHandlerHelper.getOptionalRoleHandler(kind.asSubclass(CtElement.class), role);
+				if (handler == null || !CtElement.class.isAssignableFrom(handler.getValueClass())) {
+					continue;
+				}
+				for (Class<?> valueKind : kinds) {
+					if (handler.getValueClass().isAssignableFrom(valueKind)
+							&& (!CtExpression.class.isAssignableFrom(valueKind) || ANNOTATION_VALUE_KINDS.contains(valueKind))) {
+						toVisit.add(valueKind);
+					}
 				}
 			}
-			return true;
+		}
+		return contentKinds;
+	}
+
+	private boolean canBeProcessed(CtElement e) {
+		if (factory.getEnvironment().isProcessingStopped()) {
+			return false;
+		}
+		Boolean processed = processedClasses.get(e.getClass());
+		if (processed == null) {
+			processed = canBeProcessed(processor, e.getClass());
+			processedClasses.put(e.getClass(), processed);
+		}
+		return processed;
+	}
+
+	/**
+	 * @return true if all the processed element types of `processor` are assignable from `elementClass`
+	 */
+	static boolean canBeProcessed(Processor<?> processor, Class<?> elementClass) {
+		if (processor.getProcessedElementTypes() == null) {
+			return false;
+		}
+		for (Object o : processor.getProcessedElementTypes()) {
+			if (!((Class<?>) o).isAssignableFrom(elementClass)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return false if `processor` cannot handle any element found in the children of a reference,
+	 * so that the scanning of these children can be skipped
+	 */
+	static boolean canProcessReferenceContent(Processor<?> processor) {
+		if (processor.getProcessedElementTypes() == null) {
+			return false;
+		}
+		for (Object o : processor.getProcessedElementTypes()) {
+			Class<?> type = (Class<?>) o;
+			// only the kinds of the metamodel are known not to be implemented by the elements of the references
+			if (!type.isInterface() || !type.getName().startsWith("spoon.reflect.")) {
+				return true;
+			}
+		}
+		for (Class<?> kind : REFERENCE_CONTENT_KINDS) {
+			if (canBeProcessed(processor, kind)) {
+				return true;
+			}
 		}
 		return false;
 	}
 
+	private boolean isScanningReferences() {
+		if (scanReferences == null) {
+			scanReferences = canProcessReferenceContent(processor);
+		}
+		return scanReferences;
+	}
+
 	public Processor<?> getProcessor() {
 		return processor;
 	}
@@ -64,7 +203,7 @@ public class ProcessingVisitor extends CtScanner {
 	@Override
 	@SuppressWarnings("unchecked")
 	public void scan(CtElement e) {
-		if (e == null) {
+		if (e == null || (e instanceof CtReference && !isScanningReferences())) {
 			return;
 		}
 		Processor<CtElement> p = (Processor<CtElement>) processor;
@@ -84,6 +223,9 @@ public class ProcessingVisitor extends CtScanner {
 	}
 
 	public void setProcessor(Processor<?> processor) {
+		// the processed element types may have changed since the last call
+		processedClasses.clear();
+		scanReferences = null;
 		this.processor = processor;
 	}
 }
@@ -0,0 +1,270 @@
+/**
+ * Copyright (C) 2006-2017 INRIA and contributors
+ * Spoon - http://spoon.gforge.inria.fr/
+ *
+ * This software is governed by the CeCILL-C License under French law and
+ * abiding by the rules of distribution of free software. You can use, modify
+ * and/or redistribute the software under the terms of the CeCILL-C license as
+ * circulated by CEA, CNRS and INRIA at http://www.cecill.info.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the CeCILL-C License for more details.
+ *
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-C license and that you accept its terms.
+ */
+package spoon.support.visitor;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import spoon.compiler.Environment;
+import spoon.experimental.modelobs.ChainedModelChangeListener;
+import spoon.reflect.declaration.CtElement;
+import spoon.reflect.declaration.ModifierKind;
+import spoon.reflect.factory.Factory;
+import spoon.reflect.path.CtRole;
+import spoon.reflect.visitor.CtScanner;
+import spoon.support.reflect.declaration.CtElementImpl;
+
+/**
+ * Computes and caches the structural hashes of the elements of a model.
+ *
+ * The structural hash of an element combines the hash of the element computed by {@link HashcodeVisitor}
+ * with the structural hashes of all its children, in the order of {@link CtScanner}.
+ * So two elements which are equal by {@link CtElement#equals(Object)} have the same structural hash,
+ * and two elements whose structural hashes differ are not equal.
+ *
+ * The structural hash is stored on each element and it is computed again only after the element
+ * or one of its children has been modified: the cache is attached to the model by {@link #attachTo(Factory)},
+ * and it listens to the changes of the model to remove the cached hashes of the modified element and of its parents.
+ * The hashes are not cached anymore once this cache is not in the chain of the model change listener of the environment,
+ * see {@link ChainedModelChangeListener}.
+ */
+public class StructuralHashCache {
+	private final ChangeListener changeListener = new ChangeListener();
+	private Environment environment;
+	/**
+	 * The generation of the hashes cached since the last call of {@link #attachTo(Factory)}
+	 */
+	private volatile Object generation;
+
+	/**
+	 * @param env to be checked {@link Environment}
+	 * @return the {@link StructuralHashCache} attached to the `env` or null if there is none
+	 */
+	public static StructuralHashCache getStructuralHashCache(Environment env) {
+		ChangeListener listener = ChainedModelChangeListener.getListener(env, ChangeListener.class);
+		return listener == null ? null : listener.getStructuralHashCache();
+	}
+
+	/**
+	 * Attaches this cache to the model of `factory`.
+	 * The model change listener which was set in the environment is still notified.
+	 * @return this to support fluent API
+	 */
+	public StructuralHashCache attachTo(Factory factory) {
+		environment = factory.getEnvironment();
+		changeListener.attachTo(environment);
+		// the hashes cached before are not valid anymore
+		generation = new Object();
+		return this;
+	}
+
+	/**
+	 * @return the structural hash of `element`, 0 if `element` is null
+	 */
+	public int getStructuralHash(CtElement element) {
+		if (element == null) {
+			return 0;
+		}
+		boolean cached = isAttached() && element instanceof CtElementImpl;
+		if (cached) {
+			Object cachedHash = ((CtElementImpl) element).getStructuralHash();
+			if (cachedHash instanceof CachedHash && ((CachedHash) cachedHash).generation == generation) {
+				return ((CachedHash) cachedHash).hash;
+			}
+		}
+		HashcodeVisitor hashcodeVisitor = new HashcodeVisitor();
+		hashcodeVisitor.scan(element);
+		ChildrenHasher childrenHasher = new ChildrenHasher(hashcodeVisitor.getHasCode());
+		element.accept(childrenHasher);
+		if (cached) {
+			((CtElementImpl) element).setStructuralHash(new CachedHash(generation, childrenHasher.hash));
+		}
+		return childrenHasher.hash;
+	}
+
+	/**
+	 * @return false if `element` and `other` are known to be different, true if they may be equal
+	 */
+	public boolean mayBeEqual(CtElement element, CtElement other) {
+		return getStructuralHash(element) == getStructuralHash(other);
+	}
+
+	private boolean isAttached() {
+		return environment != null && changeListener.isAttachedTo(environment);
+	}
+
+	/**
+	 * Removes the cached hashes of `element` and of its parents
+	 */
+	private void onChange(CtElement element) {
+		CtElement e = element;
+		// the parents of an element without a cached hash have no cached hash either
+		while (e instanceof CtElementImpl && ((CtElementImpl) e).getStructuralHash() != null) {
+			((CtElementImpl) e).setStructuralHash(null);
+			if (!e.isParentInitialized()) {
+				break;
+			}
+			e = e.getParent();
+		}
+	}
+
+	/**
+	 * The structural hash of an element, which is valid as long as the generation of the cache does not change
+	 */
+	private static final class CachedHash {
+		private final Object generation;
+		private final int hash;
+
+		private CachedHash(Object generation, int hash) {
+			this.generation = generation;
+			this.hash = hash;
+		}
+	}
+
+	/**
+	 * Combines the hash of an element with the structural hashes of its children.
+	 * A new one is created for each element, so that the hashes of several elements may be computed at the same time.
+	 */
+	private class ChildrenHasher extends CtScanner {
+		private int hash;
+
+		private ChildrenHasher(int hash) {
+			this.hash = hash;
+		}
+
+		@Override
+		public void scan(CtRole role, Collection<? extends CtElement> elements) {
+			// the children are not modified, no need for a defensive copy
+			if (elements != null) {
+				for (CtElement e : elements) {
+					scan(role, e);
+				}
+			}
+		}
+
+		@Override
+		public void scan(CtRole role, CtElement element) {
+			if (element != null) {
+				hash = 31 * hash + getStructuralHash(element);
+			}
+		}
+	}
+
+	private class ChangeListener extends ChainedModelChangeListener {
+		private StructuralHashCache getStructuralHashCache() {
+			return StructuralHashCache.this;
+		}
+
+		@Override
+		public void onObjectUpdate(CtElement currentElement, CtRole role, CtElement newValue, CtElement oldValue) {
+			onChange(currentElement);
+			super.onObjectUpdate(currentElement, role, newValue, oldValue);
+		}
+
+		@Override
+		public void onObjectUpdate(CtElement currentElement, CtRole role, Object newValue, Object oldValue) {
+			onChange(currentElement);
+			super.onObjectUpdate(currentElement, role, newValue, oldValue);
+		}
+
+		@Override
+		public void onObjectDelete(CtElement currentElement, CtRole role, CtElement oldValue) {
+			onChange(currentElement);
+			super.onObjectDelete(currentElement, role, oldValue);
+		}
+
+		@Override
+		public void onListAdd(CtElement currentElement, CtRole role, List field, CtElement newValue) {
+			onChange(currentElement);
+			super.onListAdd(currentElement, role, field, newValue);
+		}
+
+		@Override
+		public void onListAdd(CtElement currentElement, CtRole role, List field, int index, CtElement newValue) {
+			onChange(currentElement);
+			super.onListAdd(currentElement, role, field, index, newValue);
+		}
+
+		@Override
+		public void onListDelete(CtElement currentElement, CtRole role, List field, Collection<? extends CtElement> oldValue) {
+			onChange(currentElement);
+			super.onListDelete(currentElement, role, field, oldValue);
+		}
+
+		@Override
+		public void onListDelete(CtElement currentElement, CtRole role, List field, int index, CtElement oldValue) {
+			onChange(currentElement);
+			super.onListDelete(currentElement, role, field, index, oldValue);
+		}
+
+		@Override
+		public void onListDeleteAll(CtElement currentElement, CtRole role, List field, List oldValue) {
+			onChange(currentElement);
+			super.onListDeleteAll(currentElement, role, field, oldValue);
+		}
+
+		@Override
+		public <K, V> void onMapAdd(CtElement currentElement, CtRole role, Map<K, V> field, K key, CtElement newValue) {
+			onChange(currentElement);
+			super.onMapAdd(currentElement, role, field, key, newValue);
+		}
+
+		@Override
+		public <K, V> void onMapDeleteAll(CtElement currentElement, CtRole role, Map<K, V> field, Map<K, V> oldValue) {
+			onChange(currentElement);
+			super.onMapDeleteAll(currentElement, role, field, oldValue);
+		}
+
+		@Override
+		public void onSetAdd(CtElement currentElement, CtRole role, Set field, CtElement newValue) {
+			onChange(currentElement);
+			super.onSetAdd(currentElement, role, field, newValue);
+		}
+
+		@Override
+		public <T extends Enum> void onSetAdd(CtElement currentElement, CtRole role, Set field, T newValue) {
+			onChange(currentElement);
+			super.onSetAdd(currentElement, role, field, newValue);
+		}
+
+		@Override
+		public void onSetDelete(CtElement currentElement, CtRole role, Set field, CtElement oldValue) {
+			onChange(currentElement);
+			super.onSetDelete(currentElement, role, field, oldValue);
+		}
+
+		@Override
+		public void onSetDelete(CtElement currentElement, CtRole role, Set field, Collection<ModifierKind> oldValue) {
+			onChange(currentElement);
+			super.onSetDelete(currentElement, role, field, oldValue);
+		}
+
+		@Override
+		public void onSetDelete(CtElement currentElement, CtRole role, Set field, ModifierKind oldValue) {
+			onChange(currentElement);
+			super.onSetDelete(currentElement, role, field, oldValue);
+		}
+
+		@Override
+		public void onSetDeleteAll(CtElement currentElement, CtRole role, Set field, Set oldValue) {
+			onChange(currentElement);
+			super.onSetDeleteAll(currentElement, role, field, oldValue);
+		}
+	}
+}
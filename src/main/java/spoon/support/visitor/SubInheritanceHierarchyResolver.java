@@ -17,8 +17,10 @@
 package spoon.support.visitor;
 
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Deque;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import spoon.SpoonException;
@@ -115,6 +117,11 @@ public class SubInheritanceHierarchyResolver {
 	 * @param outputConsumer the consumer for found sub types
 	 */
 	public <T extends CtType<?>> void forEachSubTypeInPackage(final CtConsumer<T> outputConsumer) {
+		TypeHierarchy hierarchy = TypeHierarchy.getTypeHierarchy(inputPackage.getFactory().getEnvironment());
+		if (hierarchy != null && failOnClassNotFound == false) {
+			forEachSubTypeInHierarchy(hierarchy, outputConsumer);
+			return;
+		}
 		/*
 		 * Set of qualified names of all visited types, independent on whether they are sub types or not.
 		 */
@@ -212,6 +219,25 @@ public class SubInheritanceHierarchyResolver {
 		});
 	}
 
+	/**
+	 * Calls `outputConsumer.apply(subType)` for each sub type of the targetSuperTypes
+	 * that are found in `inputPackage`, using the precomputed `hierarchy` instead of scanning the package.
+	 */
+	@SuppressWarnings("unchecked")
+	private <T extends CtType<?>> void forEachSubTypeInHierarchy(TypeHierarchy hierarchy, CtConsumer<T> outputConsumer) {
+		List<CtType<?>> subTypes = new ArrayList<>();
+		for (String superTypeName : targetSuperTypes) {
+			subTypes.addAll(hierarchy.getAllSubTypes(superTypeName));
+		}
+		for (CtType<?> subType : subTypes) {
+			if ((includingInterfaces || subType instanceof CtClass)
+					&& (inputPackage.isUnnamedPackage() || subType.hasParent(inputPackage))
+					&& targetSuperTypes.add(subType.getQualifiedName())) {
+				outputConsumer.accept((T) subType);
+			}
+		}
+	}
+
 	/**
 	 * accept all {@link CtType} excluding {@link CtTypeParameter}
 	 */
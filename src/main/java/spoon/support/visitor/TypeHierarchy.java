@@ -0,0 +1,459 @@
+/**
+ * Copyright (C) 2006-2017 INRIA and contributors
+ * Spoon - http://spoon.gforge.inria.fr/
+ *
+ * This software is governed by the CeCILL-C License under French law and
+ * abiding by the rules of distribution of free software. You can use, modify
+ * and/or redistribute the software under the terms of the CeCILL-C license as
+ * circulated by CEA, CNRS and INRIA at http://www.cecill.info.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the CeCILL-C License for more details.
+ *
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-C license and that you accept its terms.
+ */
+package spoon.support.visitor;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import spoon.compiler.Environment;
+import spoon.experimental.modelobs.ChainedModelChangeListener;
+import spoon.reflect.declaration.CtClass;
+import spoon.reflect.declaration.CtElement;
+import spoon.reflect.declaration.CtModule;
+import spoon.reflect.declaration.CtPackage;
+import spoon.reflect.declaration.CtType;
+import spoon.reflect.declaration.CtTypeInformation;
+import spoon.reflect.declaration.CtTypeParameter;
+import spoon.reflect.factory.Factory;
+import spoon.reflect.path.CtRole;
+import spoon.reflect.reference.CtReference;
+import spoon.reflect.reference.CtTypeReference;
+import spoon.reflect.visitor.CtScanner;
+import spoon.reflect.visitor.EarlyTerminatingScanner;
+import spoon.support.SpoonClassNotFoundException;
+
+/**
+ * The type hierarchy of a model, which answers the sub type and super type queries without scanning the model.
+ *
+ * The direct super types of all the types of the model (including nested, local and anonymous types)
+ * and the reverse edges are computed once, on the first query.
+ * The super types of the types which are not in the model (e.g. shadow types of the JDK) are computed once too.
+ * The transitive super types of each type are memoized.
+ *
+ * The hierarchy is attached to the model by {@link #attachTo(Factory)}: it listens to the changes of the model
+ * and it is computed again after a type has been added, removed, renamed or its super types have been changed.
+ * It is also computed again on each query once it is not in the chain of the model change listener of the environment anymore,
+ * see {@link ChainedModelChangeListener}.
+ *
+ * The hierarchy can be queried by several threads at the same time, e.g. by the processors of a {@link spoon.support.ParallelProcessingManager},
+ * as long as the model is not modified meanwhile.
+ * {@link SubInheritanceHierarchyResolver} and {@link CtTypeReference#isSubtypeOf(CtTypeReference)}
+ * use the hierarchy of the environment when there is one, see {@link #getTypeHierarchy(Environment)}.
+ */
+public class TypeHierarchy {
+	private final ChangeListener changeListener = new ChangeListener();
+	private Factory factory;
+
+	/**
+	 * The types of the model by qualified name, null when they have to be computed
+	 */
+	private Map<String, CtType<?>> modelTypes;
+	/**
+	 * The direct super types of the types of the model, by qualified name
+	 */
+	private final Map<String, List<CtTypeReference<?>>> modelSuperTypes = new HashMap<>();
+	/**
+	 * The qualified names of the direct sub types in the model, by qualified name of the super type
+	 */
+	private final Map<String, List<String>> modelSubTypes = new HashMap<>();
+	/**
+	 * The direct super types of the types which are not in the model, by qualified name.
+	 * They do not depend on the model, so they are kept when it changes.
+	 */
+	private final Map<String, List<CtTypeReference<?>>> externalSuperTypes = new ConcurrentHashMap<>();
+	/**
+	 * The qualified names of all the super types, by qualified name
+	 */
+	private final Map<String, Set<String>> allSuperTypes = new ConcurrentHashMap<>();
+	/**
+	 * The elements added to the model since the last query, which may contain types
+	 */
+	private final List<CtElement> addedElements = new ArrayList<>();
+	/**
+	 * true if the model has been modified, so that the hierarchy must be computed again
+	 */
+	private boolean modified;
+
+	/**
+	 * @param env to be checked {@link Environment}
+	 * @return the {@link TypeHierarchy} attached to the `env` or null if there is none
+	 */
+	public static TypeHierarchy getTypeHierarchy(Environment env) {
+		ChangeListener listener = ChainedModelChangeListener.getListener(env, ChangeListener.class);
+		return listener == null ? null : listener.getTypeHierarchy();
+	}
+
+	/**
+	 * Attaches this hierarchy to the model of `factory`.
+	 * The model change listener which was set in the environment is still notified.
+	 * @return this to support fluent API
+	 */
+	public TypeHierarchy attachTo(Factory factory) {
+		this.factory = factory;
+		changeListener.attachTo(factory.getEnvironment());
+		modified = true;
+		return this;
+	}
+
+	/**
+	 * @return true if `subType` is `superType` or one of its sub types. The actual type arguments are ignored.
+	 */
+	public boolean isSubtypeOf(CtTypeReference<?> subType, CtTypeReference<?> superType) {
+		String superTypeName = superType.getQualifiedName();
+		return superTypeName.equals(subType.getQualifiedName()) || getAllSuperTypes(subType).contains(superTypeName);
+	}
+
+	/**
+	 * @return the qualified names of all the super classes and super interfaces of `type`, including java.lang.Object for classes
+	 */
+	public Set<String> getAllSuperTypes(CtTypeInformation type) {
+		update();
+		return getSuperTypeNames(getReference(type));
+	}
+
+	/**
+	 * @return all the types of the model which extend or implement `type`, directly or not
+	 */
+	public List<CtType<?>> getAllSubTypes(CtTypeInformation type) {
+		return getAllSubTypes(type.getQualifiedName());
+	}
+
+	List<CtType<?>> getAllSubTypes(String qualifiedName) {
+		update();
+		List<CtType<?>> result = new ArrayList<>();
+		Set<String> visited = new HashSet<>();
+		Deque<String> toVisit = new ArrayDeque<>();
+		toVisit.add(qualifiedName);
+		while (!toVisit.isEmpty()) {
+			List<String> subTypes = modelSubTypes.get(toVisit.poll());
+			if (subTypes == null) {
+				continue;
+			}
+			for (String subType : subTypes) {
+				if (visited.add(subType)) {
+					result.add(modelTypes.get(subType));
+					toVisit.add(subType);
+				}
+			}
+		}
+		return result;
+	}
+
+	private static CtTypeReference<?> getReference(CtTypeInformation type) {
+		if (type instanceof CtType) {
+			return ((CtType<?>) type).getReference();
+		}
+		return (CtTypeReference<?>) type;
+	}
+
+	private Set<String> getSuperTypeNames(CtTypeReference<?> type) {
+		String name = type.getQualifiedName();
+		Set<String> names = allSuperTypes.get(name);
+		if (names == null) {
+			Set<String> collectedNames = new LinkedHashSet<>();
+			collectSuperTypeNames(type, collectedNames);
+			// the set is published once it is complete, so that it can be read by other threads
+			names = Collections.unmodifiableSet(collectedNames);
+			Set<String> previousNames = allSuperTypes.putIfAbsent(name, names);
+			if (previousNames != null) {
+				names = previousNames;
+			}
+		}
+		return names;
+	}
+
+	private void collectSuperTypeNames(CtTypeReference<?> type, Set<String> names) {
+		for (CtTypeReference<?> superType : getDirectSuperTypes(type)) {
+			String superTypeName = superType.getQualifiedName();
+			// the names which are already collected are skipped, so that an inheritance cycle of invalid code terminates
+			if (names.add(superTypeName)) {
+				Set<String> superTypeNames = allSuperTypes.get(superTypeName);
+				if (superTypeNames != null) {
+					names.addAll(superTypeNames);
+				} else {
+					collectSuperTypeNames(superType, names);
+				}
+			}
+		}
+	}
+
+	private List<CtTypeReference<?>> getDirectSuperTypes(CtTypeReference<?> type) {
+		String name = type.getQualifiedName();
+		List<CtTypeReference<?>> superTypes = modelSuperTypes.get(name);
+		if (superTypes == null) {
+			superTypes = externalSuperTypes.get(name);
+			if (superTypes == null) {
+				CtType<?> declaration;
+				try {
+					declaration = type.getTypeDeclaration();
+				} catch (SpoonClassNotFoundException e) {
+					declaration = null;
+				}
+				superTypes = declaration == null ? Collections.<CtTypeReference<?>>emptyList() : computeDirectSuperTypes(declaration);
+				// another thread may have computed them in the meantime
+				List<CtTypeReference<?>> previousSuperTypes = externalSuperTypes.putIfAbsent(name, superTypes);
+				if (previousSuperTypes != null) {
+					superTypes = previousSuperTypes;
+				}
+			}
+		}
+		return superTypes;
+	}
+
+	private List<CtTypeReference<?>> computeDirectSuperTypes(CtType<?> type) {
+		List<CtTypeReference<?>> superTypes = new ArrayList<>();
+		CtTypeReference<?> superClass = type.getSuperclass();
+		if (superClass == null && type instanceof CtClass && !Object.class.getName().equals(type.getQualifiedName())) {
+			// only classes extend java.lang.Object, as in SuperInheritanceHierarchyFunction
+			superClass = type.getFactory().Type().OBJECT;
+		}
+		if (superClass != null) {
+			superTypes.add(superClass);
+		}
+		superTypes.addAll(type.getSuperInterfaces());
+		return superTypes;
+	}
+
+	/**
+	 * Computes the hierarchy of the model again if it has been modified
+	 */
+	private synchronized void update() {
+		if (!changeListener.isAttachedTo(factory.getEnvironment())) {
+			// another listener replaced this one, so the changes of the model are not known anymore
+			modified = true;
+		}
+		if (!modified) {
+			for (CtElement element : addedElements) {
+				if (containsType(element)) {
+					modified = true;
+					break;
+				}
+			}
+		}
+		addedElements.clear();
+		if (modified) {
+			modelTypes = null;
+			modelSuperTypes.clear();
+			modelSubTypes.clear();
+			allSuperTypes.clear();
+			modified = false;
+		}
+		if (modelTypes == null) {
+			modelTypes = new HashMap<>();
+			new CtScanner() {
+				@Override
+				protected void enter(CtElement e) {
+					if (e instanceof CtType && !(e instanceof CtTypeParameter)) {
+						addModelType((CtType<?>) e);
+					}
+				}
+			}.scan(factory.getModel().getUnnamedModule());
+		}
+	}
+
+	private void addModelType(CtType<?> type) {
+		String name = type.getQualifiedName();
+		List<CtTypeReference<?>> superTypes = computeDirectSuperTypes(type);
+		modelTypes.put(name, type);
+		modelSuperTypes.put(name, superTypes);
+		for (CtTypeReference<?> superType : superTypes) {
+			String superTypeName = superType.getQualifiedName();
+			List<String> subTypes = modelSubTypes.get(superTypeName);
+			if (subTypes == null) {
+				subTypes = new ArrayList<>();
+				modelSubTypes.put(superTypeName, subTypes);
+			}
+			subTypes.add(name);
+		}
+	}
+
+	private static boolean containsType(CtElement element) {
+		EarlyTerminatingScanner<Boolean> scanner = new EarlyTerminatingScanner<Boolean>() {
+			@Override
+			protected void enter(CtElement e) {
+				if (e instanceof CtType) {
+					setResult(true);
+					terminate();
+				}
+			}
+		};
+		scanner.scan(element);
+		return scanner.getResult() != null;
+	}
+
+	/**
+	 * @return true if `element` is a descendant of the unnamed module of the model
+	 */
+	private boolean isInModel(CtElement element) {
+		CtModule unnamedModule = factory.getModel().getUnnamedModule();
+		CtElement current = element;
+		while (current != unnamedModule) {
+			if (!current.isParentInitialized()) {
+				return false;
+			}
+			current = current.getParent();
+		}
+		return true;
+	}
+
+	/**
+	 * @return true if `reference` is (a part of) a reference to the super class or a super interface of a type
+	 */
+	private static boolean isSuperTypeReference(CtReference reference) {
+		CtElement element = reference;
+		while (element instanceof CtReference) {
+			if (!element.isParentInitialized()) {
+				return false;
+			}
+			element = element.getParent();
+		}
+		return element instanceof CtType;
+	}
+
+	private synchronized void onChange(CtElement currentElement, CtRole role, Object newValue, Object oldValue) {
+		if (modelTypes == null || modified || !isInModel(currentElement)) {
+			// the hierarchy does not depend on it or it is computed again anyway
+			return;
+		}
+		if (currentElement instanceof CtReference) {
+			modified = isSuperTypeReference((CtReference) currentElement);
+			return;
+		}
+		if ((currentElement instanceof CtType || currentElement instanceof CtPackage)
+				&& (role == CtRole.NAME || role == CtRole.SUPER_TYPE || role == CtRole.INTERFACE)) {
+			modified = true;
+			return;
+		}
+		onRemove(oldValue);
+		onAdd(newValue);
+	}
+
+	private void onAdd(Object newValue) {
+		if (newValue instanceof CtType) {
+			modified = true;
+		} else if (newValue instanceof CtElement) {
+			// it is scanned on the next query only
+			addedElements.add((CtElement) newValue);
+		}
+	}
+
+	private void onRemove(Object oldValue) {
+		if (oldValue instanceof CtElement) {
+			modified |= containsType((CtElement) oldValue);
+		} else if (oldValue instanceof Collection) {
+			for (Object value : (Collection<?>) oldValue) {
+				onRemove(value);
+			}
+		} else if (oldValue instanceof Map) {
+			onRemove(((Map<?, ?>) oldValue).values());
+		}
+	}
+
+	private class ChangeListener extends ChainedModelChangeListener {
+		private TypeHierarchy getTypeHierarchy() {
+			return TypeHierarchy.this;
+		}
+
+		@Override
+		public void onObjectUpdate(CtElement currentElement, CtRole role, CtElement newValue, CtElement oldValue) {
+			onChange(currentElement, role, newValue, oldValue);
+			super.onObjectUpdate(currentElement, role, newValue, oldValue);
+		}
+
+		@Override
+		public void onObjectUpdate(CtElement currentElement, CtRole role, Object newValue, Object oldValue) {
+			onChange(currentElement, role, newValue, oldValue);
+			super.onObjectUpdate(currentElement, role, newValue, oldValue);
+		}
+
+		@Override
+		public void onObjectDelete(CtElement currentElement, CtRole role, CtElement oldValue) {
+			onChange(currentElement, role, null, oldValue);
+			super.onObjectDelete(currentElement, role, oldValue);
+		}
+
+		@Override
+		public void onListAdd(CtElement currentElement, CtRole role, List field, CtElement newValue) {
+			onChange(currentElement, role, newValue, null);
+			super.onListAdd(currentElement, role, field, newValue);
+		}
+
+		@Override
+		public void onListAdd(CtElement currentElement, CtRole role, List field, int index, CtElement newValue) {
+			onChange(currentElement, role, newValue, null);
+			super.onListAdd(currentElement, role, field, index, newValue);
+		}
+
+		@Override
+		public void onListDelete(CtElement currentElement, CtRole role, List field, Collection<? extends CtElement> oldValue) {
+			onChange(currentElement, role, null, oldValue);
+			super.onListDelete(currentElement, role, field, oldValue);
+		}
+
+		@Override
+		public void onListDelete(CtElement currentElement, CtRole role, List field, int index, CtElement oldValue) {
+			onChange(currentElement, role, null, oldValue);
+			super.onListDelete(currentElement, role, field, index, oldValue);
+		}
+
+		@Override
+		public void onListDeleteAll(CtElement currentElement, CtRole role, List field, List oldValue) {
+			onChange(currentElement, role, null, oldValue);
+			super.onListDeleteAll(currentElement, role, field, oldValue);
+		}
+
+		@Override
+		public <K, V> void onMapAdd(CtElement currentElement, CtRole role, Map<K, V> field, K key, CtElement newValue) {
+			onChange(currentElement, role, newValue, null);
+			super.onMapAdd(currentElement, role, field, key, newValue);
+		}
+
+		@Override
+		public <K, V> void onMapDeleteAll(CtElement currentElement, CtRole role, Map<K, V> field, Map<K, V> oldValue) {
+			onChange(currentElement, role, null, oldValue);
+			super.onMapDeleteAll(currentElement, role, field, oldValue);
+		}
+
+		@Override
+		public void onSetAdd(CtElement currentElement, CtRole role, Set field, CtElement newValue) {
+			onChange(currentElement, role, newValue, null);
+			super.onSetAdd(currentElement, role, field, newValue);
+		}
+
+		@Override
+		public void onSetDelete(CtElement currentElement, CtRole role, Set field, CtElement oldValue) {
+			onChange(currentElement, role, null, oldValue);
+			super.onSetDelete(currentElement, role, field, oldValue);
+		}
+
+		@Override
+		public void onSetDeleteAll(CtElement currentElement, CtRole role, Set field, Set oldValue) {
+			onChange(currentElement, role, null, oldValue);
+			super.onSetDeleteAll(currentElement, role, field, oldValue);
+		}
+	}
+}
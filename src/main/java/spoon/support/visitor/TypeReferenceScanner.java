@@ -46,6 +46,7 @@ public class TypeReferenceScanner extends CtScanner {
 	 */
 	public TypeReferenceScanner() {
 		references = new HashSet<>();
+		setReadOnly(true);
 	}
 
 	/**
@@ -56,6 +57,7 @@ public class TypeReferenceScanner extends CtScanner {
 	 */
 	public TypeReferenceScanner(HashSet<CtTypeReference<?>> references) {
 		this.references = references;
+		setReadOnly(true);
 	}
 
 	/**
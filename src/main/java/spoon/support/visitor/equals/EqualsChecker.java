@@ -47,6 +47,14 @@ public class EqualsChecker extends CtInheritanceScanner {
 		return isNotEqual;
 	}
 
+	/**
+	 * Resets this checker, so that it can be used for a new comparison
+	 */
+	void reset() {
+		isNotEqual = false;
+		other = null;
+	}
+
 	@Override
 	public void scanCtNamedElement(CtNamedElement e) {
 		final CtNamedElement peek = (CtNamedElement) this.other;
@@ -18,26 +18,83 @@
 package spoon.support.visitor.equals;
 
 
+import spoon.compiler.Environment;
 import spoon.reflect.declaration.CtElement;
+import spoon.reflect.declaration.CtNamedElement;
 import spoon.reflect.path.CtRole;
+import spoon.reflect.reference.CtReference;
 import spoon.reflect.visitor.CtBiScannerDefault;
+import spoon.support.visitor.StructuralHashCache;
 
 import java.util.Collection;
 
 /**
  * Used to check equality between an element and another one.
  *
+ * The simple names of the compared elements are checked first. When a {@link StructuralHashCache}
+ * is attached to the environment of the compared elements, the structural hashes of elements
+ * of the same class are compared too, so that different elements are usually told apart without scanning them.
+ *
+ * An instance can be reused for several comparisons with {@link #checkEquals(CtElement, CtElement)},
+ * which avoids the creation of a new visitor for each pair of elements, e.g. in clone detection.
  */
 public class EqualsVisitor extends CtBiScannerDefault {
 	public static boolean equals(CtElement element, CtElement other) {
-		EqualsVisitor equalsVisitor = new EqualsVisitor();
-		equalsVisitor.biScan(element, other);
+		return new EqualsVisitor().checkEquals(element, other);
+	}
+
+	private final EqualsChecker checker = new EqualsChecker();
+
+	/**
+	 * Checks whether `element` and `other` are equal. This visitor can be reused after the call.
+	 * @return true if `element` and `other` are equal
+	 */
+	public boolean checkEquals(CtElement element, CtElement other) {
+		isNotEqual = false;
+		checker.reset();
+		stack.clear();
+		if (!mayBeEqual(element, other)) {
+			return false;
+		}
+		biScan(element, other);
 
 		// double negation is always hard to understand, but this is legacy :-)
-		return !equalsVisitor.isNotEqual;
+		return !isNotEqual;
 	}
 
-	private final EqualsChecker checker = new EqualsChecker();
+	/**
+	 * Compares the cheap fingerprints of `element` and `other`
+	 * @return false if `element` and `other` are known to be different
+	 */
+	protected boolean mayBeEqual(CtElement element, CtElement other) {
+		if (element == other || element == null || other == null) {
+			return true;
+		}
+		// elements of different classes are not scanned the same way, their structural hashes cannot be compared
+		if (element.getClass() != other.getClass()) {
+			return true;
+		}
+		if (element instanceof CtNamedElement && isDifferent(((CtNamedElement) element).getSimpleName(), ((CtNamedElement) other).getSimpleName())) {
+			return false;
+		}
+		if (element instanceof CtReference && isDifferent(((CtReference) element).getSimpleName(), ((CtReference) other).getSimpleName())) {
+			return false;
+		}
+		if (element.getFactory() == null || other.getFactory() == null) {
+			return true;
+		}
+		Environment environment = element.getFactory().getEnvironment();
+		if (environment != other.getFactory().getEnvironment()) {
+			// the cache of an environment does not see the changes of the elements of another one
+			return true;
+		}
+		StructuralHashCache cache = StructuralHashCache.getStructuralHashCache(environment);
+		return cache == null || cache.mayBeEqual(element, other);
+	}
+
+	private static boolean isDifferent(String name, String otherName) {
+		return name != null && otherName != null && !name.equals(otherName);
+	}
 
 	@Override
 	protected void enter(CtElement e) {
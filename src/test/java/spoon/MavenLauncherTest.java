@@ -1,16 +1,34 @@
 package spoon;
 
 import org.apache.commons.lang3.StringUtils;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import spoon.reflect.CtModel;
+import spoon.reflect.code.CtInvocation;
+import spoon.reflect.declaration.CtType;
+import spoon.reflect.visitor.filter.TypeFilter;
+import spoon.support.compiler.FileSystemFolder;
 
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 public class MavenLauncherTest {
+	@Rule
+	public TemporaryFolder tmpFolder = new TemporaryFolder();
+
 	@Test
 	public void spoonMavenLauncherTest() {
 		// without the tests
@@ -69,4 +87,96 @@ public class MavenLauncherTest {
 
 		assertTrue("Content of classpath: "+ StringUtils.join(classpath,":"), findIt);
 	}
+
+	@Test
+	public void mavenLauncherTestWithClasspathCache() throws Exception {
+		// contract: the classpath is saved in the classpath cache file and loaded from it while the POM files do not change
+		String project = "./src/test/resources/maven-launcher/pac4j/pac4j-config";
+		String m2RepositoryPath = Paths.get(System.getProperty("user.home"), ".m2", "repository").toString();
+		File cacheFile = tmpFolder.newFile("classpath.txt");
+		MavenLauncher launcher = new MavenLauncher(project, m2RepositoryPath, MavenLauncher.SOURCE_TYPE.ALL_SOURCE, cacheFile);
+		Set<String> classpath = new HashSet<>(Arrays.asList(launcher.getEnvironment().getSourceClasspath()));
+		assertEquals(classpath, new HashSet<>(Arrays.asList(new MavenLauncher(project, MavenLauncher.SOURCE_TYPE.ALL_SOURCE).getEnvironment().getSourceClasspath())));
+
+		List<String> lines = Files.readAllLines(cacheFile.toPath());
+		assertEquals(classpath, new HashSet<>(lines.subList(2, lines.size())));
+		String pom = new File("pom.xml").getAbsolutePath();
+		Files.write(cacheFile.toPath(), Arrays.asList(lines.get(0), lines.get(1), pom));
+		launcher = new MavenLauncher(project, m2RepositoryPath, MavenLauncher.SOURCE_TYPE.ALL_SOURCE, cacheFile);
+		assertArrayEquals(new String[] {pom}, launcher.getEnvironment().getSourceClasspath());
+
+		// contract: a classpath saved for other POM files is resolved again
+		Files.write(cacheFile.toPath(), Arrays.asList("other", lines.get(1), pom));
+		launcher = new MavenLauncher(project, m2RepositoryPath, MavenLauncher.SOURCE_TYPE.ALL_SOURCE, cacheFile);
+		assertEquals(classpath, new HashSet<>(Arrays.asList(launcher.getEnvironment().getSourceClasspath())));
+	}
+
+	@Test
+	public void mavenLauncherTestWithCyclicLibraries() throws Exception {
+		// contract: the classpath contains all the libraries of a dependency cycle, whichever library of the cycle is reached first
+		File m2Repository = tmpFolder.newFolder("repository");
+		// lib-a -> lib-b -> lib-a, lib-d and lib-c -> lib-b
+		writeLibrary(m2Repository, "lib-a", "lib-b");
+		writeLibrary(m2Repository, "lib-b", "lib-a", "lib-d");
+		writeLibrary(m2Repository, "lib-c", "lib-b");
+		writeLibrary(m2Repository, "lib-d");
+		File project = tmpFolder.newFolder("project");
+		writePom(new File(project, "pom.xml"), "project", "lib-a", "lib-c");
+
+		MavenLauncher launcher = new MavenLauncher(project.getPath(), m2Repository.getPath(), MavenLauncher.SOURCE_TYPE.APP_SOURCE);
+		Set<String> classpath = new HashSet<>();
+		for (String entry : launcher.getEnvironment().getSourceClasspath()) {
+			classpath.add(new File(entry).getName());
+		}
+		assertEquals(new HashSet<>(Arrays.asList("lib-a-1.0.jar", "lib-b-1.0.jar", "lib-c-1.0.jar", "lib-d-1.0.jar")), classpath);
+	}
+
+	private static void writeLibrary(File m2Repository, String artifactId, String... dependencies) throws Exception {
+		File directory = Paths.get(m2Repository.getPath(), "org", "lib", artifactId, "1.0").toFile();
+		directory.mkdirs();
+		new File(directory, artifactId + "-1.0.jar").createNewFile();
+		writePom(new File(directory, artifactId + "-1.0.pom"), artifactId, dependencies);
+	}
+
+	private static void writePom(File pomFile, String artifactId, String... dependencies) throws Exception {
+		List<String> lines = new ArrayList<>();
+		lines.add("<project><modelVersion>4.0.0</modelVersion>");
+		lines.add("<groupId>org.lib</groupId><artifactId>" + artifactId + "</artifactId><version>1.0</version>");
+		lines.add("<dependencies>");
+		for (String dependency : dependencies) {
+			lines.add("<dependency><groupId>org.lib</groupId><artifactId>" + dependency + "</artifactId><version>1.0</version></dependency>");
+		}
+		lines.add("</dependencies></project>");
+		Files.write(pomFile.toPath(), lines);
+	}
+
+	@Test
+	public void mavenLauncherTestBuildByModule() {
+		// contract: the modules are built one after the other into the same model, in the order of their dependencies
+		MavenLauncher launcher = new MavenLauncher("./src/test/resources/maven-launcher/multi-modules", MavenLauncher.SOURCE_TYPE.APP_SOURCE);
+		launcher.addInputResource("./src/test/resources/maven-launcher/multi-modules-inputs");
+		launcher.addTemplateResource(new FileSystemFolder("./src/test/resources/maven-launcher/multi-modules-templates"));
+		launcher.setBuildByModule(true);
+		CtModel model = launcher.buildModel();
+
+		// the types of the modules, of the input resources out of the modules and of the templates
+		assertEquals(5, model.getAllTypes().size());
+		CtType<?> a = launcher.getFactory().Type().get("a.A");
+		CtType<?> b = launcher.getFactory().Type().get("b.B");
+		CtType<?> c = launcher.getFactory().Type().get("c.C");
+		CtType<?> d = launcher.getFactory().Type().get("d.D");
+		assertNotNull(launcher.getFactory().Type().get("e.E"));
+		assertSame(a, b.getSuperclass().getTypeDeclaration());
+		assertSame(c, d.getSuperclass().getTypeDeclaration());
+		// the types of module-a are resolved by JDT when module-b is built
+		CtInvocation<?> invocation = b.getElements(new TypeFilter<>(CtInvocation.class)).get(1);
+		assertEquals("getName()", invocation.toString());
+		assertEquals("java.lang.String", invocation.getType().getQualifiedName());
+		assertSame(a.getMethod("getName"), invocation.getExecutable().getExecutableDeclaration());
+		// module-c inherits the dependency of group-c on module-b, whose groupId is a property, and uses module-a through module-b
+		List<CtInvocation<?>> invocations = c.getElements(new TypeFilter<>(CtInvocation.class));
+		CtInvocation<?> getName = invocations.stream().filter(i -> "getName".equals(i.getExecutable().getSimpleName())).findFirst().get();
+		assertEquals("java.lang.String", getName.getType().getQualifiedName());
+		assertSame(a.getMethod("getName"), getName.getExecutable().getExecutableDeclaration());
+	}
 }
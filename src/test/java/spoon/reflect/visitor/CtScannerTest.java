@@ -326,6 +326,77 @@ public class CtScannerTest {
 		assertEquals(counter.nEnter, counter2.nEnter);
 		assertEquals(counter.nExit, counter2.nExit);
 	}
+	@Test
+	public void testReadOnlyScanner() throws Exception {
+		// contract: a read-only scanner visits the same elements as a default scanner, and fails if the model is modified while scanning
+		CtClass<?> ctClass = Launcher.parseClass("class A { int f; void m(int i) { m(i + 1); m(f); } void n() { } }");
+		class Counter extends CtScanner {
+			int nElement = 0;
+			@Override
+			protected void enter(CtElement e) {
+				nElement++;
+			}
+		}
+		Counter counter = new Counter();
+		counter.scan(ctClass);
+		Counter readOnlyCounter = new Counter();
+		readOnlyCounter.setReadOnly(true);
+		assertTrue(readOnlyCounter.isReadOnly());
+		readOnlyCounter.scan(ctClass);
+		assertEquals(counter.nElement, readOnlyCounter.nElement);
+		assertEquals(2, ctClass.getElements(new TypeFilter<>(CtInvocation.class)).size());
+
+		// the default scanner tolerates modifications
+		new CtScanner() {
+			@Override
+			public <T> void visitCtInvocation(CtInvocation<T> invocation) {
+				invocation.delete();
+			}
+		}.scan(ctClass.getMethodsByName("m").get(0));
+		assertEquals(0, ctClass.getElements(new TypeFilter<>(CtInvocation.class)).size());
+
+		CtScanner modifyingScanner = new CtScanner() {
+			@Override
+			public <T> void visitCtMethod(CtMethod<T> m) {
+				m.delete();
+			}
+		};
+		modifyingScanner.setReadOnly(true);
+		try {
+			modifyingScanner.scan(ctClass);
+			fail();
+		} catch (SpoonException e) {
+			// the model has been modified while being scanned
+		}
+
+		// contract: getElements only collects the matching elements, so it scans in read-only mode
+		CtClass<?> otherClass = Launcher.parseClass("class B { void m() { } void n() { } }");
+		try {
+			otherClass.getElements(new TypeFilter<CtMethod<?>>(CtMethod.class) {
+				@Override
+				public boolean matches(CtMethod<?> method) {
+					method.delete();
+					return true;
+				}
+			});
+			fail();
+		} catch (SpoonException e) {
+			// the model has been modified while being scanned
+		}
+
+		// contract: the consumer of forEach may modify the model, as the children are copied while scanning
+		CtClass<?> thirdClass = Launcher.parseClass("class C { void m() { } void n() { } }");
+		List<CtMethod<?>> deletedMethods = new ArrayList<>();
+		thirdClass.filterChildren(new TypeFilter<CtMethod<?>>(CtMethod.class)).forEach((CtMethod<?> method) -> {
+			method.delete();
+			deletedMethods.add(method);
+		});
+		assertEquals(2, deletedMethods.size());
+		assertTrue(thirdClass.getMethods().isEmpty());
+		// and the scanners of the query are read-only only while the results are collected
+		assertEquals(0, thirdClass.filterChildren(new TypeFilter<>(CtMethod.class)).list().size());
+	}
+
 	private static class CollectionContext {
 		Collection<CtElement> col;
 		void assertCollectionIsEmpty() {
@@ -0,0 +1,68 @@
+package spoon.support;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class UpdatingFileOutputStreamTest {
+
+	@Rule
+	public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+	private boolean update(Path file, String content) throws IOException {
+		UpdatingFileOutputStream out = new UpdatingFileOutputStream(file);
+		try {
+			byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+			// written in several parts, to check the comparison across the writes
+			int half = bytes.length / 2;
+			out.write(bytes, 0, half);
+			out.write(bytes, half, bytes.length - half);
+		} finally {
+			out.close();
+		}
+		return out.isChanged();
+	}
+
+	private String read(Path file) throws IOException {
+		return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+	}
+
+	@Test
+	public void testFileIsUpdated() throws Exception {
+		// contract: the file contains the written bytes after the stream is closed, and is only modified if its content changes
+		Path file = tmpFolder.getRoot().toPath().resolve("A.java");
+		StringBuilder large = new StringBuilder();
+		for (int i = 0; i < 10000; i++) {
+			large.append("line ").append(i).append('\n');
+		}
+
+		assertTrue(update(file, large.toString()));
+		assertEquals(large.toString(), read(file));
+
+		Files.setLastModifiedTime(file, FileTime.fromMillis(0));
+		assertFalse(update(file, large.toString()));
+		assertEquals(0, Files.getLastModifiedTime(file).toMillis());
+
+		// longer content
+		assertTrue(update(file, large + "end"));
+		assertEquals(large + "end", read(file));
+
+		// shorter content
+		assertTrue(update(file, "class A {}"));
+		assertEquals("class A {}", read(file));
+
+		// different content of the same size
+		assertTrue(update(file, "class B {}"));
+		assertEquals("class B {}", read(file));
+	}
+}
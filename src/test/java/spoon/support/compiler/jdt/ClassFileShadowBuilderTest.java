@@ -0,0 +1,115 @@
+package spoon.support.compiler.jdt;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import spoon.Launcher;
+import spoon.reflect.declaration.CtConstructor;
+import spoon.reflect.declaration.CtEnum;
+import spoon.reflect.declaration.CtMethod;
+import spoon.reflect.declaration.CtType;
+import spoon.reflect.factory.Factory;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ClassFileShadowBuilderTest {
+	@Rule
+	public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+	private static final String SNAKEYAML = "./src/test/resources/visibility/snakeyaml-1.9.jar";
+
+	private Factory createFactory() {
+		Launcher launcher = new Launcher();
+		launcher.getEnvironment().setShadowTypesFromClassFiles(true);
+		launcher.getEnvironment().setSourceClasspath(new String[] {SNAKEYAML});
+		return launcher.getFactory();
+	}
+
+	@Test
+	public void testShadowTypeFromClassFile() throws Exception {
+		// contract: with shadowTypesFromClassFiles, the declaration of a type of the classpath is built from its class file
+		Factory factory = createFactory();
+		CtType<?> yaml = factory.Type().createReference("org.yaml.snakeyaml.Yaml").getTypeDeclaration();
+		assertTrue(yaml.isShadow());
+		assertEquals("org.yaml.snakeyaml.Yaml", yaml.getQualifiedName());
+
+		List<CtMethod<?>> loadAs = yaml.getMethodsByName("loadAs");
+		assertEquals(3, loadAs.size());
+		for (CtMethod<?> method : loadAs) {
+			assertTrue(method.isShadow());
+			assertEquals(1, method.getFormalCtTypeParameters().size());
+			assertEquals("T", method.getFormalCtTypeParameters().get(0).getSimpleName());
+			assertEquals("T", method.getType().getSimpleName());
+		}
+
+		// the enum constructor does not expose the synthetic name and ordinal parameters
+		CtType<?> flowStyle = factory.Type().getShadowFromClassFile("org.yaml.snakeyaml.DumperOptions$FlowStyle");
+		assertTrue(flowStyle instanceof CtEnum);
+		assertEquals(3, ((CtEnum<?>) flowStyle).getEnumValues().size());
+		assertEquals("FLOW", ((CtEnum<?>) flowStyle).getEnumValues().get(0).getSimpleName());
+		assertNull(flowStyle.getField("$VALUES"));
+		CtConstructor<?> constructor = ((CtEnum<?>) flowStyle).getConstructors().iterator().next();
+		assertEquals(1, constructor.getParameters().size());
+		assertEquals("java.lang.Boolean", constructor.getParameters().get(0).getType().getQualifiedName());
+	}
+
+	@Test
+	public void testModifiedClassFilesAreReadAgain() throws Exception {
+		// contract: a class file modified in a directory or in a jar file is read again, not taken from the cache
+		File dir = tmpFolder.newFolder("classes");
+		File classFile = new File(dir, "foo/A.class");
+		assertTrue(classFile.getParentFile().mkdirs());
+		File jar = tmpFolder.newFile("classes.jar");
+		ClassFileProvider provider = new ClassFileProvider(new String[] {dir.getPath()});
+		ClassFileProvider jarProvider = new ClassFileProvider(new String[] {jar.getPath()});
+
+		Files.write(classFile.toPath(), readClassFile(Launcher.class));
+		writeJar(jar, readClassFile(Launcher.class));
+		assertEquals("spoon/Launcher", new String(provider.getClassFile("foo/A").getName()));
+		assertEquals("spoon/Launcher", new String(jarProvider.getClassFile("foo/A").getName()));
+
+		Files.write(classFile.toPath(), readClassFile(Factory.class));
+		assertTrue(classFile.setLastModified(classFile.lastModified() + 2000));
+		writeJar(jar, readClassFile(Factory.class));
+		assertTrue(jar.setLastModified(jar.lastModified() + 2000));
+		assertEquals("spoon/reflect/factory/Factory", new String(provider.getClassFile("foo/A").getName()));
+		assertEquals("spoon/reflect/factory/Factory", new String(jarProvider.getClassFile("foo/A").getName()));
+	}
+
+	private static byte[] readClassFile(Class<?> clazz) throws Exception {
+		try (InputStream is = clazz.getResourceAsStream(clazz.getSimpleName() + ".class")) {
+			return IOUtils.toByteArray(is);
+		}
+	}
+
+	private static void writeJar(File jar, byte[] classFile) throws Exception {
+		try (ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(jar))) {
+			zip.putNextEntry(new ZipEntry("foo/A.class"));
+			zip.write(classFile);
+			zip.closeEntry();
+		}
+	}
+
+	@Test
+	public void testShadowTypeFromClassFileIsPerFactory() throws Exception {
+		// contract: the class files are shared between factories but each factory gets its own shadow types
+		CtType<?> first = createFactory().Type().getShadowFromClassFile("org.yaml.snakeyaml.Yaml");
+		CtType<?> second = createFactory().Type().getShadowFromClassFile("org.yaml.snakeyaml.Yaml");
+		assertTrue(first != second);
+		assertEquals(first.getMethods().size(), second.getMethods().size());
+
+		// contract: a class which is not on the source classpath has no class file shadow type
+		assertNull(createFactory().Type().getShadowFromClassFile("org.yaml.snakeyaml.DoesNotExist"));
+	}
+}
@@ -1,11 +1,24 @@
 package spoon.support.compiler.jdt;
 
+import org.apache.log4j.Level;
 import org.eclipse.jdt.internal.compiler.ast.CompilationUnitDeclaration;
 import org.junit.Test;
 import spoon.Launcher;
+import spoon.processing.Processor;
+import spoon.reflect.declaration.CtType;
+import spoon.reflect.factory.Factory;
+import spoon.reflect.factory.FactoryImpl;
+import spoon.support.DefaultCoreFactory;
+import spoon.support.StandardEnvironment;
+import spoon.support.compiler.VirtualFile;
+import spoon.support.compiler.VirtualFolder;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 public class JDTBasedSpoonCompilerTest {
@@ -32,4 +45,42 @@ public class JDTBasedSpoonCompilerTest {
             }
         }
     }
+
+    @Test
+    public void testStubOfModuleDoesNotCompile() {
+        // contract: a module is built even if the stub of a module it depends on does not compile, and the problem is reported as a warning naming that module
+        final List<String> warnings = new ArrayList<>();
+        StandardEnvironment environment = new StandardEnvironment() {
+            @Override
+            public void report(Processor<?> processor, Level level, String message) {
+                if (level == Level.WARN) {
+                    warnings.add(message);
+                }
+                super.report(processor, level, message);
+            }
+        };
+        environment.setNoClasspath(true);
+        Factory factory = new FactoryImpl(new DefaultCoreFactory(), environment);
+
+        VirtualFolder moduleA = new VirtualFolder();
+        // the constant is printed as is in the stub, which does not compile
+        moduleA.addFile(new VirtualFile("package a; public class A { public static final int N = \"n\"; }", "a/A.java"));
+        VirtualFolder moduleB = new VirtualFolder();
+        moduleB.addFile(new VirtualFile("package b; public class B extends a.A { }", "b/B.java"));
+        new MultiModuleModelBuilder(new JDTBasedSpoonCompiler(factory))
+                .addModule("module-a", moduleA, new String[0], Collections.<String>emptyList())
+                .addModule("module-b", moduleB, new String[0], Collections.singletonList("module-a"))
+                .build();
+
+        CtType<?> a = factory.Type().get("a.A");
+        assertSame(a, factory.Type().get("b.B").getSuperclass().getTypeDeclaration());
+        List<String> stubWarnings = new ArrayList<>();
+        for (String warning : warnings) {
+            if (warning.startsWith("The stub of the module module-a does not compile")) {
+                stubWarnings.add(warning);
+            }
+        }
+        assertEquals(1, stubWarnings.size());
+        assertTrue(stubWarnings.get(0), stubWarnings.get(0).contains("A.java:1"));
+    }
 }
@@ -1,9 +1,16 @@
 package spoon.test;
 
+import org.apache.commons.io.FileUtils;
 import org.junit.Assert;
 import org.junit.Test;
 
+import spoon.Launcher;
 import spoon.OutputType;
+import spoon.experimental.modelobs.ChangeCollector;
+import spoon.reflect.declaration.CtType;
+import spoon.support.visitor.TypeHierarchy;
+
+import java.io.File;
 
 public class OutputTypeTest {
 
@@ -21,5 +28,42 @@ public class OutputTypeTest {
 
 		outputType = OutputType.fromString("compilationunits");
 		Assert.assertEquals(OutputType.COMPILATION_UNITS, outputType);
+
+		outputType = OutputType.fromString("modifiedcompilationunits");
+		Assert.assertEquals(OutputType.MODIFIED_COMPILATION_UNITS, outputType);
+	}
+
+	@Test
+	public void testModifiedCompilationUnitsOutput() throws Exception {
+		// contract: only the compilation units with a modified element are printed, the other source files are copied
+		File outputDirectory = new File("./target/spooned-modified-compilation-units");
+		FileUtils.deleteDirectory(outputDirectory);
+		Launcher launcher = new Launcher();
+		launcher.addInputResource("./src/main/java/spoon/reflect/cu");
+		launcher.getEnvironment().setOutputType(OutputType.MODIFIED_COMPILATION_UNITS);
+		launcher.setSourceOutputDirectory(outputDirectory);
+		launcher.buildModel();
+		Assert.assertNotNull(ChangeCollector.getChangeCollector(launcher.getEnvironment()));
+		// the collector is still found and notified once another listener has been attached after it
+		new TypeHierarchy().attachTo(launcher.getFactory());
+		Assert.assertNotNull(ChangeCollector.getChangeCollector(launcher.getEnvironment()));
+
+		CtType<?> sourcePosition = launcher.getFactory().Type().get("spoon.reflect.cu.SourcePosition");
+		CtType<?> clone = sourcePosition.clone();
+		sourcePosition.getMethodsByName("getFile").get(0).addComment(launcher.getFactory().createInlineComment("changed"));
+		launcher.getFactory().Class().create("spoon.reflect.cu.CreatedClass");
+		// a clone has the compilation unit of its original type, but it is printed as a new type
+		clone.setSimpleName("ClonedSourcePosition");
+		sourcePosition.getPackage().addType(clone);
+		launcher.prettyprint();
+
+		String printedSourcePosition = FileUtils.readFileToString(new File(outputDirectory, "spoon/reflect/cu/SourcePosition.java"), "UTF-8");
+		Assert.assertTrue(printedSourcePosition.contains("// changed"));
+		for (String path : new String[] {"spoon/reflect/cu/CompilationUnit.java", "spoon/reflect/cu/position/NoSourcePosition.java"}) {
+			Assert.assertEquals(FileUtils.readFileToString(new File("./src/main/java", path), "UTF-8"),
+					FileUtils.readFileToString(new File(outputDirectory, path), "UTF-8"));
+		}
+		Assert.assertTrue(new File(outputDirectory, "spoon/reflect/cu/CreatedClass.java").isFile());
+		Assert.assertTrue(new File(outputDirectory, "spoon/reflect/cu/ClonedSourcePosition.java").isFile());
 	}
 }
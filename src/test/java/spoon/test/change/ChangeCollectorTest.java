@@ -6,18 +6,28 @@ import static org.junit.Assert.assertSame;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 
 import org.junit.Test;
 
+import spoon.Launcher;
 import spoon.experimental.modelobs.ChangeCollector;
+import spoon.reflect.code.CtExpression;
+import spoon.reflect.code.CtInvocation;
+import spoon.reflect.code.CtStatement;
 import spoon.reflect.cu.CompilationUnit;
+import spoon.reflect.declaration.CtClass;
 import spoon.reflect.declaration.CtElement;
 import spoon.reflect.declaration.CtField;
+import spoon.reflect.declaration.CtMethod;
+import spoon.reflect.declaration.CtParameter;
 import spoon.reflect.declaration.CtType;
 import spoon.reflect.factory.Factory;
 import spoon.reflect.path.CtRole;
+import spoon.reflect.reference.CtTypeReference;
+import spoon.support.compiler.VirtualFile;
 import spoon.test.change.testclasses.SubjectOfChange;
 import spoon.testing.utils.ModelUtils;
 
@@ -77,4 +87,39 @@ public class ChangeCollectorTest {
 		assertEquals(new HashSet<>(Arrays.asList(CtRole.DEFAULT_EXPRESSION)), changeCollector.getDirectChanges(field));
 		
 	}
+
+	@Test
+	public void testChangeCollectorOfEmptyingSetters() throws Exception {
+		//contract: emptying a list or a set of an element with its setter is collected as a change of that role, emptying an empty one is not a change
+		Launcher launcher = new Launcher();
+		launcher.addInputResource(new VirtualFile("class A {"
+				+ " int f;"
+				+ " void m(int p) throws Exception { m(1); }"
+				+ " void n() { }"
+				+ " }"
+				+ " class B { }", "A.java"));
+		launcher.buildModel();
+		Factory f = launcher.getFactory();
+		CtClass<?> a = f.Class().get("A");
+		CtMethod<?> m = a.getMethodsByName("m").get(0);
+		CtMethod<?> n = a.getMethodsByName("n").get(0);
+		CtInvocation<?> invocation = m.getBody().getStatement(0);
+		ChangeCollector changeCollector = new ChangeCollector().attachTo(f.getEnvironment());
+
+		n.getBody().setStatements(Collections.<CtStatement>emptyList());
+		n.setParameters(Collections.<CtParameter<?>>emptyList());
+		n.setThrownTypes(Collections.<CtTypeReference<? extends Throwable>>emptySet());
+		f.Class().get("B").setFields(Collections.<CtField<?>>emptyList());
+		assertEquals(0, changeCollector.getChangedElements().size());
+
+		invocation.setArguments(Collections.<CtExpression<?>>emptyList());
+		assertEquals(new HashSet<>(Arrays.asList(CtRole.ARGUMENT)), changeCollector.getDirectChanges(invocation));
+		m.getBody().setStatements(Collections.<CtStatement>emptyList());
+		assertEquals(new HashSet<>(Arrays.asList(CtRole.STATEMENT)), changeCollector.getDirectChanges(m.getBody()));
+		m.setParameters(Collections.<CtParameter<?>>emptyList());
+		m.setThrownTypes(Collections.<CtTypeReference<? extends Throwable>>emptySet());
+		assertEquals(new HashSet<>(Arrays.asList(CtRole.PARAMETER, CtRole.THROWN)), changeCollector.getDirectChanges(m));
+		a.setFields(Collections.<CtField<?>>emptyList());
+		assertEquals(new HashSet<>(Arrays.asList(CtRole.TYPE_MEMBER)), changeCollector.getDirectChanges(a));
+	}
 }
@@ -0,0 +1,97 @@
+package spoon.test.change;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import spoon.Launcher;
+import spoon.experimental.modelobs.ChangeCollector;
+import spoon.experimental.modelobs.ReferenceIndex;
+import spoon.reflect.code.CtStatement;
+import spoon.reflect.declaration.CtClass;
+import spoon.reflect.declaration.CtField;
+import spoon.reflect.declaration.CtMethod;
+import spoon.reflect.factory.Factory;
+import spoon.reflect.reference.CtFieldReference;
+import spoon.reflect.visitor.filter.FieldReferenceFunction;
+import spoon.reflect.visitor.filter.TypeFilter;
+import spoon.support.compiler.VirtualFile;
+
+public class ReferenceIndexTest {
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testFieldReferencesFollowModelChanges() throws Exception {
+		// contract: the references found with a ReferenceIndex are the ones found by scanning the model, even after the model changed
+		Launcher launcher = new Launcher();
+		launcher.addInputResource(new VirtualFile("package foo; public class A {"
+				+ " int x; int y;"
+				+ " int m() { return x + y; }"
+				+ " void n() { x = 1; this.x++; }"
+				+ " }", "foo/A.java"));
+		launcher.buildModel();
+		Factory factory = launcher.getFactory();
+		CtClass<?> a = factory.Class().get("foo.A");
+		CtField<Integer> x = (CtField<Integer>) a.getField("x");
+		CtField<Integer> y = (CtField<Integer>) a.getField("y");
+		List<CtFieldReference<?>> scanned = x.map(new FieldReferenceFunction()).list();
+		assertEquals(3, scanned.size());
+
+		assertNull(ReferenceIndex.getReferenceIndex(factory.getEnvironment()));
+		ChangeCollector changeCollector = new ChangeCollector().attachTo(factory.getEnvironment());
+		ReferenceIndex index = new ReferenceIndex().attachTo(factory);
+		assertSame(index, ReferenceIndex.getReferenceIndex(factory.getEnvironment()));
+
+		List<CtFieldReference<?>> indexed = x.map(new FieldReferenceFunction()).list();
+		// in the order of the model
+		assertSameReferences(scanned, indexed);
+		// the references of a scope only
+		CtMethod<?> n = a.getMethodsByName("n").get(0);
+		assertEquals(2, n.map(new FieldReferenceFunction(x)).list().size());
+
+		// removed references
+		n.delete();
+		assertEquals(1, x.map(new FieldReferenceFunction()).list().size());
+
+		// added references
+		CtMethod<?> m = a.getMethodsByName("m").get(0);
+		m.getBody().insertBegin((CtStatement) factory.Code().createVariableAssignment(x.getReference(), false, factory.Code().createVariableRead(y.getReference(), false)));
+		assertEquals(2, x.map(new FieldReferenceFunction()).list().size());
+		assertEquals(2, y.map(new FieldReferenceFunction()).list().size());
+		// the added reference is before the ones of the return statement in the model
+		assertSameReferences(getScannedReferences(a, "x"), x.map(new FieldReferenceFunction()).list());
+		assertSameReferences(getScannedReferences(a, "y"), y.map(new FieldReferenceFunction()).list());
+
+		// modified references
+		CtFieldReference<?> reference = m.map(new FieldReferenceFunction(x)).<CtFieldReference<?>>list().get(0);
+		reference.setSimpleName("y");
+		assertEquals(1, x.map(new FieldReferenceFunction()).list().size());
+		assertEquals(3, y.map(new FieldReferenceFunction()).list().size());
+
+		// the listener which was attached before is still notified
+		assertTrue(changeCollector.getChanges(a).size() > 0);
+	}
+
+	private static List<CtFieldReference<?>> getScannedReferences(CtClass<?> type, String name) {
+		List<CtFieldReference<?>> references = new ArrayList<>();
+		for (CtFieldReference<?> reference : type.getElements(new TypeFilter<CtFieldReference<?>>(CtFieldReference.class))) {
+			if (name.equals(reference.getSimpleName())) {
+				references.add(reference);
+			}
+		}
+		return references;
+	}
+
+	private static void assertSameReferences(List<CtFieldReference<?>> expected, List<CtFieldReference<?>> actual) {
+		assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			assertSame(expected.get(i), actual.get(i));
+		}
+	}
+}
@@ -3,19 +3,34 @@ package spoon.test.comparison;
 import org.junit.Test;
 import spoon.Launcher;
 import spoon.SpoonModelBuilder;
+import spoon.reflect.code.CtBlock;
 import spoon.reflect.code.CtComment;
 import spoon.reflect.code.CtInvocation;
 import spoon.reflect.code.CtLiteral;
 import spoon.reflect.code.CtLocalVariable;
 import spoon.reflect.code.CtReturn;
+import spoon.reflect.code.CtStatement;
 import spoon.reflect.code.CtTry;
 import spoon.reflect.declaration.CtClass;
 import spoon.reflect.declaration.CtMethod;
 import spoon.reflect.factory.Factory;
+import spoon.support.compiler.VirtualFile;
 import spoon.support.compiler.jdt.JDTSnippetCompiler;
+import spoon.reflect.visitor.filter.TypeFilter;
+import spoon.support.visitor.StructuralHashCache;
+import spoon.support.visitor.equals.EqualsVisitor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -96,4 +111,126 @@ public class EqualTest {
 		CtLocalVariable var2 = factory.Code().createCodeSnippetStatement("java.util.List<Object> l ").compile();
 		assertNotEquals(var2, var);
 	}
+
+	@Test
+	public void testStructuralHashCache() throws Exception {
+		// contract: the structural hash of equal elements is the same, and it follows the changes of the model
+		Launcher launcher = new Launcher();
+		launcher.addInputResource(new VirtualFile("class A {"
+				+ " int m() { int a = 1; return a; }"
+				+ " int n() { int a = 1; return a; }"
+				+ " }", "A.java"));
+		launcher.buildModel();
+		Factory factory = launcher.getFactory();
+		StructuralHashCache cache = new StructuralHashCache().attachTo(factory);
+		assertSame(cache, StructuralHashCache.getStructuralHashCache(factory.getEnvironment()));
+		CtClass<?> a = factory.Class().get("A");
+		CtBlock<?> m = a.getMethodsByName("m").get(0).getBody();
+		CtBlock<?> n = a.getMethodsByName("n").get(0).getBody();
+
+		assertEquals(m, n);
+		assertEquals(cache.getStructuralHash(m), cache.getStructuralHash(n));
+		assertTrue(cache.mayBeEqual(m, n));
+
+		// renaming a child of `n` changes its hash
+		CtLocalVariable<?> variable = n.getStatement(0);
+		variable.setSimpleName("b");
+		assertNotEquals(m, n);
+		assertFalse(cache.mayBeEqual(m, n));
+		variable.setSimpleName("a");
+		assertTrue(cache.mayBeEqual(m, n));
+
+		// removing all the statements of `n` changes its hash too
+		int hash = cache.getStructuralHash(n);
+		n.setStatements(Collections.<CtStatement>emptyList());
+		assertNotEquals(hash, cache.getStructuralHash(n));
+		assertEquals(cache.getStructuralHash(factory.Core().createBlock()), cache.getStructuralHash(n));
+	}
+
+	@Test
+	public void testStructuralHashCacheInParallel() throws Exception {
+		// contract: the structural hashes computed by several threads at the same time are the ones computed by a single thread
+		Launcher launcher = new Launcher();
+		launcher.addInputResource("./src/main/java/spoon/reflect/visitor/filter");
+		launcher.getEnvironment().setNoClasspath(true);
+		launcher.buildModel();
+		Factory factory = launcher.getFactory();
+		List<CtMethod<?>> methods = factory.getModel().getElements(new TypeFilter<>(CtMethod.class));
+		StructuralHashCache reference = new StructuralHashCache();
+		List<Integer> expected = new ArrayList<>();
+		for (CtMethod<?> method : methods) {
+			// not attached, so nothing is cached
+			expected.add(reference.getStructuralHash(method));
+		}
+
+		StructuralHashCache cache = new StructuralHashCache().attachTo(factory);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<List<Integer>>> results = new ArrayList<>();
+			for (int i = 0; i < 4; i++) {
+				results.add(executor.submit(() -> {
+					List<Integer> hashes = new ArrayList<>();
+					for (CtMethod<?> method : methods) {
+						hashes.add(cache.getStructuralHash(method));
+					}
+					return hashes;
+				}));
+			}
+			for (Future<List<Integer>> result : results) {
+				assertEquals(expected, result.get());
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testStructuralHashCacheOfAnotherEnvironment() throws Exception {
+		// contract: the structural hash cache is not used to compare with an element of another environment, whose changes it does not see
+		Factory[] factories = new Factory[2];
+		for (int i = 0; i < factories.length; i++) {
+			Launcher launcher = new Launcher();
+			launcher.addInputResource(new VirtualFile("class A { int m() { int a = 1; return a; } }", "A.java"));
+			launcher.buildModel();
+			factories[i] = launcher.getFactory();
+		}
+		new StructuralHashCache().attachTo(factories[0]);
+		CtBlock<?> m = factories[0].Class().get("A").getMethodsByName("m").get(0).getBody();
+		CtBlock<?> otherM = factories[1].Class().get("A").getMethodsByName("m").get(0).getBody();
+		assertEquals(m, otherM);
+
+		// the cache attached to the first environment is not notified of this change
+		((CtLocalVariable<?>) otherM.getStatement(0)).setSimpleName("b");
+		((CtLocalVariable<?>) m.getStatement(0)).setSimpleName("b");
+		assertEquals(m, otherM);
+	}
+
+	@Test
+	public void testReusableEqualsVisitor() throws Exception {
+		// contract: an EqualsVisitor can be reused to compare many elements, with or without a structural hash cache
+		Launcher launcher = new Launcher();
+		launcher.addInputResource(new VirtualFile("class A {"
+				+ " int m() { int a = 1; return a; }"
+				+ " int n() { int a = 1; return a; }"
+				+ " int o() { int b = 1; return b; }"
+				+ " }", "A.java"));
+		launcher.buildModel();
+		Factory factory = launcher.getFactory();
+		CtClass<?> a = factory.Class().get("A");
+		CtBlock<?> m = a.getMethodsByName("m").get(0).getBody();
+		CtBlock<?> n = a.getMethodsByName("n").get(0).getBody();
+		CtBlock<?> o = a.getMethodsByName("o").get(0).getBody();
+
+		EqualsVisitor visitor = new EqualsVisitor();
+		for (int i = 0; i < 2; i++) {
+			assertTrue(visitor.checkEquals(m, n));
+			assertFalse(visitor.checkEquals(m, o));
+			assertTrue(visitor.checkEquals(n, m));
+			assertFalse(visitor.checkEquals(a.getMethodsByName("m").get(0), a.getMethodsByName("n").get(0)));
+			assertTrue(visitor.checkEquals(null, null));
+			assertFalse(visitor.checkEquals(m, null));
+			// the second time, the structural hashes are used
+			new StructuralHashCache().attachTo(factory);
+		}
+	}
 }
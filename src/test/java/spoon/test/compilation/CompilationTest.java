@@ -4,6 +4,7 @@ import static org.hamcrest.CoreMatchers.not;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
@@ -32,9 +33,11 @@ import spoon.reflect.declaration.CtClass;
 import spoon.reflect.declaration.CtMethod;
 import spoon.reflect.declaration.CtType;
 import spoon.reflect.declaration.ModifierKind;
+import spoon.reflect.factory.ClassFactory;
 import spoon.reflect.factory.CodeFactory;
 import spoon.reflect.factory.CoreFactory;
 import spoon.reflect.factory.Factory;
+import spoon.reflect.reference.CtTypeParameterReference;
 import spoon.reflect.reference.CtTypeReference;
 import spoon.reflect.visitor.CtScanner;
 import spoon.reflect.visitor.filter.TypeFilter;
@@ -447,4 +450,55 @@ public class CompilationTest {
 
 		assertThat(tempDirPath.toFile().listFiles().length, not(0));
 	}
+
+	@Test
+	public void testParallelModelBuilding() throws Exception {
+		// contract: building the model with several threads gives the same model as the sequential build
+		Launcher sequential = new Launcher();
+		sequential.getEnvironment().setNoClasspath(true);
+		sequential.getEnvironment().setCommentEnabled(true);
+		sequential.addInputResource("./src/main/java/spoon/reflect/factory");
+		sequential.addInputResource("./src/main/java/spoon/reflect/declaration");
+		sequential.buildModel();
+
+		Launcher parallel = new Launcher();
+		parallel.getEnvironment().setNoClasspath(true);
+		parallel.getEnvironment().setCommentEnabled(true);
+		parallel.getEnvironment().setModelBuildingThreads(4);
+		parallel.addInputResource("./src/main/java/spoon/reflect/factory");
+		parallel.addInputResource("./src/main/java/spoon/reflect/declaration");
+		parallel.buildModel();
+
+		List<String> expectedNames = new ArrayList<>();
+		for (CtType<?> type : sequential.getModel().getAllTypes()) {
+			expectedNames.add(type.getQualifiedName());
+		}
+		List<String> names = new ArrayList<>();
+		for (CtType<?> type : parallel.getModel().getAllTypes()) {
+			names.add(type.getQualifiedName());
+			// all the elements are attached to the factory of the model
+			assertSame(parallel.getFactory(), type.getFactory());
+			for (CtTypeReference<?> reference : type.getElements(new TypeFilter<>(CtTypeReference.class))) {
+				assertSame(parallel.getFactory(), reference.getFactory());
+				if (reference instanceof CtTypeParameterReference) {
+					continue;
+				}
+				// the references are resolved to the types of the merged model, as in the sequential build
+				CtType<?> declaration = reference.getDeclaration();
+				CtType<?> expectedDeclaration = sequential.getFactory().Type().get(reference.getQualifiedName());
+				assertEquals(expectedDeclaration == null, declaration == null);
+				if (declaration != null) {
+					assertSame(parallel.getFactory().Type().get(reference.getQualifiedName()), declaration);
+				}
+			}
+			assertEquals(sequential.getFactory().Type().get(type.getQualifiedName()).toString(), type.toString());
+		}
+		assertEquals(expectedNames, names);
+		assertEquals(sequential.getFactory().CompilationUnit().getMap().keySet(), parallel.getFactory().CompilationUnit().getMap().keySet());
+		CtType<?> factoryType = parallel.getFactory().Type().get(Factory.class);
+		assertSame(parallel.getFactory().Package().get("spoon.reflect.factory"), factoryType.getPackage());
+		assertSame(factoryType.getPackage(), factoryType.getPosition().getCompilationUnit().getDeclaredPackage());
+		CtType<?> classFactoryType = parallel.getFactory().Type().get(ClassFactory.class);
+		assertSame(classFactoryType, factoryType.getMethodsByName("Class").get(0).getType().getDeclaration());
+	}
 }
@@ -0,0 +1,165 @@
+package spoon.test.compilation;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import spoon.Launcher;
+import spoon.reflect.code.CtInvocation;
+import spoon.reflect.declaration.CtClass;
+import spoon.reflect.declaration.CtType;
+import spoon.reflect.visitor.filter.TypeFilter;
+import spoon.support.compiler.jdt.IncrementalBuildResult;
+import spoon.support.compiler.jdt.JDTBasedSpoonCompiler;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class IncrementalBuildTest {
+
+	@Rule
+	public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+	private File writeFile(File dir, String name, String content) throws IOException {
+		File file = new File(dir, name);
+		long previousModification = file.lastModified();
+		Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+		// the modification time has a coarse granularity on some file systems
+		file.setLastModified(Math.max(previousModification + 2000, file.lastModified()));
+		return file;
+	}
+
+	private Launcher build(File srcDir) {
+		Launcher launcher = new Launcher();
+		launcher.getEnvironment().setNoClasspath(true);
+		launcher.addInputResource(srcDir.getPath());
+		launcher.buildModel();
+		return launcher;
+	}
+
+	@Test
+	public void testRebuildUpToDateModel() throws Exception {
+		// contract: rebuilding a model whose sources have not been modified does nothing
+		File pkg = tmpFolder.newFolder("src", "foo");
+		writeFile(pkg, "A.java", "package foo; public class A { }");
+		writeFile(pkg, "B.java", "package foo; public class B { }");
+		Launcher launcher = build(pkg.getParentFile());
+		CtType<?> a = launcher.getFactory().Type().get("foo.A");
+
+		IncrementalBuildResult result = ((JDTBasedSpoonCompiler) launcher.getModelBuilder()).rebuild();
+
+		assertTrue(result.isUpToDate());
+		assertSame(a, launcher.getFactory().Type().get("foo.A"));
+	}
+
+	@Test
+	public void testRebuildModifiedFileAndDependents() throws Exception {
+		// contract: only the modified files and the files which refer to their types are built again
+		File pkg = tmpFolder.newFolder("src", "foo");
+		writeFile(pkg, "A.java", "package foo; public class A { public int m() { return 0; } }");
+		writeFile(pkg, "B.java", "package foo; public class B { int n() { return new A().m(); } }");
+		writeFile(pkg, "C.java", "package foo; public class C { }");
+		Launcher launcher = build(pkg.getParentFile());
+		CtType<?> oldA = launcher.getFactory().Type().get("foo.A");
+		CtType<?> oldB = launcher.getFactory().Type().get("foo.B");
+		CtType<?> c = launcher.getFactory().Type().get("foo.C");
+
+		writeFile(pkg, "A.java", "package foo; public class A { public long m() { return 0L; } }");
+		IncrementalBuildResult result = ((JDTBasedSpoonCompiler) launcher.getModelBuilder()).rebuild();
+
+		assertTrue(result.isSuccess());
+		assertEquals(2, result.getBuiltFiles().size());
+		assertEquals(2, result.getChangedTypes().size());
+		assertTrue(result.getAddedTypes().isEmpty());
+		assertTrue(result.getRemovedTypes().isEmpty());
+
+		CtClass<?> newA = launcher.getFactory().Class().get("foo.A");
+		assertNotSame(oldA, newA);
+		assertNotSame(oldB, launcher.getFactory().Type().get("foo.B"));
+		assertSame(c, launcher.getFactory().Type().get("foo.C"));
+		assertEquals("long", newA.getMethodsByName("m").get(0).getType().getSimpleName());
+		assertEquals(3, launcher.getFactory().Package().get("foo").getTypes().size());
+	}
+
+	@Test
+	public void testRebuildIndirectDependents() throws Exception {
+		// contract: a file using the changed type through the types of another file refers directly to it, so it is built again,
+		// but the files which only refer to the types of a dependent file are not
+		File pkg = tmpFolder.newFolder("src", "foo");
+		writeFile(pkg, "A.java", "package foo; public class A { public int m() { return 0; } }");
+		writeFile(pkg, "B.java", "package foo; public class B { public A a() { return new A(); } }");
+		writeFile(pkg, "C.java", "package foo; public class C { Object n() { return new B().a().m(); } }");
+		writeFile(pkg, "D.java", "package foo; public class D { B b; }");
+		Launcher launcher = build(pkg.getParentFile());
+		CtType<?> oldC = launcher.getFactory().Type().get("foo.C");
+		CtType<?> d = launcher.getFactory().Type().get("foo.D");
+
+		writeFile(pkg, "A.java", "package foo; public class A { public long m() { return 0L; } }");
+		IncrementalBuildResult result = ((JDTBasedSpoonCompiler) launcher.getModelBuilder()).rebuild();
+
+		assertTrue(result.isSuccess());
+		assertEquals(3, result.getBuiltFiles().size());
+		CtType<?> newC = launcher.getFactory().Type().get("foo.C");
+		assertNotSame(oldC, newC);
+		assertSame(d, launcher.getFactory().Type().get("foo.D"));
+		// the invocation of C is typed by the new signature of A
+		CtInvocation<?> invocation = newC.getElements(new TypeFilter<CtInvocation<?>>(CtInvocation.class)).get(0);
+		assertEquals("m", invocation.getExecutable().getSimpleName());
+		assertEquals("long", invocation.getType().getSimpleName());
+	}
+
+	@Test
+	public void testRebuildAddedFileDependents() throws Exception {
+		// contract: the files referring to the types declared by an added file are built again, matched by their qualified name
+		File pkg = tmpFolder.newFolder("src", "foo");
+		writeFile(pkg, "A.java", "package foo; public class A { java.util.List<String> l; }");
+		writeFile(pkg, "B.java", "package foo; public class B { bar.List l; }");
+		Launcher launcher = build(pkg.getParentFile());
+		CtType<?> a = launcher.getFactory().Type().get("foo.A");
+		CtType<?> oldB = launcher.getFactory().Type().get("foo.B");
+
+		File bar = tmpFolder.newFolder("src", "bar");
+		writeFile(bar, "List.java", "package bar; public class List { } class Secondary { }");
+		IncrementalBuildResult result = ((JDTBasedSpoonCompiler) launcher.getModelBuilder()).rebuild();
+
+		assertEquals(2, result.getBuiltFiles().size());
+		assertEquals(2, result.getAddedTypes().size());
+		assertSame(a, launcher.getFactory().Type().get("foo.A"));
+		CtType<?> newB = launcher.getFactory().Type().get("foo.B");
+		assertNotSame(oldB, newB);
+		assertSame(launcher.getFactory().Type().get("bar.List"), newB.getField("l").getType().getTypeDeclaration());
+	}
+
+	@Test
+	public void testRebuildAddedAndDeletedFiles() throws Exception {
+		// contract: the types of the deleted files are removed from the model and the ones of the new files are added
+		File pkg = tmpFolder.newFolder("src", "foo");
+		writeFile(pkg, "A.java", "package foo; public class A { }");
+		File b = writeFile(pkg, "B.java", "package foo; public class B { }");
+		Launcher launcher = build(pkg.getParentFile());
+		CtType<?> oldB = launcher.getFactory().Type().get("foo.B");
+
+		assertTrue(b.delete());
+		writeFile(pkg, "D.java", "package foo; public class D extends A { }");
+		IncrementalBuildResult result = ((JDTBasedSpoonCompiler) launcher.getModelBuilder()).rebuild();
+
+		assertEquals(1, result.getBuiltFiles().size());
+		assertEquals(1, result.getAddedTypes().size());
+		assertEquals("foo.D", result.getAddedTypes().get(0).getQualifiedName());
+		assertEquals(1, result.getRemovedTypes().size());
+		assertSame(oldB, result.getRemovedTypes().get(0));
+		assertNull(launcher.getFactory().Type().get("foo.B"));
+		CtType<?> d = launcher.getFactory().Type().get("foo.D");
+		assertNotNull(d);
+		// the reference to the up-to-date type is resolved in the model
+		assertSame(launcher.getFactory().Type().get("foo.A"), d.getSuperclass().getTypeDeclaration());
+	}
+}
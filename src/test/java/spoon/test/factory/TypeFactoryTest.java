@@ -7,6 +7,7 @@ import spoon.reflect.declaration.CtType;
 import spoon.reflect.factory.Factory;
 import spoon.reflect.factory.TypeFactory;
 import spoon.reflect.reference.CtTypeReference;
+import spoon.support.compiler.VirtualFile;
 import spoon.test.factory.testclasses3.Cooking;
 import spoon.test.factory.testclasses3.Prepare;
 import spoon.testing.utils.ModelUtils;
@@ -15,6 +16,8 @@ import java.io.File;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 
 public class TypeFactoryTest {
 
@@ -74,4 +77,42 @@ public class TypeFactoryTest {
 		assertNotNull(poorNameChoice);
 		assertEquals(poorNameChoice,poorName.getMethodsByName("lookingForTroubles").get(0).getType().getTypeDeclaration());
 	}
+
+	@Test
+	public void testGetIndexedTypeAfterModelChanges() throws Exception {
+		// contract: the types found by Type().get are indexed, but the index never returns a type which has been removed, renamed or moved
+		Launcher launcher = new Launcher();
+		launcher.getEnvironment().setNoClasspath(true);
+		launcher.addInputResource(new VirtualFile("package foo; public class A { class B { } Object o = new Object() { }; }", "foo/A.java"));
+		launcher.buildModel();
+		Factory factory = launcher.getFactory();
+
+		CtType<?> a = factory.Type().get("foo.A");
+		CtType<?> b = factory.Type().get("foo.A$B");
+		CtType<?> anonymous = factory.Type().get("foo.A$1");
+		assertNotNull(a);
+		assertNotNull(b);
+		assertNotNull(anonymous);
+		assertSame(a, factory.Type().get("foo.A"));
+		assertSame(b, factory.Type().get("foo.A$B"));
+		assertSame(anonymous, factory.Type().get("foo.A$1"));
+		assertSame(a.getPackage(), factory.Package().get("foo"));
+
+		b.setSimpleName("C");
+		assertNull(factory.Type().get("foo.A$B"));
+		assertSame(b, factory.Type().get("foo.A$C"));
+
+		a.removeNestedType(b);
+		assertNull(factory.Type().get("foo.A$C"));
+
+		a.getPackage().setSimpleName("bar");
+		assertNull(factory.Package().get("foo"));
+		assertNull(factory.Type().get("foo.A"));
+		assertSame(a, factory.Type().get("bar.A"));
+		assertSame(anonymous, factory.Type().get("bar.A$1"));
+
+		a.delete();
+		assertNull(factory.Type().get("bar.A"));
+		assertNull(factory.Type().get("bar.A$1"));
+	}
 }
@@ -3,6 +3,7 @@ package spoon.test.filters;
 import org.junit.Before;
 import org.junit.Test;
 import spoon.Launcher;
+import spoon.experimental.modelobs.ReferenceIndex;
 import spoon.reflect.code.CtCFlowBreak;
 import spoon.reflect.code.CtExpression;
 import spoon.reflect.code.CtFieldAccess;
@@ -59,6 +60,7 @@ import spoon.reflect.visitor.filter.TypeFilter;
 import spoon.support.comparator.DeepRepresentationComparator;
 import spoon.support.reflect.declaration.CtMethodImpl;
 import spoon.support.visitor.SubInheritanceHierarchyResolver;
+import spoon.support.visitor.TypeHierarchy;
 import spoon.test.filters.testclasses.AbstractTostada;
 import spoon.test.filters.testclasses.Antojito;
 import spoon.test.filters.testclasses.FieldAccessFilterTacos;
@@ -75,6 +77,7 @@ import java.util.Collection;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 import java.util.TreeSet;
 
 import static org.junit.Assert.*;
@@ -1314,6 +1317,62 @@ public class FilterTest {
 		assertEquals(1, c2.counter);
 	}
 
+	@Test
+	public void testTypeHierarchy() throws Exception {
+		// contract: a TypeHierarchy finds the same sub types as the scan of the model, and it follows the changes of the model
+		final Launcher launcher = new Launcher();
+		launcher.setArgs(new String[] {"--output-type", "nooutput" });
+		launcher.addInputResource("./src/test/java/spoon/test/filters/testclasses");
+		launcher.buildModel();
+		Factory factory = launcher.getFactory();
+		CtTypeReference<?> abstractTostada = factory.Type().createReference(AbstractTostada.class);
+		CtTypeReference<?> iTostada = factory.Type().createReference(ITostada.class);
+		CtTypeReference<?> tostada = factory.Type().createReference(Tostada.class);
+
+		List<String> scanned = new ArrayList<>();
+		new SubInheritanceHierarchyResolver(factory.getModel().getRootPackage()).addSuperType(abstractTostada)
+				.forEachSubTypeInPackage((CtType<?> type) -> scanned.add(type.getQualifiedName()));
+
+		TypeHierarchy hierarchy = new TypeHierarchy().attachTo(factory);
+		assertSame(hierarchy, TypeHierarchy.getTypeHierarchy(factory.getEnvironment()));
+		List<String> indexed = new ArrayList<>();
+		new SubInheritanceHierarchyResolver(factory.getModel().getRootPackage()).addSuperType(abstractTostada)
+				.forEachSubTypeInPackage((CtType<?> type) -> indexed.add(type.getQualifiedName()));
+		assertEquals(5, indexed.size());
+		assertEquals(new TreeSet<>(scanned), new TreeSet<>(indexed));
+
+		Set<String> superTypes = hierarchy.getAllSuperTypes(factory.Type().createReference(SubTostada.class));
+		assertTrue(superTypes.containsAll(Arrays.asList(Tostada.class.getName(), AbstractTostada.class.getName(), ITostada.class.getName(), Object.class.getName())));
+		assertTrue(factory.Type().createReference(SubTostada.class).isSubtypeOf(iTostada));
+		CtClass<?> tacos = factory.Class().get(Tacos.class);
+		assertFalse(tacos.getReference().isSubtypeOf(abstractTostada));
+
+		// the hierarchy is computed again when the super types of a type change
+		tacos.setSuperclass(abstractTostada);
+		assertTrue(tacos.getReference().isSubtypeOf(abstractTostada));
+		assertEquals(6, hierarchy.getAllSubTypes(abstractTostada).size());
+
+		// and when types are added or removed
+		CtClass<?> newTostada = factory.Class().create("spoon.test.filters.testclasses.NewTostada");
+		newTostada.setSuperclass(tostada);
+		assertEquals(7, hierarchy.getAllSubTypes(abstractTostada).size());
+		assertTrue(hierarchy.isSubtypeOf(newTostada.getReference(), iTostada));
+		newTostada.delete();
+		assertEquals(6, hierarchy.getAllSubTypes(abstractTostada).size());
+
+		// the hierarchy is still found and still follows the changes once another listener has been attached after it
+		new ReferenceIndex().attachTo(factory);
+		assertSame(hierarchy, TypeHierarchy.getTypeHierarchy(factory.getEnvironment()));
+		tacos.setSuperclass(null);
+		assertFalse(tacos.getReference().isSubtypeOf(abstractTostada));
+		assertEquals(5, hierarchy.getAllSubTypes(abstractTostada).size());
+
+		// arrays are not sub types of the super types of their component type
+		CtTypeReference<?> subTostadaArray = factory.Type().createArrayReference(factory.Type().createReference(SubTostada.class));
+		assertTrue(subTostadaArray.isSubtypeOf(factory.Type().createArrayReference(iTostada)));
+		assertFalse(subTostadaArray.isSubtypeOf(iTostada));
+	}
+
 	@Test
 	public void testNameFilterWithGenericType() {
 		// contract: NamedElementFilter of T should only return T elements
@@ -4,7 +4,9 @@ import org.junit.Test;
 import spoon.Launcher;
 import spoon.SpoonModelBuilder;
 import spoon.compiler.SpoonResourceHelper;
+import spoon.reflect.code.CtLocalVariable;
 import spoon.reflect.declaration.CtClass;
+import spoon.reflect.declaration.CtElement;
 import spoon.reflect.declaration.CtType;
 import spoon.reflect.factory.Factory;
 import spoon.reflect.reference.CtFieldReference;
@@ -14,12 +16,16 @@ import spoon.reflect.visitor.ImportScannerImpl;
 import spoon.reflect.visitor.MinimalImportScanner;
 import spoon.reflect.visitor.Query;
 import spoon.reflect.visitor.filter.NamedElementFilter;
+import spoon.reflect.visitor.filter.TypeFilter;
 
 import java.security.AccessControlException;
 import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static spoon.testing.utils.ModelUtils.build;
 
@@ -116,4 +122,30 @@ public class ImportScannerTest {
 
 		assertEquals(0, imports.size());
 	}
+
+	@Test
+	public void testLocalVariablesAreComputedOncePerBlock() throws Exception {
+		// contract: the names of the variables accessible in a block are computed once per computeImports and shared by the elements of the block
+		CtClass<?> aClass = Launcher.parseClass("class A { void m() { int a = 0; { int b = a; String s = null; } } }");
+		List<CtLocalVariable<?>> variables = aClass.getElements(new TypeFilter<CtLocalVariable<?>>(CtLocalVariable.class));
+		CtLocalVariable<?> b = variables.get(1);
+		CtLocalVariable<?> s = variables.get(2);
+
+		class LocalVariablesScanner extends ImportScannerImpl {
+			Set<String> getLocalVariables(CtElement element) {
+				return lookForLocalVariables(element);
+			}
+		}
+		LocalVariablesScanner scanner = new LocalVariablesScanner();
+		scanner.computeImports(aClass);
+		Set<String> names = scanner.getLocalVariables(b.getType());
+		assertSame(names, scanner.getLocalVariables(s.getType()));
+		assertTrue(names.contains("a"));
+
+		// contract: the local variables are computed again by the next computeImports
+		scanner.computeImports(aClass);
+		Set<String> newNames = scanner.getLocalVariables(s.getType());
+		assertNotSame(names, newNames);
+		assertEquals(names, newNames);
+	}
 }
@@ -13,6 +13,7 @@ import spoon.reflect.declaration.CtAnnotationType;
 import spoon.reflect.declaration.CtClass;
 import spoon.reflect.declaration.CtField;
 import spoon.reflect.declaration.CtPackage;
+import spoon.reflect.declaration.CtType;
 import spoon.reflect.factory.Factory;
 import spoon.reflect.reference.CtPackageReference;
 import spoon.reflect.visitor.DefaultJavaPrettyPrinter;
@@ -30,10 +31,14 @@ import java.io.File;
 import java.io.FileReader;
 import java.nio.file.Files;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NavigableSet;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static spoon.testing.Assert.assertThat;
@@ -298,4 +303,81 @@ public class PackageTest {
 		assertEquals("info.guardianproject.onionkit.ui", fieldPkg.getSimpleName());
 		assertEquals("info.guardianproject.onionkit.ui", fieldPkg.getQualifiedName());
 	}
+
+	@Test
+	public void testGetPackageAndTypeBySimpleName() {
+		// contract: the lookup of sub-packages and types by simple name follows the additions, removals and renamings
+		Factory factory = new Launcher().getFactory();
+		CtPackage pack = factory.Package().getOrCreate("a.b");
+		CtClass<?> foo = factory.Class().create(pack, "Foo");
+		assertSame(foo, pack.getType("Foo"));
+		assertSame(foo, factory.Type().get("a.b.Foo"));
+		assertSame(pack, factory.Package().get("a.b"));
+
+		foo.setSimpleName("Bar");
+		assertNull(pack.getType("Foo"));
+		assertSame(foo, pack.getType("Bar"));
+		assertSame(foo, factory.Type().get("a.b.Bar"));
+
+		pack.removeType(foo);
+		assertNull(pack.getType("Bar"));
+		pack.addType(foo);
+		assertSame(foo, pack.getType("Bar"));
+
+		// the set of types is modified directly, without changing its size
+		CtClass<?> baz = factory.Core().createClass();
+		baz.setSimpleName("Baz");
+		baz.setParent(pack);
+		pack.getTypes().remove(foo);
+		pack.getTypes().add(baz);
+		assertNull(pack.getType("Bar"));
+		assertSame(baz, pack.getType("Baz"));
+		Iterator<CtType<?>> types = pack.getTypes().iterator();
+		types.next();
+		types.remove();
+		pack.getTypes().add(foo);
+		assertNull(pack.getType("Baz"));
+		assertSame(foo, pack.getType("Bar"));
+
+		// the views of the set are modifiable too
+		NavigableSet<CtType<?>> typeViews = (NavigableSet<CtType<?>>) pack.getTypes();
+		typeViews.headSet(foo, true).remove(foo);
+		typeViews.descendingSet().add(baz);
+		assertNull(pack.getType("Bar"));
+		assertSame(baz, pack.getType("Baz"));
+
+		pack.setSimpleName("c");
+		assertNull(factory.Package().get("a.b"));
+		assertSame(pack, factory.Package().get("a.c"));
+
+		CtPackage a = factory.Package().get("a");
+		a.removePackage(pack);
+		assertNull(a.getPackage("c"));
+		a.addPackage(pack);
+		assertSame(pack, a.getPackage("c"));
+	}
+
+	@Test
+	public void testQualifiedNameFollowsRenamingAndMoving() {
+		// contract: the qualified names of packages and types are computed once, and follow the renaming and the moving of their containers
+		Factory factory = new Launcher().getFactory();
+		CtPackage pack = factory.Package().getOrCreate("a.b");
+		CtClass<?> foo = factory.Class().create(pack, "Foo");
+		CtClass<?> nested = factory.Class().create(foo, "Nested");
+		assertEquals("a.b.Foo$Nested", nested.getQualifiedName());
+		assertSame(nested.getQualifiedName(), nested.getQualifiedName());
+		assertSame(pack.getQualifiedName(), pack.getQualifiedName());
+
+		factory.Package().get("a").setSimpleName("x");
+		assertEquals("x.b", pack.getQualifiedName());
+		assertEquals("x.b.Foo$Nested", nested.getQualifiedName());
+
+		foo.setSimpleName("Bar");
+		assertEquals("x.b.Bar$Nested", nested.getQualifiedName());
+
+		pack.removeType(foo);
+		factory.Package().getOrCreate("y").addType(foo);
+		assertEquals("y.Bar", foo.getQualifiedName());
+		assertEquals("y.Bar$Nested", nested.getQualifiedName());
+	}
 }
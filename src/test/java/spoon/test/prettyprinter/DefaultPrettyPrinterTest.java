@@ -1,5 +1,6 @@
 package spoon.test.prettyprinter;
 
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.junit.Test;
 import spoon.Launcher;
@@ -19,15 +20,21 @@ import spoon.reflect.visitor.DefaultJavaPrettyPrinter;
 import spoon.reflect.visitor.Query;
 import spoon.reflect.visitor.filter.TypeFilter;
 import spoon.support.JavaOutputProcessor;
+import spoon.support.visitor.StructuralHashCache;
+import spoon.support.visitor.TypeHierarchy;
 import spoon.test.prettyprinter.testclasses.AClass;
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertTrue;
 import static spoon.testing.utils.ModelUtils.build;
 
@@ -303,4 +310,52 @@ public class DefaultPrettyPrinterTest {
 		assertFalse(launcher.getModel().getAllTypes().isEmpty());
 	}
 
+	@Test
+	public void testParallelOutput() throws Exception {
+		// contract: the types printed in parallel are printed as the types printed sequentially
+		File sequentialOutput = new File("./target/spooned-sequential-output");
+		File parallelOutput = new File("./target/spooned-parallel-output");
+		FileUtils.deleteDirectory(sequentialOutput);
+		FileUtils.deleteDirectory(parallelOutput);
+
+		Launcher sequential = new Launcher();
+		sequential.addInputResource("./src/main/java/spoon/reflect/cu");
+		sequential.setSourceOutputDirectory(sequentialOutput);
+		sequential.buildModel();
+		sequential.prettyprint();
+
+		Launcher parallel = new Launcher();
+		parallel.addInputResource("./src/main/java/spoon/reflect/cu");
+		parallel.getEnvironment().setPrettyPrintingThreads(4);
+		parallel.setSourceOutputDirectory(parallelOutput);
+		parallel.buildModel();
+		// the caches of the model are queried by the printing threads
+		new TypeHierarchy().attachTo(parallel.getFactory());
+		new StructuralHashCache().attachTo(parallel.getFactory());
+		parallel.prettyprint();
+
+		Collection<File> printedFiles = FileUtils.listFiles(sequentialOutput, new String[] {"java"}, true);
+		assertEquals(sequential.getFactory().Type().getAll().size(), printedFiles.size());
+		for (File printedFile : printedFiles) {
+			File parallelFile = new File(parallelOutput, sequentialOutput.toPath().relativize(printedFile.toPath()).toString());
+			assertEquals(FileUtils.readFileToString(printedFile, "UTF-8"), FileUtils.readFileToString(parallelFile, "UTF-8"));
+		}
+
+		// contract: the files whose content is unchanged are not written again
+		FileTime oldTime = FileTime.fromMillis(0);
+		for (File file : FileUtils.listFiles(parallelOutput, new String[] {"java"}, true)) {
+			Files.setLastModifiedTime(file.toPath(), oldTime);
+		}
+		CtType<?> changedType = parallel.getFactory().Type().get("spoon.reflect.cu.SourcePosition");
+		changedType.addComment(parallel.getFactory().createInlineComment("changed"));
+		parallel.prettyprint();
+		for (File file : FileUtils.listFiles(parallelOutput, new String[] {"java"}, true)) {
+			if (file.getName().equals("SourcePosition.java")) {
+				assertNotEquals(oldTime, Files.getLastModifiedTime(file.toPath()));
+				assertTrue(FileUtils.readFileToString(file, "UTF-8").contains("// changed"));
+			} else {
+				assertEquals(oldTime, Files.getLastModifiedTime(file.toPath()));
+			}
+		}
+	}
 }
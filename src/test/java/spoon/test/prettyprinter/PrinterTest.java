@@ -1,6 +1,8 @@
 package spoon.test.prettyprinter;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static spoon.testing.utils.ModelUtils.canBeBuilt;
@@ -13,6 +15,7 @@ import spoon.compiler.SpoonResourceHelper;
 import spoon.reflect.code.CtComment;
 import spoon.reflect.declaration.CtType;
 import spoon.reflect.factory.Factory;
+import spoon.reflect.factory.FactoryImpl;
 import spoon.reflect.visitor.DefaultJavaPrettyPrinter;
 import spoon.reflect.visitor.ElementPrinterHelper;
 import spoon.reflect.visitor.ListPrinter;
@@ -20,14 +23,17 @@ import spoon.reflect.visitor.PrettyPrinter;
 import spoon.reflect.visitor.PrinterHelper;
 import spoon.reflect.visitor.TokenWriter;
 import spoon.reflect.visitor.DefaultTokenWriter;
+import spoon.support.reflect.declaration.CtElementImpl;
 import spoon.test.prettyprinter.testclasses.MissingVariableDeclaration;
 import spoon.testing.utils.ModelUtils;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.StringTokenizer;
 
@@ -460,4 +466,75 @@ public class PrinterTest {
 		String expectedResult = " start un next deux next trois end";
 		assertEquals(expectedResult, pp.toString());
 	}
+
+	@Test
+	public void testCalculateToAppendable() {
+		// contract: a compilation unit printed to an Appendable is the same as the result of the printer, with the same line number mapping
+		for (boolean preserveLineNumbers : new boolean[] {false, true}) {
+			Launcher spoon = new Launcher();
+			spoon.getEnvironment().setNoClasspath(true);
+			spoon.getEnvironment().setPreserveLineNumbers(preserveLineNumbers);
+			spoon.addInputResource("./src/main/java/spoon/reflect/visitor/DefaultJavaPrettyPrinter.java");
+			spoon.buildModel();
+			CtType<?> type = spoon.getFactory().Type().get("spoon.reflect.visitor.DefaultJavaPrettyPrinter");
+			List<CtType<?>> toPrint = Collections.singletonList(type);
+
+			DefaultJavaPrettyPrinter printer = (DefaultJavaPrettyPrinter) spoon.createPrettyPrinter();
+			printer.calculate(type.getPosition().getCompilationUnit(), toPrint);
+			String expected = printer.getResult();
+			Map<Integer, Integer> expectedMapping = new HashMap<>(printer.getLineNumberMapping());
+
+			printer = (DefaultJavaPrettyPrinter) spoon.createPrettyPrinter();
+			StringBuilder output = new StringBuilder();
+			printer.calculate(type.getPosition().getCompilationUnit(), toPrint, output);
+			assertTrue(expected.length() > 8192);
+			assertEquals(expected, output.toString());
+			assertEquals(expectedMapping, printer.getLineNumberMapping());
+			assertEquals("", printer.getResult());
+		}
+	}
+
+	@Test
+	public void testTruncatedToString() {
+		// contract: toString(maxLength) prints at most maxLength characters of toString(), followed by "..."
+		Launcher spoon = new Launcher();
+		spoon.getEnvironment().setNoClasspath(true);
+		spoon.addInputResource("./src/main/java/spoon/reflect/visitor/DefaultJavaPrettyPrinter.java");
+		spoon.buildModel();
+		CtElementImpl type = (CtElementImpl) spoon.getFactory().Type().get("spoon.reflect.visitor.DefaultJavaPrettyPrinter");
+		String printed = type.toString();
+
+		assertEquals(printed.substring(0, 100) + "...", type.toString(100));
+		assertEquals(printed, type.toString(Integer.MAX_VALUE));
+		CtElementImpl field = (CtElementImpl) ((CtType<?>) type).getField("context");
+		assertEquals(field.toString(), field.toString(1000));
+
+		// contract: the printer of toString() is reused by the next calls of the same thread, but not by nested calls
+		FactoryImpl factory = (FactoryImpl) spoon.getFactory();
+		DefaultJavaPrettyPrinter printer = factory.acquirePrinter();
+		assertNotSame(printer, factory.acquirePrinter());
+		factory.releasePrinter(printer);
+		assertSame(printer, factory.acquirePrinter());
+		factory.releasePrinter(printer);
+		assertEquals("", printer.getResult());
+		assertEquals(printed, type.toString());
+	}
+
+	@Test
+	public void testTruncatedToStringIsPrefix() {
+		// contract: toString(maxLength) is a prefix of toString() with auto-imports and line preservation
+		Launcher spoon = new Launcher();
+		spoon.getEnvironment().setNoClasspath(true);
+		spoon.getEnvironment().setAutoImports(true);
+		spoon.getEnvironment().setPreserveLineNumbers(true);
+		spoon.addInputResource("./src/main/java/spoon/reflect/visitor/DefaultJavaPrettyPrinter.java");
+		spoon.buildModel();
+		CtType<?> type = spoon.getFactory().Type().get("spoon.reflect.visitor.DefaultJavaPrettyPrinter");
+		CtElementImpl method = (CtElementImpl) type.getMethodsByName("printElement").get(0);
+		String printed = method.toString();
+
+		// the imports make the names shorter
+		assertTrue(printed.contains("instanceof CtImport"));
+		assertEquals(printed.substring(0, 50) + "...", method.toString(50));
+	}
 }
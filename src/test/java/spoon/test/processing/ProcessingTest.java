@@ -4,30 +4,49 @@ import org.apache.log4j.Level;
 import org.junit.Test;
 import spoon.Launcher;
 import spoon.SpoonException;
+import spoon.experimental.modelobs.ReferenceIndex;
 import spoon.processing.AbstractManualProcessor;
 import spoon.processing.AbstractProcessor;
 import spoon.processing.ProcessorProperties;
 import spoon.processing.ProcessorPropertiesImpl;
 import spoon.processing.Property;
+import spoon.processing.ThreadSafe;
+import spoon.processing.TraversalStrategy;
+import spoon.reflect.code.CtInvocation;
 import spoon.reflect.code.CtSwitch;
 import spoon.reflect.declaration.CtClass;
 import spoon.reflect.declaration.CtConstructor;
 import spoon.reflect.declaration.CtElement;
+import spoon.reflect.declaration.CtField;
 import spoon.reflect.declaration.CtInterface;
 import spoon.reflect.declaration.CtMethod;
 import spoon.reflect.declaration.CtType;
+import spoon.reflect.declaration.CtTypeParameter;
+import spoon.reflect.factory.Factory;
+import spoon.reflect.reference.CtReference;
+import spoon.reflect.reference.CtTypeReference;
+import spoon.reflect.visitor.filter.FieldReferenceFunction;
 import spoon.reflect.visitor.filter.TypeFilter;
+import spoon.support.FusedProcessingManager;
+import spoon.support.ParallelProcessingManager;
 import spoon.support.compiler.jdt.JDTBasedSpoonCompiler;
+import spoon.support.visitor.ProcessingVisitor;
+import spoon.support.visitor.StructuralHashCache;
+import spoon.support.visitor.TypeHierarchy;
 import spoon.test.processing.testclasses.CtClassProcessor;
 import spoon.test.processing.testclasses.CtInterfaceProcessor;
 import spoon.test.processing.testclasses.CtTypeProcessor;
 import spoon.testing.utils.ProcessorUtils;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
@@ -383,4 +402,204 @@ public class ProcessingTest {
 			}
 		}
 	}
+
+	@ThreadSafe
+	public static class ParallelMethodCounter extends AbstractProcessor<CtMethod<?>> {
+		final AtomicInteger count = new AtomicInteger();
+		final Set<Thread> threads = Collections.newSetFromMap(new ConcurrentHashMap<Thread, Boolean>());
+
+		@Override
+		public void process(CtMethod<?> method) {
+			count.incrementAndGet();
+			threads.add(Thread.currentThread());
+			if (method.isParentInitialized() && method.getParent() instanceof CtType && ((CtType<?>) method.getParent()).isTopLevel()) {
+				getEnvironment().report(this, Level.WARN, method, "method of a top-level type");
+			}
+		}
+	}
+
+	public static class SequentialMethodCounter extends ParallelMethodCounter {
+	}
+
+	@Test
+	public void testParallelProcessingManager() throws Exception {
+		// contract: the processors annotated by @ThreadSafe are applied to the top-level types in parallel, the other ones in the calling thread
+		Launcher launcher = new Launcher();
+		launcher.addInputResource("./src/test/java/spoon/test/processing/testclasses");
+		launcher.buildModel();
+		Factory factory = launcher.getFactory();
+		int methodCount = factory.getModel().getElements(new TypeFilter<>(CtMethod.class)).size();
+
+		int warningCount = factory.getEnvironment().getWarningCount();
+		ParallelProcessingManager manager = new ParallelProcessingManager(factory, 4);
+		SequentialMethodCounter sequential = new SequentialMethodCounter();
+		ParallelMethodCounter parallel = new ParallelMethodCounter();
+		manager.addProcessor(sequential);
+		manager.addProcessor(parallel);
+		manager.process(factory.getModel().getRootPackage());
+
+		assertEquals(methodCount, parallel.count.get());
+		assertEquals(methodCount, sequential.count.get());
+		assertFalse(parallel.threads.contains(Thread.currentThread()));
+		assertEquals(Collections.singleton(Thread.currentThread()), sequential.threads);
+		// the reports of the parallel processor are all printed
+		assertEquals(2 * factory.getModel().getRootPackage().getElements(new TypeFilter<CtMethod<?>>(CtMethod.class) {
+			@Override
+			public boolean matches(CtMethod<?> element) {
+				return super.matches(element) && element.getDeclaringType().isTopLevel();
+			}
+		}).size(), factory.getEnvironment().getWarningCount() - warningCount);
+	}
+
+	@ThreadSafe
+	public static class ModelCachesReader extends AbstractProcessor<CtType<?>> {
+		final Map<String, Set<String>> superTypes = new ConcurrentHashMap<>();
+		final Map<String, Integer> fieldReferences = new ConcurrentHashMap<>();
+		final Map<String, Integer> structuralHashes = new ConcurrentHashMap<>();
+
+		@Override
+		public void process(CtType<?> type) {
+			read(type, TypeHierarchy.getTypeHierarchy(getEnvironment()), StructuralHashCache.getStructuralHashCache(getEnvironment()));
+		}
+
+		void read(CtType<?> type, TypeHierarchy hierarchy, StructuralHashCache cache) {
+			if (type instanceof CtTypeParameter) {
+				// their names are not unique
+				return;
+			}
+			superTypes.put(type.getQualifiedName(), hierarchy.getAllSuperTypes(type));
+			for (CtField<?> field : type.getFields()) {
+				fieldReferences.put(field.getReference().getQualifiedName(), field.map(new FieldReferenceFunction()).list().size());
+			}
+			structuralHashes.put(type.getQualifiedName(), cache.getStructuralHash(type));
+		}
+	}
+
+	@Test
+	public void testParallelProcessingWithModelCaches() throws Exception {
+		// contract: the caches attached to the environment give the same results when they are queried by parallel processors
+		Launcher launcher = new Launcher();
+		launcher.getEnvironment().setNoClasspath(true);
+		launcher.addInputResource("./src/main/java/spoon/reflect/visitor/filter");
+		launcher.buildModel();
+		Factory factory = launcher.getFactory();
+
+		// the expected results are computed without the reference index and with caches which are not attached
+		ModelCachesReader expected = new ModelCachesReader();
+		TypeHierarchy hierarchy = new TypeHierarchy().attachTo(factory);
+		for (CtType<?> type : factory.getModel().getElements(new TypeFilter<CtType<?>>(CtType.class))) {
+			expected.read(type, hierarchy, new StructuralHashCache());
+		}
+
+		new ReferenceIndex().attachTo(factory);
+		new StructuralHashCache().attachTo(factory);
+		new TypeHierarchy().attachTo(factory);
+		ModelCachesReader parallel = new ModelCachesReader();
+		ParallelProcessingManager manager = new ParallelProcessingManager(factory, 4);
+		manager.addProcessor(parallel);
+		manager.process(factory.getModel().getRootPackage());
+
+		assertEquals(expected.superTypes, parallel.superTypes);
+		assertEquals(expected.fieldReferences, parallel.fieldReferences);
+		assertEquals(expected.structuralHashes, parallel.structuralHashes);
+	}
+
+	@Test
+	public void testFusedProcessingManager() throws Exception {
+		// contract: the fused processing manager applies all the processors in a single traversal, respecting their traversal strategy
+		Launcher launcher = new Launcher();
+		launcher.addInputResource("./src/test/java/spoon/test/processing/testclasses");
+		launcher.buildModel();
+		Factory factory = launcher.getFactory();
+		int methodCount = factory.getModel().getElements(new TypeFilter<>(CtMethod.class)).size();
+
+		final List<CtElement> processed = new ArrayList<>();
+		SequentialMethodCounter methodCounter = new SequentialMethodCounter();
+		AbstractProcessor<CtMethod<?>> methodRecorder = new AbstractProcessor<CtMethod<?>>() {
+			@Override
+			public void process(CtMethod<?> method) {
+				processed.add(method);
+			}
+		};
+		AbstractProcessor<CtClass<?>> classRecorder = new AbstractProcessor<CtClass<?>>() {
+			@Override
+			public TraversalStrategy getTraversalStrategy() {
+				return TraversalStrategy.POST_ORDER;
+			}
+
+			@Override
+			public void process(CtClass<?> element) {
+				processed.add(element);
+			}
+		};
+		final AtomicInteger interruptedCount = new AtomicInteger();
+		AbstractProcessor<CtMethod<?>> interrupted = new AbstractProcessor<CtMethod<?>>() {
+			@Override
+			public void process(CtMethod<?> method) {
+				interruptedCount.incrementAndGet();
+				interrupt();
+			}
+		};
+
+		FusedProcessingManager manager = new FusedProcessingManager(factory);
+		manager.addProcessor(interrupted);
+		manager.addProcessor(methodCounter);
+		manager.addProcessor(methodRecorder);
+		manager.addProcessor(classRecorder);
+		manager.process(factory.getModel().getRootPackage());
+
+		// the interruption of a processor does not stop the other ones
+		assertEquals(1, interruptedCount.get());
+		assertEquals(methodCount, methodCounter.count.get());
+		assertEquals(methodCount + factory.getModel().getElements(new TypeFilter<>(CtClass.class)).size(), processed.size());
+		// the classes are processed after their methods
+		for (int i = 0; i < processed.size(); i++) {
+			if (processed.get(i) instanceof CtMethod) {
+				CtClass<?> declaringClass = processed.get(i).getParent(CtClass.class);
+				if (declaringClass != null) {
+					assertTrue(processed.subList(i + 1, processed.size()).contains(declaringClass));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testProcessingVisitorSkipsReferencesWhenPossible() throws Exception {
+		// contract: the children of the references are scanned only if the processor may handle some of them
+		Launcher launcher = new Launcher();
+		launcher.addInputResource("./src/test/java/spoon/test/processing/testclasses");
+		launcher.buildModel();
+		Factory factory = launcher.getFactory();
+		final AtomicInteger scannedReferences = new AtomicInteger();
+		ProcessingVisitor visitor = new ProcessingVisitor(factory) {
+			@Override
+			protected void enter(CtElement e) {
+				if (e instanceof CtReference) {
+					scannedReferences.incrementAndGet();
+				}
+			}
+		};
+
+		final AtomicInteger invocationCount = new AtomicInteger();
+		visitor.setProcessor(new AbstractProcessor<CtInvocation<?>>() {
+			@Override
+			public void process(CtInvocation<?> element) {
+				invocationCount.incrementAndGet();
+			}
+		});
+		visitor.scan(factory.getModel().getRootPackage());
+		assertEquals(factory.getModel().getElements(new TypeFilter<>(CtInvocation.class)).size(), invocationCount.get());
+		assertEquals(0, scannedReferences.get());
+
+		final AtomicInteger typeReferenceCount = new AtomicInteger();
+		visitor.setProcessor(new AbstractProcessor<CtTypeReference<?>>() {
+			@Override
+			public void process(CtTypeReference<?> element) {
+				typeReferenceCount.incrementAndGet();
+			}
+		});
+		visitor.scan(factory.getModel().getRootPackage());
+		assertEquals(factory.getModel().getElements(new TypeFilter<>(CtTypeReference.class)).size(), typeReferenceCount.get());
+		assertTrue(scannedReferences.get() > 0);
+	}
 }
@@ -0,0 +1,65 @@
+package spoon.test.serializable;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import spoon.Launcher;
+import spoon.reflect.declaration.CtType;
+import spoon.reflect.factory.Factory;
+import spoon.reflect.reference.CtTypeReference;
+import spoon.support.BinaryModelStreamer;
+import spoon.support.ModelSnapshot;
+
+import java.io.File;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ModelSnapshotTest {
+
+	@Rule
+	public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+	@Test
+	public void testLoadTypesOnDemand() throws Exception {
+		// contract: the types of a snapshot are loaded into the model when they are looked up
+		Launcher launcher = new Launcher();
+		launcher.addInputResource("./src/main/java/spoon/reflect/cu");
+		launcher.buildModel();
+		Factory factory = launcher.getFactory();
+		File snapshotFile = tmpFolder.newFile("model.snapshot");
+		new BinaryModelStreamer().saveSnapshot(factory, snapshotFile.toPath());
+
+		Factory loadedFactory = new Launcher().getFactory();
+		ModelSnapshot snapshot = new BinaryModelStreamer().openSnapshot(snapshotFile.toPath(), loadedFactory);
+		assertEquals(factory.Type().getAll().size(), snapshot.getTypeNames().size());
+		assertTrue(loadedFactory.Type().getAll().isEmpty());
+		assertNotNull(loadedFactory.Package().get("spoon.reflect.cu.position"));
+
+		CtType<?> declarationPosition = loadedFactory.Type().get("spoon.reflect.cu.position.DeclarationSourcePosition");
+		assertNotNull(declarationPosition);
+		assertTrue(snapshot.isLoaded("spoon.reflect.cu.position.DeclarationSourcePosition"));
+		assertFalse(snapshot.isLoaded("spoon.reflect.cu.SourcePosition"));
+		assertEquals(factory.Type().get("spoon.reflect.cu.position.DeclarationSourcePosition").toString(), declarationPosition.toString());
+		assertSame(declarationPosition, declarationPosition.getPosition().getCompilationUnit().getDeclaredTypes().get(0));
+		assertSame(loadedFactory.Package().get("spoon.reflect.cu.position"), declarationPosition.getPackage());
+		assertNull(loadedFactory.Type().get("spoon.reflect.cu.Unknown"));
+
+		// contract: resolving a reference loads the referenced type
+		CtTypeReference<?> superInterface = declarationPosition.getSuperInterfaces().iterator().next();
+		CtType<?> sourcePosition = superInterface.getTypeDeclaration();
+		assertTrue(snapshot.isLoaded("spoon.reflect.cu.SourcePosition"));
+		assertSame(loadedFactory.Type().get("spoon.reflect.cu.SourcePosition"), sourcePosition);
+
+		// contract: once all the types are loaded, the model is equal to the saved one
+		snapshot.loadAll();
+		// then the types are not loaded on demand anymore
+		assertNull(loadedFactory.Type().getTypeLoader());
+		assertEquals(factory.Type().getAll().size(), loadedFactory.Type().getAll().size());
+		assertEquals(factory.getModel().getRootPackage(), loadedFactory.getModel().getRootPackage());
+	}
+}
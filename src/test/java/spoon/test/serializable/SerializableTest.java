@@ -1,11 +1,18 @@
 package spoon.test.serializable;
 
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import spoon.Launcher;
 import spoon.reflect.code.CtStatement;
+import spoon.reflect.cu.CompilationUnit;
+import spoon.reflect.declaration.CtElement;
 import spoon.reflect.declaration.CtPackage;
 import spoon.reflect.declaration.CtType;
 import spoon.reflect.factory.Factory;
 import spoon.reflect.factory.FactoryImpl;
+import spoon.reflect.visitor.CtScanner;
+import spoon.support.BinaryModelStreamer;
 import spoon.support.DefaultCoreFactory;
 import spoon.support.SerializationModelStreamer;
 import spoon.support.StandardEnvironment;
@@ -13,6 +20,8 @@ import spoon.support.util.ByteSerialization;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
@@ -23,6 +32,9 @@ import static spoon.testing.utils.ModelUtils.build;
 
 public class SerializableTest {
 
+	@Rule
+	public TemporaryFolder tmpFolder = new TemporaryFolder();
+
 	@Test
 	public void testSerialCtStatement() throws Exception {
 		Factory factory = new FactoryImpl(new DefaultCoreFactory(), new StandardEnvironment());
@@ -88,4 +100,49 @@ public class SerializableTest {
 			assertSame(loadedFactory, type.getPosition().getCompilationUnit().getFactory());
 		}
 	}
+
+	@Test
+	public void testBinaryModelStreamer() throws Exception {
+		// contract: the model loaded by BinaryModelStreamer is equal to the saved one, with the same positions and compilation units
+		Launcher launcher = new Launcher();
+		launcher.addInputResource("./src/main/java/spoon/reflect/cu");
+		launcher.addInputResource("./src/test/resources/serialization/SomeClass.java");
+		launcher.buildModel();
+		Factory factory = launcher.getFactory();
+
+		File modelFile = tmpFolder.newFile("model.bin");
+		new BinaryModelStreamer().save(factory, modelFile.toPath());
+		final Factory loadedFactory = new BinaryModelStreamer().load(modelFile.toPath());
+
+		assertEquals(factory.getModel().getRootPackage(), loadedFactory.getModel().getRootPackage());
+		assertEquals(factory.Type().getAll().size(), loadedFactory.Type().getAll().size());
+		for (CtType<?> type : factory.Type().getAll()) {
+			CtType<?> loadedType = loadedFactory.Type().get(type.getQualifiedName());
+			assertEquals(type.toString(), loadedType.toString());
+			assertEquals(type.getPosition().getLine(), loadedType.getPosition().getLine());
+			assertEquals(type.getPosition().getFile(), loadedType.getPosition().getFile());
+			assertEquals(type.getModifiers(), loadedType.getModifiers());
+			//contract: the parents are restored
+			assertSame(loadedFactory.Package().get(type.getPackage().getQualifiedName()), loadedType.getParent());
+		}
+
+		assertEquals(factory.CompilationUnit().getMap().keySet(), loadedFactory.CompilationUnit().getMap().keySet());
+		for (Map.Entry<String, CompilationUnit> entry : loadedFactory.CompilationUnit().getMap().entrySet()) {
+			CompilationUnit cu = entry.getValue();
+			assertSame(loadedFactory, cu.getFactory());
+			assertEquals(factory.CompilationUnit().getMap().get(entry.getKey()).getDeclaredTypes().size(), cu.getDeclaredTypes().size());
+			for (CtType<?> type : cu.getDeclaredTypes()) {
+				assertSame(cu, type.getPosition().getCompilationUnit());
+				assertSame(type, loadedFactory.Type().get(type.getQualifiedName()));
+			}
+		}
+
+		//contract: each element of the loaded model has the loaded factory
+		new CtScanner() {
+			@Override
+			protected void enter(CtElement e) {
+				assertSame(loadedFactory, e.getFactory());
+			}
+		}.scan(loadedFactory.getModel().getRootPackage());
+	}
 }
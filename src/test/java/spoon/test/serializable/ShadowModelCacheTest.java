@@ -0,0 +1,91 @@
+package spoon.test.serializable;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import spoon.Launcher;
+import spoon.reflect.declaration.CtType;
+import spoon.reflect.factory.Factory;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ShadowModelCacheTest {
+
+	@Rule
+	public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+	private Factory createFactory(File cacheDirectory) {
+		Launcher launcher = new Launcher();
+		launcher.getEnvironment().setShadowCacheDirectory(cacheDirectory);
+		return launcher.getFactory();
+	}
+
+	private List<Path> getCachedFiles(File cacheDirectory, String fileName) throws Exception {
+		try (Stream<Path> files = Files.walk(cacheDirectory.toPath())) {
+			return files.filter(file -> file.getFileName().toString().equals(fileName)).collect(Collectors.toList());
+		}
+	}
+
+	@Test
+	public void testShadowTypesAreLoadedFromTheCache() throws Exception {
+		// contract: a shadow type built with reflection is saved in the cache directory and loaded from it by the next factories
+		File cacheDirectory = tmpFolder.newFolder("shadows");
+		CtType<?> built = createFactory(cacheDirectory).Type().get(Map.Entry.class);
+		List<Path> files = getCachedFiles(cacheDirectory, "java.util.Map.shadow");
+		assertEquals(1, files.size());
+		Object fileKey = Files.readAttributes(files.get(0), "fileKey").get("fileKey");
+
+		Factory factory = createFactory(cacheDirectory);
+		CtType<?> loaded = factory.Type().get(Map.Entry.class);
+		assertTrue(loaded.isShadow());
+		assertTrue(loaded.getFactory() == factory);
+		assertEquals("java.util.Map$Entry", loaded.getQualifiedName());
+		assertEquals("java.util.Map", loaded.getDeclaringType().getQualifiedName());
+		assertEquals("java.util", loaded.getPackage().getQualifiedName());
+		assertEquals(built.getMethods().size(), loaded.getMethods().size());
+		assertEquals(built.toString(), loaded.toString());
+		assertTrue(loaded == factory.Type().get(Map.Entry.class));
+		// the file has not been written again
+		assertEquals(fileKey, Files.readAttributes(files.get(0), "fileKey").get("fileKey"));
+
+		// contract: the declaring type is loaded from the same file
+		assertEquals(loaded.getDeclaringType().toString(), createFactory(cacheDirectory).Type().get(Map.class).toString());
+	}
+
+	@Test
+	public void testUnreadableFilesAreBuiltAgain() throws Exception {
+		// contract: a file of the cache which cannot be read is ignored and replaced
+		File cacheDirectory = tmpFolder.newFolder("shadows");
+		CtType<?> built = createFactory(cacheDirectory).Type().get(Map.class);
+		Path file = getCachedFiles(cacheDirectory, "java.util.Map.shadow").get(0);
+		Files.write(file, new byte[] {1, 2, 3});
+
+		assertEquals(built.toString(), createFactory(cacheDirectory).Type().get(Map.class).toString());
+		assertNotEquals(3, Files.size(file));
+		assertEquals(built.toString(), createFactory(cacheDirectory).Type().get(Map.class).toString());
+	}
+
+	@Test
+	public void testJarTypesAreCachedByChecksum() throws Exception {
+		// contract: the types of a jar are cached in a directory named after the jar and its checksum
+		File cacheDirectory = tmpFolder.newFolder("shadows");
+		createFactory(cacheDirectory).Type().get(Test.class);
+		List<Path> files = getCachedFiles(cacheDirectory, "org.junit.Test.shadow");
+		assertEquals(1, files.size());
+		assertTrue(files.get(0).getParent().getFileName().toString().matches("junit.*\\.jar-[0-9a-f]+-[0-9a-f]+"));
+
+		// contract: the classes of a directory are not cached
+		createFactory(cacheDirectory).Type().get(ShadowModelCacheTest.class);
+		assertTrue(getCachedFiles(cacheDirectory, ShadowModelCacheTest.class.getName() + ".shadow").isEmpty());
+	}
+}
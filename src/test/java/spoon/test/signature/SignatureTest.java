@@ -4,6 +4,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -30,6 +31,7 @@ import spoon.reflect.declaration.CtMethod;
 import spoon.reflect.declaration.CtType;
 import spoon.reflect.factory.Factory;
 import spoon.reflect.factory.FactoryImpl;
+import spoon.reflect.reference.CtArrayTypeReference;
 import spoon.reflect.reference.CtExecutableReference;
 import spoon.reflect.visitor.Query;
 import spoon.reflect.visitor.filter.NamedElementFilter;
@@ -332,4 +334,70 @@ public class SignatureTest {
 		assertNotEquals(method, method2);
 
 	}
+
+	@Test
+	public void testCachedSignatureFollowsModelChanges() throws Exception {
+		// contract: the signatures are cached, yet they follow the renaming of the executable and the changes of its parameter types
+		CtClass<?> ctClass = Launcher.parseClass("package foo; class A { void m(String s, int[] t) { m(s, t); } A(String s) { } }");
+		CtMethod<?> method = ctClass.getMethodsByName("m").get(0);
+		CtExecutableReference<?> reference = method.getElements(new TypeFilter<>(CtInvocation.class)).get(0).getExecutable();
+		assertEquals("m(java.lang.String,int[])", method.getSignature());
+		assertEquals("m(java.lang.String,int[])", reference.getSignature());
+		assertEquals("foo.A(java.lang.String)", ctClass.getConstructors().iterator().next().getSignature());
+
+		method.setSimpleName("n");
+		reference.setSimpleName("n");
+		assertEquals("n(java.lang.String,int[])", method.getSignature());
+		assertEquals("n(java.lang.String,int[])", reference.getSignature());
+
+		method.getParameters().get(0).getType().setSimpleName("Object");
+		((CtArrayTypeReference<?>) method.getParameters().get(1).getType()).getComponentType().setSimpleName("long");
+		assertEquals("n(java.lang.Object,long[])", method.getSignature());
+
+		reference.getParameters().get(0).getPackage().setSimpleName("java.util");
+		assertEquals("n(java.util.String,int[])", reference.getSignature());
+
+		ctClass.setSimpleName("B");
+		assertEquals("foo.B(java.lang.String)", ctClass.getConstructors().iterator().next().getSignature());
+	}
+
+	@Test
+	public void testMethodIndexFollowsModelChanges() throws Exception {
+		// contract: getMethods, getMethodsByName and getMethod follow the added, removed and renamed methods
+		CtClass<?> ctClass = Launcher.parseClass("class A { void m() { } void m(int i) { } void n() { } }");
+		Factory factory = ctClass.getFactory();
+		assertEquals(3, ctClass.getMethods().size());
+		assertEquals(2, ctClass.getMethodsByName("m").size());
+		assertNotNull(ctClass.getMethod("m", factory.Type().integerPrimitiveType()));
+
+		CtMethod<?> n = ctClass.getMethodsByName("n").get(0);
+		n.setSimpleName("o");
+		assertTrue(ctClass.getMethodsByName("n").isEmpty());
+		assertEquals(1, ctClass.getMethodsByName("o").size());
+		assertNotNull(ctClass.getMethod("o"));
+
+		ctClass.removeMethod(ctClass.getMethod("m"));
+		assertEquals(1, ctClass.getMethodsByName("m").size());
+		assertEquals(2, ctClass.getMethods().size());
+
+		CtMethod<?> added = n.clone();
+		added.setSimpleName("p");
+		ctClass.addMethod(added);
+		assertEquals(3, ctClass.getMethods().size());
+		assertTrue(ctClass.getMethods().contains(added));
+		assertNotNull(ctClass.getMethod(factory.Type().voidPrimitiveType(), "p"));
+
+		// the set of methods follows the changes of the signatures
+		ctClass.getMethod("m", factory.Type().integerPrimitiveType()).getParameters().get(0).getType().setSimpleName("long");
+		assertNotNull(ctClass.getMethod("m", factory.Type().longPrimitiveType()));
+		assertEquals("m(long)", ctClass.getMethods().iterator().next().getSignature());
+		assertEquals(3, ctClass.getMethods().size());
+
+		// the set of methods is a modifiable copy
+		Set<CtMethod<?>> methods = ctClass.getMethods();
+		assertTrue(methods.removeIf(method -> "m".equals(method.getSimpleName())));
+		assertEquals(2, methods.size());
+		assertEquals(3, ctClass.getMethods().size());
+		assertNotSame(ctClass.getMethods(), ctClass.getMethods());
+	}
 }
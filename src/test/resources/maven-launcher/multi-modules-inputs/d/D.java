@@ -0,0 +1,6 @@
+package d;
+
+import c.C;
+
+public class D extends C {
+}
@@ -0,0 +1,9 @@
+package c;
+
+import b.B;
+
+public class C {
+	public int getLength(B b) {
+		return b.getLength() + b.getName().length();
+	}
+}
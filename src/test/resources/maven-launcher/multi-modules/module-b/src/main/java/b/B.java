@@ -0,0 +1,9 @@
+package b;
+
+import a.A;
+
+public class B extends A {
+	public int getLength() {
+		return getName().length();
+	}
+}